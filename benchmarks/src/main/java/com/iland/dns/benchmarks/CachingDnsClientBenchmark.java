@@ -0,0 +1,90 @@
+package com.iland.dns.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.NamingException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iland.dns.CachingDnsClient;
+import com.iland.dns.DnsClient;
+import com.iland.dns.DnsRecord;
+import com.iland.dns.RecordType;
+
+/**
+ * Measures {@link CachingDnsClient} hits, misses and, when run with several
+ * threads, contention on a single name, over an in-memory child client so
+ * that only the cache is measured.
+ * <p>
+ * {@link #hitBehindGlobalLock()} serializes hits behind a single lock like
+ * the cache used to, so that running both hit benchmarks with
+ * {@link ThreadScaling} compares the throughput of the lock-free hit path
+ * against it, e.g. <code>"CachingDnsClientBenchmark.hit(BehindGlobalLock)?$" 1,4,16</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CachingDnsClientBenchmark {
+
+	private static final List<DnsRecord> RECORDS = Collections.singletonList(
+			new DnsRecord(RecordType.A, "leader.mesos", "10.0.0.1"));
+
+	private final AtomicLong names = new AtomicLong();
+	private final Object lock = new Object();
+	private CachingDnsClient hitting;
+	private CachingDnsClient missing;
+
+	@Setup
+	public void setup() {
+		final DnsClient dnsClient = (name, recordTypes) -> RECORDS;
+		hitting = new CachingDnsClient(dnsClient);
+		// nothing is ever kept
+		missing = CachingDnsClient.builder(dnsClient)
+				.withExpireAfterWrite(0, TimeUnit.SECONDS).build();
+	}
+
+	@Benchmark
+	public List<? extends DnsRecord> hit() throws NamingException {
+		return hitting.lookup("leader.mesos", RecordType.A);
+	}
+
+	@Benchmark
+	public List<? extends DnsRecord> hitBehindGlobalLock()
+			throws NamingException {
+		synchronized (lock) {
+			return hitting.lookup("leader.mesos", RecordType.A);
+		}
+	}
+
+	@Benchmark
+	public List<? extends DnsRecord> hitAsync() {
+		return hitting.lookupAsync("leader.mesos", RecordType.A).join();
+	}
+
+	@Benchmark
+	public List<? extends DnsRecord> miss() throws NamingException {
+		return missing.lookup("leader.mesos", RecordType.A);
+	}
+
+	@Benchmark
+	public List<? extends DnsRecord> missDistinctNames() throws NamingException {
+		return missing.lookup("task-" + names.incrementAndGet() + ".mesos",
+				RecordType.A);
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.iland.dns.benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+
+/**
+ * An in-process DNS server answering every UDP query for an
+ * {@link com.iland.dns.RecordType#A A} record with <code>10.0.0.1</code>, so
+ * that transports are measured without a network or a real server in the way.
+ * Any other query is answered with no records.
+ */
+final class FakeDnsServer implements Closeable {
+
+	private static final int TYPE_A = 1;
+	private static final byte[] ADDRESS = { 10, 0, 0, 1 };
+
+	private final DatagramSocket udp;
+
+	FakeDnsServer(final int threads) throws IOException {
+		this.udp = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+		for (int i = 0; i < threads; i++) {
+			final Thread thread = new Thread(this::serve, "fake-dns-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	String host() {
+		return "127.0.0.1:" + udp.getLocalPort();
+	}
+
+	@Override
+	public void close() {
+		udp.close();
+	}
+
+	private void serve() {
+		final byte[] buffer = new byte[512];
+		final ByteBuffer response = ByteBuffer.allocate(512);
+		while (!udp.isClosed()) {
+			try {
+				final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+				udp.receive(packet);
+				answer(ByteBuffer.wrap(buffer, 0, packet.getLength()), response);
+				udp.send(new DatagramPacket(response.array(), response.position(),
+						packet.getSocketAddress()));
+			} catch (final SocketException e) {
+				return;
+			} catch (final IOException | RuntimeException e) {
+				// keep serving
+			}
+		}
+	}
+
+	private static void answer(final ByteBuffer query, final ByteBuffer response) {
+		int position = 12;
+		int length;
+		while ((length = query.get(position) & 0xff) != 0) {
+			position += length + 1;
+		}
+		final int qtype = query.getShort(position + 1) & 0xffff;
+		final int questionEnd = position + 5;
+		final boolean found = qtype == TYPE_A;
+
+		response.clear();
+		response.putShort(query.getShort(0));
+		response.putShort((short) (0x8000 | 0x0400 | 0x0100 | 0x0080));
+		response.putShort((short) 1);
+		response.putShort((short) (found ? 1 : 0));
+		response.putShort((short) 0);
+		response.putShort((short) 0);
+		response.put(query.array(), query.arrayOffset() + 12, questionEnd - 12);
+		if (found) {
+			// a pointer to the name in the question section
+			response.putShort((short) 0xc00c);
+			response.putShort((short) TYPE_A);
+			response.putShort((short) 1);
+			response.putInt(60);
+			response.putShort((short) ADDRESS.length);
+			response.put(ADDRESS);
+		}
+	}
+
+}
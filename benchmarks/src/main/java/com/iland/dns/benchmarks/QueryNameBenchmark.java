@@ -0,0 +1,74 @@
+package com.iland.dns.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iland.dns.CachingDnsClient;
+import com.iland.dns.DnsClient;
+import com.iland.dns.Protocol;
+import com.iland.dns.SrvDnsRecord;
+import com.iland.dns.mesos.MesosDnsClient;
+import com.iland.dns.mesos.MesosDnsException;
+
+/**
+ * Compares building query names with {@link String#format} against the name
+ * templates of {@link MesosDnsClient}, alone and on a cache hit. Run with
+ * <code>-prof gc</code> to compare the allocations per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryNameBenchmark {
+
+	private static final String DOMAIN = "mesos";
+	private static final String FRAMEWORK = "marathon";
+	private static final String TASK = "foo";
+	private static final String SERVICE = "http";
+
+	private MesosDnsClient client;
+
+	@Setup
+	public void setup() throws MesosDnsException {
+		final List<SrvDnsRecord> records = Collections.singletonList(
+				SrvDnsRecord.create("_http._foo._tcp.marathon.mesos", 0, 1, 31000,
+						"foo.marathon.mesos."));
+		final DnsClient dnsClient = (name, recordTypes) -> records;
+		client = new MesosDnsClient(new CachingDnsClient(dnsClient));
+		// warm the cache
+		client.lookupServiceRecordsForTaskService(DOMAIN, FRAMEWORK, TASK,
+				SERVICE, Protocol.TCP);
+	}
+
+	@Benchmark
+	public String formatName() {
+		return String.format("_%s._%s._%s.%s.%s", SERVICE, TASK,
+				Protocol.TCP.name().toLowerCase(), FRAMEWORK, DOMAIN);
+	}
+
+	@Benchmark
+	public List<SrvDnsRecord> formatNameCacheHit() throws MesosDnsException {
+		return client.lookupServiceRecords(formatName());
+	}
+
+	@Benchmark
+	public List<SrvDnsRecord> templateNameCacheHit() throws MesosDnsException {
+		return client.lookupServiceRecordsForTaskService(DOMAIN, FRAMEWORK, TASK,
+				SERVICE, Protocol.TCP);
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.iland.dns.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iland.dns.DnsClient;
+import com.iland.dns.DnsRecord;
+import com.iland.dns.RecordType;
+import com.iland.dns.RetryingDnsClient;
+
+/**
+ * Measures the overhead {@link RetryingDnsClient} adds to lookups that
+ * succeed at once, compared to calling its child client directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RetryingDnsClientBenchmark {
+
+	private static final List<DnsRecord> RECORDS = Collections.singletonList(
+			new DnsRecord(RecordType.A, "leader.mesos", "10.0.0.1"));
+
+	private DnsClient direct;
+	private DnsClient retrying;
+
+	@Setup
+	public void setup() {
+		direct = (name, recordTypes) -> RECORDS;
+		retrying = new RetryingDnsClient(direct);
+	}
+
+	@Benchmark
+	public List<? extends DnsRecord> direct() throws NamingException {
+		return direct.lookup("leader.mesos", RecordType.A);
+	}
+
+	@Benchmark
+	public List<? extends DnsRecord> retrying() throws NamingException {
+		return retrying.lookup("leader.mesos", RecordType.A);
+	}
+
+	@Benchmark
+	public List<? extends DnsRecord> retryingAsync() {
+		return retrying.lookupAsync("leader.mesos", RecordType.A).join();
+	}
+
+}
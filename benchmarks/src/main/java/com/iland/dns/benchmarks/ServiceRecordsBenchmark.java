@@ -0,0 +1,62 @@
+package com.iland.dns.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iland.dns.DnsClient;
+import com.iland.dns.DnsRecord;
+import com.iland.dns.SrvDnsRecord;
+
+/**
+ * Measures {@link DnsClient#lookupServiceRecords(String)}, i.e. sorting the
+ * SRV records of a service by priority and weight, for apps of several sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceRecordsBenchmark {
+
+	@Param({ "3", "30", "300" })
+	public int tasks;
+
+	private DnsClient client;
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(42);
+		final List<DnsRecord> records = new ArrayList<>(tasks);
+		for (int i = 0; i < tasks; i++) {
+			records.add(SrvDnsRecord.create("_http._foo._tcp.marathon.mesos",
+					random.nextInt(3), random.nextInt(100), 31000 + i,
+					"foo-" + i + ".marathon.mesos."));
+		}
+		final List<DnsRecord> unmodifiable = Collections.unmodifiableList(records);
+		client = (name, recordTypes) -> unmodifiable;
+	}
+
+	@Benchmark
+	public List<SrvDnsRecord> lookupServiceRecords() throws NamingException {
+		return client.lookupServiceRecords("_http._foo._tcp.marathon.mesos");
+	}
+
+}
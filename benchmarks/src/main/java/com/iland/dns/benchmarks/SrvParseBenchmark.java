@@ -0,0 +1,63 @@
+package com.iland.dns.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iland.dns.DnsRecord;
+import com.iland.dns.SrvDnsRecord;
+
+/**
+ * Compares the single pass SRV value parser of {@link SrvDnsRecord} with the
+ * regular expression it replaced. Run with <code>-prof gc</code> to compare
+ * the allocations per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SrvParseBenchmark {
+
+	private static final String NAME = "_http._foo._tcp.marathon.mesos";
+	private static final String VALUE = "0 1 31000 foo-1a2b3c.marathon.mesos.";
+	private static final byte[] VALUE_BYTES =
+			VALUE.getBytes(StandardCharsets.US_ASCII);
+
+	@Benchmark
+	public SrvDnsRecord regex() {
+		final Pattern pattern = Pattern.compile("(\\d+)\\s(\\d+)\\s(\\d+)\\s(.*)");
+		final Matcher matcher = pattern.matcher(VALUE);
+		if (!matcher.find()) {
+			throw new IllegalArgumentException(VALUE);
+		}
+
+		return SrvDnsRecord.create(NAME, Integer.parseInt(matcher.group(1)),
+				Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)),
+				matcher.group(4).trim(), DnsRecord.UNKNOWN_TTL);
+	}
+
+	@Benchmark
+	public SrvDnsRecord string() {
+		return SrvDnsRecord.create(NAME, VALUE, DnsRecord.UNKNOWN_TTL);
+	}
+
+	@Benchmark
+	public SrvDnsRecord bytes() {
+		return SrvDnsRecord.create(NAME, VALUE_BYTES, 0, VALUE_BYTES.length,
+				DnsRecord.UNKNOWN_TTL);
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.iland.dns.benchmarks;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks once per thread count, as JMH runs a benchmark at a single
+ * thread count per run, e.g.
+ * <code>java -cp benchmarks/target/benchmarks.jar com.iland.dns.benchmarks.ThreadScaling CachingDnsClient 1,4,16</code>.
+ */
+public final class ThreadScaling {
+
+	private static final String DEFAULT_THREADS = "1,4,16";
+
+	private ThreadScaling() {
+	}
+
+	/**
+	 * @param args the benchmarks to run as a regular expression (every
+	 *             benchmark by default), and the comma separated thread counts
+	 *             (<code>1,4,16</code> by default)
+	 * @throws RunnerException if a benchmark fails
+	 */
+	public static void main(final String[] args) throws RunnerException {
+		final String include = args.length > 0 ? args[0] : ".*";
+		final String threads = args.length > 1 ? args[1] : DEFAULT_THREADS;
+
+		for (final String count : threads.split(",")) {
+			final Options options = new OptionsBuilder().include(include)
+					.threads(Integer.parseInt(count.trim()))
+					.addProfiler("gc")
+					.build();
+			new Runner(options).run();
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.iland.dns.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iland.dns.DefaultDnsClient;
+import com.iland.dns.DnsClient;
+import com.iland.dns.DnsRecord;
+import com.iland.dns.RecordType;
+
+/**
+ * Measures uncached lookups of {@link DefaultDnsClient} over the NIO transport
+ * against an in-process {@link FakeDnsServer}. The JNDI transport is left out,
+ * as it resolves <code>dns:</code> names with the system resolver rather than
+ * with the hosts of the client.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+
+	private FakeDnsServer server;
+	private DnsClient client;
+
+	@Setup
+	public void setup() throws IOException {
+		server = new FakeDnsServer(2);
+		client = DefaultDnsClient.builder().withDefaultDomain(server.host())
+				.withNioTransport().withMaxConcurrency(64).build();
+	}
+
+	@TearDown
+	public void tearDown() {
+		server.close();
+	}
+
+	@Benchmark
+	public List<? extends DnsRecord> lookup() throws NamingException {
+		return client.lookup("leader.mesos", RecordType.A);
+	}
+
+	@Benchmark
+	public List<? extends DnsRecord> lookupAsync() {
+		return client.lookupAsync("leader.mesos", RecordType.A).join();
+	}
+
+}
@@ -0,0 +1,269 @@
+package com.iland.dns;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An {@link RecordType#A A} or {@link RecordType#AAAA AAAA} record holding its
+ * address as the 4 or 16 bytes it was received as, rather than as text. The
+ * {@link #getValue() value} is only formatted when asked for, the same way
+ * JNDI formats it, i.e. <code>"10.0.0.1"</code> and
+ * <code>"2001:db8:0:0:0:0:0:1"</code>.
+ * <p>
+ * The {@link #getAddress() address} is created from the bytes on first use
+ * and then kept, it is named after the record so that it never needs a
+ * reverse lookup.
+ */
+public class AddressDnsRecord extends DnsRecord {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final byte[] address;
+
+	// racily cached like String#hash, an InetAddress is safely published
+	private InetAddress inetAddress;
+
+	/**
+	 * @param name    a name
+	 * @param address the 4 bytes of an IPv4 or the 16 bytes of an IPv6 address
+	 * @param ttl     the time to live in seconds or {@link #UNKNOWN_TTL}
+	 * @throws IllegalArgumentException if the address is neither 4 nor 16 bytes
+	 *                                  long
+	 */
+	public AddressDnsRecord(final String name, final byte[] address,
+			final long ttl) {
+		super(recordType(address), name, ttl);
+		this.address = address.clone();
+	}
+
+	/**
+	 * Keeps the value as it was received, for addresses not formatted as by
+	 * JNDI, e.g. compressed IPv6 addresses.
+	 */
+	AddressDnsRecord(final String name, final byte[] address,
+			final String value, final long ttl) {
+		super(recordType(address), name, value, ttl);
+		this.address = address.clone();
+	}
+
+	/**
+	 * Returns the address, named after the record.
+	 *
+	 * @return an {@link java.net.Inet4Address} or {@link java.net.Inet6Address}
+	 */
+	public InetAddress getAddress() {
+		InetAddress inetAddress = this.inetAddress;
+		if (inetAddress == null) {
+			try {
+				inetAddress = InetAddress.getByAddress(getName(), address);
+			} catch (final UnknownHostException e) {
+				// only thrown for addresses of an illegal length
+				throw new IllegalStateException(e);
+			}
+			this.inetAddress = inetAddress;
+		}
+
+		return inetAddress;
+	}
+
+	/**
+	 * Returns a socket address of the address and a port.
+	 *
+	 * @param port the port
+	 * @return an {@link InetSocketAddress}
+	 * @throws IllegalArgumentException if the port is out of range
+	 */
+	public InetSocketAddress toSocketAddress(final int port) {
+		return new InetSocketAddress(getAddress(), port);
+	}
+
+	/**
+	 * Returns a copy of the address.
+	 *
+	 * @return the 4 bytes of an IPv4 or the 16 bytes of an IPv6 address
+	 */
+	public byte[] getAddressBytes() {
+		return address.clone();
+	}
+
+	@Override
+	public String getValue() {
+		final String value = super.getValue();
+
+		return value != null ? value : format(address);
+	}
+
+	/**
+	 * Compares the bytes of compact records rather than their formatted values.
+	 */
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof AddressDnsRecord) || !isCompact()
+				|| !((AddressDnsRecord) o).isCompact())
+			return super.equals(o);
+		final AddressDnsRecord addressRecord = (AddressDnsRecord) o;
+		return Arrays.equals(address, addressRecord.address)
+				&& getName().equals(addressRecord.getName());
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+
+	/**
+	 * The hash code of the value {@link #format(byte[]) formatted}, without
+	 * formatting it.
+	 */
+	@Override
+	int valueHashCode() {
+		if (!isCompact()) {
+			return super.valueHashCode();
+		}
+
+		int h = 0;
+		if (address.length == 4) {
+			for (int i = 0; i < 4; i++) {
+				if (i > 0) {
+					h = 31 * h + '.';
+				}
+				h = hashDecimal(h, address[i] & 0xff);
+			}
+		} else {
+			for (int i = 0; i < 16; i += 2) {
+				if (i > 0) {
+					h = 31 * h + ':';
+				}
+				h = hashHex(h, (address[i] & 0xff) << 8 | address[i + 1] & 0xff);
+			}
+		}
+
+		return h;
+	}
+
+	/**
+	 * Parses an address formatted as by {@link #format(byte[])}, so that a record
+	 * holding its bytes has the very same value.
+	 *
+	 * @return the address, or <code>null</code> if it is formatted otherwise,
+	 * e.g. as a compressed IPv6 address
+	 */
+	static byte[] parse(final RecordType type, final String value) {
+		if (type == RecordType.A) {
+			return parse(value, 4, '.', 10, 3, 0xff);
+		}
+		if (type == RecordType.AAAA) {
+			return parse(value, 8, ':', 16, 4, 0xffff);
+		}
+
+		return null;
+	}
+
+	static String format(final byte[] address) {
+		final StringBuilder value = new StringBuilder(address.length * 4);
+		if (address.length == 4) {
+			for (int i = 0; i < 4; i++) {
+				if (i > 0) {
+					value.append('.');
+				}
+				value.append(address[i] & 0xff);
+			}
+		} else {
+			for (int i = 0; i < 16; i += 2) {
+				if (i > 0) {
+					value.append(':');
+				}
+				appendHex(value, (address[i] & 0xff) << 8 | address[i + 1] & 0xff);
+			}
+		}
+
+		return value.toString();
+	}
+
+	private static byte[] parse(final String value, final int groups,
+			final char separator, final int radix, final int maxDigits,
+			final int maxGroup) {
+		final int bytesPerGroup = radix == 10 ? 1 : 2;
+		final byte[] address = new byte[groups * bytesPerGroup];
+		int position = 0;
+		for (int group = 0; group < groups; group++) {
+			if (group > 0) {
+				if (position == value.length() || value.charAt(position) != separator) {
+					return null;
+				}
+				position++;
+			}
+			final int start = position;
+			int number = 0;
+			while (position < value.length() && position - start < maxDigits) {
+				final char c = value.charAt(position);
+				final int digit;
+				if (c >= '0' && c <= '9') {
+					digit = c - '0';
+				} else if (radix == 16 && c >= 'a' && c <= 'f') {
+					digit = c - 'a' + 10;
+				} else {
+					break;
+				}
+				number = number * radix + digit;
+				position++;
+			}
+			final int digits = position - start;
+			if (digits == 0 || digits > 1 && value.charAt(start) == '0'
+					|| number > maxGroup) {
+				return null;
+			}
+			if (bytesPerGroup == 2) {
+				address[group * 2] = (byte) (number >> 8);
+				address[group * 2 + 1] = (byte) number;
+			} else {
+				address[group] = (byte) number;
+			}
+		}
+
+		return position == value.length() ? address : null;
+	}
+
+	private static void appendHex(final StringBuilder out, final int value) {
+		boolean leading = true;
+		for (int shift = 12; shift >= 0; shift -= 4) {
+			final int digit = value >> shift & 0xf;
+			if (digit != 0 || !leading || shift == 0) {
+				out.append(HEX[digit]);
+				leading = false;
+			}
+		}
+	}
+
+	private static int hashHex(final int hash, final int value) {
+		int h = hash;
+		boolean leading = true;
+		for (int shift = 12; shift >= 0; shift -= 4) {
+			final int digit = value >> shift & 0xf;
+			if (digit != 0 || !leading || shift == 0) {
+				h = 31 * h + HEX[digit];
+				leading = false;
+			}
+		}
+
+		return h;
+	}
+
+	private static RecordType recordType(final byte[] address) {
+		Objects.requireNonNull(address, "address must not be null");
+		if (address.length == 4) {
+			return RecordType.A;
+		}
+		if (address.length == 16) {
+			return RecordType.AAAA;
+		}
+
+		throw new IllegalArgumentException("address must be 4 or 16 bytes long");
+	}
+
+}
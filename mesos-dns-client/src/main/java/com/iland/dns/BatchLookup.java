@@ -0,0 +1,129 @@
+package com.iland.dns;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.NamingException;
+
+/**
+ * Looks up many names with at most <code>parallelism</code> asynchronous
+ * lookups in flight. Identical names are looked up once, and lookups that
+ * complete immediately (e.g. cache hits) are drained in a loop rather than
+ * by recursing through their completions.
+ */
+final class BatchLookup {
+
+	static final int DEFAULT_PARALLELISM = 16;
+
+	private final DnsClient dnsClient;
+	private final RecordType[] recordTypes;
+	private final Set<String> names;
+	private final Iterator<String> pending;
+	private final Map<String, DnsLookupResult<NamingException>> results =
+			new ConcurrentHashMap<>();
+	private final AtomicInteger remaining;
+	private final CompletableFuture<Map<String, DnsLookupResult<NamingException>>>
+			future = new CompletableFuture<>();
+
+	private BatchLookup(final DnsClient dnsClient, final Set<String> names,
+			final RecordType[] recordTypes) {
+		this.dnsClient = dnsClient;
+		this.recordTypes = recordTypes;
+		this.names = names;
+		this.pending = names.iterator();
+		this.remaining = new AtomicInteger(names.size());
+	}
+
+	/**
+	 * @return a {@link CompletableFuture} completed with the result of every
+	 * name, in the order the names were first given; it never completes
+	 * exceptionally
+	 */
+	static CompletableFuture<Map<String, DnsLookupResult<NamingException>>> lookupAll(
+			final DnsClient dnsClient, final Collection<String> names,
+			final int parallelism, final RecordType... recordTypes) {
+		Objects.requireNonNull(names, "names must not be null");
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		final Set<String> distinct = new LinkedHashSet<>(names);
+		distinct.forEach(name -> Objects.requireNonNull(name,
+				"names must not contain null"));
+
+		final BatchLookup batch = new BatchLookup(dnsClient, distinct, recordTypes);
+		if (distinct.isEmpty()) {
+			batch.complete();
+		}
+		for (int i = 0; i < Math.min(parallelism, distinct.size()); i++) {
+			batch.next();
+		}
+
+		return batch.future;
+	}
+
+	private void next() {
+		for (String name = poll(); name != null; name = poll()) {
+			final String current = name;
+			final CompletableFuture<List<? extends DnsRecord>> lookup;
+			try {
+				lookup = dnsClient.lookupAsync(current, recordTypes);
+			} catch (final RuntimeException e) {
+				record(current, null, e);
+				continue;
+			}
+			if (!lookup.isDone()) {
+				lookup.whenComplete((records, t) -> {
+					record(current, records, t);
+					next();
+				});
+				return;
+			}
+			lookup.whenComplete((records, t) -> record(current, records, t));
+		}
+	}
+
+	private String poll() {
+		synchronized (pending) {
+			return pending.hasNext() ? pending.next() : null;
+		}
+	}
+
+	private void record(final String name,
+			final List<? extends DnsRecord> records, final Throwable t) {
+		results.put(name, t == null ?
+				DnsLookupResult.success(name, records) :
+				DnsLookupResult.failure(name, namingException(t)));
+		if (remaining.decrementAndGet() == 0) {
+			complete();
+		}
+	}
+
+	private void complete() {
+		final Map<String, DnsLookupResult<NamingException>> ordered =
+				new LinkedHashMap<>();
+		names.forEach(name -> ordered.put(name, results.get(name)));
+		future.complete(ordered);
+	}
+
+	private static NamingException namingException(final Throwable t) {
+		final Throwable cause = Exceptions.unwrap(t);
+		if (cause instanceof NamingException) {
+			return (NamingException) cause;
+		}
+
+		final NamingException exception = new NamingException(cause.toString());
+		exception.setRootCause(cause);
+
+		return exception;
+	}
+
+}
@@ -0,0 +1,215 @@
+package com.iland.dns;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the non-empty entries of a {@link CachingDnsClient} as a
+ * compact binary file:
+ * <pre>
+ * snapshot := magic:int version:byte count:int entry*
+ * entry    := name:utf types:byte type:byte* records:int record*
+ * record   := type:byte ttl:int name:utf (srv | value:utf)
+ * srv      := priority:short weight:short port:short target:utf
+ * </pre>
+ * Types are written as their DNS wire format codes and record names equal to
+ * the entry name are written as an empty string. Version 1 snapshots, which
+ * count the records of an entry as a short, are still read.
+ */
+final class CacheSnapshot {
+
+	private static final int MAGIC = 0x4d444e53;
+	private static final int VERSION = 2;
+
+	private CacheSnapshot() {
+	}
+
+	/**
+	 * Writes the entries to a temporary file that then replaces the snapshot,
+	 * so that a reader never sees a partially written snapshot.
+	 *
+	 * @param file    the snapshot file
+	 * @param entries the entries
+	 * @throws IOException if the snapshot can not be written
+	 */
+	static void write(final Path file, final Collection<Entry> entries)
+			throws IOException {
+		final Path directory = file.toAbsolutePath().getParent();
+		if (directory != null) {
+			Files.createDirectories(directory);
+		}
+		final Path temporary = Files.createTempFile(directory,
+				file.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(temporary)) {
+				write(new DataOutputStream(new BufferedOutputStream(out)), entries);
+			}
+			try {
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException e) {
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	private static void write(final DataOutputStream out,
+			final Collection<Entry> entries) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeInt(entries.size());
+		for (final Entry entry : entries) {
+			out.writeUTF(entry.name);
+			out.writeByte(entry.recordTypes.length);
+			for (final RecordType recordType : entry.recordTypes) {
+				out.writeByte(DnsWireCodec.typeCode(recordType));
+			}
+			out.writeInt(entry.records.size());
+			for (final DnsRecord record : entry.records) {
+				out.writeByte(DnsWireCodec.typeCode(record.getType()));
+				out.writeInt((int) Math.min(Integer.MAX_VALUE, record.getTtl()));
+				out.writeUTF(record.getName().equals(entry.name) ?
+						"" :
+						record.getName());
+				if (record.getType() == RecordType.SRV) {
+					final SrvDnsRecord srvRecord = record instanceof SrvDnsRecord ?
+							(SrvDnsRecord) record :
+							SrvDnsRecord.create(record.getName(), record.getValue());
+					out.writeShort(srvRecord.getPriority());
+					out.writeShort(srvRecord.getWeight());
+					out.writeShort(srvRecord.getPort());
+					out.writeUTF(srvRecord.getTarget());
+				} else {
+					out.writeUTF(record.getValue());
+				}
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads the entries of a snapshot.
+	 *
+	 * @param file          the snapshot file
+	 * @param recordFactory the {@link DnsRecordFactory} records are created with
+	 * @return the entries, none if the file does not exist
+	 * @throws IOException if the snapshot can not be read or is malformed
+	 */
+	static List<Entry> read(final Path file, final DnsRecordFactory recordFactory)
+			throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return read(new DataInputStream(new BufferedInputStream(in)),
+					recordFactory, file);
+		} catch (final NoSuchFileException e) {
+			return new ArrayList<>();
+		}
+	}
+
+	private static List<Entry> read(final DataInputStream in,
+			final DnsRecordFactory recordFactory, final Path file)
+			throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException(file + " is not a DNS cache snapshot");
+		}
+		final int version = in.readUnsignedByte();
+		if (version != 1 && version != VERSION) {
+			throw new IOException(String.format(
+					"%s has an unsupported snapshot version %d", file, version));
+		}
+
+		final int count = in.readInt();
+		final List<Entry> entries = new ArrayList<>(Math.min(count, 1024));
+		// SRV targets recur across entries, share a single instance of each
+		final Map<String, String> targets = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			final String name = in.readUTF();
+			final RecordType[] recordTypes = new RecordType[in.readUnsignedByte()];
+			for (int j = 0; j < recordTypes.length; j++) {
+				recordTypes[j] = recordType(in.readUnsignedByte(), file);
+			}
+			final int size = version == 1 ? in.readUnsignedShort() : in.readInt();
+			if (size < 0) {
+				throw new IOException(String.format(
+						"%s has a negative record count %d", file, size));
+			}
+			final List<DnsRecord> records = new ArrayList<>(Math.min(size, 1024));
+			for (int j = 0; j < size; j++) {
+				final RecordType type = recordType(in.readUnsignedByte(), file);
+				final long ttl = in.readInt();
+				final String recordName = in.readUTF();
+				final String owner = recordName.isEmpty() ? name : recordName;
+				if (type == RecordType.SRV) {
+					records.add(recordFactory.createServiceRecord(owner,
+							in.readUnsignedShort(), in.readUnsignedShort(),
+							in.readUnsignedShort(),
+							targets.computeIfAbsent(in.readUTF(), target -> target), ttl));
+				} else {
+					records.add(
+							recordFactory.createDnsRecord(type, owner, in.readUTF(), ttl));
+				}
+			}
+			entries.add(new Entry(name, recordTypes, records));
+		}
+
+		return entries;
+	}
+
+	private static RecordType recordType(final int code, final Path file)
+			throws IOException {
+		final RecordType recordType = DnsWireCodec.recordType(code);
+		if (recordType == null) {
+			throw new IOException(
+					String.format("%s has an unknown record type %d", file, code));
+		}
+
+		return recordType;
+	}
+
+	/**
+	 * The records of a query.
+	 */
+	static final class Entry {
+
+		private final String name;
+		private final RecordType[] recordTypes;
+		private final List<? extends DnsRecord> records;
+
+		Entry(final String name, final RecordType[] recordTypes,
+				final List<? extends DnsRecord> records) {
+			this.name = name;
+			this.recordTypes = recordTypes;
+			this.records = records;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		RecordType[] getRecordTypes() {
+			return recordTypes;
+		}
+
+		List<? extends DnsRecord> getRecords() {
+			return records;
+		}
+
+	}
+
+}
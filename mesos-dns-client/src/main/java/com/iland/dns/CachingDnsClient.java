@@ -0,0 +1,1004 @@
+package com.iland.dns;
+
+import static com.iland.dns.Exceptions.lookupErrorMessage;
+import static com.iland.dns.Exceptions.throwNamingException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.naming.InterruptedNamingException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DnsClient} caching non-empty results.
+ * <p>
+ * Cache hits never take a lock. Concurrent misses for the same query share a
+ * single lookup of the child {@link DnsClient}, whether they are synchronous
+ * or asynchronous, while misses for different queries load in parallel.
+ * <p>
+ * By default every entry expires a fixed duration after it was written. When
+ * built with {@link Builder#withRecordTtl}, every entry instead expires after
+ * the smallest TTL among its records, clamped to a floor and a ceiling.
+ * <p>
+ * When built with {@link Builder#withRefreshAhead}, an entry past a fraction
+ * of its lifetime is refreshed in the background while callers keep getting
+ * the cached records, until the refresh completes or the entry has been
+ * expired for longer than the maximum staleness.
+ * <p>
+ * Empty and NXDOMAIN results are not cached, unless built with
+ * {@link Builder#withNegativeTtl}: they are then cached for that (short)
+ * duration, never refreshed ahead, and a cached NXDOMAIN result is rethrown as
+ * a {@link NameNotFoundException}.
+ * <p>
+ * When built with {@link Builder#withSnapshot}, the non-empty entries are
+ * periodically written to a snapshot file, which is loaded when the client is
+ * built. Loaded entries are stale: they are served right away and revalidated
+ * in the background on their first hit, and keep being served while the child
+ * {@link DnsClient} fails, e.g. while Mesos-DNS is unreachable.
+ * <p>
+ * Hits, misses, loads of the child {@link DnsClient} and evictions are
+ * counted, see {@link #stats()}.
+ */
+public class CachingDnsClient implements DnsClient, Closeable {
+
+	private static final Logger logger =
+			LoggerFactory.getLogger(CachingDnsClient.class);
+
+	/**
+	 * How long a stale entry is served before revalidating it again after a
+	 * failed revalidation.
+	 */
+	private static final long STALE_RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+	private static final RecordType[] SRV_TYPES = {RecordType.SRV};
+
+	private final DnsClient delegatee;
+	private final Cache<DnsQuery, CacheEntry> cache;
+	private final ConcurrentMap<DnsQuery, CompletableFuture<List<? extends DnsRecord>>>
+			loads = new ConcurrentHashMap<>();
+	private final Ticker ticker;
+	private final long expireAfterWriteNanos;
+	private final long minTtlNanos;
+	private final long maxTtlNanos;
+	private final boolean recordTtl;
+	private final double refreshFactor;
+	private final long maxStalenessNanos;
+	private final Executor refreshExecutor;
+	private final long negativeTtlNanos;
+	private final LongAdder negativeHits = new LongAdder();
+	private final LongAdder negativeLoads = new LongAdder();
+	private final AbstractCache.StatsCounter stats =
+			new AbstractCache.SimpleStatsCounter();
+	private final Path snapshotFile;
+	private final ScheduledFuture<?> snapshotTask;
+	private final DnsRecordFactory recordFactory;
+	private final DnsLookupListener listener;
+
+	/**
+	 * A {@link CachingDnsClient} with a TTL of 1 minute.
+	 *
+	 * @param delegatee the child {@link DnsClient}
+	 */
+	public CachingDnsClient(final DnsClient delegatee) {
+		this(delegatee, 1, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * @param delegatee the child {@link DnsClient}
+	 * @param duration  the duration
+	 * @param unit      the {@link TimeUnit unit}
+	 */
+	public CachingDnsClient(final DnsClient delegatee, final long duration,
+			final TimeUnit unit) {
+		this(builder(delegatee).withExpireAfterWrite(duration, unit));
+	}
+
+	private CachingDnsClient(final Builder builder) {
+		this.delegatee = builder.delegatee;
+		this.ticker = builder.ticker;
+		this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+		this.minTtlNanos = builder.minTtlNanos;
+		this.maxTtlNanos = builder.maxTtlNanos;
+		this.recordTtl = builder.recordTtl;
+		this.refreshFactor = builder.refreshFactor;
+		this.maxStalenessNanos = builder.maxStalenessNanos;
+		this.refreshExecutor = builder.refreshExecutor;
+		this.negativeTtlNanos = builder.negativeTtlNanos;
+		this.recordFactory = builder.recordFactory;
+		this.listener = GuardedDnsLookupListener.guard(builder.listener);
+		this.cache = CacheBuilder.newBuilder().ticker(ticker)
+				.expireAfterWrite((recordTtl ?
+						Math.max(maxTtlNanos, expireAfterWriteNanos) :
+						expireAfterWriteNanos) + maxStalenessNanos + negativeTtlNanos,
+						TimeUnit.NANOSECONDS)
+				.recordStats()
+				.removalListener(notification -> logger.debug("{} was {} (cause: {})",
+						notification.getKey(),
+						notification.wasEvicted() ? "evicted" : "removed",
+						notification.getCause())).build();
+		this.snapshotFile = builder.snapshotFile;
+		if (snapshotFile == null) {
+			this.snapshotTask = null;
+		} else {
+			try {
+				loadSnapshot(snapshotFile);
+			} catch (final IOException e) {
+				logger.warn("failed to load the DNS cache snapshot {}", snapshotFile,
+						e);
+			}
+			this.snapshotTask = DnsExecutors.defaultScheduler().scheduleWithFixedDelay(
+					() -> DnsExecutors.defaultExecutor().execute(this::writeSnapshot),
+					builder.snapshotIntervalNanos, builder.snapshotIntervalNanos,
+					TimeUnit.NANOSECONDS);
+		}
+	}
+
+	public static Builder builder(final DnsClient delegatee) {
+		return new Builder(delegatee);
+	}
+
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final RecordType... recordTypes) throws NamingException {
+		return lookup(name, null, recordTypes);
+	}
+
+	/**
+	 * A cache hit is returned even once the deadline expired. A miss fails fast
+	 * once the deadline expired, otherwise it waits for the shared load until
+	 * the deadline. The shared load carries the deadline of the caller that
+	 * started it.
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws NamingException {
+		return lookup(new DnsQuery(name, recordTypes), deadline);
+	}
+
+	/**
+	 * Lookup the DNS records of a {@link DnsQuery query}, e.g. one the caller
+	 * keeps for a name it looks up over and over. The query is the key of the
+	 * cache, so a hit does not build it again.
+	 *
+	 * @param query the {@link DnsQuery query}
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws NamingException if the lookup fails
+	 */
+	public List<? extends DnsRecord> lookup(final DnsQuery query)
+			throws NamingException {
+		return lookup(Objects.requireNonNull(query, "query must not be null"),
+				null);
+	}
+
+	private List<? extends DnsRecord> lookup(final DnsQuery dnsQuery,
+			final Deadline deadline) throws NamingException {
+		final String name = dnsQuery.getName();
+		final RecordType[] recordTypes = dnsQuery.recordTypes();
+		final CacheEntry cached = getIfPresent(dnsQuery, name, recordTypes);
+		if (cached != null) {
+			onHit(name, recordTypes);
+			return cached.get();
+		}
+		onMiss(name, recordTypes);
+		if (deadline != null && deadline.isExpired()) {
+			throw Deadline.exceeded(name, recordTypes);
+		}
+
+		final CompletableFuture<List<? extends DnsRecord>> load =
+				new CompletableFuture<>();
+		final CompletableFuture<List<? extends DnsRecord>> inFlight =
+				loads.putIfAbsent(dnsQuery, load);
+		if (inFlight != null) {
+			return deadline == null ?
+					await(inFlight, name, recordTypes) :
+					Deadline.await(inFlight, deadline, name, recordTypes);
+		}
+
+		final long start = ticker.read();
+		try {
+			final List<? extends DnsRecord> dnsRecords = deadline == null ?
+					delegatee.lookup(name, recordTypes) :
+					delegatee.lookup(name, deadline, recordTypes);
+			stats.recordLoadSuccess(ticker.read() - start);
+			store(dnsQuery, dnsRecords);
+			load.complete(dnsRecords);
+
+			return dnsRecords;
+		} catch (final NameNotFoundException e) {
+			stats.recordLoadException(ticker.read() - start);
+			storeNotFound(dnsQuery, e);
+			load.completeExceptionally(e);
+			throw e;
+		} catch (final NamingException | RuntimeException e) {
+			stats.recordLoadException(ticker.read() - start);
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			loads.remove(dnsQuery, load);
+		}
+	}
+
+	/**
+	 * Completes immediately on a cache hit, otherwise completes once the child
+	 * {@link DnsClient} asynchronously completes its lookup.
+	 */
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		return lookupAsync(name, null, recordTypes);
+	}
+
+	/**
+	 * A cache hit completes immediately even once the deadline expired. A miss
+	 * fails fast once the deadline expired, otherwise it is bounded by the
+	 * deadline. The shared load carries the deadline of the caller that started
+	 * it.
+	 */
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final Deadline deadline,
+			final RecordType... recordTypes) {
+		final DnsQuery dnsQuery = new DnsQuery(name, recordTypes);
+		final CacheEntry cached = getIfPresent(dnsQuery, name, recordTypes);
+		if (cached != null) {
+			onHit(name, recordTypes);
+			return cached.toFuture();
+		}
+		onMiss(name, recordTypes);
+		if (deadline != null && deadline.isExpired()) {
+			final CompletableFuture<List<? extends DnsRecord>> expired =
+					new CompletableFuture<>();
+			expired.completeExceptionally(Deadline.exceeded(name, recordTypes));
+			return expired;
+		}
+
+		final CompletableFuture<List<? extends DnsRecord>> load =
+				new CompletableFuture<>();
+		final CompletableFuture<List<? extends DnsRecord>> inFlight =
+				loads.putIfAbsent(dnsQuery, load);
+		if (inFlight != null) {
+			// a copy, so that callers can not complete the shared load
+			return deadline == null ?
+					inFlight.thenApply(dnsRecords -> dnsRecords) :
+					Deadline.bound(inFlight, deadline, name, recordTypes);
+		}
+
+		final long start = ticker.read();
+		try {
+			(deadline == null ?
+					delegatee.lookupAsync(name, recordTypes) :
+					delegatee.lookupAsync(name, deadline, recordTypes))
+					.whenComplete((dnsRecords, t) -> {
+						final Throwable cause = t == null ? null : Exceptions.unwrap(t);
+						recordLoad(start, cause == null);
+						if (cause == null) {
+							store(dnsQuery, dnsRecords);
+						} else if (cause instanceof NameNotFoundException) {
+							storeNotFound(dnsQuery, (NameNotFoundException) cause);
+						}
+						loads.remove(dnsQuery, load);
+						if (cause == null) {
+							load.complete(dnsRecords);
+						} else {
+							load.completeExceptionally(cause);
+						}
+					});
+		} catch (final RuntimeException e) {
+			stats.recordLoadException(ticker.read() - start);
+			loads.remove(dnsQuery, load);
+			load.completeExceptionally(e);
+		}
+
+		return load.thenApply(dnsRecords -> dnsRecords);
+	}
+
+	/**
+	 * The sorted {@link SrvDnsRecord SRV records} are built once per cached
+	 * record set, and shared by every caller until the records are reloaded,
+	 * hence the {@link List list} is unmodifiable.
+	 */
+	@Override
+	public List<SrvDnsRecord> lookupServiceRecords(final String name)
+			throws NamingException {
+		return lookupServiceRecords(new DnsQuery(name, SRV_TYPES), name);
+	}
+
+	/**
+	 * Lookup the service records (SRV records) of a {@link DnsQuery query}, e.g.
+	 * one the caller keeps for a name it looks up over and over. The sorted
+	 * records are shared like those of {@link #lookupServiceRecords(String)}
+	 * if the query is of SRV records only.
+	 *
+	 * @param query the {@link DnsQuery query}
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws NamingException if the lookup fails
+	 */
+	public List<SrvDnsRecord> lookupServiceRecords(final DnsQuery query)
+			throws NamingException {
+		if (!query.hasRecordTypes(SRV_TYPES)) {
+			return ServiceRecords.sort(lookup(query));
+		}
+
+		return lookupServiceRecords(query, query.getName());
+	}
+
+	private List<SrvDnsRecord> lookupServiceRecords(final DnsQuery dnsQuery,
+			final String name) throws NamingException {
+		CacheEntry entry = getIfPresent(dnsQuery, name, SRV_TYPES);
+		if (entry == null) {
+			// counts the miss
+			final List<? extends DnsRecord> dnsRecords = lookup(dnsQuery, null);
+			entry = cache.getIfPresent(dnsQuery);
+			if (entry == null || entry.records != dnsRecords) {
+				return Collections.unmodifiableList(ServiceRecords.sort(dnsRecords));
+			}
+		} else {
+			onHit(name, SRV_TYPES);
+		}
+
+		return entry.serviceRecords();
+	}
+
+	/**
+	 * The {@link ServiceRecordSelector selector} is built once per cached record
+	 * set, and shared by every caller until the records are reloaded.
+	 */
+	@Override
+	public ServiceRecordSelector lookupServiceRecordSelector(final String name)
+			throws NamingException {
+		final DnsQuery dnsQuery = new DnsQuery(name, SRV_TYPES);
+		CacheEntry entry = getIfPresent(dnsQuery, name, SRV_TYPES);
+		if (entry == null) {
+			// counts the miss
+			final List<? extends DnsRecord> dnsRecords = lookup(name, SRV_TYPES);
+			entry = cache.getIfPresent(dnsQuery);
+			if (entry == null || entry.records != dnsRecords) {
+				return ServiceRecordSelector.of(dnsRecords);
+			}
+		} else {
+			onHit(name, SRV_TYPES);
+		}
+
+		return entry.selector();
+	}
+
+	/**
+	 * Writes the non-empty entries to a snapshot file, replacing it atomically.
+	 *
+	 * @param file the snapshot file
+	 * @return the number of entries written
+	 * @throws IOException if the snapshot can not be written
+	 */
+	public int saveSnapshot(final Path file) throws IOException {
+		Objects.requireNonNull(file, "file must not be null");
+
+		final List<CacheSnapshot.Entry> entries = new ArrayList<>();
+		cache.asMap().forEach((dnsQuery, entry) -> {
+			if (!entry.isNegative()) {
+				entries.add(new CacheSnapshot.Entry(dnsQuery.getName(),
+						dnsQuery.recordTypes(), entry.records));
+			}
+		});
+		CacheSnapshot.write(file, entries);
+
+		return entries.size();
+	}
+
+	/**
+	 * Loads the entries of a snapshot file as stale entries, unless the query
+	 * is already cached. A stale entry is served right away and revalidated in
+	 * the background on its first hit. Records are created with the
+	 * {@link Builder#withRecordFactory configured} {@link DnsRecordFactory}.
+	 *
+	 * @param file the snapshot file
+	 * @return the number of entries loaded, <code>0</code> if the file does
+	 * not exist
+	 * @throws IOException if the snapshot can not be read
+	 */
+	public int loadSnapshot(final Path file) throws IOException {
+		Objects.requireNonNull(file, "file must not be null");
+
+		final long now = ticker.read();
+		int loaded = 0;
+		for (final CacheSnapshot.Entry entry : CacheSnapshot.read(file,
+				recordFactory)) {
+			if (entry.getRecords().isEmpty()) {
+				continue;
+			}
+			final DnsQuery dnsQuery =
+					new DnsQuery(entry.getName(), entry.getRecordTypes());
+			if (cache.asMap().putIfAbsent(dnsQuery,
+					new CacheEntry(entry.getRecords(), null, now, now, true)) == null) {
+				loaded++;
+			}
+		}
+
+		return loaded;
+	}
+
+	/**
+	 * Stops writing the snapshot periodically and writes it one last time.
+	 */
+	@Override
+	public void close() {
+		if (snapshotTask != null) {
+			snapshotTask.cancel(false);
+			writeSnapshot();
+		}
+	}
+
+	private void writeSnapshot() {
+		try {
+			final int entries = saveSnapshot(snapshotFile);
+			logger.debug("wrote {} entries to the DNS cache snapshot {}", entries,
+					snapshotFile);
+		} catch (final IOException | RuntimeException e) {
+			logger.warn("failed to write the DNS cache snapshot {}", snapshotFile, e);
+		}
+	}
+
+	/**
+	 * Returns the number of lookups answered from a negative entry, i.e. a
+	 * cached empty or NXDOMAIN result.
+	 *
+	 * @return the number of lookups answered from a negative entry
+	 */
+	public long getNegativeHitCount() {
+		return negativeHits.sum();
+	}
+
+	/**
+	 * Returns the number of negative entries loaded from the child
+	 * {@link DnsClient}, initially or after a previous one expired.
+	 *
+	 * @return the number of negative entries loaded
+	 */
+	public long getNegativeLoadCount() {
+		return negativeLoads.sum();
+	}
+
+	/**
+	 * Returns the statistics of this cache. Hits and misses count the lookups
+	 * answered from, respectively not from, a cached entry, including negative
+	 * entries; a miss joining a load already in flight does not load. Loads
+	 * count the lookups of the child {@link DnsClient}, including background
+	 * refreshes, and fail when it throws, including a
+	 * {@link NameNotFoundException}. Evictions count the entries removed once
+	 * expired.
+	 *
+	 * @return a snapshot of the {@link CacheStats statistics} of this cache
+	 */
+	public CacheStats stats() {
+		final CacheStats counted = stats.snapshot();
+
+		return new CacheStats(counted.hitCount(), counted.missCount(),
+				counted.loadSuccessCount(), counted.loadExceptionCount(),
+				counted.totalLoadTime(), cache.stats().evictionCount());
+	}
+
+	private void onHit(final String name, final RecordType[] recordTypes) {
+		stats.recordHits(1);
+		if (listener != null) {
+			listener.cacheHit(DnsLookupContext.current(), name, recordTypes,
+					System.nanoTime());
+		}
+	}
+
+	private void onMiss(final String name, final RecordType[] recordTypes) {
+		stats.recordMisses(1);
+		if (listener != null) {
+			listener.cacheMiss(DnsLookupContext.current(), name, recordTypes,
+					System.nanoTime());
+		}
+	}
+
+	private void recordLoad(final long start, final boolean success) {
+		final long loadTime = ticker.read() - start;
+		if (success) {
+			stats.recordLoadSuccess(loadTime);
+		} else {
+			stats.recordLoadException(loadTime);
+		}
+	}
+
+	/**
+	 * Returns the cached entry unless it expired, triggering a background
+	 * refresh if it is due for one.
+	 */
+	private CacheEntry getIfPresent(final DnsQuery dnsQuery, final String name,
+			final RecordType[] recordTypes) {
+		final CacheEntry entry = cache.getIfPresent(dnsQuery);
+		if (entry == null) {
+			return null;
+		}
+
+		final long now = ticker.read();
+		if (entry.stale) {
+			if (now - entry.refreshAt >= 0) {
+				refresh(dnsQuery, name, recordTypes, entry);
+			}
+			return entry;
+		}
+		if (now - entry.refreshAt < 0) {
+			if (entry.isNegative()) {
+				negativeHits.increment();
+			}
+			return entry;
+		}
+		if (refreshExecutor == null || entry.isNegative()
+				|| now - (entry.expiresAt + maxStalenessNanos) >= 0) {
+			return null;
+		}
+
+		refresh(dnsQuery, name, recordTypes, entry);
+
+		return entry;
+	}
+
+	private void refresh(final DnsQuery dnsQuery, final String name,
+			final RecordType[] recordTypes, final CacheEntry entry) {
+		final CompletableFuture<List<? extends DnsRecord>> load =
+				new CompletableFuture<>();
+		if (loads.putIfAbsent(dnsQuery, load) != null) {
+			return;
+		}
+
+		final Executor executor =
+				refreshExecutor == null ? DnsExecutors.refreshExecutor() : refreshExecutor;
+		try {
+			executor.execute(() -> {
+				final long start = ticker.read();
+				try {
+					final List<? extends DnsRecord> dnsRecords =
+							delegatee.lookup(name, recordTypes);
+					stats.recordLoadSuccess(ticker.read() - start);
+					if (dnsRecords.isEmpty() && negativeTtlNanos == 0) {
+						cache.asMap().remove(dnsQuery, entry);
+					} else {
+						store(dnsQuery, dnsRecords);
+					}
+					loads.remove(dnsQuery, load);
+					load.complete(dnsRecords);
+				} catch (final NamingException | RuntimeException e) {
+					stats.recordLoadException(ticker.read() - start);
+					if (e instanceof NameNotFoundException) {
+						if (!storeNotFound(dnsQuery, (NameNotFoundException) e)) {
+							cache.asMap().remove(dnsQuery, entry);
+						}
+					} else {
+						logger.warn(lookupErrorMessage(name, recordTypes), e);
+						if (entry.stale) {
+							// keep serving the last known records
+							cache.asMap().replace(dnsQuery, entry,
+									entry.staleUntil(ticker.read() + STALE_RETRY_NANOS));
+						}
+					}
+					loads.remove(dnsQuery, load);
+					load.completeExceptionally(e);
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			logger.debug("refresh of {} was rejected", dnsQuery);
+			loads.remove(dnsQuery, load);
+			load.complete(entry.records);
+		}
+	}
+
+	private void store(final DnsQuery dnsQuery,
+			final List<? extends DnsRecord> dnsRecords) {
+		final long now = ticker.read();
+		if (dnsRecords.isEmpty()) {
+			if (negativeTtlNanos > 0) {
+				negativeLoads.increment();
+				cache.put(dnsQuery,
+						new CacheEntry(dnsRecords, null, now + negativeTtlNanos,
+								now + negativeTtlNanos, false));
+			}
+			return;
+		}
+
+		final long expireAfterNanos =
+				recordTtl ? expireAfterTtl(dnsRecords) : expireAfterWriteNanos;
+		final long refreshAfterNanos = refreshExecutor == null ?
+				expireAfterNanos :
+				(long) (expireAfterNanos * refreshFactor);
+		cache.put(dnsQuery, new CacheEntry(dnsRecords, null,
+				now + refreshAfterNanos, now + expireAfterNanos, false));
+	}
+
+	/**
+	 * Caches a NXDOMAIN result if negative caching is enabled.
+	 *
+	 * @return whether the result was cached
+	 */
+	private boolean storeNotFound(final DnsQuery dnsQuery,
+			final NameNotFoundException e) {
+		if (negativeTtlNanos == 0) {
+			return false;
+		}
+
+		negativeLoads.increment();
+		final long now = ticker.read();
+		cache.put(dnsQuery, new CacheEntry(Collections.emptyList(), e,
+				now + negativeTtlNanos, now + negativeTtlNanos, false));
+
+		return true;
+	}
+
+	/**
+	 * Returns the smallest TTL among the records clamped to the floor and the
+	 * ceiling, or the fixed duration if no record carries a TTL.
+	 */
+	private long expireAfterTtl(final List<? extends DnsRecord> dnsRecords) {
+		long minTtl = Long.MAX_VALUE;
+		for (final DnsRecord dnsRecord : dnsRecords) {
+			if (dnsRecord.getTtl() != DnsRecord.UNKNOWN_TTL) {
+				minTtl = Math.min(minTtl, dnsRecord.getTtl());
+			}
+		}
+		final long ttlNanos = minTtl == Long.MAX_VALUE ?
+				expireAfterWriteNanos :
+				TimeUnit.SECONDS.toNanos(minTtl);
+
+		return Math.min(maxTtlNanos, Math.max(minTtlNanos, ttlNanos));
+	}
+
+	private static List<? extends DnsRecord> await(
+			final CompletableFuture<List<? extends DnsRecord>> load,
+			final String name, final RecordType[] recordTypes)
+			throws NamingException {
+		try {
+			return load.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			final NamingException exception = new InterruptedNamingException(
+					lookupErrorMessage(name, recordTypes));
+			exception.setRootCause(e);
+			throw exception;
+		} catch (final ExecutionException e) {
+			throwNamingException(e);
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			logger.error(lookupErrorMessage(name, recordTypes), e);
+		}
+
+		return Arrays.asList();
+	}
+
+	private static final class CacheEntry {
+
+		private final List<? extends DnsRecord> records;
+		private final NameNotFoundException notFound;
+		private final long refreshAt;
+		private final long expiresAt;
+
+		/**
+		 * Whether the records were loaded from a snapshot and not yet
+		 * revalidated; {@link #refreshAt} is then the time of the next
+		 * revalidation.
+		 */
+		private final boolean stale;
+		/**
+		 * Built lazily, racing threads build equal selectors.
+		 */
+		private volatile ServiceRecordSelector selector;
+		/**
+		 * Built lazily, racing threads build equal lists.
+		 */
+		private volatile List<SrvDnsRecord> serviceRecords;
+
+		private CacheEntry(final List<? extends DnsRecord> records,
+				final NameNotFoundException notFound, final long refreshAt,
+				final long expiresAt, final boolean stale) {
+			this.records = records;
+			this.notFound = notFound;
+			this.refreshAt = refreshAt;
+			this.expiresAt = expiresAt;
+			this.stale = stale;
+		}
+
+		/**
+		 * Returns a stale copy of this entry, revalidated on the first hit after
+		 * the given time.
+		 */
+		private CacheEntry staleUntil(final long revalidateAt) {
+			return new CacheEntry(records, notFound, revalidateAt, revalidateAt,
+					true);
+		}
+
+		private boolean isNegative() {
+			return records.isEmpty();
+		}
+
+		private List<? extends DnsRecord> get() throws NameNotFoundException {
+			if (notFound != null) {
+				throw notFound();
+			}
+
+			return records;
+		}
+
+		private ServiceRecordSelector selector() throws NameNotFoundException {
+			ServiceRecordSelector selector = this.selector;
+			if (selector == null) {
+				selector = ServiceRecordSelector.of(get());
+				this.selector = selector;
+			}
+
+			return selector;
+		}
+
+		private List<SrvDnsRecord> serviceRecords() throws NameNotFoundException {
+			List<SrvDnsRecord> serviceRecords = this.serviceRecords;
+			if (serviceRecords == null) {
+				serviceRecords =
+						Collections.unmodifiableList(ServiceRecords.sort(get()));
+				this.serviceRecords = serviceRecords;
+			}
+
+			return serviceRecords;
+		}
+
+		private CompletableFuture<List<? extends DnsRecord>> toFuture() {
+			if (notFound != null) {
+				final CompletableFuture<List<? extends DnsRecord>> future =
+						new CompletableFuture<>();
+				future.completeExceptionally(notFound());
+
+				return future;
+			}
+
+			return CompletableFuture.completedFuture(records);
+		}
+
+		private NameNotFoundException notFound() {
+			final NameNotFoundException exception =
+					new NameNotFoundException(notFound.getExplanation());
+			exception.setRootCause(notFound);
+
+			return exception;
+		}
+
+	}
+
+	public static final class Builder {
+
+		private final DnsClient delegatee;
+
+		private long expireAfterWriteNanos = TimeUnit.MINUTES.toNanos(1);
+
+		private boolean recordTtl;
+
+		private long minTtlNanos;
+
+		private long maxTtlNanos;
+
+		private Ticker ticker = Ticker.systemTicker();
+
+		private double refreshFactor;
+
+		private long maxStalenessNanos;
+
+		private Executor refreshExecutor;
+
+		private long negativeTtlNanos;
+
+		private Path snapshotFile;
+
+		private long snapshotIntervalNanos;
+
+		private DnsRecordFactory recordFactory = new DefaultDnsRecordFactory();
+
+		private DnsLookupListener listener;
+
+		private Builder(final DnsClient delegatee) {
+			this.delegatee =
+					Objects.requireNonNull(delegatee, "delegatee must not be null");
+		}
+
+		/**
+		 * Expire entries a fixed duration after they were written (1 minute by
+		 * default). When {@link #withRecordTtl record TTLs} are honored, this
+		 * duration applies to entries whose records carry no TTL.
+		 *
+		 * @param duration the duration
+		 * @param unit     the {@link TimeUnit unit}
+		 * @return {@link Builder this}
+		 */
+		public Builder withExpireAfterWrite(final long duration,
+				final TimeUnit unit) {
+			Objects.requireNonNull(unit, "unit must not be null");
+			if (duration < 0) {
+				throw new IllegalArgumentException("duration must not be negative");
+			}
+			this.expireAfterWriteNanos = unit.toNanos(duration);
+
+			return this;
+		}
+
+		/**
+		 * Expire every entry after the smallest TTL among its records, clamped
+		 * between a floor and a ceiling.
+		 *
+		 * @param floor   the minimum time an entry is cached
+		 * @param ceiling the maximum time an entry is cached
+		 * @param unit    the {@link TimeUnit unit}
+		 * @return {@link Builder this}
+		 */
+		public Builder withRecordTtl(final long floor, final long ceiling,
+				final TimeUnit unit) {
+			Objects.requireNonNull(unit, "unit must not be null");
+			if (floor < 0 || ceiling < floor) {
+				throw new IllegalArgumentException(
+						"floor must not be negative nor greater than ceiling");
+			}
+			this.recordTtl = true;
+			this.minTtlNanos = unit.toNanos(floor);
+			this.maxTtlNanos = unit.toNanos(ceiling);
+
+			return this;
+		}
+
+		/**
+		 * Refresh entries in the background once they have lived a fraction of
+		 * their lifetime, serving the cached records until the refresh completes
+		 * or until they have been expired for longer than the maximum staleness.
+		 * Refreshes run on a bounded pool of daemon threads; a refresh that can
+		 * not be queued is retried by the next hit.
+		 *
+		 * @param refreshFactor the fraction of its lifetime after which an entry
+		 *                      is refreshed, in <code>(0, 1]</code>
+		 * @param maxStaleness  how long an expired entry may still be served
+		 * @param unit          the {@link TimeUnit unit}
+		 * @return {@link Builder this}
+		 */
+		public Builder withRefreshAhead(final double refreshFactor,
+				final long maxStaleness, final TimeUnit unit) {
+			return withRefreshAhead(refreshFactor, maxStaleness, unit,
+					DnsExecutors.refreshExecutor());
+		}
+
+		/**
+		 * Refresh entries in the background on the given executor, see
+		 * {@link #withRefreshAhead(double, long, TimeUnit)}.
+		 *
+		 * @param refreshFactor the fraction of its lifetime after which an entry
+		 *                      is refreshed, in <code>(0, 1]</code>
+		 * @param maxStaleness  how long an expired entry may still be served
+		 * @param unit          the {@link TimeUnit unit}
+		 * @param executor      the {@link Executor} refreshes run on, which should
+		 *                      be bounded
+		 * @return {@link Builder this}
+		 */
+		public Builder withRefreshAhead(final double refreshFactor,
+				final long maxStaleness, final TimeUnit unit,
+				final Executor executor) {
+			Objects.requireNonNull(unit, "unit must not be null");
+			if (!(refreshFactor > 0 && refreshFactor <= 1)) {
+				throw new IllegalArgumentException(
+						"refreshFactor must be in (0, 1]");
+			}
+			if (maxStaleness < 0) {
+				throw new IllegalArgumentException(
+						"maxStaleness must not be negative");
+			}
+			this.refreshFactor = refreshFactor;
+			this.maxStalenessNanos = unit.toNanos(maxStaleness);
+			this.refreshExecutor =
+					Objects.requireNonNull(executor, "executor must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Cache empty and NXDOMAIN results for a fixed duration, separate from
+		 * (and usually shorter than) the expiry of non-empty results.
+		 *
+		 * @param duration the duration, <code>0</code> disables negative caching
+		 * @param unit     the {@link TimeUnit unit}
+		 * @return {@link Builder this}
+		 */
+		public Builder withNegativeTtl(final long duration, final TimeUnit unit) {
+			Objects.requireNonNull(unit, "unit must not be null");
+			if (duration < 0) {
+				throw new IllegalArgumentException("duration must not be negative");
+			}
+			this.negativeTtlNanos = unit.toNanos(duration);
+
+			return this;
+		}
+
+		/**
+		 * Load a snapshot of the cache when built and write one periodically, so
+		 * that a restarted client starts warm and keeps serving the last known
+		 * records while the child {@link DnsClient} fails. The snapshot is also
+		 * written when the client is {@link CachingDnsClient#close() closed}.
+		 *
+		 * @param file     the snapshot file
+		 * @param interval the interval between two snapshots
+		 * @param unit     the {@link TimeUnit unit}
+		 * @return {@link Builder this}
+		 */
+		public Builder withSnapshot(final Path file, final long interval,
+				final TimeUnit unit) {
+			Objects.requireNonNull(unit, "unit must not be null");
+			if (interval <= 0) {
+				throw new IllegalArgumentException("interval must be positive");
+			}
+			this.snapshotFile = Objects.requireNonNull(file, "file must not be null");
+			this.snapshotIntervalNanos = unit.toNanos(interval);
+
+			return this;
+		}
+
+		/**
+		 * Specify the {@link DnsRecordFactory} the records of a snapshot are
+		 * created with (defaults to {@link DefaultDnsRecordFactory}).
+		 *
+		 * @param recordFactory the {@link DnsRecordFactory}
+		 * @return {@link Builder this}
+		 */
+		public Builder withRecordFactory(final DnsRecordFactory recordFactory) {
+			this.recordFactory = Objects.requireNonNull(recordFactory,
+					"recordFactory must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Tell a {@link DnsLookupListener listener} of every cache hit and miss.
+		 *
+		 * @param listener the {@link DnsLookupListener listener}
+		 * @return {@link Builder this}
+		 */
+		public Builder withListener(final DnsLookupListener listener) {
+			this.listener =
+					Objects.requireNonNull(listener, "listener must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Specify the {@link Ticker} entries are expired with.
+		 *
+		 * @param ticker a {@link Ticker}
+		 * @return {@link Builder this}
+		 */
+		public Builder withTicker(final Ticker ticker) {
+			this.ticker = Objects.requireNonNull(ticker, "ticker must not be null");
+
+			return this;
+		}
+
+		public CachingDnsClient build() {
+			return new CachingDnsClient(this);
+		}
+
+	}
+
+}
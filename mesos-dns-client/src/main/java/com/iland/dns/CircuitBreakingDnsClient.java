@@ -0,0 +1,253 @@
+package com.iland.dns;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.TimeLimitExceededException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DnsClient} guarding a single DNS server with a circuit breaker
+ * (see {@link ServerHealth}). While the circuit is open, lookups fail at once
+ * with a {@link ServiceUnavailableException} instead of waiting for the
+ * server to time out, so that a failover or hedging client moves on to the
+ * next server immediately. The server is probed in the background by looking
+ * up a probe name, and the circuit closes once it answers again.
+ *
+ * @see DefaultDnsClient.Builder#withCircuitBreaker
+ */
+public class CircuitBreakingDnsClient implements DnsClient, Closeable {
+
+	public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+	public static final long DEFAULT_PROBE_INTERVAL_MILLIS = 5000;
+
+	private static final Logger logger =
+			LoggerFactory.getLogger(CircuitBreakingDnsClient.class);
+
+	private final DnsClient delegatee;
+	private final ServerHealth health;
+	private final String probeName;
+	private final long probeIntervalNanos;
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * @param delegatee the child {@link DnsClient} querying the server
+	 * @param host      the server, e.g. "10.0.0.1:53"
+	 * @param probeName the name looked up to probe the server, e.g.
+	 *                  "leader.mesos"
+	 */
+	public CircuitBreakingDnsClient(final DnsClient delegatee, final String host,
+			final String probeName) {
+		this(delegatee, new ServerHealth(host, DEFAULT_FAILURE_THRESHOLD),
+				probeName, DEFAULT_PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS,
+				DnsExecutors.defaultScheduler());
+	}
+
+	/**
+	 * @param delegatee     the child {@link DnsClient} querying the server
+	 * @param health        the {@link ServerHealth health} of the server
+	 * @param probeName     the name looked up to probe the server
+	 * @param probeInterval the interval between probes while the circuit is
+	 *                      open
+	 * @param unit          the {@link TimeUnit unit}
+	 * @param scheduler     the {@link ScheduledExecutorService scheduler}
+	 *                      probes are scheduled on
+	 */
+	public CircuitBreakingDnsClient(final DnsClient delegatee,
+			final ServerHealth health, final String probeName,
+			final long probeInterval, final TimeUnit unit,
+			final ScheduledExecutorService scheduler) {
+		if (probeInterval <= 0) {
+			throw new IllegalArgumentException("probeInterval must be positive");
+		}
+		this.delegatee =
+				Objects.requireNonNull(delegatee, "delegatee must not be null");
+		this.health = Objects.requireNonNull(health, "health must not be null");
+		this.probeName =
+				Objects.requireNonNull(probeName, "probeName must not be null");
+		this.probeIntervalNanos = unit.toNanos(probeInterval);
+		this.scheduler =
+				Objects.requireNonNull(scheduler, "scheduler must not be null");
+	}
+
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final RecordType... recordTypes) throws NamingException {
+		return lookup(name, null, recordTypes);
+	}
+
+	/**
+	 * Lookup DNS records, giving the server the remaining deadline. A lookup
+	 * whose deadline already expired fails without querying the server, and
+	 * one timing out once its deadline expired does not count against it.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline} or <code>null</code> if none
+	 * @param recordTypes the record types
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws NamingException if the lookup fails, e.g. with a
+	 *                         {@link ServiceUnavailableException} while the
+	 *                         circuit is open
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws NamingException {
+		if (deadline != null && deadline.isExpired()) {
+			throw Deadline.exceeded(name, recordTypes);
+		}
+		if (!health.tryAcquire()) {
+			throw rejected();
+		}
+
+		final long start = System.nanoTime();
+		try {
+			final List<? extends DnsRecord> records = deadline == null ?
+					delegatee.lookup(name, recordTypes) :
+					delegatee.lookup(name, deadline, recordTypes);
+			health.onSuccess(System.nanoTime() - start);
+
+			return records;
+		} catch (final NamingException | RuntimeException e) {
+			onOutcome(e, deadline, start);
+			throw e;
+		}
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		return lookupAsync(name, null, recordTypes);
+	}
+
+	/**
+	 * Lookup DNS records asynchronously, giving the server the remaining
+	 * deadline. A lookup whose deadline already expired fails without querying
+	 * the server, and one timing out once its deadline expired does not count
+	 * against it.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline} or <code>null</code> if none
+	 * @param recordTypes the record types
+	 * @return a {@link CompletableFuture} completed with a list of
+	 * {@link DnsRecord DNS records}, or exceptionally with a
+	 * {@link NamingException}
+	 */
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final Deadline deadline,
+			final RecordType... recordTypes) {
+		final NamingException failure;
+		if (deadline != null && deadline.isExpired()) {
+			failure = Deadline.exceeded(name, recordTypes);
+		} else if (!health.tryAcquire()) {
+			failure = rejected();
+		} else {
+			final long start = System.nanoTime();
+			final CompletableFuture<List<? extends DnsRecord>> lookup =
+					deadline == null ?
+							delegatee.lookupAsync(name, recordTypes) :
+							delegatee.lookupAsync(name, deadline, recordTypes);
+
+			return lookup.whenComplete(
+					(records, t) -> onOutcome(t == null ? null : Exceptions.unwrap(t),
+							deadline, start));
+		}
+		final CompletableFuture<List<? extends DnsRecord>> future =
+				new CompletableFuture<>();
+		future.completeExceptionally(failure);
+
+		return future;
+	}
+
+	public ServerHealth getHealth() {
+		return health;
+	}
+
+	@Override
+	public void close() {
+		if (delegatee instanceof Closeable) {
+			try {
+				((Closeable) delegatee).close();
+			} catch (final IOException e) {
+				logger.debug("failed to close {}", delegatee, e);
+			}
+		}
+	}
+
+	/**
+	 * Counts the outcome of a lookup against the health of the server, unless
+	 * it timed out because the deadline of the caller expired, which says
+	 * nothing about the server.
+	 */
+	private void onOutcome(final Throwable t, final Deadline deadline,
+			final long start) {
+		if (t instanceof TimeLimitExceededException && deadline != null
+				&& deadline.isExpired()) {
+			return;
+		}
+		if (t == null || !ServerHealth.isServerFailure(t)) {
+			health.onSuccess(System.nanoTime() - start);
+		} else if (health.onFailure()) {
+			logger.warn("{} failed {} times in a row, opening its circuit",
+					health.getHost(), health.getConsecutiveFailures(), t);
+			scheduleProbe();
+		}
+	}
+
+	private void scheduleProbe() {
+		try {
+			scheduler.schedule(this::probe, probeIntervalNanos,
+					TimeUnit.NANOSECONDS);
+		} catch (final RejectedExecutionException e) {
+			logger.debug("probe of {} was rejected", health.getHost());
+		}
+	}
+
+	private void probe() {
+		if (!health.startProbe()) {
+			return;
+		}
+
+		final long start = System.nanoTime();
+		final CompletableFuture<List<? extends DnsRecord>> probe;
+		try {
+			probe = delegatee.lookupAsync(probeName, RecordType.A);
+		} catch (final RuntimeException e) {
+			onProbeFailure(e);
+			return;
+		}
+		probe.whenComplete((records, t) -> {
+			final Throwable cause = t == null ? null : Exceptions.unwrap(t);
+			if (cause == null || !ServerHealth.isServerFailure(cause)) {
+				logger.info("{} answered its probe, closing its circuit",
+						health.getHost());
+				health.onSuccess(System.nanoTime() - start);
+			} else {
+				onProbeFailure(cause);
+			}
+		});
+	}
+
+	private void onProbeFailure(final Throwable t) {
+		logger.debug("probe of {} failed", health.getHost(), t);
+		health.onFailure();
+		scheduleProbe();
+	}
+
+	private ServiceUnavailableException rejected() {
+		return new ServiceUnavailableException(
+				String.format("the circuit of %s is open", health.getHost()));
+	}
+
+}
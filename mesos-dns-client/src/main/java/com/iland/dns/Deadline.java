@@ -0,0 +1,155 @@
+package com.iland.dns;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingException;
+import javax.naming.TimeLimitExceededException;
+
+/**
+ * The point in time by which a lookup must complete, measured with
+ * {@link System#nanoTime()} so that it can be passed down through nested
+ * clients and retries without being reset.
+ */
+public final class Deadline {
+
+	private final long nanoTime;
+
+	private Deadline(final long nanoTime) {
+		this.nanoTime = nanoTime;
+	}
+
+	/**
+	 * @param duration the time from now
+	 * @param unit     the {@link TimeUnit unit}
+	 * @return a {@link Deadline} the duration from now
+	 */
+	public static Deadline after(final long duration, final TimeUnit unit) {
+		return new Deadline(System.nanoTime() + unit.toNanos(duration));
+	}
+
+	/**
+	 * @param unit the {@link TimeUnit unit}
+	 * @return the time left, negative once expired
+	 */
+	public long remaining(final TimeUnit unit) {
+		return unit.convert(nanoTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return whether there is no time left
+	 */
+	public boolean isExpired() {
+		return nanoTime - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * @param other another {@link Deadline}, may be <code>null</code>
+	 * @return the earliest of both deadlines
+	 */
+	public Deadline min(final Deadline other) {
+		return other == null || nanoTime - other.nanoTime <= 0 ? this : other;
+	}
+
+	/**
+	 * @param name        the name being looked up
+	 * @param recordTypes the record types being looked up
+	 * @return the exception a lookup fails with once its deadline expired
+	 */
+	static TimeLimitExceededException exceeded(final String name,
+			final RecordType[] recordTypes) {
+		return new TimeLimitExceededException(
+				"deadline exceeded: " + Exceptions.lookupErrorMessage(name,
+						recordTypes));
+	}
+
+	/**
+	 * Fails a lookup with a {@link TimeLimitExceededException} if it does not
+	 * complete before the deadline.
+	 *
+	 * @param future      the lookup
+	 * @param deadline    the {@link Deadline}
+	 * @param name        the name being looked up
+	 * @param recordTypes the record types being looked up
+	 * @param <T>         the result type
+	 * @return a {@link CompletableFuture} completed like the lookup, or
+	 * exceptionally once the deadline expired
+	 */
+	static <T> CompletableFuture<T> bound(final CompletableFuture<T> future,
+			final Deadline deadline, final String name,
+			final RecordType[] recordTypes) {
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		if (deadline.isExpired()) {
+			result.completeExceptionally(exceeded(name, recordTypes));
+			return result;
+		}
+		try {
+			final ScheduledFuture<?> timeout = DnsExecutors.defaultScheduler()
+					.schedule(() -> result.completeExceptionally(
+									exceeded(name, recordTypes)),
+							deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+			result.whenComplete((value, t) -> timeout.cancel(false));
+		} catch (final RejectedExecutionException e) {
+			// the deadline can not be enforced
+		}
+		future.whenComplete((value, t) -> {
+			if (t == null) {
+				result.complete(value);
+			} else {
+				result.completeExceptionally(Exceptions.unwrap(t));
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Waits for a lookup until the deadline.
+	 *
+	 * @param future      the lookup
+	 * @param deadline    the {@link Deadline} or <code>null</code> if none
+	 * @param name        the name being looked up
+	 * @param recordTypes the record types being looked up
+	 * @param <T>         the result type
+	 * @return the result of the lookup
+	 * @throws NamingException if the lookup failed, was interrupted or did not
+	 *                         complete before the deadline
+	 */
+	static <T> T await(final CompletableFuture<T> future, final Deadline deadline,
+			final String name, final RecordType[] recordTypes)
+			throws NamingException {
+		try {
+			return deadline == null ?
+					future.get() :
+					future.get(deadline.remaining(TimeUnit.NANOSECONDS),
+							TimeUnit.NANOSECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedNamingException(
+					Exceptions.lookupErrorMessage(name, recordTypes));
+		} catch (final TimeoutException e) {
+			throw exceeded(name, recordTypes);
+		} catch (final ExecutionException e) {
+			final Throwable cause = Exceptions.unwrap(e);
+			if (cause instanceof NamingException) {
+				throw (NamingException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return Deadline.class.getSimpleName() + "{" + "remainingMillis="
+				+ remaining(TimeUnit.MILLISECONDS) + '}';
+	}
+
+}
@@ -0,0 +1,687 @@
+package com.iland.dns;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+
+import com.iland.dns.mesos.MesosDnsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DnsClient} backed by the JNDI DNS provider.
+ * <p>
+ * JNDI contexts are not documented as thread-safe, so every lookup borrows a
+ * {@link DirContext} from a pool: contexts are created lazily, at most
+ * <code>maxConcurrency</code> lookups run at once (others wait for a context),
+ * and a context that failed to communicate with its servers is closed rather
+ * than returned to the pool.
+ * <p>
+ * A lookup with a {@link Deadline} runs on the executor, and its caller waits
+ * for it at most until the deadline: JNDI queries every nameserver of the
+ * system in turn, however many there are, so that the time a query takes can
+ * not be bounded by its timeouts alone. The query itself waits for a context
+ * at most until the deadline, and tries each server once with the time
+ * remaining.
+ */
+public class DefaultDnsClient implements DnsClient, Closeable {
+
+	/**
+	 * The default maximum number of concurrent lookups.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENCY = 16;
+
+	private static final Logger logger =
+			LoggerFactory.getLogger(DefaultDnsClient.class);
+
+	private static final String DEFAULT_INITIAL_TIMEOUT = "1000";
+	private static final String DEFAULT_RETRIES = "4";
+
+	private final Hashtable<String, Object> environment;
+	private final DnsRecordFactory recordFactory;
+	private final Executor executor;
+	private final Semaphore permits;
+	private final DnsLookupListener listener;
+	private final Queue<DirContext> contexts = new ConcurrentLinkedQueue<>();
+	private volatile boolean closed;
+
+	/**
+	 * Default constructor
+	 */
+	public DefaultDnsClient() {
+		this(new Hashtable<>(), new DefaultDnsRecordFactory());
+	}
+
+	/**
+	 * @param environment the environment
+	 */
+	public DefaultDnsClient(final Map<String, Object> environment,
+			final DnsRecordFactory recordFactory) {
+		this(environment, recordFactory, DnsExecutors.defaultExecutor());
+	}
+
+	/**
+	 * @param environment   the environment
+	 * @param recordFactory the {@link DnsRecordFactory}
+	 * @param executor      the {@link Executor} asynchronous lookups run on
+	 */
+	public DefaultDnsClient(final Map<String, Object> environment,
+			final DnsRecordFactory recordFactory, final Executor executor) {
+		this(environment, recordFactory, executor, DEFAULT_MAX_CONCURRENCY);
+	}
+
+	/**
+	 * @param environment    the environment
+	 * @param recordFactory  the {@link DnsRecordFactory}
+	 * @param executor       the {@link Executor} asynchronous lookups run on
+	 * @param maxConcurrency the maximum number of concurrent lookups, i.e. of
+	 *                       pooled {@link DirContext contexts}
+	 */
+	public DefaultDnsClient(final Map<String, Object> environment,
+			final DnsRecordFactory recordFactory, final Executor executor,
+			final int maxConcurrency) {
+		this(environment, recordFactory, executor, maxConcurrency, null);
+	}
+
+	/**
+	 * @param listener the {@link DnsLookupListener listener} told of every
+	 *                 response parsed, or <code>null</code> if none
+	 */
+	DefaultDnsClient(final Map<String, Object> environment,
+			final DnsRecordFactory recordFactory, final Executor executor,
+			final int maxConcurrency, final DnsLookupListener listener) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency must be positive");
+		}
+		this.environment = new Hashtable<>(environment);
+		this.recordFactory =
+				Objects.requireNonNull(recordFactory, "recordFactory must not be null");
+		this.executor = Objects.requireNonNull(executor, "executor must not be null");
+		this.permits = new Semaphore(maxConcurrency);
+		this.listener = GuardedDnsLookupListener.guard(listener);
+	}
+
+	/**
+	 * Lookup Mesos-DNS.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param recordTypes the record types
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws MesosDnsException
+	 */
+	public List<? extends DnsRecord> lookup(final String name,
+			RecordType... recordTypes) throws NamingException {
+		final DirContext context = acquire(null, name, recordTypes);
+		boolean broken = true;
+		try {
+			final List<DnsRecord> records = lookup(context, name, recordTypes);
+			broken = false;
+
+			return records;
+		} catch (final NamingException e) {
+			broken = isBroken(e);
+			throw e;
+		} finally {
+			release(context, broken);
+		}
+	}
+
+	/**
+	 * Lookup DNS records on the executor, waiting for them at most until the
+	 * deadline.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline}
+	 * @param recordTypes the record types
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws NamingException if the lookup fails, e.g. with a
+	 *                         {@link javax.naming.TimeLimitExceededException}
+	 *                         once the deadline expired
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws NamingException {
+		return Deadline.await(lookupAsync(name, deadline, recordTypes), deadline,
+				name, recordTypes);
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final Deadline deadline,
+			final RecordType... recordTypes) {
+		Objects.requireNonNull(deadline, "deadline must not be null");
+		if (deadline.isExpired()) {
+			final CompletableFuture<List<? extends DnsRecord>> expired =
+					new CompletableFuture<>();
+			expired.completeExceptionally(Deadline.exceeded(name, recordTypes));
+			return expired;
+		}
+
+		return Deadline.bound(DnsExecutors.supplyAsync(
+				() -> query(name, deadline, recordTypes), executor), deadline, name,
+				recordTypes);
+	}
+
+	/**
+	 * Queries the servers once each with the time remaining, so that a query
+	 * outliving its deadline still ends.
+	 */
+	private List<? extends DnsRecord> query(final String name,
+			final Deadline deadline, final RecordType[] recordTypes)
+			throws NamingException {
+		if (deadline.isExpired()) {
+			throw Deadline.exceeded(name, recordTypes);
+		}
+
+		final DirContext context = acquire(deadline, name, recordTypes);
+		boolean broken = true;
+		try {
+			final long remaining = deadline.remaining(TimeUnit.MILLISECONDS);
+			if (remaining <= 0) {
+				broken = false;
+				throw Deadline.exceeded(name, recordTypes);
+			}
+			context.addToEnvironment(NioDnsClient.INITIAL_TIMEOUT,
+					Long.toString(remaining));
+			context.addToEnvironment(NioDnsClient.RETRIES, "1");
+			final List<DnsRecord> records = lookup(context, name, recordTypes);
+			broken = false;
+
+			return records;
+		} catch (final NamingException e) {
+			broken = broken && isBroken(e);
+			if (e instanceof CommunicationException && deadline.isExpired()) {
+				final NamingException exception =
+						Deadline.exceeded(name, recordTypes);
+				exception.setRootCause(e);
+				throw exception;
+			}
+			throw e;
+		} finally {
+			release(context, broken || !restoreTimeouts(context));
+		}
+	}
+
+	/**
+	 * Restores the timeouts of the environment after a lookup with a deadline.
+	 *
+	 * @return whether the timeouts were restored
+	 */
+	private boolean restoreTimeouts(final DirContext context) {
+		try {
+			context.addToEnvironment(NioDnsClient.INITIAL_TIMEOUT,
+					environment.getOrDefault(NioDnsClient.INITIAL_TIMEOUT,
+							DEFAULT_INITIAL_TIMEOUT));
+			context.addToEnvironment(NioDnsClient.RETRIES,
+					environment.getOrDefault(NioDnsClient.RETRIES, DEFAULT_RETRIES));
+
+			return true;
+		} catch (final NamingException e) {
+			logger.debug("failed to restore the timeouts of a DNS context", e);
+
+			return false;
+		}
+	}
+
+	private List<DnsRecord> lookup(final DirContext context, final String name,
+			final RecordType[] recordTypes) throws NamingException {
+		final List<DnsRecord> records = new ArrayList<>();
+
+		final String dnsName = String.format("dns:%s", name);
+		final String[] attributeIds = recordTypes.length == 0 ?
+				null :
+				Arrays.stream(recordTypes).map(RecordType::toString)
+						.collect(Collectors.toList())
+						.toArray(new String[recordTypes.length]);
+		final Attributes attributes = context.getAttributes(dnsName, attributeIds);
+		for (Enumeration<? extends Attribute> e =
+		     attributes.getAll(); e.hasMoreElements(); ) {
+			final BasicAttribute attribute = (BasicAttribute) e.nextElement();
+			final RecordType recordType = RecordType.valueOf(attribute.getID());
+			final String value = attribute.get().toString();
+			final DnsRecord record =
+					recordFactory.createDnsRecord(recordType, name, value);
+
+			records.add(record);
+		}
+		if (listener != null) {
+			listener.responseParsed(DnsLookupContext.current(), name, recordTypes,
+					records.size(), System.nanoTime());
+		}
+
+		return records;
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		return DnsExecutors.supplyAsync(() -> lookup(name, recordTypes), executor);
+	}
+
+	/**
+	 * Closes the pooled {@link DirContext contexts}; lookups fail once closed.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		DirContext context;
+		while ((context = contexts.poll()) != null) {
+			closeQuietly(context);
+		}
+	}
+
+	/**
+	 * Creates a new {@link DirContext}, called whenever the pool has no idle
+	 * context to lend.
+	 *
+	 * @return a new {@link DirContext}
+	 * @throws NamingException if the context can not be created
+	 */
+	protected DirContext createContext() throws NamingException {
+		return new InitialDirContext(environment);
+	}
+
+	private DirContext acquire(final Deadline deadline, final String name,
+			final RecordType[] recordTypes) throws NamingException {
+		if (closed) {
+			throw new ServiceUnavailableException("the DNS client is closed");
+		}
+		try {
+			if (deadline == null) {
+				permits.acquire();
+			} else if (!permits.tryAcquire(deadline.remaining(TimeUnit.NANOSECONDS),
+					TimeUnit.NANOSECONDS)) {
+				throw Deadline.exceeded(name, recordTypes);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedNamingException(
+					"interrupted while waiting for a DNS context");
+		}
+
+		final DirContext idle = contexts.poll();
+		if (idle != null) {
+			return idle;
+		}
+		try {
+			return createContext();
+		} catch (final NamingException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private void release(final DirContext context, final boolean broken) {
+		if (broken) {
+			closeQuietly(context);
+		} else {
+			contexts.offer(context);
+		}
+		permits.release();
+		if (closed) {
+			// a context returned while closing
+			close();
+		}
+	}
+
+	/**
+	 * Whether the exception leaves the {@link DirContext} in an unknown state,
+	 * e.g. half-way through talking to a server that went away.
+	 */
+	private static boolean isBroken(final NamingException e) {
+		return e instanceof CommunicationException
+				|| e instanceof ServiceUnavailableException;
+	}
+
+	private static void closeQuietly(final DirContext context) {
+		try {
+			context.close();
+		} catch (final NamingException e) {
+			logger.debug("failed to close a DNS context", e);
+		}
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static final class Builder {
+
+		private static final String DEFAULT_DOMAIN = "mesos";
+
+		private final Map<String, Object> environment;
+
+		private DnsRecordFactory recordFactory;
+
+		private String domain;
+
+		private String[] hosts;
+
+		private boolean nioTransport;
+
+		private Executor executor;
+
+		private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+		private boolean hedging;
+
+		private double maxHedgeRatio;
+
+		private boolean circuitBreaker;
+
+		private int failureThreshold;
+
+		private long probeInterval;
+
+		private TimeUnit probeIntervalUnit;
+
+		private DnsLookupListener listener;
+
+		private Builder() {
+			environment = new HashMap<>();
+		}
+
+		/**
+		 * Specify that all responses must be authoritative.
+		 *
+		 * @return {@link Builder this}
+		 */
+		public Builder authoritative() {
+			return withEnvironment(Context.AUTHORITATIVE, "true");
+		}
+
+		/**
+		 * Uses <code>"mesos"</code> as the domain.
+		 *
+		 * @param hosts An array of DNS servers taking the form "host[:port]"
+		 * @return {@link Builder this}
+		 */
+		public Builder withDefaultDomain(final String... hosts) {
+			return withDomain(DEFAULT_DOMAIN, hosts);
+		}
+
+		/**
+		 * @param domain the domain name for the Mesos cluster
+		 * @param hosts  An array of DNS servers taking the form "host[:port]"
+		 * @return {@link Builder this}
+		 */
+		public Builder withDomain(final String domain, final String... hosts) {
+			Objects.requireNonNull(domain, "domain must not be null");
+			if (hosts.length == 0) {
+				throw new IllegalArgumentException(
+						"at least one host must be provided");
+			}
+
+			this.domain = domain;
+			this.hosts = hosts.clone();
+
+			return withEnvironment(Context.PROVIDER_URL, providerUrl(domain, hosts));
+		}
+
+		/**
+		 * Specify an attribute not exposed by this configuration.
+		 *
+		 * @param key   the key
+		 * @param value the value
+		 * @return {@link Builder this}
+		 * @see <a href="https://docs.oracle.com/javase/8/docs/technotes/guides/jndi/jndi-dns.html#PROP">Environment Properties</a>
+		 */
+		public Builder withEnvironment(final String key, final Object value) {
+			environment.put(key, value);
+
+			return this;
+		}
+
+		/**
+		 * Specify a {@link DnsRecordFactory}.
+		 *
+		 * @param factory a {@link DnsRecordFactory}
+		 * @return {@link Builder this}
+		 */
+		public Builder withDnsRecordFactory(final DnsRecordFactory factory) {
+			this.recordFactory =
+					Objects.requireNonNull(factory, "factory must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Specify the {@link Executor} asynchronous lookups run on (defaults to
+		 * the {@link DnsExecutors#defaultExecutor() shared executor}).
+		 *
+		 * @param executor an {@link Executor}
+		 * @return {@link Builder this}
+		 */
+		public Builder withExecutor(final Executor executor) {
+			this.executor =
+					Objects.requireNonNull(executor, "executor must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Specify the maximum number of concurrent lookups, and thus of pooled
+		 * JNDI contexts (defaults to {@value #DEFAULT_MAX_CONCURRENCY}).
+		 *
+		 * @param maxConcurrency the maximum number of concurrent lookups
+		 * @return {@link Builder this}
+		 */
+		public Builder withMaxConcurrency(final int maxConcurrency) {
+			if (maxConcurrency < 1) {
+				throw new IllegalArgumentException("maxConcurrency must be positive");
+			}
+			this.maxConcurrency = maxConcurrency;
+
+			return this;
+		}
+
+		/**
+		 * Speak the DNS wire protocol directly instead of going through JNDI (see
+		 * {@link NioDnsClient}). The hosts must be specified with
+		 * {@link #withDomain} or {@link #withDefaultDomain}; the JNDI timeout
+		 * properties <code>com.sun.jndi.dns.timeout.initial</code> and
+		 * <code>com.sun.jndi.dns.timeout.retries</code> are honored.
+		 *
+		 * @return {@link Builder this}
+		 */
+		public Builder withNioTransport() {
+			this.nioTransport = true;
+
+			return this;
+		}
+
+		/**
+		 * Tell a {@link DnsLookupListener listener} of every response parsed, and
+		 * of the servers queried with the {@link #withNioTransport NIO transport}:
+		 * JNDI picks the server itself.
+		 *
+		 * @param listener the {@link DnsLookupListener listener}
+		 * @return {@link Builder this}
+		 */
+		public Builder withListener(final DnsLookupListener listener) {
+			this.listener =
+					Objects.requireNonNull(listener, "listener must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Hedge lookups across the hosts, sending at most 10% extra queries (see
+		 * {@link HedgingDnsClient}). Requires at least two hosts and the
+		 * {@link #withNioTransport NIO transport}: JNDI picks the host itself.
+		 *
+		 * @return {@link Builder this}
+		 */
+		public Builder withHedging() {
+			return withHedging(HedgingDnsClient.DEFAULT_MAX_HEDGE_RATIO);
+		}
+
+		/**
+		 * Hedge lookups across the hosts (see {@link HedgingDnsClient}). Requires
+		 * at least two hosts and the {@link #withNioTransport NIO transport}.
+		 *
+		 * @param maxHedgeRatio the maximum ratio of hedged to primary lookups
+		 * @return {@link Builder this}
+		 */
+		public Builder withHedging(final double maxHedgeRatio) {
+			if (maxHedgeRatio < 0 || maxHedgeRatio > 1) {
+				throw new IllegalArgumentException(
+						"maxHedgeRatio must be between 0 and 1");
+			}
+			this.hedging = true;
+			this.maxHedgeRatio = maxHedgeRatio;
+
+			return this;
+		}
+
+		/**
+		 * Track the health of every host and stop sending lookups to a host
+		 * after {@value CircuitBreakingDnsClient#DEFAULT_FAILURE_THRESHOLD}
+		 * consecutive failures, probing it every
+		 * {@value CircuitBreakingDnsClient#DEFAULT_PROBE_INTERVAL_MILLIS} ms
+		 * (see {@link CircuitBreakingDnsClient}). Requires the
+		 * {@link #withNioTransport NIO transport}.
+		 *
+		 * @return {@link Builder this}
+		 */
+		public Builder withCircuitBreaker() {
+			return withCircuitBreaker(
+					CircuitBreakingDnsClient.DEFAULT_FAILURE_THRESHOLD,
+					CircuitBreakingDnsClient.DEFAULT_PROBE_INTERVAL_MILLIS,
+					TimeUnit.MILLISECONDS);
+		}
+
+		/**
+		 * Track the health of every host and stop sending lookups to a host
+		 * after consecutive failures, probing it in the background with a lookup
+		 * of <code>leader.&lt;domain&gt;</code> until it answers again. The hosts
+		 * are queried in order unless {@link #withHedging hedging}. Requires the
+		 * {@link #withNioTransport NIO transport}: JNDI picks the host itself.
+		 *
+		 * @param failureThreshold the number of consecutive failures that open
+		 *                         the circuit of a host
+		 * @param probeInterval    the interval between probes of a failed host
+		 * @param unit             the {@link TimeUnit unit}
+		 * @return {@link Builder this}
+		 */
+		public Builder withCircuitBreaker(final int failureThreshold,
+				final long probeInterval, final TimeUnit unit) {
+			if (failureThreshold < 1) {
+				throw new IllegalArgumentException(
+						"failureThreshold must be positive");
+			}
+			if (probeInterval <= 0) {
+				throw new IllegalArgumentException("probeInterval must be positive");
+			}
+			this.circuitBreaker = true;
+			this.failureThreshold = failureThreshold;
+			this.probeInterval = probeInterval;
+			this.probeIntervalUnit =
+					Objects.requireNonNull(unit, "unit must not be null");
+
+			return this;
+		}
+
+		public DnsClient build() {
+			final DnsRecordFactory factory = recordFactory == null ?
+					new DefaultDnsRecordFactory() :
+					recordFactory;
+			final Executor lookupExecutor =
+					executor == null ? DnsExecutors.defaultExecutor() : executor;
+			if (nioTransport && hosts == null) {
+				throw new IllegalStateException(
+						"the NIO transport requires at least one host");
+			}
+			if (hedging || circuitBreaker) {
+				if (!nioTransport) {
+					throw new IllegalStateException(hedging ?
+							"hedging requires the NIO transport" :
+							"circuit breaking requires the NIO transport");
+				}
+				if (hedging && hosts.length < 2) {
+					throw new IllegalStateException(
+							"hedging requires at least two hosts");
+				}
+
+				final List<DnsClient> clients = new ArrayList<>();
+				for (final String host : hosts) {
+					final DnsClient client = build(factory, lookupExecutor, host);
+					clients.add(circuitBreaker ?
+							new CircuitBreakingDnsClient(client,
+									new ServerHealth(host, failureThreshold),
+									String.format("leader.%s", domain), probeInterval,
+									probeIntervalUnit, DnsExecutors.defaultScheduler()) :
+							client);
+				}
+
+				return hedging ?
+						new HedgingDnsClient(clients, maxHedgeRatio,
+								HedgingDnsClient.DEFAULT_MIN_DELAY_MILLIS,
+								HedgingDnsClient.DEFAULT_MAX_DELAY_MILLIS,
+								TimeUnit.MILLISECONDS, DnsExecutors.defaultScheduler()) :
+						new FailoverDnsClient(clients);
+			}
+
+			return nioTransport ?
+					build(factory, lookupExecutor, hosts) :
+					new DefaultDnsClient(environment, factory, lookupExecutor,
+							maxConcurrency, listener);
+		}
+
+		/**
+		 * Builds a {@link NioDnsClient} of the given hosts only.
+		 */
+		private DnsClient build(final DnsRecordFactory factory,
+				final Executor lookupExecutor, final String... hosts) {
+			return new NioDnsClient(NioDnsClient.parseServers(hosts), factory,
+					intProperty(NioDnsClient.INITIAL_TIMEOUT,
+							NioDnsClient.DEFAULT_INITIAL_TIMEOUT),
+					intProperty(NioDnsClient.RETRIES, NioDnsClient.DEFAULT_RETRIES),
+					Boolean.parseBoolean(
+							String.valueOf(environment.get(Context.AUTHORITATIVE))),
+					lookupExecutor, listener);
+		}
+
+		private static String providerUrl(final String domain,
+				final String... hosts) {
+			return Arrays.stream(hosts)
+					.map(host -> String.format("dns://%s/%s", host, domain))
+					.collect(Collectors.joining(" "));
+		}
+
+		private int intProperty(final String key, final int defaultValue) {
+			final Object value = environment.get(key);
+
+			return value == null ?
+					defaultValue :
+					Integer.parseInt(value.toString());
+		}
+
+	}
+
+}
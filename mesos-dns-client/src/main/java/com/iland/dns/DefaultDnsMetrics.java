@@ -0,0 +1,122 @@
+package com.iland.dns;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link DnsMetrics} kept in memory: a {@link LatencyHistogram} of the
+ * successful lookups per record type, and the number of failed lookups per
+ * cause.
+ * <p>
+ * A lookup of a single record type is recorded under the name of that type,
+ * e.g. <code>"A"</code>, a lookup of several record types under
+ * {@value #MULTI}, and a lookup of every record type under {@value #ANY}.
+ * Failed lookups are recorded under the simple name of the class of their
+ * cause, e.g. <code>"NameNotFoundException"</code>.
+ */
+public class DefaultDnsMetrics implements DnsMetrics {
+
+	/**
+	 * The key of the lookups of several record types.
+	 */
+	public static final String MULTI = "multi";
+
+	/**
+	 * The key of the lookups of every record type.
+	 */
+	public static final String ANY = "any";
+
+	private static final RecordType[] RECORD_TYPES = RecordType.values();
+	private static final int MULTI_INDEX = RECORD_TYPES.length;
+	private static final int ANY_INDEX = RECORD_TYPES.length + 1;
+
+	/**
+	 * Indexed by the ordinal of the record type, followed by
+	 * {@link #MULTI_INDEX} and {@link #ANY_INDEX}.
+	 */
+	private final AtomicReferenceArray<LatencyHistogram> latencies =
+			new AtomicReferenceArray<>(RECORD_TYPES.length + 2);
+	private final ConcurrentMap<Class<?>, LongAdder> errors =
+			new ConcurrentHashMap<>();
+
+	@Override
+	public void lookupSucceeded(final String name,
+			final RecordType[] recordTypes, final int records,
+			final long latencyNanos) {
+		final int index = recordTypes.length == 0 ?
+				ANY_INDEX :
+				recordTypes.length == 1 ? recordTypes[0].ordinal() : MULTI_INDEX;
+		histogram(index).record(latencyNanos);
+	}
+
+	@Override
+	public void lookupFailed(final String name, final RecordType[] recordTypes,
+			final Throwable cause, final long latencyNanos) {
+		final Class<?> type = cause.getClass();
+		LongAdder count = errors.get(type);
+		if (count == null) {
+			count = errors.computeIfAbsent(type, k -> new LongAdder());
+		}
+		count.increment();
+	}
+
+	/**
+	 * @param recordType the {@link RecordType record type}
+	 * @return the {@link LatencyHistogram} of the successful lookups of the
+	 * record type, empty if there were none
+	 */
+	public LatencyHistogram getLatency(final RecordType recordType) {
+		return histogram(recordType.ordinal());
+	}
+
+	/**
+	 * @return the {@link LatencyHistogram histograms} of the lookups that
+	 * succeeded, by record type name, {@value #MULTI} and {@value #ANY}
+	 */
+	public Map<String, LatencyHistogram> getLatencies() {
+		final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+		for (final RecordType recordType : RECORD_TYPES) {
+			put(histograms, recordType.name(), recordType.ordinal());
+		}
+		put(histograms, MULTI, MULTI_INDEX);
+		put(histograms, ANY, ANY_INDEX);
+
+		return Collections.unmodifiableMap(histograms);
+	}
+
+	/**
+	 * @return the number of failed lookups by simple class name of their cause
+	 */
+	public Map<String, Long> getErrorCounts() {
+		final Map<String, Long> counts = new TreeMap<>();
+		errors.forEach((type, count) -> counts.merge(type.getSimpleName(),
+				count.sum(), Long::sum));
+
+		return Collections.unmodifiableMap(counts);
+	}
+
+	private void put(final Map<String, LatencyHistogram> histograms,
+			final String key, final int index) {
+		final LatencyHistogram histogram = latencies.get(index);
+		if (histogram != null && histogram.getCount() > 0) {
+			histograms.put(key, histogram);
+		}
+	}
+
+	private LatencyHistogram histogram(final int index) {
+		final LatencyHistogram histogram = latencies.get(index);
+		if (histogram != null) {
+			return histogram;
+		}
+		latencies.compareAndSet(index, null, new LatencyHistogram());
+
+		return latencies.get(index);
+	}
+
+}
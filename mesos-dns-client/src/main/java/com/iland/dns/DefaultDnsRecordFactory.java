@@ -0,0 +1,56 @@
+package com.iland.dns;
+
+import com.google.common.net.InetAddresses;
+
+/**
+ * Creates records in their most compact form: addresses as
+ * {@link AddressDnsRecord bytes} and {@link SrvDnsRecord SRV records} as their
+ * parsed fields only. Addresses are parsed once here, without ever resolving
+ * them, so that consumers use {@link AddressDnsRecord#getAddress()} rather
+ * than parsing their value again.
+ */
+public class DefaultDnsRecordFactory implements DnsRecordFactory {
+
+	@Override
+	public DnsRecord createDnsRecord(final RecordType type, final String name,
+			final String value) {
+		return createDnsRecord(type, name, value, DnsRecord.UNKNOWN_TTL);
+	}
+
+	@Override
+	public DnsRecord createDnsRecord(final RecordType type, final String name,
+			final String value, final long ttl) {
+		if (type == RecordType.SRV) {
+			return SrvDnsRecord.create(name, value, ttl);
+		}
+		final byte[] address = AddressDnsRecord.parse(type, value);
+		if (address != null) {
+			return new AddressDnsRecord(name, address, ttl);
+		}
+		if (type == RecordType.A || type == RecordType.AAAA) {
+			try {
+				final byte[] parsed = InetAddresses.forString(value).getAddress();
+				if (parsed.length == (type == RecordType.A ? 4 : 16)) {
+					return new AddressDnsRecord(name, parsed, value, ttl);
+				}
+			} catch (final IllegalArgumentException e) {
+				// not an address literal, kept as text
+			}
+		}
+
+		return new DnsRecord(type, name, value, ttl);
+	}
+
+	@Override
+	public DnsRecord createServiceRecord(final String name, final int priority,
+			final int weight, final int port, final String target, final long ttl) {
+		return SrvDnsRecord.create(name, priority, weight, port, target, ttl);
+	}
+
+	@Override
+	public DnsRecord createAddressRecord(final String name,
+			final byte[] address, final long ttl) {
+		return new AddressDnsRecord(name, address, ttl);
+	}
+
+}
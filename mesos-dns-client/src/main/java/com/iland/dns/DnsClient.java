@@ -0,0 +1,203 @@
+package com.iland.dns;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingException;
+import javax.naming.TimeLimitExceededException;
+
+import com.iland.dns.mesos.MesosDnsException;
+
+public interface DnsClient {
+
+	/**
+	 * Lookup DNS records.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param recordTypes the record types
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws MesosDnsException
+	 */
+	List<? extends DnsRecord> lookup(final String name,
+		RecordType... recordTypes) throws NamingException;
+
+	/**
+	 * Lookup DNS records, failing fast once the deadline expired. Decorators
+	 * carry the deadline to their child {@link DnsClient} and clients that
+	 * talk to a server size their timeouts from the time remaining. The
+	 * default implementation waits for {@link #lookupAsync(String, Deadline,
+	 * RecordType...)} until the deadline.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline}
+	 * @param recordTypes the record types
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws NamingException if the lookup fails, e.g. with a
+	 *                         {@link TimeLimitExceededException} once the
+	 *                         deadline expired
+	 */
+	default List<? extends DnsRecord> lookup(final String name,
+		final Deadline deadline, final RecordType... recordTypes)
+		throws NamingException {
+		Objects.requireNonNull(deadline, "deadline must not be null");
+		if (deadline.isExpired()) {
+			throw Deadline.exceeded(name, recordTypes);
+		}
+
+		return Deadline.await(lookupAsync(name, deadline, recordTypes), deadline,
+			name, recordTypes);
+	}
+
+	/**
+	 * Lookup service records (SRV records).
+	 *
+	 * @param name e.g. "mesos.apache.org"
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws MesosDnsException
+	 */
+	default List<SrvDnsRecord> lookupServiceRecords(final String name)
+		throws NamingException {
+		return ServiceRecords.sort(lookup(name, RecordType.SRV));
+	}
+
+	/**
+	 * Lookup service records (SRV records), failing fast once the deadline
+	 * expired.
+	 *
+	 * @param name     e.g. "mesos.apache.org"
+	 * @param deadline the {@link Deadline}
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws NamingException if the lookup fails, e.g. with a
+	 *                         {@link TimeLimitExceededException} once the
+	 *                         deadline expired
+	 */
+	default List<SrvDnsRecord> lookupServiceRecords(final String name,
+		final Deadline deadline) throws NamingException {
+		return ServiceRecords.sort(lookup(name, deadline, RecordType.SRV));
+	}
+
+	/**
+	 * Lookup service records (SRV records) and select among them as RFC 2782
+	 * describes.
+	 *
+	 * @param name e.g. "mesos.apache.org"
+	 * @return a {@link ServiceRecordSelector selector} over the
+	 * {@link SrvDnsRecord SRV records}
+	 * @throws NamingException if the lookup fails
+	 */
+	default ServiceRecordSelector lookupServiceRecordSelector(final String name)
+		throws NamingException {
+		return ServiceRecordSelector.of(lookup(name, RecordType.SRV));
+	}
+
+	/**
+	 * Lookup DNS records asynchronously. The default implementation runs
+	 * {@link #lookup} on the {@link DnsExecutors#defaultExecutor() shared
+	 * executor}.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param recordTypes the record types
+	 * @return a {@link CompletableFuture} completed with a list of
+	 * {@link DnsRecord DNS records}, or exceptionally with a
+	 * {@link NamingException}
+	 */
+	default CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+		final String name, final RecordType... recordTypes) {
+		return DnsExecutors.supplyAsync(() -> lookup(name, recordTypes),
+			DnsExecutors.defaultExecutor());
+	}
+
+	/**
+	 * Lookup DNS records asynchronously, failing with a
+	 * {@link TimeLimitExceededException} once the deadline expired. The
+	 * default implementation bounds {@link #lookupAsync(String, RecordType...)}
+	 * by the deadline.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline}
+	 * @param recordTypes the record types
+	 * @return a {@link CompletableFuture} completed with a list of
+	 * {@link DnsRecord DNS records}, or exceptionally with a
+	 * {@link NamingException}
+	 */
+	default CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+		final String name, final Deadline deadline,
+		final RecordType... recordTypes) {
+		Objects.requireNonNull(deadline, "deadline must not be null");
+		if (deadline.isExpired()) {
+			final CompletableFuture<List<? extends DnsRecord>> result =
+				new CompletableFuture<>();
+			result.completeExceptionally(Deadline.exceeded(name, recordTypes));
+			return result;
+		}
+
+		return Deadline.bound(lookupAsync(name, recordTypes), deadline, name,
+			recordTypes);
+	}
+
+	/**
+	 * Lookup service records (SRV records) asynchronously.
+	 *
+	 * @param name e.g. "mesos.apache.org"
+	 * @return a {@link CompletableFuture} completed with a {@link List list} of
+	 * {@link SrvDnsRecord SRV records} sorted by priority and weight, or
+	 * exceptionally with a {@link NamingException}
+	 */
+	default CompletableFuture<List<SrvDnsRecord>> lookupServiceRecordsAsync(
+		final String name) {
+		return lookupAsync(name, RecordType.SRV).thenApply(ServiceRecords::sort);
+	}
+
+	/**
+	 * Lookup the DNS records of many names, with at most 16 lookups in flight
+	 * at once.
+	 *
+	 * @param names       the names, duplicates are looked up once
+	 * @param recordTypes the record types
+	 * @return the {@link DnsLookupResult result} of every name, in the order
+	 * the names were given
+	 * @throws NamingException if interrupted while waiting for the results
+	 * @see #lookupAllAsync
+	 */
+	default Map<String, DnsLookupResult<NamingException>> lookupAll(
+		final Collection<String> names, final RecordType... recordTypes)
+		throws NamingException {
+		final CompletableFuture<Map<String, DnsLookupResult<NamingException>>>
+			future = lookupAllAsync(names, BatchLookup.DEFAULT_PARALLELISM,
+			recordTypes);
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedNamingException(
+				"interrupted while looking up " + names);
+		} catch (final ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Lookup the DNS records of many names asynchronously, fanning out to
+	 * {@link #lookupAsync} with at most <code>parallelism</code> lookups in
+	 * flight at once. Lookups answered immediately, e.g. by a
+	 * {@link CachingDnsClient}, do not wait for a slot.
+	 *
+	 * @param names       the names, duplicates are looked up once
+	 * @param parallelism the maximum number of lookups in flight
+	 * @param recordTypes the record types
+	 * @return a {@link CompletableFuture} completed with the
+	 * {@link DnsLookupResult result} of every name, in the order the names were
+	 * given; a failed lookup is reported by its result, never by the future
+	 */
+	default CompletableFuture<Map<String, DnsLookupResult<NamingException>>> lookupAllAsync(
+		final Collection<String> names, final int parallelism,
+		final RecordType... recordTypes) {
+		return BatchLookup.lookupAll(this, names, parallelism, recordTypes);
+	}
+
+}
@@ -0,0 +1,141 @@
+package com.iland.dns;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.NamingException;
+
+/**
+ * The executors shared by the asynchronous lookups of every {@link DnsClient}
+ * that is not given its own.
+ */
+public final class DnsExecutors {
+
+	private DnsExecutors() {
+	}
+
+	/**
+	 * Returns the shared {@link Executor} blocking lookups are run on, an
+	 * unbounded pool of daemon threads.
+	 *
+	 * @return the shared {@link Executor}
+	 */
+	public static Executor defaultExecutor() {
+		return Holder.EXECUTOR;
+	}
+
+	/**
+	 * Returns the shared {@link ScheduledExecutorService} delayed work (e.g.
+	 * retries) is scheduled on, a single daemon thread. Scheduled tasks must not
+	 * block.
+	 *
+	 * @return the shared {@link ScheduledExecutorService}
+	 */
+	public static ScheduledExecutorService defaultScheduler() {
+		return Holder.SCHEDULER;
+	}
+
+	/**
+	 * Returns the shared, bounded {@link Executor} background cache refreshes
+	 * run on: a few daemon threads and a bounded queue, rejecting the refreshes
+	 * that do not fit.
+	 *
+	 * @return the shared refresh {@link Executor}
+	 */
+	public static Executor refreshExecutor() {
+		return Holder.REFRESH_EXECUTOR;
+	}
+
+	/**
+	 * Runs a blocking lookup on an {@link Executor}, in the
+	 * {@link DnsLookupContext context} of the calling thread.
+	 *
+	 * @param lookup   the lookup
+	 * @param executor the {@link Executor}
+	 * @param <T>      the result type
+	 * @return a {@link CompletableFuture} completed with the result of the lookup
+	 */
+	static <T> CompletableFuture<T> supplyAsync(final Lookup<T> lookup,
+			final Executor executor) {
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		final Object context = DnsLookupContext.current();
+		executor.execute(() -> {
+			final Object previous = DnsLookupContext.enter(context);
+			try {
+				future.complete(lookup.call());
+			} catch (final NamingException | RuntimeException e) {
+				future.completeExceptionally(e);
+			} finally {
+				DnsLookupContext.restore(context, previous);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * A blocking lookup.
+	 *
+	 * @param <T> the result type
+	 */
+	@FunctionalInterface
+	interface Lookup<T> {
+
+		T call() throws NamingException;
+
+	}
+
+	private static final class Holder {
+
+		private static final ExecutorService EXECUTOR =
+				Executors.newCachedThreadPool(daemonThreadFactory("dns-lookup-"));
+
+		private static final ScheduledExecutorService SCHEDULER =
+				createScheduler();
+
+		private static final ExecutorService REFRESH_EXECUTOR =
+				createRefreshExecutor();
+
+		private static ExecutorService createRefreshExecutor() {
+			final ThreadPoolExecutor executor =
+					new ThreadPoolExecutor(4, 4, 1, TimeUnit.MINUTES,
+							new ArrayBlockingQueue<>(1024),
+							daemonThreadFactory("dns-refresh-"));
+			executor.allowCoreThreadTimeOut(true);
+
+			return executor;
+		}
+
+		private static ScheduledExecutorService createScheduler() {
+			final ScheduledThreadPoolExecutor scheduler =
+					new ScheduledThreadPoolExecutor(1,
+							daemonThreadFactory("dns-scheduler-"));
+			scheduler.setRemoveOnCancelPolicy(true);
+
+			return scheduler;
+		}
+
+		private static ThreadFactory daemonThreadFactory(final String prefix) {
+			final AtomicInteger count = new AtomicInteger();
+
+			return runnable -> {
+				final Thread thread =
+						new Thread(runnable, prefix + count.incrementAndGet());
+				thread.setDaemon(true);
+
+				return thread;
+			};
+		}
+
+	}
+
+}
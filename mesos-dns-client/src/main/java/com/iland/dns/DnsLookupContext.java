@@ -0,0 +1,71 @@
+package com.iland.dns;
+
+/**
+ * The context of the lookup a thread works for, i.e. the one
+ * {@link DnsLookupListener#lookupStarted} returned, so that every client in
+ * the chain of a lookup reports its events with the same context. Clients
+ * carry the context over to the threads they continue a lookup on.
+ * <p>
+ * A thread without a context, e.g. one of a lookup started by a client
+ * without a listener, reports <code>null</code>.
+ */
+public final class DnsLookupContext {
+
+	private static final ThreadLocal<Object> CURRENT = new ThreadLocal<>();
+
+	private DnsLookupContext() {
+	}
+
+	/**
+	 * @return the context of the lookup the current thread works for,
+	 * <code>null</code> if none
+	 */
+	public static Object current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Makes a context the one of the current thread, until
+	 * {@link #restore restored}:
+	 * <pre>{@code
+	 * Object previous = DnsLookupContext.enter(context);
+	 * try {
+	 *     ...
+	 * } finally {
+	 *     DnsLookupContext.restore(context, previous);
+	 * }
+	 * }</pre>
+	 *
+	 * @param context the context, possibly <code>null</code>
+	 * @return the previous context of the current thread
+	 */
+	public static Object enter(final Object context) {
+		final Object previous = CURRENT.get();
+		if (previous != context) {
+			set(context);
+		}
+
+		return previous;
+	}
+
+	/**
+	 * Restores the context of the current thread {@link #enter entered} before.
+	 *
+	 * @param context  the context entered
+	 * @param previous the context {@link #enter} returned
+	 */
+	public static void restore(final Object context, final Object previous) {
+		if (previous != context) {
+			set(previous);
+		}
+	}
+
+	private static void set(final Object context) {
+		if (context == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(context);
+		}
+	}
+
+}
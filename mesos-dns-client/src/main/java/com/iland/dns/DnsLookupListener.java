@@ -0,0 +1,123 @@
+package com.iland.dns;
+
+/**
+ * Receives the events of every lookup, e.g. to add them to a distributed
+ * trace. A lookup through a {@link com.iland.dns.mesos.MesosDnsClient}, a
+ * {@link CachingDnsClient}, a {@link RetryingDnsClient} and a
+ * {@link DefaultDnsClient} is traced as:
+ * <ol>
+ * <li>{@link #lookupStarted}</li>
+ * <li>{@link #cacheHit} or {@link #cacheMiss}</li>
+ * <li>on a miss, for every attempt: {@link #attemptStarted},
+ * {@link #serverChosen} and {@link #responseParsed}</li>
+ * <li>{@link #lookupEnded}</li>
+ * </ol>
+ * Every client only reports the events it sees, and only when given a
+ * listener: a client without one does not even read the clock. Timestamps
+ * are {@link System#nanoTime()} values, only meaningful relative to each
+ * other. Events are reported on the thread seeing them, which may differ
+ * between the events of an asynchronous lookup: they are correlated by the
+ * context {@link #lookupStarted} returned, which every later event of the
+ * lookup receives (see {@link DnsLookupContext}). Listeners should not
+ * block. Exceptions thrown by listeners are logged, they never fail a
+ * lookup.
+ * <p>
+ * Every method does nothing by default.
+ */
+public interface DnsLookupListener {
+
+	/**
+	 * @param name        the name looked up
+	 * @param recordTypes the record types looked up
+	 * @param nanoTime    the {@link System#nanoTime()} of the event
+	 * @return the context of the lookup, e.g. a span, given to every later
+	 * event of the lookup; <code>null</code> by default
+	 */
+	default Object lookupStarted(final String name,
+			final RecordType[] recordTypes, final long nanoTime) {
+		return null;
+	}
+
+	/**
+	 * The lookup was answered from a cached entry, possibly a negative one.
+	 *
+	 * @param context     the context {@link #lookupStarted} returned, or
+	 *                    <code>null</code>
+	 * @param name        the name looked up
+	 * @param recordTypes the record types looked up
+	 * @param nanoTime    the {@link System#nanoTime()} of the event
+	 */
+	default void cacheHit(final Object context, final String name,
+			final RecordType[] recordTypes, final long nanoTime) {
+	}
+
+	/**
+	 * @param context     the context {@link #lookupStarted} returned, or
+	 *                    <code>null</code>
+	 * @param name        the name looked up
+	 * @param recordTypes the record types looked up
+	 * @param nanoTime    the {@link System#nanoTime()} of the event
+	 */
+	default void cacheMiss(final Object context, final String name,
+			final RecordType[] recordTypes, final long nanoTime) {
+	}
+
+	/**
+	 * @param context     the context {@link #lookupStarted} returned, or
+	 *                    <code>null</code>
+	 * @param name        the name looked up
+	 * @param recordTypes the record types looked up
+	 * @param attempt     the attempt number, starting at <code>1</code>
+	 * @param nanoTime    the {@link System#nanoTime()} of the event
+	 */
+	default void attemptStarted(final Object context, final String name,
+			final RecordType[] recordTypes, final int attempt,
+			final long nanoTime) {
+	}
+
+	/**
+	 * A query is about to be sent to a server. Only the NIO transport reports
+	 * it, for every server queried: JNDI picks the server itself, and does not
+	 * tell which.
+	 *
+	 * @param context     the context {@link #lookupStarted} returned, or
+	 *                    <code>null</code>
+	 * @param name        the name looked up
+	 * @param recordTypes the record types looked up
+	 * @param server      the server, e.g. "/10.0.0.1:53"
+	 * @param nanoTime    the {@link System#nanoTime()} of the event
+	 */
+	default void serverChosen(final Object context, final String name,
+			final RecordType[] recordTypes, final String server,
+			final long nanoTime) {
+	}
+
+	/**
+	 * The answers of a server were parsed into records.
+	 *
+	 * @param context     the context {@link #lookupStarted} returned, or
+	 *                    <code>null</code>
+	 * @param name        the name looked up
+	 * @param recordTypes the record types looked up
+	 * @param records     the number of records of the lookup parsed so far
+	 * @param nanoTime    the {@link System#nanoTime()} of the event
+	 */
+	default void responseParsed(final Object context, final String name,
+			final RecordType[] recordTypes, final int records,
+			final long nanoTime) {
+	}
+
+	/**
+	 * @param context     the context {@link #lookupStarted} returned, or
+	 *                    <code>null</code>
+	 * @param name        the name looked up
+	 * @param recordTypes the record types looked up
+	 * @param failure     the failure, <code>null</code> if the lookup succeeded
+	 * @param nanoTime    the {@link System#nanoTime()} of the event
+	 */
+	default void lookupEnded(final Object context, final String name,
+			final RecordType[] recordTypes, final Throwable failure,
+			final long nanoTime) {
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.iland.dns;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The outcome of looking up a single name as part of a batch: either its
+ * {@link DnsRecord DNS records} or the exception the lookup failed with.
+ *
+ * @param <E> the type of the exception a failed lookup is reported with
+ */
+public final class DnsLookupResult<E extends Exception> {
+
+	private final String name;
+	private final List<? extends DnsRecord> records;
+	private final E failure;
+
+	private DnsLookupResult(final String name,
+			final List<? extends DnsRecord> records, final E failure) {
+		this.name = Objects.requireNonNull(name, "name must not be null");
+		this.records = records;
+		this.failure = failure;
+	}
+
+	/**
+	 * @param name    the name that was looked up
+	 * @param records the {@link DnsRecord DNS records}
+	 * @param <E>     the type of the exception
+	 * @return a successful {@link DnsLookupResult}
+	 */
+	public static <E extends Exception> DnsLookupResult<E> success(
+			final String name, final List<? extends DnsRecord> records) {
+		return new DnsLookupResult<>(name,
+				Objects.requireNonNull(records, "records must not be null"), null);
+	}
+
+	/**
+	 * @param name    the name that was looked up
+	 * @param failure the exception the lookup failed with
+	 * @param <E>     the type of the exception
+	 * @return a failed {@link DnsLookupResult}
+	 */
+	public static <E extends Exception> DnsLookupResult<E> failure(
+			final String name, final E failure) {
+		return new DnsLookupResult<>(name, null,
+				Objects.requireNonNull(failure, "failure must not be null"));
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return whether the lookup succeeded
+	 */
+	public boolean isSuccess() {
+		return failure == null;
+	}
+
+	/**
+	 * @return the {@link DnsRecord DNS records}
+	 * @throws E the exception the lookup failed with
+	 */
+	public List<? extends DnsRecord> getRecords() throws E {
+		if (failure != null) {
+			throw failure;
+		}
+
+		return records;
+	}
+
+	/**
+	 * @return the exception the lookup failed with or <code>null</code> if it
+	 * succeeded
+	 */
+	public E getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Translates the exception of a failed lookup, e.g. into an API specific
+	 * exception.
+	 *
+	 * @param translation the translation
+	 * @param <F>         the type of the translated exception
+	 * @return a {@link DnsLookupResult} with the translated exception
+	 */
+	public <F extends Exception> DnsLookupResult<F> mapFailure(
+			final Function<? super E, ? extends F> translation) {
+		return failure == null ?
+				new DnsLookupResult<>(name, records, null) :
+				new DnsLookupResult<>(name, null, translation.apply(failure));
+	}
+
+	@Override
+	public String toString() {
+		return DnsLookupResult.class.getSimpleName() + "{" + "name='" + name
+				+ '\'' + (failure == null ?
+				", records=" + records :
+				", failure=" + failure) + '}';
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.iland.dns;
+
+/**
+ * Receives the outcome of every lookup through a {@link MetricsDnsClient}, to
+ * be recorded by any metrics library. Implementations are called on the
+ * thread completing the lookup, and should neither block nor throw.
+ *
+ * @see DefaultDnsMetrics
+ */
+public interface DnsMetrics {
+
+	/**
+	 * Records a lookup that returned records, possibly none.
+	 *
+	 * @param name         the name looked up
+	 * @param recordTypes  the record types looked up
+	 * @param records      the number of records returned
+	 * @param latencyNanos the latency of the lookup in nanoseconds
+	 */
+	void lookupSucceeded(String name, RecordType[] recordTypes, int records,
+			long latencyNanos);
+
+	/**
+	 * Records a lookup that failed.
+	 *
+	 * @param name         the name looked up
+	 * @param recordTypes  the record types looked up
+	 * @param cause        the cause, e.g. a
+	 *                     {@link javax.naming.NameNotFoundException}
+	 * @param latencyNanos the latency of the lookup in nanoseconds
+	 */
+	void lookupFailed(String name, RecordType[] recordTypes, Throwable cause,
+			long latencyNanos);
+
+}
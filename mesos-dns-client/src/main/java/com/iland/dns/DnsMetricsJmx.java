@@ -0,0 +1,237 @@
+package com.iland.dns;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.common.cache.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exposes {@link DefaultDnsMetrics}, and optionally the statistics of a
+ * {@link CachingDnsClient} and the attempts of a {@link RetryingDnsClient},
+ * as a {@link DnsMetricsMXBean} registered with the platform
+ * {@link MBeanServer}, e.g.
+ * <pre>{@code
+ * DnsMetricsJmx jmx = DnsMetricsJmx.builder(metrics).withCache(cachingDnsClient)
+ *     .register("mesos");
+ * }</pre>
+ * Attributes are computed when read, recording lookups costs nothing more.
+ */
+public final class DnsMetricsJmx implements DnsMetricsMXBean, Closeable {
+
+	private static final Logger logger =
+			LoggerFactory.getLogger(DnsMetricsJmx.class);
+
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final DefaultDnsMetrics metrics;
+	private final CachingDnsClient cache;
+	private final RetryingDnsClient retries;
+	private final MBeanServer server;
+	private final ObjectName objectName;
+
+	private DnsMetricsJmx(final Builder builder, final ObjectName objectName) {
+		this.metrics = builder.metrics;
+		this.cache = builder.cache;
+		this.retries = builder.retries;
+		this.server = builder.server;
+		this.objectName = objectName;
+	}
+
+	/**
+	 * @param metrics the {@link DefaultDnsMetrics metrics} to expose
+	 * @return a {@link Builder}
+	 */
+	public static Builder builder(final DefaultDnsMetrics metrics) {
+		return new Builder(metrics);
+	}
+
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+
+	@Override
+	public Map<String, Long> getLookupCounts() {
+		final Map<String, Long> counts = new TreeMap<>();
+		metrics.getLatencies().forEach(
+				(key, histogram) -> counts.put(key, histogram.getCount()));
+
+		return counts;
+	}
+
+	@Override
+	public Map<String, Double> getLatencyMeanMillis() {
+		return latencies(histogram -> histogram.getMean() / NANOS_PER_MILLI);
+	}
+
+	@Override
+	public Map<String, Double> getLatencyMedianMillis() {
+		return latencies(histogram -> histogram.getValueAtPercentile(50,
+				TimeUnit.MILLISECONDS));
+	}
+
+	@Override
+	public Map<String, Double> getLatency99thPercentileMillis() {
+		return latencies(histogram -> histogram.getValueAtPercentile(99,
+				TimeUnit.MILLISECONDS));
+	}
+
+	@Override
+	public Map<String, Double> getLatencyMaxMillis() {
+		return latencies(histogram -> histogram.getMax() / NANOS_PER_MILLI);
+	}
+
+	@Override
+	public Map<String, Long> getErrorCounts() {
+		return new TreeMap<>(metrics.getErrorCounts());
+	}
+
+	@Override
+	public long getCacheHitCount() {
+		return cacheStats().hitCount();
+	}
+
+	@Override
+	public long getCacheMissCount() {
+		return cacheStats().missCount();
+	}
+
+	@Override
+	public double getCacheHitRate() {
+		return cacheStats().hitRate();
+	}
+
+	@Override
+	public long getCacheLoadCount() {
+		return cacheStats().loadCount();
+	}
+
+	@Override
+	public long getCacheLoadExceptionCount() {
+		return cacheStats().loadExceptionCount();
+	}
+
+	@Override
+	public long getCacheEvictionCount() {
+		return cacheStats().evictionCount();
+	}
+
+	@Override
+	public long getRetryAttemptCount() {
+		return retries == null ? 0 : retries.getAttemptCount();
+	}
+
+	@Override
+	public long getRetryCount() {
+		return retries == null ? 0 : retries.getRetryCount();
+	}
+
+	/**
+	 * Unregisters the MXBean.
+	 */
+	@Override
+	public void close() {
+		try {
+			server.unregisterMBean(objectName);
+		} catch (final JMException e) {
+			logger.debug("failed to unregister {}", objectName, e);
+		}
+	}
+
+	private CacheStats cacheStats() {
+		return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+	}
+
+	private Map<String, Double> latencies(
+			final ToDoubleFunction<LatencyHistogram> statistic) {
+		final Map<String, Double> latencies = new TreeMap<>();
+		metrics.getLatencies().forEach((key, histogram) -> latencies.put(key,
+				statistic.applyAsDouble(histogram)));
+
+		return latencies;
+	}
+
+	public static final class Builder {
+
+		private final DefaultDnsMetrics metrics;
+
+		private CachingDnsClient cache;
+
+		private RetryingDnsClient retries;
+
+		private MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		private Builder(final DefaultDnsMetrics metrics) {
+			this.metrics = Objects.requireNonNull(metrics, "metrics must not be null");
+		}
+
+		/**
+		 * Expose the {@link CachingDnsClient#stats() statistics} of a cache.
+		 *
+		 * @param cache the {@link CachingDnsClient}
+		 * @return {@link Builder this}
+		 */
+		public Builder withCache(final CachingDnsClient cache) {
+			this.cache = Objects.requireNonNull(cache, "cache must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Expose the attempts and retries of a {@link RetryingDnsClient}.
+		 *
+		 * @param retries the {@link RetryingDnsClient}
+		 * @return {@link Builder this}
+		 */
+		public Builder withRetries(final RetryingDnsClient retries) {
+			this.retries = Objects.requireNonNull(retries, "retries must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Specify the {@link MBeanServer} to register with (defaults to the
+		 * platform {@link MBeanServer}).
+		 *
+		 * @param server the {@link MBeanServer}
+		 * @return {@link Builder this}
+		 */
+		public Builder withServer(final MBeanServer server) {
+			this.server = Objects.requireNonNull(server, "server must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Registers the MXBean as
+		 * <code>com.iland.dns:type=DnsMetrics,name=&lt;name&gt;</code>.
+		 *
+		 * @param name the name of the client, e.g. "mesos"
+		 * @return the registered {@link DnsMetricsJmx}, to be
+		 * {@link DnsMetricsJmx#close() closed} to unregister it
+		 * @throws JMException if the MXBean can not be registered, e.g. because
+		 *                     the name is already taken
+		 */
+		public DnsMetricsJmx register(final String name) throws JMException {
+			Objects.requireNonNull(name, "name must not be null");
+
+			final DnsMetricsJmx jmx = new DnsMetricsJmx(this, new ObjectName(
+					"com.iland.dns:type=DnsMetrics,name=" + ObjectName.quote(name)));
+			server.registerMBean(jmx, jmx.objectName);
+
+			return jmx;
+		}
+
+	}
+
+}
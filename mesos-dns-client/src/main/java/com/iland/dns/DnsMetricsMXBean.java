@@ -0,0 +1,43 @@
+package com.iland.dns;
+
+import java.util.Map;
+
+/**
+ * The metrics of a {@link DnsClient} as exposed over JMX by
+ * {@link DnsMetricsJmx}. Latencies and lookup counts are keyed as by
+ * {@link DefaultDnsMetrics}, e.g. by record type, errors by the simple class
+ * name of their cause. The cache and retry
+ * attributes are <code>0</code> unless a {@link CachingDnsClient}, respectively
+ * a {@link RetryingDnsClient}, was given.
+ */
+public interface DnsMetricsMXBean {
+
+	Map<String, Long> getLookupCounts();
+
+	Map<String, Double> getLatencyMeanMillis();
+
+	Map<String, Double> getLatencyMedianMillis();
+
+	Map<String, Double> getLatency99thPercentileMillis();
+
+	Map<String, Double> getLatencyMaxMillis();
+
+	Map<String, Long> getErrorCounts();
+
+	long getCacheHitCount();
+
+	long getCacheMissCount();
+
+	double getCacheHitRate();
+
+	long getCacheLoadCount();
+
+	long getCacheLoadExceptionCount();
+
+	long getCacheEvictionCount();
+
+	long getRetryAttemptCount();
+
+	long getRetryCount();
+
+}
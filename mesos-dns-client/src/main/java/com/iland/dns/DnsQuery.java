@@ -0,0 +1,88 @@
+package com.iland.dns;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A name and the record types to look up for it, which is also the key a
+ * {@link CachingDnsClient} caches the records by. Callers looking up the same
+ * names over and over may keep their queries and look them up with
+ * {@link CachingDnsClient#lookup(DnsQuery)}, so that a cache hit does not
+ * build its key again.
+ */
+public final class DnsQuery {
+
+	private final String name;
+	private final RecordType[] recordTypes;
+	private final int hash;
+
+	/**
+	 * @param name        the name
+	 * @param recordTypes the record types, not copied
+	 */
+	DnsQuery(final String name, final RecordType[] recordTypes) {
+		this.name = Objects.requireNonNull(name, "name must not be null");
+		this.recordTypes =
+				Objects.requireNonNull(recordTypes, "recordTypes must not be null");
+		this.hash = 31 * name.hashCode() + Arrays.hashCode(recordTypes);
+	}
+
+	/**
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param recordTypes the record types
+	 * @return a {@link DnsQuery}
+	 */
+	public static DnsQuery of(final String name,
+			final RecordType... recordTypes) {
+		return new DnsQuery(name,
+				Objects.requireNonNull(recordTypes, "recordTypes must not be null")
+						.clone());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public RecordType[] getRecordTypes() {
+		return recordTypes.clone();
+	}
+
+	/**
+	 * @param recordTypes record types
+	 * @return whether the query looks up exactly these record types, in this
+	 * order
+	 */
+	public boolean hasRecordTypes(final RecordType... recordTypes) {
+		return Arrays.equals(this.recordTypes, recordTypes);
+	}
+
+	/**
+	 * @return the record types, which must not be modified
+	 */
+	RecordType[] recordTypes() {
+		return recordTypes;
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof DnsQuery))
+			return false;
+		final DnsQuery dnsQuery = (DnsQuery) o;
+		return hash == dnsQuery.hash && name.equals(dnsQuery.name)
+				&& Arrays.equals(recordTypes, dnsQuery.recordTypes);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return DnsQuery.class.getSimpleName() + "{" + "name='" + name + '\''
+				+ ", recordTypes=" + Arrays.toString(recordTypes) + '}';
+	}
+
+}
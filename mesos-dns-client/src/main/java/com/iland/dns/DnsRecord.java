@@ -0,0 +1,135 @@
+package com.iland.dns;
+
+import java.util.Objects;
+
+public class DnsRecord {
+
+	/**
+	 * The TTL of a record whose TTL is not known, e.g. because it was looked up
+	 * through JNDI.
+	 */
+	public static final long UNKNOWN_TTL = -1;
+
+	private final RecordType type;
+	private final String name;
+	private final String value;
+	private final int ttl;
+
+	public DnsRecord(final RecordType type, final String name,
+			final String value) {
+		this(type, name, value, UNKNOWN_TTL);
+	}
+
+	/**
+	 * @param type  the record type
+	 * @param name  a name
+	 * @param value a value
+	 * @param ttl   the time to live in seconds or {@link #UNKNOWN_TTL}
+	 */
+	public DnsRecord(final RecordType type, final String name,
+			final String value, final long ttl) {
+		this(type, name, ttl,
+				Objects.requireNonNull(value, "value must not be null"));
+	}
+
+	/**
+	 * For subclasses holding their value in a more compact form than text, which
+	 * must override {@link #getValue()} to format it on demand.
+	 *
+	 * @param type the record type
+	 * @param name a name
+	 * @param ttl  the time to live in seconds or {@link #UNKNOWN_TTL}
+	 */
+	protected DnsRecord(final RecordType type, final String name,
+			final long ttl) {
+		this(type, name, ttl, null);
+	}
+
+	private DnsRecord(final RecordType type, final String name,
+			final long ttl, final String value) {
+		this.type = Objects.requireNonNull(type, "type must not be null");
+		this.name = Objects.requireNonNull(name, "name must not be null");
+		this.value = value;
+		if (ttl < 0 && ttl != UNKNOWN_TTL) {
+			throw new IllegalArgumentException("ttl must not be negative");
+		}
+		// TTLs are 32 bit on the wire, larger ones are only ever configured
+		this.ttl = (int) Math.min(ttl, Integer.MAX_VALUE);
+	}
+
+	public RecordType getType() {
+		return type;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns the time to live in seconds as it was received, which is not part
+	 * of the record's identity.
+	 *
+	 * @return the time to live in seconds or {@link #UNKNOWN_TTL}
+	 */
+	public long getTtl() {
+		return ttl;
+	}
+
+	/**
+	 * Records are equal if their type, name and value are, however compactly
+	 * either of them holds its value.
+	 */
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof DnsRecord))
+			return false;
+		final DnsRecord dnsRecord = (DnsRecord) o;
+		return type == dnsRecord.type && name.equals(dnsRecord.name)
+				&& getValue().equals(dnsRecord.getValue());
+	}
+
+	@Override
+	public int hashCode() {
+		// as Objects.hash(type, name, getValue()), without the varargs array
+		return 31 * (31 * (31 + type.hashCode()) + name.hashCode())
+				+ valueHashCode();
+	}
+
+	/**
+	 * Returns the hash code of the {@link #getValue() value}, which subclasses
+	 * holding a compact form compute without formatting the value.
+	 */
+	int valueHashCode() {
+		return getValue().hashCode();
+	}
+
+	/**
+	 * @return whether the value is formatted on demand from a compact form
+	 */
+	final boolean isCompact() {
+		return value == null;
+	}
+
+	/**
+	 * Continues the {@link String#hashCode() hash code} of a string with the
+	 * decimal digits of a number, as if they were appended to it.
+	 */
+	static int hashDecimal(final int hash, final int number) {
+		final int h = number < 10 ? hash : hashDecimal(hash, number / 10);
+
+		return 31 * h + '0' + number % 10;
+	}
+
+	@Override
+	public String toString() {
+		return DnsRecord.class.getSimpleName() + "{" + "type=" + type + ", name='"
+				+ name + '\'' + ", value='" + getValue() + '\'' + '}';
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.iland.dns;
+
+public interface DnsRecordFactory {
+
+	DnsRecord createDnsRecord(final RecordType type, final String name,
+			final String value);
+
+	/**
+	 * Create a record carrying its time to live. The default implementation
+	 * ignores the TTL and delegates to {@link #createDnsRecord(RecordType,
+	 * String, String)}.
+	 *
+	 * @param type  the record type
+	 * @param name  a name
+	 * @param value a value
+	 * @param ttl   the time to live in seconds or {@link DnsRecord#UNKNOWN_TTL}
+	 * @return a {@link DnsRecord DNS record}
+	 */
+	default DnsRecord createDnsRecord(final RecordType type, final String name,
+			final String value, final long ttl) {
+		return createDnsRecord(type, name, value);
+	}
+
+	/**
+	 * Create a {@link RecordType#SRV SRV} record from its already decoded
+	 * fields. The default implementation formats the fields as text and
+	 * delegates to {@link #createDnsRecord(RecordType, String, String, long)}.
+	 *
+	 * @param name     a name
+	 * @param priority the priority of the target host
+	 * @param weight   the relative weight of the target host
+	 * @param port     the port on which the service is to be found
+	 * @param target   the canonical hostname of the target host
+	 * @param ttl      the time to live in seconds or {@link DnsRecord#UNKNOWN_TTL}
+	 * @return a {@link DnsRecord DNS record}
+	 */
+	default DnsRecord createServiceRecord(final String name, final int priority,
+			final int weight, final int port, final String target, final long ttl) {
+		return createDnsRecord(RecordType.SRV, name,
+				priority + " " + weight + " " + port + " " + target, ttl);
+	}
+
+	/**
+	 * Create an {@link RecordType#A A} or {@link RecordType#AAAA AAAA} record
+	 * from the bytes of its address. The default implementation formats the
+	 * address as text and delegates to
+	 * {@link #createDnsRecord(RecordType, String, String, long)}.
+	 *
+	 * @param name    a name
+	 * @param address the 4 bytes of an IPv4 or the 16 bytes of an IPv6 address
+	 * @param ttl     the time to live in seconds or {@link DnsRecord#UNKNOWN_TTL}
+	 * @return a {@link DnsRecord DNS record}
+	 */
+	default DnsRecord createAddressRecord(final String name,
+			final byte[] address, final long ttl) {
+		return createDnsRecord(address.length == 4 ? RecordType.A : RecordType.AAAA,
+				name, AddressDnsRecord.format(address), ttl);
+	}
+
+}
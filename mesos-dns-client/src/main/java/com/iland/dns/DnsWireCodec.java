@@ -0,0 +1,401 @@
+package com.iland.dns;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import javax.naming.InvalidNameException;
+import javax.naming.NamingException;
+
+/**
+ * Encodes DNS queries and decodes DNS responses in the wire format described
+ * by RFC 1035 (and RFC 2782 / RFC 3596 / RFC 3403 for SRV, AAAA and NAPTR).
+ * <p>
+ * All methods operate on a caller supplied {@link ByteBuffer} so that the
+ * same buffer can be reused across lookups.
+ */
+final class DnsWireCodec {
+
+	static final int HEADER_LENGTH = 12;
+	static final int MAX_UDP_MESSAGE_LENGTH = 4096;
+
+	static final int RCODE_NOERROR = 0;
+	static final int RCODE_FORMERR = 1;
+	static final int RCODE_SERVFAIL = 2;
+	static final int RCODE_NXDOMAIN = 3;
+	static final int RCODE_REFUSED = 5;
+
+	static final int TYPE_ANY = 255;
+
+	private static final int CLASS_IN = 1;
+	private static final int FLAG_QR = 0x8000;
+	private static final int FLAG_AA = 0x0400;
+	private static final int FLAG_TC = 0x0200;
+	private static final int FLAG_RD = 0x0100;
+	private static final int MAX_NAME_LENGTH = 253;
+	private static final int MAX_LABEL_LENGTH = 63;
+	private static final int MAX_POINTERS = 64;
+
+	private DnsWireCodec() {
+	}
+
+	/**
+	 * Returns the wire format type code of a {@link RecordType}.
+	 *
+	 * @param type the record type
+	 * @return the type code
+	 */
+	static int typeCode(final RecordType type) {
+		switch (type) {
+		case A:
+			return 1;
+		case NS:
+			return 2;
+		case CNAME:
+			return 5;
+		case SOA:
+			return 6;
+		case PTR:
+			return 12;
+		case HINFO:
+			return 13;
+		case MX:
+			return 15;
+		case TXT:
+			return 16;
+		case AAAA:
+			return 28;
+		case SRV:
+			return 33;
+		case NAPTR:
+			return 35;
+		default:
+			throw new IllegalArgumentException("unsupported record type " + type);
+		}
+	}
+
+	/**
+	 * Returns the {@link RecordType} of a wire format type code.
+	 *
+	 * @param code the type code
+	 * @return the record type or <code>null</code> if it is not supported
+	 */
+	static RecordType recordType(final int code) {
+		switch (code) {
+		case 1:
+			return RecordType.A;
+		case 2:
+			return RecordType.NS;
+		case 5:
+			return RecordType.CNAME;
+		case 6:
+			return RecordType.SOA;
+		case 12:
+			return RecordType.PTR;
+		case 13:
+			return RecordType.HINFO;
+		case 15:
+			return RecordType.MX;
+		case 16:
+			return RecordType.TXT;
+		case 28:
+			return RecordType.AAAA;
+		case 33:
+			return RecordType.SRV;
+		case 35:
+			return RecordType.NAPTR;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a recursive query for a single question into the buffer and flips
+	 * it, ready to be sent.
+	 *
+	 * @param buffer the buffer
+	 * @param id     the query id
+	 * @param name   the name to query
+	 * @param qtype  the type code to query
+	 * @throws InvalidNameException if the name can not be encoded
+	 */
+	static void writeQuery(final ByteBuffer buffer, final int id,
+			final String name, final int qtype) throws InvalidNameException {
+		buffer.clear();
+		buffer.putShort((short) id);
+		buffer.putShort((short) FLAG_RD);
+		buffer.putShort((short) 1);
+		buffer.putShort((short) 0);
+		buffer.putShort((short) 0);
+		buffer.putShort((short) 0);
+		writeName(buffer, name);
+		buffer.putShort((short) qtype);
+		buffer.putShort((short) CLASS_IN);
+		buffer.flip();
+	}
+
+	private static void writeName(final ByteBuffer buffer, final String name)
+			throws InvalidNameException {
+		final int length =
+				name.endsWith(".") ? name.length() - 1 : name.length();
+		if (length > MAX_NAME_LENGTH) {
+			throw new InvalidNameException(
+					String.format("name \"%s\" is too long", name));
+		}
+
+		int start = 0;
+		while (start < length) {
+			int end = name.indexOf('.', start);
+			if (end < 0 || end > length) {
+				end = length;
+			}
+			final int labelLength = end - start;
+			if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH) {
+				throw new InvalidNameException(
+						String.format("name \"%s\" has an invalid label", name));
+			}
+			buffer.put((byte) labelLength);
+			for (int i = start; i < end; i++) {
+				final char c = name.charAt(i);
+				if (c > 0x7f) {
+					throw new InvalidNameException(
+							String.format("name \"%s\" is not ASCII", name));
+				}
+				buffer.put((byte) c);
+			}
+			start = end + 1;
+		}
+		buffer.put((byte) 0);
+	}
+
+	static int id(final ByteBuffer message) {
+		return message.getShort(0) & 0xffff;
+	}
+
+	static boolean isResponse(final ByteBuffer message) {
+		return (flags(message) & FLAG_QR) != 0;
+	}
+
+	static boolean isAuthoritative(final ByteBuffer message) {
+		return (flags(message) & FLAG_AA) != 0;
+	}
+
+	static boolean isTruncated(final ByteBuffer message) {
+		return (flags(message) & FLAG_TC) != 0;
+	}
+
+	static int responseCode(final ByteBuffer message) {
+		return flags(message) & 0x000f;
+	}
+
+	private static int flags(final ByteBuffer message) {
+		return message.getShort(2) & 0xffff;
+	}
+
+	/**
+	 * Decodes the answer section of a response into {@link DnsRecord DNS
+	 * records}. Every record is created for the queried name, the same way the
+	 * JNDI DNS provider attributes records to the name being looked up.
+	 *
+	 * @param message       the response, positioned at its start
+	 * @param name          the queried name
+	 * @param qtype         the queried type code
+	 * @param recordFactory the {@link DnsRecordFactory}
+	 * @param scratch       a reusable {@link StringBuilder}
+	 * @param records       the list the decoded records are added to
+	 * @throws NamingException if the response is malformed
+	 */
+	static void readAnswers(final ByteBuffer message, final String name,
+			final int qtype, final DnsRecordFactory recordFactory,
+			final StringBuilder scratch, final List<DnsRecord> records)
+			throws NamingException {
+		try {
+			final int questions = message.getShort(4) & 0xffff;
+			final int answers = message.getShort(6) & 0xffff;
+			int position = HEADER_LENGTH;
+			for (int i = 0; i < questions; i++) {
+				position = skipName(message, position) + 4;
+			}
+
+			for (int i = 0; i < answers; i++) {
+				position = skipName(message, position);
+				final int type = message.getShort(position) & 0xffff;
+				// RFC 2181: a TTL with its most significant bit set is treated as zero
+				final long ttl = Math.max(0, message.getInt(position + 4));
+				final int rdLength = message.getShort(position + 8) & 0xffff;
+				final int rdata = position + 10;
+				position = rdata + rdLength;
+				if (position > message.limit()) {
+					throw malformed(name);
+				}
+
+				final RecordType recordType = recordType(type);
+				if (recordType == null || qtype != TYPE_ANY && qtype != type) {
+					continue;
+				}
+
+				records.add(readRecord(message, name, recordType, ttl, rdata,
+						rdLength, recordFactory, scratch));
+			}
+		} catch (final IndexOutOfBoundsException e) {
+			final NamingException exception = malformed(name);
+			exception.setRootCause(e);
+			throw exception;
+		}
+	}
+
+	private static DnsRecord readRecord(final ByteBuffer message,
+			final String name, final RecordType type, final long ttl,
+			final int rdata, final int rdLength, final DnsRecordFactory recordFactory,
+			final StringBuilder scratch) throws NamingException {
+		scratch.setLength(0);
+		switch (type) {
+		case A:
+		case AAAA: {
+			final byte[] address = new byte[type == RecordType.A ? 4 : 16];
+			if (rdLength != address.length) {
+				throw malformed(name);
+			}
+			for (int i = 0; i < address.length; i++) {
+				address[i] = message.get(rdata + i);
+			}
+
+			return recordFactory.createAddressRecord(name, address, ttl);
+		}
+		case NS:
+		case CNAME:
+		case PTR:
+			readName(message, rdata, scratch);
+			break;
+		case MX:
+			scratch.append(message.getShort(rdata) & 0xffff).append(' ');
+			readName(message, rdata + 2, scratch);
+			break;
+		case SRV: {
+			final int priority = message.getShort(rdata) & 0xffff;
+			final int weight = message.getShort(rdata + 2) & 0xffff;
+			final int port = message.getShort(rdata + 4) & 0xffff;
+			readName(message, rdata + 6, scratch);
+
+			return recordFactory.createServiceRecord(name, priority, weight, port,
+					scratch.toString(), ttl);
+		}
+		case SOA: {
+			int position = readName(message, rdata, scratch);
+			scratch.append(' ');
+			position = readName(message, position, scratch);
+			for (int i = 0; i < 5; i++) {
+				scratch.append(' ')
+						.append(message.getInt(position + i * 4) & 0xffffffffL);
+			}
+			break;
+		}
+		case TXT:
+		case HINFO:
+			readCharacterStrings(message, rdata, rdata + rdLength, scratch);
+			break;
+		case NAPTR: {
+			scratch.append(message.getShort(rdata) & 0xffff).append(' ')
+					.append(message.getShort(rdata + 2) & 0xffff).append(' ');
+			int position = rdata + 4;
+			for (int i = 0; i < 3; i++) {
+				position = readCharacterString(message, position, scratch);
+				scratch.append(' ');
+			}
+			readName(message, position, scratch);
+			break;
+		}
+		default:
+			throw new IllegalArgumentException("unsupported record type " + type);
+		}
+
+		return recordFactory.createDnsRecord(type, name, scratch.toString(), ttl);
+	}
+
+	private static void readCharacterStrings(final ByteBuffer message,
+			final int start, final int end, final StringBuilder out) {
+		int position = start;
+		while (position < end) {
+			if (position > start) {
+				out.append(' ');
+			}
+			position = readCharacterString(message, position, out);
+		}
+	}
+
+	private static int readCharacterString(final ByteBuffer message,
+			final int position, final StringBuilder out) {
+		final int length = message.get(position) & 0xff;
+		boolean quote = length == 0;
+		for (int i = 1; i <= length && !quote; i++) {
+			quote = message.get(position + i) == ' ';
+		}
+		if (quote) {
+			out.append('"');
+		}
+		for (int i = 1; i <= length; i++) {
+			out.append((char) (message.get(position + i) & 0xff));
+		}
+		if (quote) {
+			out.append('"');
+		}
+
+		return position + 1 + length;
+	}
+
+	/**
+	 * Reads a (possibly compressed) domain name, appending it to the output in
+	 * its fully qualified form, i.e. ending in a dot.
+	 *
+	 * @return the position following the name
+	 */
+	private static int readName(final ByteBuffer message, final int offset,
+			final StringBuilder out) throws NamingException {
+		int position = offset, end = -1, pointers = 0;
+		final int start = out.length();
+		int length;
+		while ((length = message.get(position) & 0xff) != 0) {
+			if ((length & 0xc0) == 0xc0) {
+				if (++pointers > MAX_POINTERS) {
+					throw new NamingException("DNS response contains a pointer loop");
+				}
+				if (end < 0) {
+					end = position + 2;
+				}
+				position = (length & 0x3f) << 8 | message.get(position + 1) & 0xff;
+				continue;
+			}
+			if ((length & 0xc0) != 0) {
+				throw new NamingException("DNS response contains an invalid label");
+			}
+			for (int i = 1; i <= length; i++) {
+				out.append((char) (message.get(position + i) & 0xff));
+			}
+			out.append('.');
+			position += length + 1;
+		}
+		if (out.length() == start) {
+			out.append('.');
+		}
+
+		return end < 0 ? position + 1 : end;
+	}
+
+	private static int skipName(final ByteBuffer message, final int offset) {
+		int position = offset;
+		int length;
+		while ((length = message.get(position) & 0xff) != 0) {
+			if ((length & 0xc0) == 0xc0) {
+				return position + 2;
+			}
+			position += length + 1;
+		}
+
+		return position + 1;
+	}
+
+	private static NamingException malformed(final String name) {
+		return new NamingException(
+				String.format("malformed DNS response for '%s'", name));
+	}
+
+}
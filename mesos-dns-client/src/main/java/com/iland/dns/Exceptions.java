@@ -1,6 +1,7 @@
 package com.iland.dns;
 
 import java.util.Arrays;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
@@ -21,6 +22,23 @@ public class Exceptions {
 		}
 	}
 
+	/**
+	 * Strips the {@link CompletionException} and {@link ExecutionException}
+	 * wrappers added by asynchronous computations.
+	 *
+	 * @param throwable a {@link Throwable}
+	 * @return the underlying cause
+	 */
+	public static final Throwable unwrap(final Throwable throwable) {
+		Throwable cause = throwable;
+		while ((cause instanceof CompletionException
+				|| cause instanceof ExecutionException) && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+
+		return cause;
+	}
+
 	public static final String lookupErrorMessage(final String name,
 			final RecordType... recordTypes) {
 		final String recordTypeCsv =
@@ -0,0 +1,181 @@
+package com.iland.dns;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import javax.naming.NamingException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DnsClient} querying several servers in order, each one through its
+ * own child {@link DnsClient}, and failing over to the next server when one
+ * fails to answer. Combined with {@link CircuitBreakingDnsClient circuit
+ * breaking} children, a dead server is skipped without waiting for it to time
+ * out.
+ *
+ * @see DefaultDnsClient.Builder#withCircuitBreaker
+ */
+public class FailoverDnsClient implements DnsClient, Closeable {
+
+	private static final Logger logger =
+			LoggerFactory.getLogger(FailoverDnsClient.class);
+
+	private final List<DnsClient> delegatees;
+
+	/**
+	 * @param delegatees one child {@link DnsClient} per server, in order of
+	 *                   preference
+	 */
+	public FailoverDnsClient(final List<? extends DnsClient> delegatees) {
+		Objects.requireNonNull(delegatees, "delegatees must not be null");
+		if (delegatees.isEmpty()) {
+			throw new IllegalArgumentException(
+					"at least one delegatee must be provided");
+		}
+		this.delegatees = Collections.unmodifiableList(new ArrayList<>(delegatees));
+	}
+
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final RecordType... recordTypes) throws NamingException {
+		return lookup(name, null, recordTypes);
+	}
+
+	/**
+	 * Lookup DNS records, failing over until the deadline. Every server is
+	 * given the remaining deadline, and none is queried once it expired.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline} or <code>null</code> if none
+	 * @param recordTypes the record types
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws NamingException if the lookup fails, e.g. with a
+	 *                         {@link javax.naming.TimeLimitExceededException}
+	 *                         once the deadline expired
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws NamingException {
+		NamingException failure = null;
+		for (final DnsClient delegatee : delegatees) {
+			if (deadline != null && deadline.isExpired()) {
+				throw Deadline.exceeded(name, recordTypes);
+			}
+			try {
+				return deadline == null ?
+						delegatee.lookup(name, recordTypes) :
+						delegatee.lookup(name, deadline, recordTypes);
+			} catch (final NamingException e) {
+				if (!ServerHealth.isServerFailure(e)) {
+					throw e;
+				}
+				failure = e;
+			}
+		}
+
+		throw failure;
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		return lookupAsync(name, null, recordTypes);
+	}
+
+	/**
+	 * Lookup DNS records asynchronously, failing over until the deadline.
+	 * Every server is given the remaining deadline, and none is queried once
+	 * it expired.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline} or <code>null</code> if none
+	 * @param recordTypes the record types
+	 * @return a {@link CompletableFuture} completed with a list of
+	 * {@link DnsRecord DNS records}, or exceptionally with a
+	 * {@link NamingException}
+	 */
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final Deadline deadline,
+			final RecordType... recordTypes) {
+		final CompletableFuture<List<? extends DnsRecord>> result =
+				new CompletableFuture<>();
+		attempt(name, recordTypes, deadline, DnsLookupContext.current(), 0,
+				result);
+
+		return result;
+	}
+
+	/**
+	 * @return the health of the servers, if their clients are
+	 * {@link CircuitBreakingDnsClient circuit breaking}
+	 */
+	public List<ServerHealth> getServerHealth() {
+		return ServerHealth.of(delegatees);
+	}
+
+	/**
+	 * Closes the child {@link DnsClient clients} that are {@link Closeable}.
+	 */
+	@Override
+	public void close() {
+		for (final DnsClient delegatee : delegatees) {
+			if (delegatee instanceof Closeable) {
+				try {
+					((Closeable) delegatee).close();
+				} catch (final IOException e) {
+					logger.debug("failed to close {}", delegatee, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fails over on the thread completing the failed lookup, in the
+	 * {@link DnsLookupContext context} of the lookup.
+	 */
+	private void attempt(final String name, final RecordType[] recordTypes,
+			final Deadline deadline, final Object context, final int index,
+			final CompletableFuture<List<? extends DnsRecord>> result) {
+		if (deadline != null && deadline.isExpired()) {
+			result.completeExceptionally(Deadline.exceeded(name, recordTypes));
+			return;
+		}
+		final DnsClient delegatee = delegatees.get(index);
+		final CompletableFuture<List<? extends DnsRecord>> lookup;
+		final Object previous = DnsLookupContext.enter(context);
+		try {
+			lookup = deadline == null ?
+					delegatee.lookupAsync(name, recordTypes) :
+					delegatee.lookupAsync(name, deadline, recordTypes);
+		} catch (final RuntimeException e) {
+			result.completeExceptionally(e);
+			return;
+		} finally {
+			DnsLookupContext.restore(context, previous);
+		}
+		lookup.whenComplete((records, t) -> {
+			if (t == null) {
+				result.complete(records);
+				return;
+			}
+
+			final Throwable cause = Exceptions.unwrap(t);
+			if (index + 1 < delegatees.size()
+					&& ServerHealth.isServerFailure(cause)) {
+				attempt(name, recordTypes, deadline, context, index + 1, result);
+			} else {
+				result.completeExceptionally(cause);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.iland.dns;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DnsLookupListener} that logs the exceptions of its delegatee
+ * instead of throwing them, so that a broken listener never fails nor hangs a
+ * lookup.
+ */
+final class GuardedDnsLookupListener implements DnsLookupListener {
+
+	private static final Logger logger =
+			LoggerFactory.getLogger(GuardedDnsLookupListener.class);
+
+	private final DnsLookupListener delegatee;
+
+	private GuardedDnsLookupListener(final DnsLookupListener delegatee) {
+		this.delegatee = delegatee;
+	}
+
+	/**
+	 * @param listener a {@link DnsLookupListener listener} or <code>null</code>
+	 * @return the guarded listener, <code>null</code> if none was given
+	 */
+	static DnsLookupListener guard(final DnsLookupListener listener) {
+		return listener == null || listener instanceof GuardedDnsLookupListener ?
+				listener :
+				new GuardedDnsLookupListener(listener);
+	}
+
+	@Override
+	public Object lookupStarted(final String name,
+			final RecordType[] recordTypes, final long nanoTime) {
+		try {
+			return delegatee.lookupStarted(name, recordTypes, nanoTime);
+		} catch (final RuntimeException e) {
+			failed(e);
+
+			return null;
+		}
+	}
+
+	@Override
+	public void cacheHit(final Object context, final String name,
+			final RecordType[] recordTypes, final long nanoTime) {
+		try {
+			delegatee.cacheHit(context, name, recordTypes, nanoTime);
+		} catch (final RuntimeException e) {
+			failed(e);
+		}
+	}
+
+	@Override
+	public void cacheMiss(final Object context, final String name,
+			final RecordType[] recordTypes, final long nanoTime) {
+		try {
+			delegatee.cacheMiss(context, name, recordTypes, nanoTime);
+		} catch (final RuntimeException e) {
+			failed(e);
+		}
+	}
+
+	@Override
+	public void attemptStarted(final Object context, final String name,
+			final RecordType[] recordTypes, final int attempt,
+			final long nanoTime) {
+		try {
+			delegatee.attemptStarted(context, name, recordTypes, attempt, nanoTime);
+		} catch (final RuntimeException e) {
+			failed(e);
+		}
+	}
+
+	@Override
+	public void serverChosen(final Object context, final String name,
+			final RecordType[] recordTypes, final String server,
+			final long nanoTime) {
+		try {
+			delegatee.serverChosen(context, name, recordTypes, server, nanoTime);
+		} catch (final RuntimeException e) {
+			failed(e);
+		}
+	}
+
+	@Override
+	public void responseParsed(final Object context, final String name,
+			final RecordType[] recordTypes, final int records,
+			final long nanoTime) {
+		try {
+			delegatee.responseParsed(context, name, recordTypes, records, nanoTime);
+		} catch (final RuntimeException e) {
+			failed(e);
+		}
+	}
+
+	@Override
+	public void lookupEnded(final Object context, final String name,
+			final RecordType[] recordTypes, final Throwable failure,
+			final long nanoTime) {
+		try {
+			delegatee.lookupEnded(context, name, recordTypes, failure, nanoTime);
+		} catch (final RuntimeException e) {
+			failed(e);
+		}
+	}
+
+	private void failed(final RuntimeException e) {
+		logger.warn("a lookup listener failed", e);
+	}
+
+}
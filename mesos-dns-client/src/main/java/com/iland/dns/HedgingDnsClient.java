@@ -0,0 +1,408 @@
+package com.iland.dns;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.naming.NamingException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DnsClient} that hedges lookups across several servers, each one
+ * queried through its own child {@link DnsClient}.
+ * <p>
+ * A lookup is sent to one server (in turn, to spread the load); if it has not
+ * answered after the hedging delay, a duplicate is sent to the next server and
+ * the first answer wins. A server that fails is failed over immediately,
+ * while any other failure, e.g. a name that does not exist, fails the lookup
+ * without querying any other server. The
+ * hedging delay tracks the 95th percentile of recent lookup latencies, within
+ * bounds, and hedges are limited to a fraction of the lookups so that a slow
+ * cluster is not flooded with duplicates.
+ *
+ * @see DefaultDnsClient.Builder#withHedging
+ */
+public class HedgingDnsClient implements DnsClient, Closeable {
+
+	/**
+	 * The default maximum ratio of hedged to primary lookups.
+	 */
+	public static final double DEFAULT_MAX_HEDGE_RATIO = 0.1;
+
+	static final long DEFAULT_MIN_DELAY_MILLIS = 5;
+	static final long DEFAULT_MAX_DELAY_MILLIS = 1000;
+
+	private static final Logger logger =
+			LoggerFactory.getLogger(HedgingDnsClient.class);
+
+	private final List<DnsClient> delegatees;
+	private final ScheduledExecutorService scheduler;
+	private final long minDelayNanos;
+	private final long maxDelayNanos;
+	private final LatencyWindow latencies;
+	private final AtomicInteger next = new AtomicInteger();
+	private final HedgeBudget budget;
+
+	/**
+	 * @param delegatees one child {@link DnsClient} per server
+	 */
+	public HedgingDnsClient(final List<? extends DnsClient> delegatees) {
+		this(delegatees, DEFAULT_MAX_HEDGE_RATIO, DEFAULT_MIN_DELAY_MILLIS,
+				DEFAULT_MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS,
+				DnsExecutors.defaultScheduler());
+	}
+
+	/**
+	 * @param delegatees    one child {@link DnsClient} per server
+	 * @param maxHedgeRatio the maximum ratio of hedged to primary lookups
+	 * @param minDelay      the minimum hedging delay
+	 * @param maxDelay      the maximum hedging delay, also the delay until
+	 *                      enough latencies were observed
+	 * @param unit          the {@link TimeUnit unit}
+	 * @param scheduler     the {@link ScheduledExecutorService scheduler} hedges
+	 *                      are scheduled on
+	 */
+	public HedgingDnsClient(final List<? extends DnsClient> delegatees,
+			final double maxHedgeRatio, final long minDelay, final long maxDelay,
+			final TimeUnit unit, final ScheduledExecutorService scheduler) {
+		Objects.requireNonNull(delegatees, "delegatees must not be null");
+		if (delegatees.isEmpty()) {
+			throw new IllegalArgumentException(
+					"at least one delegatee must be provided");
+		}
+		if (maxHedgeRatio < 0 || maxHedgeRatio > 1) {
+			throw new IllegalArgumentException(
+					"maxHedgeRatio must be between 0 and 1");
+		}
+		if (minDelay < 0 || maxDelay < minDelay) {
+			throw new IllegalArgumentException(
+					"minDelay must not be negative nor greater than maxDelay");
+		}
+		this.delegatees = Collections.unmodifiableList(new ArrayList<>(delegatees));
+		this.minDelayNanos = unit.toNanos(minDelay);
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+		this.scheduler =
+				Objects.requireNonNull(scheduler, "scheduler must not be null");
+		this.latencies = new LatencyWindow(maxDelayNanos);
+		this.budget = new HedgeBudget(maxHedgeRatio);
+	}
+
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final RecordType... recordTypes) throws NamingException {
+		return lookup(name, null, recordTypes);
+	}
+
+	/**
+	 * Lookup DNS records, hedging until the deadline. Every server is given the
+	 * remaining deadline.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline} or <code>null</code> if none
+	 * @param recordTypes the record types
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws NamingException if the lookup fails, e.g. with a
+	 *                         {@link javax.naming.TimeLimitExceededException}
+	 *                         once the deadline expired
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws NamingException {
+		return Deadline.await(lookupAsync(name, deadline, recordTypes), deadline,
+				name, recordTypes);
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		return lookupAsync(name, null, recordTypes);
+	}
+
+	/**
+	 * Lookup DNS records asynchronously, hedging until the deadline. Every
+	 * server is given the remaining deadline, and no hedge is sent once it
+	 * expired.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline} or <code>null</code> if none
+	 * @param recordTypes the record types
+	 * @return a {@link CompletableFuture} completed with a list of
+	 * {@link DnsRecord DNS records}, or exceptionally with a
+	 * {@link NamingException}
+	 */
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final Deadline deadline,
+			final RecordType... recordTypes) {
+		if (deadline != null && deadline.isExpired()) {
+			final CompletableFuture<List<? extends DnsRecord>> result =
+					new CompletableFuture<>();
+			result.completeExceptionally(Deadline.exceeded(name, recordTypes));
+			return result;
+		}
+		final Hedge hedge = new Hedge(name, recordTypes, deadline,
+				Math.floorMod(next.getAndIncrement(), delegatees.size()));
+		budget.deposit();
+		hedge.send();
+
+		return hedge.result;
+	}
+
+	/**
+	 * Returns the current hedging delay.
+	 *
+	 * @param unit the {@link TimeUnit unit}
+	 * @return the hedging delay
+	 */
+	public long getDelay(final TimeUnit unit) {
+		return unit.convert(delayNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return the number of duplicate lookups sent so far
+	 */
+	public long getHedgeCount() {
+		return budget.hedges.get();
+	}
+
+	/**
+	 * @return the health of the servers, if their clients are
+	 * {@link CircuitBreakingDnsClient circuit breaking}
+	 */
+	public List<ServerHealth> getServerHealth() {
+		return ServerHealth.of(delegatees);
+	}
+
+	/**
+	 * Closes the child {@link DnsClient clients} that are {@link Closeable}.
+	 */
+	@Override
+	public void close() {
+		for (final DnsClient delegatee : delegatees) {
+			if (delegatee instanceof Closeable) {
+				try {
+					((Closeable) delegatee).close();
+				} catch (final IOException e) {
+					logger.debug("failed to close {}", delegatee, e);
+				}
+			}
+		}
+	}
+
+	private long delayNanos() {
+		return Math.min(maxDelayNanos,
+				Math.max(minDelayNanos, latencies.percentile95()));
+	}
+
+	/**
+	 * A lookup in flight on one or more servers.
+	 */
+	private final class Hedge {
+
+		private final String name;
+		private final RecordType[] recordTypes;
+		private final Deadline deadline;
+		private final Object context = DnsLookupContext.current();
+		private final int first;
+		private final long start = System.nanoTime();
+		private final CompletableFuture<List<? extends DnsRecord>> result =
+				new CompletableFuture<>();
+		/**
+		 * The number of servers queried so far, and of those that failed,
+		 * guarded by <code>this</code>.
+		 */
+		private int sent;
+		private int failed;
+		private ScheduledFuture<?> timer;
+
+		private Hedge(final String name, final RecordType[] recordTypes,
+				final Deadline deadline, final int first) {
+			this.name = name;
+			this.recordTypes = recordTypes;
+			this.deadline = deadline;
+			this.first = first;
+		}
+
+		private void send() {
+			final DnsClient delegatee;
+			synchronized (this) {
+				if (result.isDone() || sent == delegatees.size()) {
+					return;
+				}
+				delegatee = delegatees.get((first + sent++) % delegatees.size());
+				if (sent < delegatees.size()) {
+					schedule();
+				}
+			}
+
+			final CompletableFuture<List<? extends DnsRecord>> lookup;
+			// hedges and fail-overs are sent from other threads
+			final Object previous = DnsLookupContext.enter(context);
+			try {
+				lookup = deadline == null ?
+						delegatee.lookupAsync(name, recordTypes) :
+						delegatee.lookupAsync(name, deadline, recordTypes);
+			} catch (final RuntimeException e) {
+				fail(e);
+				return;
+			} finally {
+				DnsLookupContext.restore(context, previous);
+			}
+			lookup.whenComplete((records, t) -> {
+				if (t == null) {
+					succeed(records);
+				} else {
+					fail(Exceptions.unwrap(t));
+				}
+			});
+		}
+
+		private void schedule() {
+			try {
+				timer = scheduler.schedule(this::hedge, delayNanos(),
+						TimeUnit.NANOSECONDS);
+			} catch (final RejectedExecutionException e) {
+				logger.debug("hedge of {} was rejected", name);
+			}
+		}
+
+		private void hedge() {
+			if (result.isDone() || deadline != null && deadline.isExpired()
+					|| !budget.withdraw()) {
+				return;
+			}
+			logger.debug("hedging lookup of {}", name);
+			send();
+		}
+
+		private void succeed(final List<? extends DnsRecord> records) {
+			if (result.complete(records)) {
+				latencies.add(System.nanoTime() - start);
+				cancel();
+			}
+		}
+
+		private void fail(final Throwable t) {
+			if (!ServerHealth.isServerFailure(t)) {
+				// every server would give the same answer
+				if (result.completeExceptionally(t)) {
+					cancel();
+				}
+				return;
+			}
+			final boolean last, failOver;
+			synchronized (this) {
+				failed++;
+				last = failed == delegatees.size();
+				// every query so far failed: fail over without waiting for the timer
+				failOver = !last && failed == sent;
+			}
+			if (last) {
+				result.completeExceptionally(t);
+			} else if (failOver) {
+				cancel();
+				send();
+			}
+		}
+
+		private synchronized void cancel() {
+			if (timer != null) {
+				timer.cancel(false);
+			}
+		}
+
+	}
+
+	/**
+	 * Allows a fraction of the lookups to be hedged: every lookup deposits the
+	 * ratio, every hedge withdraws one, and the balance is capped so that a
+	 * quiet period does not allow a burst of hedges.
+	 */
+	private static final class HedgeBudget {
+
+		private static final long SCALE = 1000;
+		private static final long MAX_BALANCE = 10 * SCALE;
+
+		private final long deposit;
+		private final AtomicLong balance = new AtomicLong();
+		private final AtomicLong hedges = new AtomicLong();
+
+		private HedgeBudget(final double ratio) {
+			this.deposit = Math.round(ratio * SCALE);
+		}
+
+		private void deposit() {
+			if (balance.get() < MAX_BALANCE) {
+				balance.accumulateAndGet(deposit,
+						(current, x) -> Math.min(MAX_BALANCE, current + x));
+			}
+		}
+
+		private boolean withdraw() {
+			long current;
+			do {
+				current = balance.get();
+				if (current < SCALE) {
+					return false;
+				}
+			} while (!balance.compareAndSet(current, current - SCALE));
+			hedges.incrementAndGet();
+
+			return true;
+		}
+
+	}
+
+	/**
+	 * The latencies of the last 256 lookups. The 95th percentile is recomputed
+	 * every 32 samples rather than on every read.
+	 */
+	private static final class LatencyWindow {
+
+		private static final int SIZE = 256;
+		private static final int RECOMPUTE_EVERY = 32;
+
+		private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+		private final AtomicLong count = new AtomicLong();
+		private volatile long percentile95;
+
+		private LatencyWindow(final long initial) {
+			this.percentile95 = initial;
+		}
+
+		private void add(final long nanos) {
+			final long n = count.getAndIncrement();
+			samples.set((int) (n % SIZE), nanos);
+			if ((n + 1) % RECOMPUTE_EVERY == 0) {
+				final int size = (int) Math.min(n + 1, SIZE);
+				final long[] sorted = new long[size];
+				for (int i = 0; i < size; i++) {
+					sorted[i] = samples.get(i);
+				}
+				Arrays.sort(sorted);
+				percentile95 = sorted[(int) Math.ceil(size * 0.95) - 1];
+			}
+		}
+
+		private long percentile95() {
+			return percentile95;
+		}
+
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.iland.dns;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds, bucketed like an HDR histogram:
+ * latencies below {@value #SUB_BUCKETS} nanoseconds are kept exactly, and
+ * every power of two above is split into {@value #HALF_SUB_BUCKETS} linear
+ * sub-buckets, so that any latency, from a nanosecond to centuries, is kept
+ * within about 3% in a fixed array.
+ * <p>
+ * Recording never takes a lock nor allocates: it increments a single bucket.
+ * Reading is not atomic, a percentile read while latencies are being recorded
+ * may miss the latest ones.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records a latency, negative latencies are recorded as <code>0</code>.
+	 *
+	 * @param latencyNanos the latency in nanoseconds
+	 */
+	public void record(final long latencyNanos) {
+		final long value = Math.max(0, latencyNanos);
+		counts.incrementAndGet(index(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * @return the number of latencies recorded
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the largest latency recorded in nanoseconds, <code>0</code> if
+	 * none
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return the mean latency in nanoseconds, <code>0</code> if none
+	 */
+	public double getMean() {
+		final long count = getCount();
+
+		return count == 0 ? 0 : (double) sum.sum() / count;
+	}
+
+	/**
+	 * Returns the latency that the given percentage of the recorded latencies
+	 * do not exceed, as the highest latency of its bucket (but no more than the
+	 * largest latency recorded).
+	 *
+	 * @param percentile the percentile, in <code>[0, 100]</code>, e.g.
+	 *                   <code>99.9</code>
+	 * @return the latency in nanoseconds, <code>0</code> if none was recorded
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		if (!(percentile >= 0 && percentile <= 100)) {
+			throw new IllegalArgumentException("percentile must be in [0, 100]");
+		}
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValue(i), getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * @param percentile the percentile, in <code>[0, 100]</code>
+	 * @param unit       the {@link TimeUnit unit}
+	 * @return the latency at the percentile in the unit, with a fraction
+	 * @see #getValueAtPercentile(double)
+	 */
+	public double getValueAtPercentile(final double percentile,
+			final TimeUnit unit) {
+		return (double) getValueAtPercentile(percentile) / unit.toNanos(1);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"LatencyHistogram{count=%d, p50=%dns, p99=%dns, max=%dns}",
+				getCount(), getValueAtPercentile(50), getValueAtPercentile(99),
+				getMax());
+	}
+
+	/**
+	 * The values below {@link #SUB_BUCKETS} have a bucket each; above, the
+	 * values of <code>[2^k, 2^(k+1))</code> are split into
+	 * {@link #HALF_SUB_BUCKETS} buckets.
+	 */
+	private static int index(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+		return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	private static long lowestValue(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		final int shift = index / HALF_SUB_BUCKETS - 1;
+
+		return (long) (index - shift * HALF_SUB_BUCKETS) << shift;
+	}
+
+	private static long highestValue(final int index) {
+		return index == BUCKETS - 1 ? Long.MAX_VALUE : lowestValue(index + 1) - 1;
+	}
+
+}
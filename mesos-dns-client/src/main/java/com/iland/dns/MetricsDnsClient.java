@@ -0,0 +1,151 @@
+package com.iland.dns;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import javax.naming.NamingException;
+
+/**
+ * A {@link DnsClient} recording the latency and outcome of every lookup of
+ * its child {@link DnsClient} with {@link DnsMetrics}, e.g.
+ * <pre>{@code
+ * DefaultDnsMetrics metrics = new DefaultDnsMetrics();
+ * DnsClient dnsClient = new MetricsDnsClient(
+ *     new CachingDnsClient(DefaultDnsClient.builder().build()), metrics);
+ * }</pre>
+ * An asynchronous lookup is recorded once it completes, on the thread
+ * completing it.
+ */
+public class MetricsDnsClient implements DnsClient {
+
+	private static final RecordType[] SRV_TYPES = { RecordType.SRV };
+
+	private final DnsClient delegatee;
+	private final DnsMetrics metrics;
+
+	/**
+	 * @param delegatee the child {@link DnsClient}
+	 * @param metrics   the {@link DnsMetrics metrics} lookups are recorded with
+	 */
+	public MetricsDnsClient(final DnsClient delegatee, final DnsMetrics metrics) {
+		this.delegatee =
+				Objects.requireNonNull(delegatee, "delegatee must not be null");
+		this.metrics = Objects.requireNonNull(metrics, "metrics must not be null");
+	}
+
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final RecordType... recordTypes) throws NamingException {
+		final long start = System.nanoTime();
+		try {
+			final List<? extends DnsRecord> records =
+					delegatee.lookup(name, recordTypes);
+			metrics.lookupSucceeded(name, recordTypes, records.size(),
+					System.nanoTime() - start);
+
+			return records;
+		} catch (final NamingException | RuntimeException e) {
+			metrics.lookupFailed(name, recordTypes, e, System.nanoTime() - start);
+			throw e;
+		}
+	}
+
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws NamingException {
+		final long start = System.nanoTime();
+		try {
+			final List<? extends DnsRecord> records =
+					delegatee.lookup(name, deadline, recordTypes);
+			metrics.lookupSucceeded(name, recordTypes, records.size(),
+					System.nanoTime() - start);
+
+			return records;
+		} catch (final NamingException | RuntimeException e) {
+			metrics.lookupFailed(name, recordTypes, e, System.nanoTime() - start);
+			throw e;
+		}
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		final long start = System.nanoTime();
+
+		return record(delegatee.lookupAsync(name, recordTypes), name, recordTypes,
+				start);
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final Deadline deadline,
+			final RecordType... recordTypes) {
+		final long start = System.nanoTime();
+
+		return record(delegatee.lookupAsync(name, deadline, recordTypes), name,
+				recordTypes, start);
+	}
+
+	/**
+	 * Forwarded, so that the child {@link DnsClient} may share its sorted
+	 * records, e.g. a {@link CachingDnsClient}.
+	 */
+	@Override
+	public List<SrvDnsRecord> lookupServiceRecords(final String name)
+			throws NamingException {
+		final long start = System.nanoTime();
+		try {
+			final List<SrvDnsRecord> records = delegatee.lookupServiceRecords(name);
+			metrics.lookupSucceeded(name, SRV_TYPES, records.size(),
+					System.nanoTime() - start);
+
+			return records;
+		} catch (final NamingException | RuntimeException e) {
+			metrics.lookupFailed(name, SRV_TYPES, e, System.nanoTime() - start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Forwarded, so that the child {@link DnsClient} may share its selectors,
+	 * e.g. a {@link CachingDnsClient}.
+	 */
+	@Override
+	public ServiceRecordSelector lookupServiceRecordSelector(final String name)
+			throws NamingException {
+		final long start = System.nanoTime();
+		try {
+			final ServiceRecordSelector selector =
+					delegatee.lookupServiceRecordSelector(name);
+			metrics.lookupSucceeded(name, SRV_TYPES, selector.getRecords().size(),
+					System.nanoTime() - start);
+
+			return selector;
+		} catch (final NamingException | RuntimeException e) {
+			metrics.lookupFailed(name, SRV_TYPES, e, System.nanoTime() - start);
+			throw e;
+		}
+	}
+
+	public DnsMetrics getMetrics() {
+		return metrics;
+	}
+
+	private CompletableFuture<List<? extends DnsRecord>> record(
+			final CompletableFuture<List<? extends DnsRecord>> lookup,
+			final String name, final RecordType[] recordTypes, final long start) {
+		return lookup.whenComplete((records, t) -> {
+			final long latencyNanos = System.nanoTime() - start;
+			if (t == null) {
+				metrics.lookupSucceeded(name, recordTypes, records.size(),
+						latencyNanos);
+			} else {
+				metrics.lookupFailed(name, recordTypes, Exceptions.unwrap(t),
+						latencyNanos);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,512 @@
+package com.iland.dns;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.naming.CommunicationException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+
+/**
+ * A {@link DnsClient} that speaks the DNS wire protocol directly over a
+ * {@link DatagramChannel}, falling back to TCP for truncated responses.
+ * <p>
+ * Each lookup borrows a channel and a receive buffer from a pool, so
+ * concurrent lookups never share state and no buffer is allocated per query.
+ * Records are decoded straight from the response buffer.
+ *
+ * @see DefaultDnsClient.Builder#withNioTransport()
+ */
+public class NioDnsClient implements DnsClient, Closeable {
+
+	/**
+	 * The JNDI DNS provider property holding the initial timeout in milliseconds.
+	 */
+	static final String INITIAL_TIMEOUT = "com.sun.jndi.dns.timeout.initial";
+
+	/**
+	 * The JNDI DNS provider property holding the number of times each server is queried.
+	 */
+	static final String RETRIES = "com.sun.jndi.dns.timeout.retries";
+
+	static final int DEFAULT_INITIAL_TIMEOUT = 1000;
+	static final int DEFAULT_RETRIES = 4;
+
+	private static final int DEFAULT_PORT = 53;
+
+	private final List<InetSocketAddress> servers;
+	private final DnsRecordFactory recordFactory;
+	private final int initialTimeout;
+	private final int retries;
+	private final boolean authoritative;
+	private final Executor executor;
+	private final DnsLookupListener listener;
+	private final Queue<Exchange> exchanges = new ConcurrentLinkedQueue<>();
+	private volatile boolean closed;
+
+	/**
+	 * @param servers       the DNS servers, queried in order
+	 * @param recordFactory the {@link DnsRecordFactory}
+	 */
+	public NioDnsClient(final List<InetSocketAddress> servers,
+			final DnsRecordFactory recordFactory) {
+		this(servers, recordFactory, DEFAULT_INITIAL_TIMEOUT, DEFAULT_RETRIES,
+				false);
+	}
+
+	/**
+	 * @param servers        the DNS servers, queried in order
+	 * @param recordFactory  the {@link DnsRecordFactory}
+	 * @param initialTimeout the timeout in milliseconds of the first round of
+	 *                       queries, doubled for every subsequent round
+	 * @param retries        the number of rounds of queries
+	 * @param authoritative  whether only authoritative responses are accepted
+	 */
+	public NioDnsClient(final List<InetSocketAddress> servers,
+			final DnsRecordFactory recordFactory, final int initialTimeout,
+			final int retries, final boolean authoritative) {
+		this(servers, recordFactory, initialTimeout, retries, authoritative,
+				DnsExecutors.defaultExecutor());
+	}
+
+	/**
+	 * @param servers        the DNS servers, queried in order
+	 * @param recordFactory  the {@link DnsRecordFactory}
+	 * @param initialTimeout the timeout in milliseconds of the first round of
+	 *                       queries, doubled for every subsequent round
+	 * @param retries        the number of rounds of queries
+	 * @param authoritative  whether only authoritative responses are accepted
+	 * @param executor       the {@link Executor} asynchronous lookups run on
+	 */
+	public NioDnsClient(final List<InetSocketAddress> servers,
+			final DnsRecordFactory recordFactory, final int initialTimeout,
+			final int retries, final boolean authoritative,
+			final Executor executor) {
+		this(servers, recordFactory, initialTimeout, retries, authoritative,
+				executor, null);
+	}
+
+	/**
+	 * @param listener the {@link DnsLookupListener listener} told of every
+	 *                 server queried and every response parsed, or
+	 *                 <code>null</code> if none
+	 */
+	NioDnsClient(final List<InetSocketAddress> servers,
+			final DnsRecordFactory recordFactory, final int initialTimeout,
+			final int retries, final boolean authoritative,
+			final Executor executor, final DnsLookupListener listener) {
+		Objects.requireNonNull(servers, "servers must not be null");
+		if (servers.isEmpty()) {
+			throw new IllegalArgumentException(
+					"at least one server must be provided");
+		}
+		if (initialTimeout <= 0) {
+			throw new IllegalArgumentException("initialTimeout must be positive");
+		}
+		if (retries <= 0) {
+			throw new IllegalArgumentException("retries must be positive");
+		}
+		this.servers = Collections.unmodifiableList(new ArrayList<>(servers));
+		this.recordFactory =
+				Objects.requireNonNull(recordFactory, "recordFactory must not be null");
+		this.initialTimeout = initialTimeout;
+		this.retries = retries;
+		this.authoritative = authoritative;
+		this.executor = Objects.requireNonNull(executor, "executor must not be null");
+		this.listener = GuardedDnsLookupListener.guard(listener);
+	}
+
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final RecordType... recordTypes) throws NamingException {
+		return lookup(name, null, recordTypes);
+	}
+
+	/**
+	 * Every query waits at most the time remaining until the deadline, and no
+	 * query is sent once it expired.
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws NamingException {
+		Objects.requireNonNull(name, "name must not be null");
+		if (deadline != null && deadline.isExpired()) {
+			throw Deadline.exceeded(name, recordTypes);
+		}
+
+		final List<DnsRecord> records = new ArrayList<>();
+		final Exchange exchange = acquire();
+		try {
+			if (recordTypes.length == 0) {
+				query(exchange, name, DnsWireCodec.TYPE_ANY, recordTypes, deadline,
+						records);
+			} else {
+				for (final RecordType recordType : recordTypes) {
+					query(exchange, name, DnsWireCodec.typeCode(recordType), recordTypes,
+							deadline, records);
+				}
+			}
+		} finally {
+			release(exchange);
+		}
+
+		return records;
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		return DnsExecutors.supplyAsync(() -> lookup(name, recordTypes), executor);
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final Deadline deadline,
+			final RecordType... recordTypes) {
+		Objects.requireNonNull(deadline, "deadline must not be null");
+
+		return DnsExecutors.supplyAsync(() -> lookup(name, deadline, recordTypes),
+				executor);
+	}
+
+	private void query(final Exchange exchange, final String name,
+			final int qtype, final RecordType[] recordTypes, final Deadline deadline,
+			final List<DnsRecord> records) throws NamingException {
+		NamingException failure = null;
+		for (int round = 0; round < retries; round++) {
+			for (final InetSocketAddress server : servers) {
+				long timeout = (long) initialTimeout << round;
+				if (deadline != null) {
+					final long remaining = deadline.remaining(TimeUnit.NANOSECONDS);
+					if (remaining <= 0) {
+						final NamingException exception =
+								Deadline.exceeded(name, recordTypes);
+						exception.setRootCause(failure);
+						throw exception;
+					}
+					// rounded up, so that a query timing out expires the deadline
+					timeout =
+							Math.min(timeout, TimeUnit.NANOSECONDS.toMillis(remaining - 1) + 1);
+				}
+				if (listener != null) {
+					listener.serverChosen(DnsLookupContext.current(), name,
+							recordTypes, server.toString(), System.nanoTime());
+				}
+				final int id = ThreadLocalRandom.current().nextInt(0x10000);
+				try {
+					DnsWireCodec.writeQuery(exchange.buffer, id, name, qtype);
+					// one end time for the whole exchange, including a TCP fallback
+					final long end =
+							System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+					if (!exchange.send(server, id, end)) {
+						failure = new CommunicationException(
+								String.format("DNS server %s timed out", server));
+						continue;
+					}
+					if (DnsWireCodec.isTruncated(exchange.response)) {
+						DnsWireCodec.writeQuery(exchange.buffer, id, name, qtype);
+						exchange.sendOverTcp(server, id, end);
+					}
+				} catch (final IOException e) {
+					failure = new CommunicationException(
+							String.format("DNS server %s failed", server));
+					failure.setRootCause(e);
+					continue;
+				}
+
+				final ByteBuffer response = exchange.response;
+				switch (DnsWireCodec.responseCode(response)) {
+				case DnsWireCodec.RCODE_NOERROR:
+					if (authoritative && !DnsWireCodec.isAuthoritative(response)) {
+						failure = new ServiceUnavailableException(String.format(
+								"DNS server %s did not answer authoritatively", server));
+						continue;
+					}
+					DnsWireCodec.readAnswers(response, name, qtype, recordFactory,
+							exchange.scratch, records);
+					if (listener != null) {
+						listener.responseParsed(DnsLookupContext.current(), name,
+								recordTypes, records.size(), System.nanoTime());
+					}
+					return;
+				case DnsWireCodec.RCODE_NXDOMAIN:
+					throw new NameNotFoundException(
+							String.format("DNS name not found: '%s'", name));
+				case DnsWireCodec.RCODE_SERVFAIL:
+				case DnsWireCodec.RCODE_REFUSED:
+					failure = new ServiceUnavailableException(String.format(
+							"DNS server %s failed with response code %d", server,
+							DnsWireCodec.responseCode(response)));
+					continue;
+				default:
+					throw new NamingException(String.format(
+							"DNS server %s failed with response code %d for '%s'", server,
+							DnsWireCodec.responseCode(response), name));
+				}
+			}
+		}
+
+		if (deadline != null && deadline.isExpired()) {
+			final NamingException exception = Deadline.exceeded(name, recordTypes);
+			exception.setRootCause(failure);
+			throw exception;
+		}
+		throw failure;
+	}
+
+	private Exchange acquire() throws NamingException {
+		final Exchange exchange = exchanges.poll();
+		if (exchange != null) {
+			return exchange;
+		}
+
+		try {
+			return new Exchange();
+		} catch (final IOException e) {
+			final NamingException exception =
+					new CommunicationException("could not open a DNS channel");
+			exception.setRootCause(e);
+			throw exception;
+		}
+	}
+
+	private void release(final Exchange exchange) {
+		if (closed || !exchange.channel.isOpen()) {
+			exchange.close();
+			return;
+		}
+
+		exchanges.offer(exchange);
+		// close() may have drained the pool concurrently
+		if (closed && exchanges.remove(exchange)) {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Closes the pooled channels. Lookups still in progress close their channel
+	 * when they complete.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		Exchange exchange;
+		while ((exchange = exchanges.poll()) != null) {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Parses DNS servers taking the form "host[:port]" (IPv6 literals must be
+	 * enclosed in brackets when a port is given).
+	 *
+	 * @param hosts the DNS servers
+	 * @return the socket addresses of the DNS servers
+	 */
+	static List<InetSocketAddress> parseServers(final String... hosts) {
+		return Arrays.stream(hosts).map(NioDnsClient::parseServer)
+				.collect(Collectors.toList());
+	}
+
+	private static InetSocketAddress parseServer(final String host) {
+		Objects.requireNonNull(host, "host must not be null");
+
+		if (host.startsWith("[")) {
+			final int bracket = host.indexOf(']');
+			final int port = bracket + 2 < host.length() ?
+					Integer.parseInt(host.substring(bracket + 2)) :
+					DEFAULT_PORT;
+
+			return new InetSocketAddress(host.substring(1, bracket), port);
+		}
+
+		final int colon = host.indexOf(':');
+		if (colon > 0 && colon == host.lastIndexOf(':')) {
+			return new InetSocketAddress(host.substring(0, colon),
+					Integer.parseInt(host.substring(colon + 1)));
+		}
+
+		return new InetSocketAddress(host, DEFAULT_PORT);
+	}
+
+	/**
+	 * A channel, selector and buffers confined to one lookup at a time.
+	 */
+	private static final class Exchange implements Closeable {
+
+		private final DatagramChannel channel;
+		private final Selector selector;
+		private final ByteBuffer buffer =
+				ByteBuffer.allocate(DnsWireCodec.MAX_UDP_MESSAGE_LENGTH);
+		private final StringBuilder scratch = new StringBuilder(64);
+		private ByteBuffer response;
+
+		private Exchange() throws IOException {
+			this.channel = DatagramChannel.open();
+			Selector selector = null;
+			try {
+				selector = Selector.open();
+				channel.configureBlocking(false);
+				channel.bind(null);
+				channel.register(selector, SelectionKey.OP_READ);
+			} catch (final IOException | RuntimeException e) {
+				if (selector != null) {
+					selector.close();
+				}
+				channel.close();
+				throw e;
+			}
+			this.selector = selector;
+		}
+
+		/**
+		 * Sends the query held in the buffer and waits for the matching response.
+		 *
+		 * @param end the {@link System#nanoTime() time} the exchange ends at
+		 * @return <code>false</code> if the server timed out
+		 */
+		private boolean send(final InetSocketAddress server, final int id,
+				final long end) throws IOException {
+			channel.send(buffer, server);
+
+			long remaining;
+			while ((remaining = end - System.nanoTime()) > 0) {
+				if (selector.select(
+						Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining))) == 0) {
+					continue;
+				}
+				selector.selectedKeys().clear();
+
+				SocketAddress sender;
+				while (true) {
+					buffer.clear();
+					if ((sender = channel.receive(buffer)) == null) {
+						break;
+					}
+					buffer.flip();
+					// ignore late responses to earlier queries and spoofed responses
+					if (server.equals(sender)
+							&& buffer.remaining() >= DnsWireCodec.HEADER_LENGTH
+							&& DnsWireCodec.id(buffer) == id && DnsWireCodec.isResponse(
+							buffer)) {
+						response = buffer;
+						return true;
+					}
+				}
+			}
+
+			response = null;
+			return false;
+		}
+
+		/**
+		 * Sends the query held in the buffer over TCP and reads the response,
+		 * connecting and reading at most until the exchange ends.
+		 *
+		 * @param end the {@link System#nanoTime() time} the exchange ends at
+		 */
+		private void sendOverTcp(final InetSocketAddress server,
+				final int id, final long end) throws IOException {
+			try (Socket socket = new Socket()) {
+				socket.connect(server, millisUntil(end));
+
+				final DataOutputStream out =
+						new DataOutputStream(socket.getOutputStream());
+				out.writeShort(buffer.remaining());
+				out.write(buffer.array(), buffer.position(), buffer.remaining());
+				out.flush();
+
+				final InputStream in = socket.getInputStream();
+				final byte[] length = new byte[2];
+				readFully(socket, in, length, end);
+				final byte[] message =
+						new byte[((length[0] & 0xff) << 8) | (length[1] & 0xff)];
+				readFully(socket, in, message, end);
+
+				final ByteBuffer tcpResponse = ByteBuffer.wrap(message);
+				if (message.length < DnsWireCodec.HEADER_LENGTH
+						|| DnsWireCodec.id(tcpResponse) != id
+						|| !DnsWireCodec.isResponse(tcpResponse)) {
+					throw new IOException(
+							String.format("DNS server %s sent a mismatched response",
+									server));
+				}
+
+				response = tcpResponse;
+			}
+		}
+
+		/**
+		 * Reads the bytes, every read timing out when the exchange ends.
+		 */
+		private void readFully(final Socket socket, final InputStream in,
+				final byte[] bytes, final long end) throws IOException {
+			int read = 0;
+			while (read < bytes.length) {
+				socket.setSoTimeout(millisUntil(end));
+				final int n = in.read(bytes, read, bytes.length - read);
+				if (n < 0) {
+					throw new EOFException();
+				}
+				read += n;
+			}
+		}
+
+		/**
+		 * @param end a {@link System#nanoTime() time}
+		 * @return the milliseconds left until then, at least one as zero means
+		 * no timeout to a {@link Socket}
+		 * @throws SocketTimeoutException if the time is up
+		 */
+		private int millisUntil(final long end) throws SocketTimeoutException {
+			final long remaining = end - System.nanoTime();
+			if (remaining <= 0) {
+				throw new SocketTimeoutException("the exchange timed out");
+			}
+
+			return (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+					TimeUnit.NANOSECONDS.toMillis(remaining)));
+		}
+
+		@Override
+		public void close() {
+			try {
+				selector.close();
+			} catch (final IOException e) {
+				// nothing to do
+			}
+			try {
+				channel.close();
+			} catch (final IOException e) {
+				// nothing to do
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.iland.dns;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps retries at a percentage of the requests, so that a struggling server
+ * is not hit by a retry storm: every request deposits the ratio and every
+ * retry withdraws one. The balance starts at, and is capped to, a minimum
+ * number of retries: low traffic can still retry, yet a quiet period does not
+ * save up for a burst.
+ * <p>
+ * A budget may be shared by several clients to cap their retries together.
+ */
+public final class RetryBudget {
+
+	private static final long SCALE = 1000;
+
+	private final long deposit;
+	private final long maxBalance;
+	private final AtomicLong balance;
+
+	/**
+	 * @param ratio      the maximum ratio of retries to requests, e.g. 0.1
+	 * @param minRetries the initial and maximum balance, in retries
+	 */
+	public RetryBudget(final double ratio, final int minRetries) {
+		if (ratio < 0) {
+			throw new IllegalArgumentException("ratio must not be negative");
+		}
+		if (minRetries < 0) {
+			throw new IllegalArgumentException("minRetries must not be negative");
+		}
+		this.deposit = Math.round(ratio * SCALE);
+		this.maxBalance = Math.max(1, minRetries) * SCALE;
+		this.balance = new AtomicLong(minRetries * SCALE);
+	}
+
+	/**
+	 * Records a request.
+	 */
+	public void onRequest() {
+		if (deposit > 0 && balance.get() < maxBalance) {
+			balance.accumulateAndGet(deposit,
+					(current, x) -> Math.min(maxBalance, current + x));
+		}
+	}
+
+	/**
+	 * @return whether a retry is allowed, withdrawing it from the budget
+	 */
+	public boolean tryRetry() {
+		long current;
+		do {
+			current = balance.get();
+			if (current < SCALE) {
+				return false;
+			}
+		} while (!balance.compareAndSet(current, current - SCALE));
+
+		return true;
+	}
+
+}
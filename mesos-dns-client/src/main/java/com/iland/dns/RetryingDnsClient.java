@@ -0,0 +1,601 @@
+package com.iland.dns;
+
+import static com.iland.dns.Exceptions.lookupErrorMessage;
+import static com.iland.dns.Exceptions.throwNamingException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingException;
+import javax.naming.TimeLimitExceededException;
+
+import com.github.rholder.retry.Attempt;
+import com.github.rholder.retry.RetryException;
+import com.github.rholder.retry.Retryer;
+import com.github.rholder.retry.RetryerBuilder;
+import com.github.rholder.retry.StopStrategies;
+import com.github.rholder.retry.StopStrategy;
+import com.github.rholder.retry.WaitStrategies;
+import com.github.rholder.retry.WaitStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RetryingDnsClient implements DnsClient {
+
+	private static final Logger logger =
+			LoggerFactory.getLogger(RetryingDnsClient.class);
+
+	private final DnsClient delegatee;
+	private final Retryer<List<? extends DnsRecord>> retryer;
+	private final WaitStrategy waitStrategy;
+	private final StopStrategy stopStrategy;
+	private final ScheduledExecutorService scheduler;
+	private final double jitter;
+	private final RetryBudget retryBudget;
+	private final LongAdder attempts = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+	private final DnsLookupListener listener;
+
+	/**
+	 * @param delegatee the child {@link DnsClient}
+	 */
+	public RetryingDnsClient(final DnsClient delegatee) {
+		this(delegatee, createDefaultWaitStrategy(), createDefaultStopStrategy(),
+				DnsExecutors.defaultScheduler());
+	}
+
+	/**
+	 * Asynchronous lookups run the {@link Retryer retryer} on the
+	 * {@link DnsExecutors#defaultExecutor() shared executor}.
+	 *
+	 * @param delegatee the child {@link DnsClient}
+	 * @param retryer   the {@link Retryer retryer}
+	 */
+	public RetryingDnsClient(final DnsClient delegatee,
+			final Retryer<List<? extends DnsRecord>> retryer) {
+		this.delegatee =
+				Objects.requireNonNull(delegatee, "delegatee must not be null");
+		this.retryer = Objects.requireNonNull(retryer, "retryer must not be null");
+		this.waitStrategy = null;
+		this.stopStrategy = null;
+		this.scheduler = null;
+		this.jitter = 0;
+		this.retryBudget = null;
+		this.listener = null;
+	}
+
+	/**
+	 * Empty results are retried. Asynchronous lookups never block a thread
+	 * between attempts: the next attempt is scheduled on the scheduler.
+	 *
+	 * @param delegatee    the child {@link DnsClient}
+	 * @param waitStrategy the {@link WaitStrategy wait strategy}
+	 * @param stopStrategy the {@link StopStrategy stop strategy}
+	 * @param scheduler    the {@link ScheduledExecutorService scheduler}
+	 */
+	public RetryingDnsClient(final DnsClient delegatee,
+			final WaitStrategy waitStrategy, final StopStrategy stopStrategy,
+			final ScheduledExecutorService scheduler) {
+		this(builder(delegatee).withWaitStrategy(waitStrategy)
+				.withStopStrategy(stopStrategy).withScheduler(scheduler));
+	}
+
+	private RetryingDnsClient(final Builder builder) {
+		this.delegatee = builder.delegatee;
+		this.waitStrategy = builder.waitStrategy;
+		this.stopStrategy = builder.stopStrategy;
+		this.scheduler = builder.scheduler;
+		this.jitter = builder.jitter;
+		this.retryBudget = builder.retryBudget;
+		this.listener = GuardedDnsLookupListener.guard(builder.listener);
+		this.retryer = createRetryer(waitStrategy, stopStrategy);
+	}
+
+	/**
+	 * @param delegatee the child {@link DnsClient}
+	 * @return a {@link Builder} of a {@link RetryingDnsClient} whose
+	 * asynchronous lookups schedule their attempts rather than sleeping between
+	 * them
+	 */
+	public static Builder builder(final DnsClient delegatee) {
+		return new Builder(delegatee);
+	}
+
+	/**
+	 * Lookup DNS records, retrying empty results. Unless built with a
+	 * {@link Retryer retryer}, the attempts run on the calling thread, which
+	 * sleeps between them, with the same jitter and
+	 * {@link RetryBudget retry budget} as asynchronous lookups.
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final RecordType... recordTypes) throws NamingException {
+		if (scheduler != null) {
+			return retry(name, null, recordTypes);
+		}
+
+		final int[] attempt = {0};
+		try {
+			return retryer.call(() -> {
+				onAttempt(DnsLookupContext.current(), name, recordTypes, ++attempt[0]);
+				return delegatee.lookup(name, recordTypes);
+			});
+		} catch (final RetryException e) {
+			logger.warn(lookupErrorMessage(name, recordTypes));
+		} catch (final ExecutionException e) {
+			throwNamingException(e);
+			logger.error(lookupErrorMessage(name, recordTypes), e);
+		}
+
+		return Arrays.asList();
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		if (scheduler == null) {
+			return DnsExecutors.supplyAsync(() -> lookup(name, recordTypes),
+					DnsExecutors.defaultExecutor());
+		}
+
+		return lookupAsync(name, null, recordTypes);
+	}
+
+	/**
+	 * Lookup DNS records, retrying empty results until the deadline. Every
+	 * attempt is given the remaining deadline and, unless built with a
+	 * {@link Retryer retryer}, runs on the calling thread.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline} or <code>null</code> if none
+	 * @param recordTypes the record types
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws NamingException if the lookup fails, e.g. with a
+	 *                         {@link TimeLimitExceededException} once the
+	 *                         deadline expired
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws NamingException {
+		if (deadline != null && deadline.isExpired()) {
+			throw Deadline.exceeded(name, recordTypes);
+		}
+		if (scheduler != null) {
+			return retry(name, deadline, recordTypes);
+		}
+
+		return Deadline.await(lookupAsync(name, deadline, recordTypes), null,
+				name, recordTypes);
+	}
+
+	/**
+	 * Lookup DNS records asynchronously, retrying empty results until the
+	 * deadline. No attempt is scheduled that would start after the deadline,
+	 * and the lookup fails with a {@link TimeLimitExceededException} if the
+	 * deadline expires while an attempt is in flight.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline} or <code>null</code> if none
+	 * @param recordTypes the record types
+	 * @return a {@link CompletableFuture} completed with a list of
+	 * {@link DnsRecord DNS records}, or exceptionally with a
+	 * {@link NamingException}
+	 */
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final Deadline deadline,
+			final RecordType... recordTypes) {
+		final CompletableFuture<List<? extends DnsRecord>> result =
+				new CompletableFuture<>();
+		if (deadline != null && deadline.isExpired()) {
+			result.completeExceptionally(Deadline.exceeded(name, recordTypes));
+			return result;
+		}
+		if (deadline != null) {
+			expireAt(deadline, name, recordTypes, result);
+		}
+
+		if (scheduler == null) {
+			DnsExecutors.supplyAsync(() -> lookup(name, recordTypes),
+					DnsExecutors.defaultExecutor()).whenComplete((records, t) -> {
+				if (t == null) {
+					result.complete(records);
+				} else {
+					result.completeExceptionally(Exceptions.unwrap(t));
+				}
+			});
+			return result;
+		}
+
+		if (retryBudget != null) {
+			retryBudget.onRequest();
+		}
+		attempt(name, recordTypes, deadline, DnsLookupContext.current(), 1,
+				System.nanoTime(), result);
+
+		return result;
+	}
+
+	private void expireAt(final Deadline deadline, final String name,
+			final RecordType[] recordTypes,
+			final CompletableFuture<List<? extends DnsRecord>> result) {
+		final ScheduledExecutorService timer =
+				scheduler == null ? DnsExecutors.defaultScheduler() : scheduler;
+		try {
+			final ScheduledFuture<?> timeout = timer.schedule(
+					() -> result.completeExceptionally(
+							Deadline.exceeded(name, recordTypes)),
+					deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+			result.whenComplete((records, t) -> timeout.cancel(false));
+		} catch (final RejectedExecutionException e) {
+			logger.debug("deadline of {} can not be enforced", name);
+		}
+	}
+
+	/**
+	 * Retries run on the scheduler, in the {@link DnsLookupContext context} of
+	 * the lookup.
+	 */
+	private void attempt(final String name, final RecordType[] recordTypes,
+			final Deadline deadline, final Object context, final long attemptNumber,
+			final long start,
+			final CompletableFuture<List<? extends DnsRecord>> result) {
+		if (result.isDone()) {
+			return;
+		}
+		onAttempt(context, name, recordTypes, attemptNumber);
+		final CompletableFuture<List<? extends DnsRecord>> lookup;
+		final Object previous = DnsLookupContext.enter(context);
+		try {
+			lookup = deadline == null ?
+					delegatee.lookupAsync(name, recordTypes) :
+					delegatee.lookupAsync(name, deadline, recordTypes);
+		} finally {
+			DnsLookupContext.restore(context, previous);
+		}
+		lookup.whenComplete((records, t) -> {
+			if (t != null) {
+				final Throwable cause = Exceptions.unwrap(t);
+				if (cause instanceof NamingException) {
+					result.completeExceptionally(cause);
+				} else {
+					logger.error(lookupErrorMessage(name, recordTypes), cause);
+					result.complete(Arrays.asList());
+				}
+				return;
+			}
+			if (!records.isEmpty()) {
+				result.complete(records);
+				return;
+			}
+
+			final long sleep = sleepBeforeRetry(name, recordTypes, deadline,
+					new ResultAttempt(records, attemptNumber,
+							TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+			if (sleep < 0) {
+				result.complete(records);
+				return;
+			}
+
+			try {
+				scheduler.schedule(
+						() -> attempt(name, recordTypes, deadline, context,
+								attemptNumber + 1, start, result), sleep,
+						TimeUnit.MILLISECONDS);
+			} catch (final RejectedExecutionException e) {
+				result.completeExceptionally(e);
+			}
+		});
+	}
+
+	/**
+	 * Retries on the calling thread, sleeping between the attempts.
+	 */
+	private List<? extends DnsRecord> retry(final String name,
+			final Deadline deadline, final RecordType[] recordTypes)
+			throws NamingException {
+		if (retryBudget != null) {
+			retryBudget.onRequest();
+		}
+		final Object context = DnsLookupContext.current();
+		final long start = System.nanoTime();
+		for (long attemptNumber = 1; ; attemptNumber++) {
+			onAttempt(context, name, recordTypes, attemptNumber);
+			final List<? extends DnsRecord> records;
+			try {
+				records = deadline == null ?
+						delegatee.lookup(name, recordTypes) :
+						delegatee.lookup(name, deadline, recordTypes);
+			} catch (final RuntimeException e) {
+				logger.error(lookupErrorMessage(name, recordTypes), e);
+				return Arrays.asList();
+			}
+			if (!records.isEmpty()) {
+				return records;
+			}
+
+			final long sleep = sleepBeforeRetry(name, recordTypes, deadline,
+					new ResultAttempt(records, attemptNumber,
+							TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+			if (sleep < 0) {
+				return records;
+			}
+			try {
+				TimeUnit.MILLISECONDS.sleep(sleep);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedNamingException(
+						lookupErrorMessage(name, recordTypes));
+			}
+		}
+	}
+
+	/**
+	 * @param attempt an {@link Attempt attempt} with an empty result
+	 * @return how long to sleep in milliseconds before the next attempt, or
+	 * <code>-1</code> if the lookup must not be retried: the stop strategy
+	 * stops, the deadline would expire or the retry budget is spent
+	 */
+	private long sleepBeforeRetry(final String name,
+			final RecordType[] recordTypes, final Deadline deadline,
+			final Attempt<List<? extends DnsRecord>> attempt) {
+		if (stopStrategy.shouldStop(attempt)) {
+			logger.warn(lookupErrorMessage(name, recordTypes));
+			return -1;
+		}
+
+		final long sleep = jittered(waitStrategy.computeSleepTime(attempt));
+		if (deadline != null
+				&& deadline.remaining(TimeUnit.MILLISECONDS) <= sleep) {
+			logger.warn(lookupErrorMessage(name, recordTypes));
+			return -1;
+		}
+		if (retryBudget != null && !retryBudget.tryRetry()) {
+			logger.debug("retry budget exhausted, not retrying {}", name);
+			return -1;
+		}
+
+		return sleep;
+	}
+
+	/**
+	 * Returns the number of lookups of the child {@link DnsClient}, i.e. the
+	 * first attempts and the retries.
+	 *
+	 * @return the number of attempts
+	 */
+	public long getAttemptCount() {
+		return attempts.sum();
+	}
+
+	/**
+	 * Returns the number of attempts after the first attempt of a lookup.
+	 *
+	 * @return the number of retries
+	 */
+	public long getRetryCount() {
+		return retries.sum();
+	}
+
+	private void onAttempt(final Object context, final String name,
+			final RecordType[] recordTypes, final long attemptNumber) {
+		attempts.increment();
+		if (attemptNumber > 1) {
+			retries.increment();
+		}
+		if (listener != null) {
+			listener.attemptStarted(context, name, recordTypes,
+					(int) attemptNumber, System.nanoTime());
+		}
+	}
+
+	/**
+	 * Shortens the sleep by up to the jitter, so that clients that failed
+	 * together do not retry together.
+	 */
+	private long jittered(final long sleep) {
+		return jitter == 0 ?
+				sleep :
+				sleep - (long) (sleep * jitter * ThreadLocalRandom.current()
+						.nextDouble());
+	}
+
+	static Retryer<List<? extends DnsRecord>> createDefaultRetryer() {
+		return createRetryer(createDefaultWaitStrategy(),
+				createDefaultStopStrategy());
+	}
+
+	private static Retryer<List<? extends DnsRecord>> createRetryer(
+			final WaitStrategy waitStrategy, final StopStrategy stopStrategy) {
+		return RetryerBuilder.<List<? extends DnsRecord>>newBuilder()
+				.retryIfResult(List::isEmpty).withWaitStrategy(waitStrategy)
+				.withStopStrategy(stopStrategy).build();
+	}
+
+	private static WaitStrategy createDefaultWaitStrategy() {
+		return WaitStrategies.fibonacciWait();
+	}
+
+	private static StopStrategy createDefaultStopStrategy() {
+		return StopStrategies.stopAfterDelay(1, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * An {@link Attempt} that returned a result.
+	 */
+	private static final class ResultAttempt
+			implements Attempt<List<? extends DnsRecord>> {
+
+		private final List<? extends DnsRecord> result;
+		private final long attemptNumber;
+		private final long delaySinceFirstAttempt;
+
+		private ResultAttempt(final List<? extends DnsRecord> result,
+				final long attemptNumber, final long delaySinceFirstAttempt) {
+			this.result = result;
+			this.attemptNumber = attemptNumber;
+			this.delaySinceFirstAttempt = delaySinceFirstAttempt;
+		}
+
+		@Override
+		public List<? extends DnsRecord> get() {
+			return result;
+		}
+
+		@Override
+		public boolean hasResult() {
+			return true;
+		}
+
+		@Override
+		public boolean hasException() {
+			return false;
+		}
+
+		@Override
+		public List<? extends DnsRecord> getResult() {
+			return result;
+		}
+
+		@Override
+		public Throwable getExceptionCause() {
+			throw new IllegalStateException("the attempt resulted in a result");
+		}
+
+		@Override
+		public long getAttemptNumber() {
+			return attemptNumber;
+		}
+
+		@Override
+		public long getDelaySinceFirstAttempt() {
+			return delaySinceFirstAttempt;
+		}
+
+	}
+
+	public static final class Builder {
+
+		private final DnsClient delegatee;
+
+		private WaitStrategy waitStrategy = createDefaultWaitStrategy();
+
+		private StopStrategy stopStrategy = createDefaultStopStrategy();
+
+		private ScheduledExecutorService scheduler =
+				DnsExecutors.defaultScheduler();
+
+		private double jitter;
+
+		private RetryBudget retryBudget;
+
+		private DnsLookupListener listener;
+
+		private Builder(final DnsClient delegatee) {
+			this.delegatee =
+					Objects.requireNonNull(delegatee, "delegatee must not be null");
+		}
+
+		/**
+		 * Specify the {@link WaitStrategy wait strategy} (defaults to a
+		 * fibonacci wait).
+		 *
+		 * @param waitStrategy the {@link WaitStrategy wait strategy}
+		 * @return {@link Builder this}
+		 */
+		public Builder withWaitStrategy(final WaitStrategy waitStrategy) {
+			this.waitStrategy =
+					Objects.requireNonNull(waitStrategy, "waitStrategy must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Specify the {@link StopStrategy stop strategy} (defaults to stopping
+		 * after a minute).
+		 *
+		 * @param stopStrategy the {@link StopStrategy stop strategy}
+		 * @return {@link Builder this}
+		 */
+		public Builder withStopStrategy(final StopStrategy stopStrategy) {
+			this.stopStrategy =
+					Objects.requireNonNull(stopStrategy, "stopStrategy must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Specify the {@link ScheduledExecutorService scheduler} attempts are
+		 * scheduled on (defaults to the {@link DnsExecutors#defaultScheduler()
+		 * shared scheduler}).
+		 *
+		 * @param scheduler the {@link ScheduledExecutorService scheduler}
+		 * @return {@link Builder this}
+		 */
+		public Builder withScheduler(final ScheduledExecutorService scheduler) {
+			this.scheduler =
+					Objects.requireNonNull(scheduler, "scheduler must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Shorten every wait by a random fraction of up to the jitter.
+		 *
+		 * @param jitter the jitter, between 0 (none) and 1
+		 * @return {@link Builder this}
+		 */
+		public Builder withJitter(final double jitter) {
+			if (jitter < 0 || jitter > 1) {
+				throw new IllegalArgumentException("jitter must be between 0 and 1");
+			}
+			this.jitter = jitter;
+
+			return this;
+		}
+
+		/**
+		 * Cap retries with a {@link RetryBudget}, possibly shared with other
+		 * clients.
+		 *
+		 * @param retryBudget the {@link RetryBudget}
+		 * @return {@link Builder this}
+		 */
+		public Builder withRetryBudget(final RetryBudget retryBudget) {
+			this.retryBudget =
+					Objects.requireNonNull(retryBudget, "retryBudget must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Tell a {@link DnsLookupListener listener} when every attempt starts.
+		 *
+		 * @param listener the {@link DnsLookupListener listener}
+		 * @return {@link Builder this}
+		 */
+		public Builder withListener(final DnsLookupListener listener) {
+			this.listener =
+					Objects.requireNonNull(listener, "listener must not be null");
+
+			return this;
+		}
+
+		public RetryingDnsClient build() {
+			return new RetryingDnsClient(this);
+		}
+
+	}
+
+}
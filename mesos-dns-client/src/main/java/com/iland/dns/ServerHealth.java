@@ -0,0 +1,199 @@
+package com.iland.dns;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.naming.CommunicationException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.TimeLimitExceededException;
+
+/**
+ * The health of a DNS server and the state of its circuit breaker: the
+ * circuit opens after a number of consecutive failures, rejecting lookups
+ * until a background probe (the circuit is then half-open) succeeds.
+ * <p>
+ * Only failures to get an answer count, e.g. timeouts; a server answering
+ * NXDOMAIN is healthy. Reading the state is lock-free, and the counters double
+ * as per-server metrics.
+ *
+ * @see CircuitBreakingDnsClient
+ */
+public final class ServerHealth {
+
+	public enum State {
+
+		/**
+		 * The server is healthy, lookups go through.
+		 */
+		CLOSED,
+
+		/**
+		 * The server failed, lookups are rejected.
+		 */
+		OPEN,
+
+		/**
+		 * The server is being probed, lookups are still rejected.
+		 */
+		HALF_OPEN
+
+	}
+
+	private static final double LATENCY_ALPHA = 0.2;
+
+	private final String host;
+	private final int failureThreshold;
+	private final AtomicReference<State> state =
+			new AtomicReference<>(State.CLOSED);
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private final LongAdder successes = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder rejections = new LongAdder();
+	/**
+	 * The moving average of the latency, guarded by <code>this</code> for
+	 * writes.
+	 */
+	private volatile double latencyNanos;
+
+	/**
+	 * @param host             the server, e.g. "10.0.0.1:53"
+	 * @param failureThreshold the number of consecutive failures that open the
+	 *                         circuit
+	 */
+	public ServerHealth(final String host, final int failureThreshold) {
+		if (failureThreshold < 1) {
+			throw new IllegalArgumentException("failureThreshold must be positive");
+		}
+		this.host = Objects.requireNonNull(host, "host must not be null");
+		this.failureThreshold = failureThreshold;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public State getState() {
+		return state.get();
+	}
+
+	public int getConsecutiveFailures() {
+		return consecutiveFailures.get();
+	}
+
+	/**
+	 * @param unit the {@link TimeUnit unit}
+	 * @return the moving average of the latency of successful lookups
+	 */
+	public long getLatency(final TimeUnit unit) {
+		return unit.convert((long) latencyNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return the number of lookups the server answered
+	 */
+	public long getSuccessCount() {
+		return successes.sum();
+	}
+
+	/**
+	 * @return the number of lookups the server failed to answer
+	 */
+	public long getFailureCount() {
+		return failures.sum();
+	}
+
+	/**
+	 * @return the number of lookups rejected while the circuit was not closed
+	 */
+	public long getRejectionCount() {
+		return rejections.sum();
+	}
+
+	/**
+	 * @return whether a lookup may be sent to the server, counting a rejection
+	 * otherwise
+	 */
+	boolean tryAcquire() {
+		if (state.get() == State.CLOSED) {
+			return true;
+		}
+		rejections.increment();
+
+		return false;
+	}
+
+	void onSuccess(final long latencyNanos) {
+		successes.increment();
+		consecutiveFailures.set(0);
+		synchronized (this) {
+			this.latencyNanos = this.latencyNanos == 0 ?
+					latencyNanos :
+					this.latencyNanos * (1 - LATENCY_ALPHA)
+							+ latencyNanos * LATENCY_ALPHA;
+		}
+		state.set(State.CLOSED);
+	}
+
+	/**
+	 * @return whether the failure opened the circuit
+	 */
+	boolean onFailure() {
+		failures.increment();
+		if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+			return state.compareAndSet(State.CLOSED, State.OPEN)
+					|| state.compareAndSet(State.HALF_OPEN, State.OPEN);
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return whether the caller may probe the server, i.e. the circuit went
+	 * from open to half-open
+	 */
+	boolean startProbe() {
+		return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+	}
+
+	/**
+	 * @param t a failure
+	 * @return whether the failure is the server's, as opposed to e.g. the name
+	 * not existing
+	 */
+	static boolean isServerFailure(final Throwable t) {
+		return t instanceof CommunicationException
+				|| t instanceof ServiceUnavailableException
+				|| t instanceof TimeLimitExceededException
+				|| t instanceof RuntimeException;
+	}
+
+	/**
+	 * @param dnsClients {@link DnsClient clients}
+	 * @return the health of those that are {@link CircuitBreakingDnsClient
+	 * circuit breaking}
+	 */
+	static List<ServerHealth> of(final List<? extends DnsClient> dnsClients) {
+		final List<ServerHealth> health = new ArrayList<>();
+		for (final DnsClient dnsClient : dnsClients) {
+			if (dnsClient instanceof CircuitBreakingDnsClient) {
+				health.add(((CircuitBreakingDnsClient) dnsClient).getHealth());
+			}
+		}
+
+		return health;
+	}
+
+	@Override
+	public String toString() {
+		return ServerHealth.class.getSimpleName() + "{" + "host='" + host + '\''
+				+ ", state=" + state + ", consecutiveFailures=" + consecutiveFailures
+				+ ", latencyNanos=" + (long) latencyNanos + ", successes=" + successes
+				+ ", failures=" + failures + ", rejections=" + rejections + '}';
+	}
+
+}
@@ -0,0 +1,192 @@
+package com.iland.dns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Selects the target of a service the way RFC 2782 describes: among the
+ * records of the lowest priority, with a probability proportional to their
+ * weight. Records of weight 0 share the chance of a single record of weight 1
+ * (the chance RFC 2782's running sum gives them), or are selected uniformly if
+ * every record of their priority has weight 0.
+ * <p>
+ * Every priority group is turned into an alias table (Vose's alias method)
+ * once, so that a selection takes constant time. A selector is immutable and
+ * can be shared between threads without locking.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc2782">RFC 2782</a>
+ */
+public final class ServiceRecordSelector {
+
+	private static final ServiceRecordSelector EMPTY =
+			new ServiceRecordSelector(Collections.emptyList());
+
+	private final List<SrvDnsRecord> records;
+	private final Group[] groups;
+
+	private ServiceRecordSelector(final List<SrvDnsRecord> records) {
+		this.records = Collections.unmodifiableList(records);
+
+		final List<Group> groups = new ArrayList<>();
+		int start = 0;
+		for (int i = 1; i <= records.size(); i++) {
+			if (i == records.size()
+					|| records.get(i).getPriority() != records.get(start)
+					.getPriority()) {
+				groups.add(new Group(records.subList(start, i)));
+				start = i;
+			}
+		}
+		this.groups = groups.toArray(new Group[0]);
+	}
+
+	/**
+	 * @param records DNS records, those that are not {@link SrvDnsRecord SRV
+	 *                records} are ignored
+	 * @return a {@link ServiceRecordSelector selector} over the records
+	 */
+	public static ServiceRecordSelector of(
+			final List<? extends DnsRecord> records) {
+		final List<SrvDnsRecord> sorted = ServiceRecords.sort(records);
+
+		return sorted.isEmpty() ? EMPTY : new ServiceRecordSelector(sorted);
+	}
+
+	/**
+	 * @return the {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 */
+	public List<SrvDnsRecord> getRecords() {
+		return records;
+	}
+
+	public boolean isEmpty() {
+		return records.isEmpty();
+	}
+
+	/**
+	 * Returns the number of distinct priorities, i.e. of groups to fail over
+	 * through.
+	 *
+	 * @return the number of priority groups
+	 */
+	public int getPriorityGroups() {
+		return groups.length;
+	}
+
+	/**
+	 * Selects a record of the lowest priority.
+	 *
+	 * @return the selected {@link SrvDnsRecord SRV record}
+	 * @throws IllegalStateException if there is no record to select
+	 */
+	public SrvDnsRecord select() {
+		return select(0, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * Selects a record of a priority group, e.g. of the next group once every
+	 * target of the lowest priority failed.
+	 *
+	 * @param priorityGroup the index of the priority group, <code>0</code> being
+	 *                      the lowest priority
+	 * @return the selected {@link SrvDnsRecord SRV record}
+	 * @throws IllegalStateException if there is no record to select
+	 */
+	public SrvDnsRecord select(final int priorityGroup) {
+		return select(priorityGroup, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * @param priorityGroup the index of the priority group
+	 * @param random        the source of randomness
+	 * @return the selected {@link SrvDnsRecord SRV record}
+	 */
+	SrvDnsRecord select(final int priorityGroup, final Random random) {
+		if (groups.length == 0) {
+			throw new IllegalStateException("there is no record to select");
+		}
+		if (priorityGroup < 0 || priorityGroup >= groups.length) {
+			throw new IndexOutOfBoundsException(
+					"priorityGroup " + priorityGroup + " of " + groups.length);
+		}
+
+		return groups[priorityGroup].select(random);
+	}
+
+	@Override
+	public String toString() {
+		return ServiceRecordSelector.class.getSimpleName() + "{" + "records="
+				+ records + '}';
+	}
+
+	/**
+	 * The alias table of the records of one priority.
+	 */
+	private static final class Group {
+
+		private final SrvDnsRecord[] records;
+		private final double[] probabilities;
+		private final int[] aliases;
+
+		private Group(final List<SrvDnsRecord> records) {
+			final int n = records.size();
+			this.records = records.toArray(new SrvDnsRecord[0]);
+			this.probabilities = new double[n];
+			this.aliases = new int[n];
+
+			long total = 0;
+			int zeros = 0;
+			for (final SrvDnsRecord record : records) {
+				total += record.getWeight();
+				zeros += record.getWeight() == 0 ? 1 : 0;
+			}
+			final double zeroWeight = total == 0 ? 1 : 1.0 / zeros;
+			final double sum = total == 0 ? n : total + (zeros == 0 ? 0 : 1);
+
+			// weights scaled so that they average 1
+			final double[] scaled = new double[n];
+			final int[] small = new int[n];
+			final int[] large = new int[n];
+			int smalls = 0, larges = 0;
+			for (int i = 0; i < n; i++) {
+				final int weight = records.get(i).getWeight();
+				scaled[i] = (weight == 0 ? zeroWeight : weight) * n / sum;
+				if (scaled[i] < 1) {
+					small[smalls++] = i;
+				} else {
+					large[larges++] = i;
+				}
+			}
+			while (smalls > 0 && larges > 0) {
+				final int less = small[--smalls];
+				final int more = large[--larges];
+				probabilities[less] = scaled[less];
+				aliases[less] = more;
+				scaled[more] = scaled[more] + scaled[less] - 1;
+				if (scaled[more] < 1) {
+					small[smalls++] = more;
+				} else {
+					large[larges++] = more;
+				}
+			}
+			// what is left is (up to rounding errors) exactly 1
+			while (larges > 0) {
+				probabilities[large[--larges]] = 1;
+			}
+			while (smalls > 0) {
+				probabilities[small[--smalls]] = 1;
+			}
+		}
+
+		private SrvDnsRecord select(final Random random) {
+			final int i = random.nextInt(records.length);
+
+			return records[random.nextDouble() < probabilities[i] ? i : aliases[i]];
+		}
+
+	}
+
+}
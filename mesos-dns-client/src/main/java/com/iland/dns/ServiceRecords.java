@@ -0,0 +1,40 @@
+package com.iland.dns;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+final class ServiceRecords {
+
+	static final Comparator<SrvDnsRecord> BY_PRIORITY_AND_WEIGHT = (r1, r2) -> {
+		// the priority of the target host, lower value means more preferred
+		final int priority = Integer.compare(r1.getPriority(), r2.getPriority());
+		// a relative weight for records with the same priority, higher value means higher chance of getting picked
+		return priority == 0 ?
+				Integer.compare(r2.getWeight(), r1.getWeight()) :
+				priority;
+	};
+
+	private ServiceRecords() {
+	}
+
+	/**
+	 * @param records DNS records
+	 * @return the {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 */
+	static List<SrvDnsRecord> sort(final List<? extends DnsRecord> records) {
+		// a plain loop rather than a stream, as this runs on every cache hit
+		final List<SrvDnsRecord> serviceRecords = new ArrayList<>(records.size());
+		for (final DnsRecord record : records) {
+			if (record instanceof SrvDnsRecord) {
+				serviceRecords.add((SrvDnsRecord) record);
+			}
+		}
+		if (serviceRecords.size() > 1) {
+			serviceRecords.sort(BY_PRIORITY_AND_WEIGHT);
+		}
+
+		return serviceRecords;
+	}
+
+}
@@ -0,0 +1,335 @@
+package com.iland.dns;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+public class SrvDnsRecord extends DnsRecord {
+
+	// unsigned 16 bit fields, as on the wire
+	private final char priority, weight, port;
+	private final String target;
+
+	/**
+	 * @param type  i.e. {@link RecordType#SRV SRV}
+	 * @param name  a name
+	 * @param value a value
+	 * @return a {@link SrvDnsRecord SRV record}
+	 * @throws IllegalArgumentException if the value can not be parsed
+	 */
+	public static SrvDnsRecord create(final String name, final String value) {
+		return create(name, value, UNKNOWN_TTL);
+	}
+
+	/**
+	 * @param name  a name
+	 * @param value a value
+	 * @param ttl   the time to live in seconds or {@link #UNKNOWN_TTL}
+	 * @return a {@link SrvDnsRecord SRV record}
+	 * @throws IllegalArgumentException if the value can not be parsed
+	 */
+	public static SrvDnsRecord create(final String name, final String value,
+			final long ttl) {
+		return create(name, (CharSequence) value, ttl);
+	}
+
+	/**
+	 * Parses a value of the form <code>"priority weight port target"</code> in a
+	 * single pass, e.g. straight out of a reused buffer.
+	 *
+	 * @param name  a name
+	 * @param value a value
+	 * @param ttl   the time to live in seconds or {@link #UNKNOWN_TTL}
+	 * @return a {@link SrvDnsRecord SRV record}
+	 * @throws IllegalArgumentException if the value can not be parsed, or a
+	 *                                  field does not fit in 16 bits
+	 */
+	public static SrvDnsRecord create(final String name,
+			final CharSequence value, final long ttl) {
+		Objects.requireNonNull(value, "value must not be null");
+
+		final int length = value.length();
+		int position = skipWhitespace(value, 0, length);
+		int priority = 0, weight = 0, port = 0;
+		for (int field = 0; field < 3; field++) {
+			final int start = position;
+			int number = 0;
+			char c;
+			while (position < length && (c = value.charAt(position)) >= '0'
+					&& c <= '9') {
+				number = number * 10 + c - '0';
+				if (number > 0xffff) {
+					throw unparseable(value);
+				}
+				position++;
+			}
+			if (position == start || position == length
+					|| !isWhitespace(value.charAt(position))) {
+				throw unparseable(value);
+			}
+			position = skipWhitespace(value, position, length);
+			if (field == 0) {
+				priority = number;
+			} else if (field == 1) {
+				weight = number;
+			} else {
+				port = number;
+			}
+		}
+		int end = length;
+		while (end > position && isWhitespace(value.charAt(end - 1))) {
+			end--;
+		}
+		if (end == position) {
+			throw unparseable(value);
+		}
+		final String target = value.subSequence(position, end).toString();
+
+		return new SrvDnsRecord(name, priority, weight, port, target, ttl);
+	}
+
+	/**
+	 * Parses a value of the form <code>"priority weight port target"</code>
+	 * straight from its US-ASCII bytes, e.g. as read by a backend.
+	 *
+	 * @param name   a name
+	 * @param value  the bytes holding the value
+	 * @param offset the offset of the value
+	 * @param length the length of the value
+	 * @param ttl    the time to live in seconds or {@link #UNKNOWN_TTL}
+	 * @return a {@link SrvDnsRecord SRV record}
+	 * @throws IllegalArgumentException if the value can not be parsed, or a
+	 *                                  field does not fit in 16 bits
+	 */
+	public static SrvDnsRecord create(final String name, final byte[] value,
+			final int offset, final int length, final long ttl) {
+		Objects.requireNonNull(value, "value must not be null");
+		if (offset < 0 || length < 0 || offset > value.length - length) {
+			throw new IndexOutOfBoundsException(
+					"offset and length must be within the value");
+		}
+
+		return create(name, new AsciiSequence(value, offset, length), ttl);
+	}
+
+	/**
+	 * @param name     a name
+	 * @param priority the priority of the target host
+	 * @param weight   the relative weight of the target host
+	 * @param port     the port on which the service is to be found
+	 * @param target   the canonical hostname of the target host
+	 * @return a {@link SrvDnsRecord SRV record}
+	 */
+	public static SrvDnsRecord create(final String name, final int priority,
+			final int weight, final int port, final String target) {
+		return create(name, priority, weight, port, target, UNKNOWN_TTL);
+	}
+
+	/**
+	 * @param name     a name
+	 * @param priority the priority of the target host
+	 * @param weight   the relative weight of the target host
+	 * @param port     the port on which the service is to be found
+	 * @param target   the canonical hostname of the target host
+	 * @param ttl      the time to live in seconds or {@link #UNKNOWN_TTL}
+	 * @return a {@link SrvDnsRecord SRV record}
+	 */
+	public static SrvDnsRecord create(final String name, final int priority,
+			final int weight, final int port, final String target, final long ttl) {
+		return new SrvDnsRecord(name, priority, weight, port, target, ttl);
+	}
+
+	/**
+	 * Holds the parsed fields only, the value is formatted from them on demand.
+	 *
+	 * @throws IllegalArgumentException if a field does not fit in 16 bits
+	 */
+	protected SrvDnsRecord(final String name, final int priority,
+			final int weight, final int port, final String target, final long ttl) {
+		super(RecordType.SRV, name, ttl);
+		this.priority = unsigned16("priority", priority);
+		this.weight = unsigned16("weight", weight);
+		this.port = unsigned16("port", port);
+		this.target = Objects.requireNonNull(target, "target must not be null");
+	}
+
+	protected SrvDnsRecord(final RecordType type, final String name,
+			final String value, final int priority, final int weight, final int port,
+			final String target) {
+		this(type, name, value, priority, weight, port, target, UNKNOWN_TTL);
+	}
+
+	protected SrvDnsRecord(final RecordType type, final String name,
+			final String value, final int priority, final int weight, final int port,
+			final String target, final long ttl) {
+		super(type, name, value, ttl);
+		this.priority = unsigned16("priority", priority);
+		this.weight = unsigned16("weight", weight);
+		this.port = unsigned16("port", port);
+		this.target = Objects.requireNonNull(target, "target must not be null");
+	}
+
+	/**
+	 * Returns the priority of the target host, lower value means more preferred.
+	 *
+	 * @return the priority of the target host
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Returns a relative weight for records with the same priority, higher value means higher chance of getting picked.
+	 *
+	 * @return relative weight for records with the same priority
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Returns the TCP or UDP port on which the service is to be found.
+	 *
+	 * @return the TCP or UDP port on which the service is to be found
+	 */
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * Returns the canonical hostname of the machine providing the service, ending in a dot.
+	 *
+	 * @return the canonical hostname of the machine providing the service, ending in a dot
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	@Override
+	public String getValue() {
+		final String value = super.getValue();
+
+		return value != null ?
+				value :
+				(int) priority + " " + (int) weight + " " + (int) port + " " + target;
+	}
+
+	/**
+	 * Compares the fields of compact records rather than their formatted values.
+	 */
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof SrvDnsRecord) || !isCompact()
+				|| !((SrvDnsRecord) o).isCompact())
+			return super.equals(o);
+		final SrvDnsRecord srvRecord = (SrvDnsRecord) o;
+		return priority == srvRecord.priority && weight == srvRecord.weight
+				&& port == srvRecord.port && target.equals(srvRecord.target)
+				&& getName().equals(srvRecord.getName());
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+
+	@Override
+	int valueHashCode() {
+		if (!isCompact()) {
+			return super.valueHashCode();
+		}
+
+		// the hash code of the formatted value, without formatting it
+		int h = hashDecimal(0, priority);
+		h = hashDecimal(31 * h + ' ', weight);
+		h = hashDecimal(31 * h + ' ', port);
+		h = 31 * h + ' ';
+		for (int i = 0; i < target.length(); i++) {
+			h = 31 * h + target.charAt(i);
+		}
+
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return SrvDnsRecord.class.getSimpleName() + "{" + "type=" + getType()
+				+ ", name='" + getName() + '\'' + ", priority=" + (int) priority
+				+ ", weight=" + (int) weight + ", port=" + (int) port + ", target='"
+				+ target + '\'' + '}';
+	}
+
+	private static int skipWhitespace(final CharSequence value,
+			final int start, final int end) {
+		int position = start;
+		while (position < end && isWhitespace(value.charAt(position))) {
+			position++;
+		}
+
+		return position;
+	}
+
+	/**
+	 * The characters of <code>\s</code>, as the value was once matched by a
+	 * regular expression.
+	 */
+	private static boolean isWhitespace(final char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f'
+				|| c == 0x0b;
+	}
+
+	private static IllegalArgumentException unparseable(
+			final CharSequence value) {
+		return new IllegalArgumentException(
+				String.format("SRV record \"%s\" could not be parsed", value));
+	}
+
+	private static char unsigned16(final String field, final int value) {
+		if (value < 0 || value > 0xffff) {
+			throw new IllegalArgumentException(
+					field + " must be between 0 and 65535");
+		}
+
+		return (char) value;
+	}
+
+	/**
+	 * A view of US-ASCII bytes as characters, without decoding them up front.
+	 */
+	private static final class AsciiSequence implements CharSequence {
+
+		private final byte[] bytes;
+		private final int offset;
+		private final int length;
+
+		private AsciiSequence(final byte[] bytes, final int offset,
+				final int length) {
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(final int index) {
+			return (char) (bytes[offset + index] & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end) {
+			return new AsciiSequence(bytes, offset + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+		}
+
+	}
+
+}
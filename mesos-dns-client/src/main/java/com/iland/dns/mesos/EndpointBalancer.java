@@ -0,0 +1,337 @@
+package com.iland.dns.mesos;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Ticker;
+import com.iland.dns.SrvDnsRecord;
+
+/**
+ * Balances calls over the targets of a service by how they perform: callers
+ * {@link #select() select} an endpoint, call it and {@link #complete report}
+ * the latency and outcome of the call.
+ * <p>
+ * Selection uses the power of two choices: of two random endpoints of the
+ * lowest priority, the one with the lower score wins, the score being the
+ * exponentially weighted moving average (EWMA) of its latency multiplied by
+ * its outstanding calls plus one. The average decays with time rather than
+ * with the number of calls, towards the typical latency of the service, i.e.
+ * the average of every successful call, so an endpoint that recovered is
+ * tried again. An endpoint without a completed call scores with the typical
+ * latency, so that its outstanding calls count as much as those of the
+ * others. A failed call counts as a call of at least the failure penalty.
+ * <p>
+ * Endpoints are identified by target and port: their state survives a
+ * refresh of the records, even if e.g. their priority or weight changed. Selecting and
+ * reading state is lock-free.
+ *
+ * @see MesosDnsClient#balanceServiceRecords
+ */
+public final class EndpointBalancer implements ServiceRecordListener, Closeable {
+
+	/**
+	 * The default time constant of the latency average.
+	 */
+	public static final long DEFAULT_DECAY_SECONDS = 10;
+
+	/**
+	 * The default latency a failed call counts as at least.
+	 */
+	public static final long DEFAULT_FAILURE_PENALTY_SECONDS = 1;
+
+	private final Ticker ticker;
+	private final double decayNanos;
+	private final long failurePenaltyNanos;
+	/**
+	 * Every endpoint by target and port, guarded by <code>this</code>.
+	 */
+	private final Map<String, Endpoint> endpoints = new HashMap<>();
+	/**
+	 * The average latency of every successful call and when it was last
+	 * updated, guarded by <code>typicalLock</code> for writes.
+	 */
+	private final Object typicalLock = new Object();
+	private volatile double typicalNanos;
+	private long typicalUpdatedAt;
+	private volatile Endpoint[] candidates = new Endpoint[0];
+	private volatile ServiceRecordSubscription subscription;
+
+	public EndpointBalancer() {
+		this(DEFAULT_DECAY_SECONDS, DEFAULT_FAILURE_PENALTY_SECONDS,
+				TimeUnit.SECONDS, Ticker.systemTicker());
+	}
+
+	/**
+	 * @param decay          the time constant of the latency average
+	 * @param failurePenalty the latency a failed call counts as at least
+	 * @param unit           the {@link TimeUnit unit}
+	 * @param ticker         the {@link Ticker} time is measured with
+	 */
+	public EndpointBalancer(final long decay, final long failurePenalty,
+			final TimeUnit unit, final Ticker ticker) {
+		if (decay <= 0) {
+			throw new IllegalArgumentException("decay must be positive");
+		}
+		if (failurePenalty < 0) {
+			throw new IllegalArgumentException(
+					"failurePenalty must not be negative");
+		}
+		this.decayNanos = unit.toNanos(decay);
+		this.failurePenaltyNanos = unit.toNanos(failurePenalty);
+		this.ticker = Objects.requireNonNull(ticker, "ticker must not be null");
+	}
+
+	/**
+	 * Replaces the endpoints, keeping the state of those that remain.
+	 *
+	 * @param records the {@link SrvDnsRecord SRV records} of the service
+	 */
+	public synchronized void update(final List<SrvDnsRecord> records) {
+		final Map<String, SrvDnsRecord> byKey = new HashMap<>();
+		records.forEach(record -> byKey.put(key(record), record));
+		endpoints.keySet().retainAll(byKey.keySet());
+		byKey.forEach(this::put);
+		rebuild();
+	}
+
+	/**
+	 * Applies the changes of a watched service.
+	 */
+	@Override
+	public synchronized void onChange(final String name,
+			final List<SrvDnsRecord> added, final List<SrvDnsRecord> removed) {
+		for (final SrvDnsRecord record : removed) {
+			final Endpoint endpoint = endpoints.get(key(record));
+			if (endpoint != null && endpoint.record.equals(record)) {
+				endpoints.remove(key(record));
+			}
+		}
+		added.forEach(record -> put(key(record), record));
+		rebuild();
+	}
+
+	/**
+	 * Selects an endpoint for a call, which counts as outstanding until it is
+	 * {@link #complete completed}.
+	 *
+	 * @return the selected {@link Endpoint}
+	 * @throws IllegalStateException if there is no endpoint
+	 */
+	public Endpoint select() {
+		return select(ThreadLocalRandom.current());
+	}
+
+	Endpoint select(final Random random) {
+		final Endpoint[] candidates = this.candidates;
+		if (candidates.length == 0) {
+			throw new IllegalStateException("there is no endpoint to select");
+		}
+
+		Endpoint selected = candidates[0];
+		if (candidates.length > 1) {
+			final int i = random.nextInt(candidates.length);
+			final int j = (i + 1 + random.nextInt(candidates.length - 1))
+					% candidates.length;
+			final long now = ticker.read();
+			selected = candidates[i].score(now) <= candidates[j].score(now) ?
+					candidates[i] :
+					candidates[j];
+		}
+		selected.outstanding.incrementAndGet();
+
+		return selected;
+	}
+
+	/**
+	 * Reports the outcome of a call to a {@link #select() selected} endpoint.
+	 *
+	 * @param endpoint the {@link Endpoint}
+	 * @param latency  the latency of the call
+	 * @param unit     the {@link TimeUnit unit}
+	 * @param failed   whether the call failed
+	 */
+	public void complete(final Endpoint endpoint, final long latency,
+			final TimeUnit unit, final boolean failed) {
+		endpoint.outstanding.decrementAndGet();
+		report(endpoint, latency, unit, failed);
+	}
+
+	/**
+	 * Reports the outcome of a call that was not {@link #select() selected},
+	 * e.g. of a health check.
+	 *
+	 * @param endpoint the {@link Endpoint}
+	 * @param latency  the latency of the call
+	 * @param unit     the {@link TimeUnit unit}
+	 * @param failed   whether the call failed
+	 */
+	public void report(final Endpoint endpoint, final long latency,
+			final TimeUnit unit, final boolean failed) {
+		final long latencyNanos = unit.toNanos(latency);
+		final long now = ticker.read();
+		endpoint.observe(now,
+				failed ? Math.max(latencyNanos, failurePenaltyNanos) : latencyNanos);
+		if (!failed) {
+			synchronized (typicalLock) {
+				typicalNanos = average(typicalNanos, typicalUpdatedAt, now,
+						latencyNanos);
+				typicalUpdatedAt = now;
+			}
+		}
+	}
+
+	/**
+	 * @return the current endpoints, of every priority
+	 */
+	public synchronized List<Endpoint> getEndpoints() {
+		return Collections.unmodifiableList(new ArrayList<>(endpoints.values()));
+	}
+
+	/**
+	 * Stops watching the service, if the balancer was created to watch one.
+	 */
+	@Override
+	public void close() {
+		final ServiceRecordSubscription subscription = this.subscription;
+		if (subscription != null) {
+			subscription.close();
+		}
+	}
+
+	void setSubscription(final ServiceRecordSubscription subscription) {
+		this.subscription = subscription;
+	}
+
+	private void put(final String key, final SrvDnsRecord record) {
+		final Endpoint endpoint = endpoints.get(key);
+		if (endpoint == null) {
+			endpoints.put(key, new Endpoint(record, ticker.read()));
+		} else {
+			endpoint.record = record;
+		}
+	}
+
+	private void rebuild() {
+		int priority = Integer.MAX_VALUE;
+		for (final Endpoint endpoint : endpoints.values()) {
+			priority = Math.min(priority, endpoint.record.getPriority());
+		}
+		final List<Endpoint> lowest = new ArrayList<>();
+		for (final Endpoint endpoint : endpoints.values()) {
+			if (endpoint.record.getPriority() == priority) {
+				lowest.add(endpoint);
+			}
+		}
+		candidates = lowest.toArray(new Endpoint[0]);
+	}
+
+	/**
+	 * Blends a sample into an average last updated at a given time; an average
+	 * of <code>0</code> adopts the sample.
+	 */
+	private double average(final double averageNanos, final long updatedAt,
+			final long now, final long sample) {
+		final long elapsed = Math.max(0, now - updatedAt);
+		final double w = Math.exp(-elapsed / decayNanos);
+
+		return averageNanos == 0 ? sample : averageNanos * w + sample * (1 - w);
+	}
+
+	private static String key(final SrvDnsRecord record) {
+		return record.getTarget() + ':' + record.getPort();
+	}
+
+	/**
+	 * A target of the service and how it performs.
+	 */
+	public final class Endpoint {
+
+		private volatile SrvDnsRecord record;
+		private final AtomicInteger outstanding = new AtomicInteger();
+		/**
+		 * The latency average and when it was last updated, guarded by
+		 * <code>this</code> for writes.
+		 */
+		private volatile double latencyNanos;
+		private volatile long updatedAt;
+
+		private Endpoint(final SrvDnsRecord record, final long now) {
+			this.record = record;
+			this.updatedAt = now;
+		}
+
+		public SrvDnsRecord getRecord() {
+			return record;
+		}
+
+		public String getTarget() {
+			return record.getTarget();
+		}
+
+		public int getPort() {
+			return record.getPort();
+		}
+
+		/**
+		 * @return the number of calls selected but not completed yet
+		 */
+		public int getOutstanding() {
+			return outstanding.get();
+		}
+
+		/**
+		 * @param unit the {@link TimeUnit unit}
+		 * @return the latency average, <code>0</code> until a call completed
+		 */
+		public long getLatency(final TimeUnit unit) {
+			return unit.convert((long) latencyNanos, TimeUnit.NANOSECONDS);
+		}
+
+		private double score(final long now) {
+			// at least a nanosecond, so that outstanding calls count even before
+			// any call completed
+			return Math.max(1, decayed(now)) * (outstanding.get() + 1);
+		}
+
+		/**
+		 * The average decayed towards the typical latency since it was last
+		 * updated, so that an endpoint that was slow is eventually tried again
+		 * and one that was fast does not attract every call once idle.
+		 */
+		private double decayed(final long now) {
+			final double typicalNanos = EndpointBalancer.this.typicalNanos;
+			final double latencyNanos = this.latencyNanos;
+			if (latencyNanos == 0) {
+				return typicalNanos;
+			}
+			final long elapsed = Math.max(0, now - updatedAt);
+
+			return typicalNanos
+					+ (latencyNanos - typicalNanos) * Math.exp(-elapsed / decayNanos);
+		}
+
+		private synchronized void observe(final long now, final long sample) {
+			// a new endpoint adopts the first sample
+			latencyNanos = average(latencyNanos, updatedAt, now, sample);
+			updatedAt = now;
+		}
+
+		@Override
+		public String toString() {
+			return Endpoint.class.getSimpleName() + "{" + "target='" + getTarget()
+					+ '\'' + ", port=" + getPort() + ", outstanding=" + outstanding
+					+ ", latencyNanos=" + (long) latencyNanos + '}';
+		}
+
+	}
+
+}
@@ -0,0 +1,268 @@
+package com.iland.dns.mesos;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A minimal pull parser reading a JSON document one token at a time, so that
+ * large responses (e.g. of <code>/v1/enumerate</code>) are never held in
+ * memory as a whole.
+ * <p>
+ * Members of objects and elements of arrays are iterated with
+ * {@link #hasNext()}, which also consumes the separating commas.
+ */
+final class JsonReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Reader reader;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private final StringBuilder scratch = new StringBuilder(64);
+	private int position;
+	private int limit;
+
+	JsonReader(final Reader reader) {
+		this.reader = reader;
+	}
+
+	void beginObject() throws IOException {
+		expect('{');
+	}
+
+	void endObject() throws IOException {
+		expect('}');
+	}
+
+	void beginArray() throws IOException {
+		expect('[');
+	}
+
+	void endArray() throws IOException {
+		expect(']');
+	}
+
+	/**
+	 * Whether the current object or array has another member or element.
+	 *
+	 * @return <code>false</code> once the closing brace or bracket is next
+	 * @throws IOException if the document can not be read
+	 */
+	boolean hasNext() throws IOException {
+		int c = peekToken();
+		if (c == ',') {
+			position++;
+			c = peekToken();
+		}
+
+		return c != '}' && c != ']';
+	}
+
+	/**
+	 * Whether the next value is <code>null</code>, consuming it if so.
+	 *
+	 * @return whether the next value was <code>null</code>
+	 * @throws IOException if the document can not be read
+	 */
+	boolean nextNull() throws IOException {
+		if (peekToken() != 'n') {
+			return false;
+		}
+		literal();
+
+		return true;
+	}
+
+	String nextName() throws IOException {
+		final String name = nextString();
+		expect(':');
+
+		return name;
+	}
+
+	/**
+	 * Reads a string, or a number or boolean as its literal text.
+	 *
+	 * @return the value
+	 * @throws IOException if the next value is not a string, number or boolean
+	 */
+	String nextString() throws IOException {
+		final int c = peekToken();
+		if (c != '"') {
+			if (c == '{' || c == '[' || c == -1) {
+				throw malformed("expected a string");
+			}
+			return literal();
+		}
+		position++;
+
+		scratch.setLength(0);
+		while (true) {
+			final int next = read();
+			if (next == '"') {
+				return scratch.toString();
+			}
+			if (next == '\\') {
+				readEscape();
+			} else if (next < 0) {
+				throw malformed("unterminated string");
+			} else {
+				scratch.append((char) next);
+			}
+		}
+	}
+
+	/**
+	 * Skips the next value, including nested objects and arrays.
+	 *
+	 * @throws IOException if the document can not be read
+	 */
+	void skipValue() throws IOException {
+		final int c = peekToken();
+		if (c == '{') {
+			beginObject();
+			while (hasNext()) {
+				nextName();
+				skipValue();
+			}
+			endObject();
+		} else if (c == '[') {
+			beginArray();
+			while (hasNext()) {
+				skipValue();
+			}
+			endArray();
+		} else {
+			nextString();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private void readEscape() throws IOException {
+		final int c = read();
+		switch (c) {
+		case '"':
+		case '\\':
+		case '/':
+			scratch.append((char) c);
+			break;
+		case 'b':
+			scratch.append('\b');
+			break;
+		case 'f':
+			scratch.append('\f');
+			break;
+		case 'n':
+			scratch.append('\n');
+			break;
+		case 'r':
+			scratch.append('\r');
+			break;
+		case 't':
+			scratch.append('\t');
+			break;
+		case 'u': {
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				final int digit = Character.digit(read(), 16);
+				if (digit < 0) {
+					throw malformed("invalid unicode escape");
+				}
+				value = value << 4 | digit;
+			}
+			scratch.append((char) value);
+			break;
+		}
+		default:
+			throw malformed("invalid escape");
+		}
+	}
+
+	/**
+	 * Reads an unquoted literal: a number, <code>true</code>,
+	 * <code>false</code> or <code>null</code>.
+	 */
+	private String literal() throws IOException {
+		scratch.setLength(0);
+		int c;
+		while ((c = peek()) >= 0 && c != ',' && c != '}' && c != ']' && c != ':'
+				&& !Character.isWhitespace(c)) {
+			scratch.append((char) c);
+			position++;
+		}
+		if (scratch.length() == 0) {
+			throw malformed("expected a value");
+		}
+
+		return scratch.toString();
+	}
+
+	private void expect(final char expected) throws IOException {
+		if (peekToken() != expected) {
+			throw malformed("expected '" + expected + "'");
+		}
+		position++;
+	}
+
+	/**
+	 * Skips whitespace and returns the next character without consuming it.
+	 */
+	private int peekToken() throws IOException {
+		int c;
+		while ((c = peek()) >= 0 && Character.isWhitespace(c)) {
+			position++;
+		}
+
+		return c;
+	}
+
+	private int peek() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+
+		return buffer[position];
+	}
+
+	private int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+
+		return buffer[position++];
+	}
+
+	private boolean fill() throws IOException {
+		final int read = reader.read(buffer, 0, buffer.length);
+		if (read <= 0) {
+			return false;
+		}
+		position = 0;
+		limit = read;
+
+		return true;
+	}
+
+	private static MalformedJsonException malformed(final String message) {
+		return new MalformedJsonException("malformed JSON: " + message);
+	}
+
+	/**
+	 * Thrown when the document is not valid JSON, as opposed to failing to be
+	 * read.
+	 */
+	static final class MalformedJsonException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		MalformedJsonException(final String message) {
+			super(message);
+		}
+
+	}
+
+}
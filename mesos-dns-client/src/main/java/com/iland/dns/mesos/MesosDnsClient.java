@@ -0,0 +1,808 @@
+package com.iland.dns.mesos;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+import javax.naming.TimeLimitExceededException;
+
+import com.google.common.net.InetAddresses;
+import com.iland.dns.AddressDnsRecord;
+import com.iland.dns.CachingDnsClient;
+import com.iland.dns.Deadline;
+import com.iland.dns.DefaultDnsClient;
+import com.iland.dns.DnsClient;
+import com.iland.dns.DnsExecutors;
+import com.iland.dns.DnsLookupContext;
+import com.iland.dns.DnsLookupListener;
+import com.iland.dns.DnsLookupResult;
+import com.iland.dns.DnsQuery;
+import com.iland.dns.DnsRecord;
+import com.iland.dns.Exceptions;
+import com.iland.dns.Protocol;
+import com.iland.dns.RecordType;
+import com.iland.dns.ServiceRecordSelector;
+import com.iland.dns.SrvDnsRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A client for Mesos-DNS.
+ *
+ * @see <a href="https://mesosphere.github.io/mesos-dns/docs/naming.html">Service Naming</a>
+ */
+public class MesosDnsClient {
+
+	private static final Logger logger =
+			LoggerFactory.getLogger(MesosDnsClient.class);
+
+	private static final long DEFAULT_POLL_INTERVAL_SECONDS = 5;
+
+	private static final RecordType[] ADDRESS_TYPES =
+			{ RecordType.A, RecordType.AAAA };
+
+	private static final String[] PROTOCOL_LABELS =
+			Arrays.stream(Protocol.values())
+					.map(protocol -> protocol.name().toLowerCase(Locale.ROOT))
+					.toArray(String[]::new);
+
+	private static final QueryNameTemplate LEADER =
+			QueryNameTemplate.compile("leader.%s");
+	private static final QueryNameTemplate LEADER_SERVICE =
+			QueryNameTemplate.compile("_leader._%s.%s");
+	private static final QueryNameTemplate FRAMEWORK =
+			QueryNameTemplate.compile("%s.%s");
+	private static final QueryNameTemplate FRAMEWORK_SERVICE =
+			QueryNameTemplate.compile("_framework._%s.%s.%s");
+	private static final QueryNameTemplate MASTER =
+			QueryNameTemplate.compile("master.%s");
+	private static final QueryNameTemplate MASTER_SERVICE =
+			QueryNameTemplate.compile("_master._%s.%s");
+	private static final QueryNameTemplate AGENT =
+			QueryNameTemplate.compile("slave.%s");
+	private static final QueryNameTemplate AGENT_SERVICE =
+			QueryNameTemplate.compile("_slave._%s.%s");
+	private static final QueryNameTemplate TASK_AGENT =
+			QueryNameTemplate.compile("%s.%s.slave.%s");
+	private static final QueryNameTemplate TASK_SERVICE =
+			QueryNameTemplate.compile("_%s._%s.%s.%s");
+	private static final QueryNameTemplate TASK_SERVICE_PORT =
+			QueryNameTemplate.compile("_%s._%s._%s.%s.%s");
+	private static final QueryNameTemplate TASK =
+			QueryNameTemplate.compile("%s.%s.%s");
+
+	private static final RecordType[] SRV_TYPES = { RecordType.SRV };
+	private static final RecordType[] ALL_TYPES = {};
+
+	private final DnsClient dnsClient;
+	/**
+	 * The {@link DnsClient} if it is a {@link CachingDnsClient}, which the
+	 * queries of the name templates are looked up with.
+	 */
+	private final CachingDnsClient cache;
+	private final ServiceRecordWatcher watcher;
+	private final DnsLookupListener listener;
+
+	/**
+	 * Default constructor.
+	 */
+	public MesosDnsClient() {
+		this(new DefaultDnsClient());
+	}
+
+	/**
+	 * @param dnsClient A {@link DnsClient DNS client}
+	 */
+	public MesosDnsClient(final DnsClient dnsClient) {
+		this(dnsClient, DnsExecutors.defaultScheduler(),
+				DEFAULT_POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @param dnsClient    A {@link DnsClient DNS client}
+	 * @param scheduler    the {@link ScheduledExecutorService scheduler} watched
+	 *                     names are polled on
+	 * @param pollInterval the interval between polls of a watched name
+	 * @param unit         the {@link TimeUnit unit}
+	 */
+	public MesosDnsClient(final DnsClient dnsClient,
+			final ScheduledExecutorService scheduler, final long pollInterval,
+			final TimeUnit unit) {
+		this(dnsClient, scheduler, pollInterval, unit, null);
+	}
+
+	/**
+	 * @param dnsClient    A {@link DnsClient DNS client}
+	 * @param scheduler    the {@link ScheduledExecutorService scheduler} watched
+	 *                     names are polled on
+	 * @param pollInterval the interval between polls of a watched name
+	 * @param unit         the {@link TimeUnit unit}
+	 * @param listener     the {@link DnsLookupListener listener} told when every
+	 *                     lookup starts and ends, or <code>null</code> if none
+	 */
+	public MesosDnsClient(final DnsClient dnsClient,
+			final ScheduledExecutorService scheduler, final long pollInterval,
+			final TimeUnit unit, final DnsLookupListener listener) {
+		this.dnsClient =
+				Objects.requireNonNull(dnsClient, "dnsClient must not be null");
+		this.cache = dnsClient instanceof CachingDnsClient ?
+				(CachingDnsClient) dnsClient :
+				null;
+		this.watcher = new ServiceRecordWatcher(this::lookupServiceRecordsAsync,
+				scheduler, pollInterval, unit);
+		this.listener = listener;
+	}
+
+	/**
+	 * Lookup the leading cluster records for a domain.
+	 *
+	 * @param domain e.g. "mesos"
+	 * @return the A or AAAA record for the leading cluster
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<? extends DnsRecord> lookupLeadingCluster(final String domain)
+			throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+
+		final QueryNameTemplate.Name name = LEADER.name(domain);
+
+		return lookup(name.value(), name.query(ADDRESS_TYPES), ADDRESS_TYPES);
+	}
+
+	/**
+	 * Lookup the leading cluster Service records (SRV records) for a domain.
+	 *
+	 * @param domain   e.g. "mesos"
+	 * @param protocol the protocol
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<SrvDnsRecord> lookupLeadingClusterServiceRecords(
+			final String domain, final Protocol protocol) throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+		Objects.requireNonNull(protocol, "protocol must not be null");
+
+		final QueryNameTemplate.Name name =
+				LEADER_SERVICE.name(label(protocol), domain);
+
+		return lookupServiceRecords(name.value(), name.query(SRV_TYPES));
+	}
+
+	/**
+	 * Lookup the records for a framework scheduler.
+	 *
+	 * @param domain    e.g. "mesos"
+	 * @param framework e.g. "marathon"
+	 * @return the A or AAAA records for all framework schedulers
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<? extends DnsRecord> lookupFrameworkSchedulers(
+			final String domain, final String framework) throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+		Objects.requireNonNull(framework, "framework must not be null");
+
+		final QueryNameTemplate.Name name = FRAMEWORK.name(framework, domain);
+
+		return lookup(name.value(), name.query(ADDRESS_TYPES), ADDRESS_TYPES);
+	}
+
+	/**
+	 * Lookup the Service records (SRV records) for a framework scheduler.
+	 *
+	 * @param domain    e.g. "mesos"
+	 * @param framework e.g. "marathon"
+	 * @param protocol  the protocol
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<SrvDnsRecord> lookupFrameworkSchedulersServiceRecords(
+			final String domain, final String framework, final Protocol protocol)
+			throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+		Objects.requireNonNull(framework, "framework must not be null");
+		Objects.requireNonNull(protocol, "protocol must not be null");
+
+		final QueryNameTemplate.Name name =
+				FRAMEWORK_SERVICE.name(label(protocol), framework, domain);
+
+		return lookupServiceRecords(name.value(), name.query(SRV_TYPES));
+	}
+
+	/**
+	 * Lookup cluster records for a domain.
+	 *
+	 * @param domain e.g. "mesos"
+	 * @return the A or AAAA records for every known Mesos cluster
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<? extends DnsRecord> lookupClusters(final String domain)
+			throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+
+		final QueryNameTemplate.Name name = MASTER.name(domain);
+
+		return lookup(name.value(), name.query(ADDRESS_TYPES), ADDRESS_TYPES);
+	}
+
+	/**
+	 * Lookup the addresses of every known Mesos cluster for a domain.
+	 *
+	 * @param domain e.g. "mesos"
+	 * @param port   e.g. 5050
+	 * @return the {@link InetSocketAddress socket addresses} of the A or AAAA
+	 * records for every known Mesos cluster
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<InetSocketAddress> lookupClusterAddresses(final String domain,
+			final int port) throws MesosDnsException {
+		return toSocketAddresses(lookupClusters(domain), port);
+	}
+
+	/**
+	 * Lookup cluster Service records (SRV records) for a domain.
+	 *
+	 * @param domain   e.g. "mesos"
+	 * @param protocol the protocol
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<SrvDnsRecord> lookupClustersServiceRecords(final String domain,
+			final Protocol protocol) throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+		Objects.requireNonNull(protocol, "protocol must not be null");
+
+		final QueryNameTemplate.Name name =
+				MASTER_SERVICE.name(label(protocol), domain);
+
+		return lookupServiceRecords(name.value(), name.query(SRV_TYPES));
+	}
+
+	/**
+	 * Lookup a domain's agents records.
+	 *
+	 * @param domain e.g. "mesos"
+	 * @return the A or AAAA records for every known Mesos agent
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<? extends DnsRecord> lookupAgents(final String domain)
+			throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+
+		final QueryNameTemplate.Name name = AGENT.name(domain);
+
+		return lookup(name.value(), name.query(ADDRESS_TYPES), ADDRESS_TYPES);
+	}
+
+	/**
+	 * Lookup the addresses of a domain's agents.
+	 *
+	 * @param domain e.g. "mesos"
+	 * @param port   e.g. 5051
+	 * @return the {@link InetSocketAddress socket addresses} of the A or AAAA
+	 * records for every known Mesos agent
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<InetSocketAddress> lookupAgentAddresses(final String domain,
+			final int port) throws MesosDnsException {
+		return toSocketAddresses(lookupAgents(domain), port);
+	}
+
+	/**
+	 * Lookup a domain's agent's Service records (SRV records).
+	 *
+	 * @param domain   e.g. "mesos"
+	 * @param protocol the protocol
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<SrvDnsRecord> lookupAgentsServiceRecords(final String domain,
+			final Protocol protocol) throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+		Objects.requireNonNull(protocol, "protocol must not be null");
+
+		final QueryNameTemplate.Name name =
+				AGENT_SERVICE.name(label(protocol), domain);
+
+		return lookupServiceRecords(name.value(), name.query(SRV_TYPES));
+	}
+
+	/**
+	 * Lookup a task's agents.
+	 *
+	 * @param domain    e.g. "mesos"
+	 * @param framework e.g. "marathon"
+	 * @param task      e.g. "mesos-dns"
+	 * @return the IP address(es) of the agent node(s) upon which the task is running
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<? extends DnsRecord> lookupAgentsFor(final String domain,
+			final String framework, final String task) throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+		Objects.requireNonNull(framework, "framework must not be null");
+		Objects.requireNonNull(task, "task must not be null");
+
+		final QueryNameTemplate.Name name =
+				TASK_AGENT.name(task, framework, domain);
+
+		return lookup(name.value(), name.query(ALL_TYPES), ALL_TYPES);
+	}
+
+	/**
+	 * Lookup a task's DNS Service records (SRV records). Please note that if
+	 * a task is running multiple services, this will return ambiguous SRV records
+	 * for each of them (provided that they use the same protocol). Please use
+	 * {@link #lookupServiceRecordsForTaskService} instead.
+	 *
+	 * @param domain    e.g. "mesos"
+	 * @param framework e.g. "marathon"
+	 * @param task      e.g. "mesos-dns"
+	 * @param protocol  the protocol
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<SrvDnsRecord> lookupTaskServiceRecords(final String domain,
+			final String framework, final String task, final Protocol protocol)
+			throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+		Objects.requireNonNull(framework, "framework must not be null");
+		Objects.requireNonNull(task, "task must not be null");
+		Objects.requireNonNull(protocol, "protocol must not be null");
+
+		final QueryNameTemplate.Name name =
+				TASK_SERVICE.name(task, label(protocol), framework, domain);
+
+		return lookupServiceRecords(name.value(), name.query(SRV_TYPES));
+	}
+
+	/**
+	 * Lookup a task's service, e.g. HTTP, DNS Service records (SRV records). This
+	 * is the preferred way of looking up the port for a given service.
+	 *
+	 * @param domain    e.g. "mesos"
+	 * @param framework e.g. "marathon"
+	 * @param task      e.g. "mesos-dns"
+	 * @param service   e.g. "http"
+	 * @param protocol  the protocol
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<SrvDnsRecord> lookupServiceRecordsForTaskService(
+			final String domain, final String framework, final String task,
+			final String service, final Protocol protocol) throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+		Objects.requireNonNull(framework, "framework must not be null");
+		Objects.requireNonNull(task, "task must not be null");
+		Objects.requireNonNull(service, "service must not be null");
+		Objects.requireNonNull(protocol, "protocol must not be null");
+
+		final QueryNameTemplate.Name name =
+				TASK_SERVICE_PORT.name(service, task, label(protocol), framework,
+						domain);
+
+		return lookupServiceRecords(name.value(), name.query(SRV_TYPES));
+	}
+
+	/**
+	 * Lookup a task's DNS records.
+	 *
+	 * @param domain      e.g. "mesos"
+	 * @param framework   e.g. "marathon"
+	 * @param task        e.g. "mesos-dns"
+	 * @param recordTypes Zero or more record types to lookup (an empty array indicates that all attributes should be retrieved)
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public List<? extends DnsRecord> lookup(final String domain,
+			final String framework, final String task, RecordType... recordTypes)
+			throws MesosDnsException {
+		Objects.requireNonNull(domain, "domain must not be null");
+		Objects.requireNonNull(framework, "framework must not be null");
+		Objects.requireNonNull(task, "task must not be null");
+
+		final QueryNameTemplate.Name name = TASK.name(task, framework, domain);
+
+		return lookup(name.value(), name.query(recordTypes), recordTypes);
+	}
+
+	/**
+	 * Lookup DNS records.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param recordTypes the record types
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws MesosDnsException
+	 */
+	public List<? extends DnsRecord> lookup(final String name,
+			RecordType... recordTypes) throws MesosDnsException {
+		return lookup(name, (DnsQuery) null, recordTypes);
+	}
+
+	/**
+	 * @param query the {@link DnsQuery query} of the name, or <code>null</code>
+	 *              if none
+	 */
+	private List<? extends DnsRecord> lookup(final String name,
+			final DnsQuery query, final RecordType[] recordTypes)
+			throws MesosDnsException {
+		final Object context = started(name, recordTypes);
+		final Object previous = DnsLookupContext.enter(context);
+		Throwable failure = null;
+		try {
+			return cache == null || query == null ?
+					dnsClient.lookup(name, recordTypes) :
+					cache.lookup(query);
+		} catch (final NamingException e) {
+			failure = e;
+			throw new MesosDnsException(e);
+		} catch (final RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			DnsLookupContext.restore(context, previous);
+			ended(context, name, recordTypes, failure);
+		}
+	}
+
+	/**
+	 * Lookup DNS records, failing fast once the deadline expired.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline}, e.g. the one of the request
+	 *                    being served
+	 * @param recordTypes the record types
+	 * @return A list of {@link DnsRecord DNS records}
+	 * @throws MesosDnsException if the lookup fails, e.g. caused by a
+	 *                           {@link TimeLimitExceededException} once the
+	 *                           deadline expired
+	 */
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws MesosDnsException {
+		final Object context = started(name, recordTypes);
+		final Object previous = DnsLookupContext.enter(context);
+		Throwable failure = null;
+		try {
+			return dnsClient.lookup(name, deadline, recordTypes);
+		} catch (final NamingException e) {
+			failure = e;
+			throw new MesosDnsException(e);
+		} catch (final RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			DnsLookupContext.restore(context, previous);
+			ended(context, name, recordTypes, failure);
+		}
+	}
+
+	/**
+	 * Lookup service records (SRV records), failing fast once the deadline
+	 * expired.
+	 *
+	 * @param name     e.g. "mesos.apache.org"
+	 * @param deadline the {@link Deadline}, e.g. the one of the request being
+	 *                 served
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws MesosDnsException if the lookup fails, e.g. caused by a
+	 *                           {@link TimeLimitExceededException} once the
+	 *                           deadline expired
+	 */
+	public List<SrvDnsRecord> lookupServiceRecords(final String name,
+			final Deadline deadline) throws MesosDnsException {
+		final Object context = started(name, SRV_TYPES);
+		final Object previous = DnsLookupContext.enter(context);
+		Throwable failure = null;
+		try {
+			return dnsClient.lookupServiceRecords(name, deadline);
+		} catch (final NamingException e) {
+			failure = e;
+			throw new MesosDnsException(e);
+		} catch (final RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			DnsLookupContext.restore(context, previous);
+			ended(context, name, SRV_TYPES, failure);
+		}
+	}
+
+	/**
+	 * Lookup service records (SRV records).
+	 *
+	 * @param name e.g. "mesos.apache.org"
+	 * @return a {@link List list} of {@link SrvDnsRecord SRV records} sorted by priority and weight
+	 * @throws MesosDnsException
+	 */
+	public List<SrvDnsRecord> lookupServiceRecords(final String name)
+			throws MesosDnsException {
+		return lookupServiceRecords(name, (DnsQuery) null);
+	}
+
+	/**
+	 * @param query the {@link DnsQuery query} of the name, or <code>null</code>
+	 *              if none
+	 */
+	private List<SrvDnsRecord> lookupServiceRecords(final String name,
+			final DnsQuery query) throws MesosDnsException {
+		final Object context = started(name, SRV_TYPES);
+		final Object previous = DnsLookupContext.enter(context);
+		Throwable failure = null;
+		try {
+			return cache == null || query == null ?
+					dnsClient.lookupServiceRecords(name) :
+					cache.lookupServiceRecords(query);
+		} catch (final NamingException e) {
+			failure = e;
+			throw new MesosDnsException(e);
+		} catch (final RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			DnsLookupContext.restore(context, previous);
+			ended(context, name, SRV_TYPES, failure);
+		}
+	}
+
+	/**
+	 * Lookup service records (SRV records) and select among them as RFC 2782
+	 * describes.
+	 *
+	 * @param name e.g. "mesos.apache.org"
+	 * @return a {@link ServiceRecordSelector selector} over the
+	 * {@link SrvDnsRecord SRV records}
+	 * @throws MesosDnsException if the lookup fails
+	 */
+	public ServiceRecordSelector lookupServiceRecordSelector(final String name)
+			throws MesosDnsException {
+		final Object context = started(name, SRV_TYPES);
+		final Object previous = DnsLookupContext.enter(context);
+		Throwable failure = null;
+		try {
+			return dnsClient.lookupServiceRecordSelector(name);
+		} catch (final NamingException e) {
+			failure = e;
+			throw new MesosDnsException(e);
+		} catch (final RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			DnsLookupContext.restore(context, previous);
+			ended(context, name, SRV_TYPES, failure);
+		}
+	}
+
+	/**
+	 * Lookup the DNS records of many names concurrently, e.g. every task of a
+	 * routing table.
+	 *
+	 * @param names       the names, duplicates are looked up once
+	 * @param recordTypes the record types
+	 * @return the {@link DnsLookupResult result} of every name, in the order
+	 * the names were given
+	 * @throws MesosDnsException if interrupted while waiting for the results
+	 * @see DnsClient#lookupAll
+	 */
+	public Map<String, DnsLookupResult<MesosDnsException>> lookupAll(
+			final Collection<String> names, final RecordType... recordTypes)
+			throws MesosDnsException {
+		final Map<String, DnsLookupResult<NamingException>> results;
+		try {
+			results = dnsClient.lookupAll(names, recordTypes);
+		} catch (final NamingException e) {
+			throw new MesosDnsException(e);
+		}
+
+		final Map<String, DnsLookupResult<MesosDnsException>> translated =
+				new LinkedHashMap<>();
+		results.forEach((name, result) -> translated.put(name,
+				result.mapFailure(MesosDnsException::new)));
+
+		return translated;
+	}
+
+	/**
+	 * Lookup DNS records asynchronously.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param recordTypes the record types
+	 * @return a {@link CompletableFuture} completed with a list of
+	 * {@link DnsRecord DNS records}, or exceptionally with a
+	 * {@link MesosDnsException} if the lookup fails
+	 */
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		final Object context = started(name, recordTypes);
+		final Object previous = DnsLookupContext.enter(context);
+		try {
+			return translate(context, name, recordTypes,
+					dnsClient.lookupAsync(name, recordTypes));
+		} finally {
+			DnsLookupContext.restore(context, previous);
+		}
+	}
+
+	/**
+	 * Lookup DNS records asynchronously, failing once the deadline expired.
+	 *
+	 * @param name        e.g. "mesos.apache.org"
+	 * @param deadline    the {@link Deadline}
+	 * @param recordTypes the record types
+	 * @return a {@link CompletableFuture} completed with a list of
+	 * {@link DnsRecord DNS records}, or exceptionally with a
+	 * {@link MesosDnsException} if the lookup fails
+	 */
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final Deadline deadline,
+			final RecordType... recordTypes) {
+		final Object context = started(name, recordTypes);
+		final Object previous = DnsLookupContext.enter(context);
+		try {
+			return translate(context, name, recordTypes,
+					dnsClient.lookupAsync(name, deadline, recordTypes));
+		} finally {
+			DnsLookupContext.restore(context, previous);
+		}
+	}
+
+	/**
+	 * Lookup service records (SRV records) asynchronously.
+	 *
+	 * @param name e.g. "mesos.apache.org"
+	 * @return a {@link CompletableFuture} completed with a {@link List list} of
+	 * {@link SrvDnsRecord SRV records} sorted by priority and weight, or
+	 * exceptionally with a {@link MesosDnsException} if the lookup fails
+	 */
+	public CompletableFuture<List<SrvDnsRecord>> lookupServiceRecordsAsync(
+			final String name) {
+		final Object context = started(name, SRV_TYPES);
+		final Object previous = DnsLookupContext.enter(context);
+		try {
+			return translate(context, name, SRV_TYPES,
+					dnsClient.lookupServiceRecordsAsync(name));
+		} finally {
+			DnsLookupContext.restore(context, previous);
+		}
+	}
+
+	/**
+	 * Watch the Service records (SRV records) of a name, e.g. one built like
+	 * {@link #lookupServiceRecordsForTaskService}. The name is polled in the
+	 * background and the listener is notified of the records that were added
+	 * and removed. Listeners of the same name share a single poll.
+	 *
+	 * @param name     e.g. "_http._foo._tcp.marathon.mesos"
+	 * @param listener the {@link ServiceRecordListener listener}
+	 * @return a {@link ServiceRecordSubscription subscription}, close it to stop
+	 * watching
+	 */
+	public ServiceRecordSubscription watchServiceRecords(final String name,
+			final ServiceRecordListener listener) {
+		return watcher.watch(name, listener);
+	}
+
+	/**
+	 * Balance calls over the targets of a service by their latency, keeping the
+	 * targets up to date by {@link #watchServiceRecords watching} the name.
+	 *
+	 * @param name e.g. "_http._foo._tcp.marathon.mesos"
+	 * @return an {@link EndpointBalancer}, close it to stop watching
+	 * @throws MesosDnsException if the initial lookup fails
+	 */
+	public EndpointBalancer balanceServiceRecords(final String name)
+			throws MesosDnsException {
+		return balanceServiceRecords(name, new EndpointBalancer());
+	}
+
+	/**
+	 * Balance calls over the targets of a service with a configured
+	 * {@link EndpointBalancer}.
+	 *
+	 * @param name     e.g. "_http._foo._tcp.marathon.mesos"
+	 * @param balancer the {@link EndpointBalancer}
+	 * @return the {@link EndpointBalancer}, close it to stop watching
+	 * @throws MesosDnsException if the initial lookup fails
+	 */
+	public EndpointBalancer balanceServiceRecords(final String name,
+			final EndpointBalancer balancer) throws MesosDnsException {
+		Objects.requireNonNull(balancer, "balancer must not be null");
+
+		balancer.update(lookupServiceRecords(name));
+		balancer.setSubscription(watchServiceRecords(name, balancer));
+
+		return balancer;
+	}
+
+	private static String label(final Protocol protocol) {
+		return PROTOCOL_LABELS[protocol.ordinal()];
+	}
+
+	/**
+	 * Uses the addresses already parsed by the record factory, only records of
+	 * other factories are parsed here.
+	 */
+	private static List<InetSocketAddress> toSocketAddresses(
+			final List<? extends DnsRecord> records, final int port)
+			throws MesosDnsException {
+		final List<InetSocketAddress> addresses = new ArrayList<>(records.size());
+		for (final DnsRecord record : records) {
+			if (record instanceof AddressDnsRecord) {
+				addresses.add(((AddressDnsRecord) record).toSocketAddress(port));
+				continue;
+			}
+			try {
+				final byte[] address =
+						InetAddresses.forString(record.getValue()).getAddress();
+				addresses.add(new InetSocketAddress(
+						InetAddress.getByAddress(record.getName(), address), port));
+			} catch (final IllegalArgumentException | UnknownHostException e) {
+				throw new MesosDnsException(
+						String.format("invalid address in %s", record), e);
+			}
+		}
+
+		return addresses;
+	}
+
+	/**
+	 * A listener that throws must neither fail nor hang the lookup, nor hide
+	 * its outcome.
+	 *
+	 * @return the context of the lookup, <code>null</code> without a listener
+	 */
+	private Object started(final String name, final RecordType[] recordTypes) {
+		if (listener != null) {
+			try {
+				return listener.lookupStarted(name, recordTypes, System.nanoTime());
+			} catch (final RuntimeException e) {
+				logger.warn("a lookup listener failed", e);
+			}
+		}
+
+		return null;
+	}
+
+	private void ended(final Object context, final String name,
+			final RecordType[] recordTypes, final Throwable failure) {
+		if (listener != null) {
+			try {
+				listener.lookupEnded(context, name, recordTypes, failure,
+						System.nanoTime());
+			} catch (final RuntimeException e) {
+				logger.warn("a lookup listener failed", e);
+			}
+		}
+	}
+
+	private <T> CompletableFuture<T> translate(final Object context,
+			final String name, final RecordType[] recordTypes,
+			final CompletableFuture<T> future) {
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		future.whenComplete((value, t) -> {
+			if (t == null) {
+				ended(context, name, recordTypes, null);
+				result.complete(value);
+			} else {
+				final Throwable cause = Exceptions.unwrap(t);
+				ended(context, name, recordTypes, cause);
+				result.completeExceptionally(cause instanceof NamingException ?
+						new MesosDnsException(cause) :
+						cause);
+			}
+		});
+
+		return result;
+	}
+
+}
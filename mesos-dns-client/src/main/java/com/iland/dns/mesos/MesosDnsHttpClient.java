@@ -0,0 +1,583 @@
+package com.iland.dns.mesos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.naming.CommunicationException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.TimeLimitExceededException;
+
+import com.iland.dns.Deadline;
+import com.iland.dns.DefaultDnsRecordFactory;
+import com.iland.dns.DnsClient;
+import com.iland.dns.DnsExecutors;
+import com.iland.dns.DnsRecord;
+import com.iland.dns.DnsRecordFactory;
+import com.iland.dns.Exceptions;
+import com.iland.dns.RecordType;
+
+/**
+ * A {@link DnsClient} backed by the HTTP API of Mesos-DNS rather than by DNS
+ * queries: A and AAAA records are looked up with <code>/v1/hosts/{host}</code>
+ * and SRV records with <code>/v1/services/{service}</code>, while
+ * {@link #enumerate} returns every record of the cluster in a single call.
+ * <p>
+ * Responses are parsed as they are streamed and read to their end, so that
+ * the underlying connection is kept alive and reused by the next call.
+ * Mesos-DNS answers unknown names with an empty entry, which is reported as a
+ * {@link NameNotFoundException}, the same way a DNS lookup reports NXDOMAIN.
+ *
+ * @see <a href="https://mesosphere.github.io/mesos-dns/docs/http.html">HTTP Interface</a>
+ */
+public class MesosDnsHttpClient implements DnsClient {
+
+	/**
+	 * The default port of the Mesos-DNS HTTP API.
+	 */
+	public static final int DEFAULT_PORT = 8123;
+
+	private static final Set<RecordType> SUPPORTED_TYPES =
+			EnumSet.of(RecordType.A, RecordType.AAAA, RecordType.SRV);
+	private static final int DEFAULT_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * The priority and weight Mesos-DNS gives every SRV record.
+	 */
+	private static final int SRV_PRIORITY = 0, SRV_WEIGHT = 1;
+
+	private final String url;
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
+	private final DnsRecordFactory recordFactory;
+	private final Executor executor;
+
+	/**
+	 * @param url the URL of the Mesos-DNS HTTP API, e.g.
+	 *            "http://leader.mesos:8123"
+	 */
+	public MesosDnsHttpClient(final String url) {
+		this(builder(url));
+	}
+
+	private MesosDnsHttpClient(final Builder builder) {
+		this.url = builder.url;
+		this.connectTimeoutMillis = builder.connectTimeoutMillis;
+		this.readTimeoutMillis = builder.readTimeoutMillis;
+		this.recordFactory = builder.recordFactory;
+		this.executor = builder.executor;
+	}
+
+	/**
+	 * @param url the URL of the Mesos-DNS HTTP API, e.g.
+	 *            "http://leader.mesos:8123"
+	 * @return a {@link Builder}
+	 */
+	public static Builder builder(final String url) {
+		return new Builder(url);
+	}
+
+	/**
+	 * Lookup A, AAAA and SRV records; no record types means A and AAAA records,
+	 * and SRV records too if the name is a service name (starts with "_").
+	 *
+	 * @throws OperationNotSupportedException if another record type is asked
+	 *                                        for
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final RecordType... recordTypes) throws NamingException {
+		return lookup(name, null, recordTypes);
+	}
+
+	/**
+	 * Every request waits at most the time remaining until the deadline.
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws NamingException {
+		Objects.requireNonNull(name, "name must not be null");
+		final Set<RecordType> types = recordTypes.length == 0 ?
+				EnumSet.of(RecordType.A, RecordType.AAAA) :
+				EnumSet.copyOf(Arrays.asList(recordTypes));
+		if (recordTypes.length == 0 && name.startsWith("_")) {
+			types.add(RecordType.SRV);
+		}
+		if (!SUPPORTED_TYPES.containsAll(types)) {
+			throw new OperationNotSupportedException(String.format(
+					"the Mesos-DNS HTTP API only serves %s records: %s",
+					SUPPORTED_TYPES, Exceptions.lookupErrorMessage(name, recordTypes)));
+		}
+
+		final List<DnsRecord> records = new ArrayList<>();
+		boolean found = false;
+		if (types.contains(RecordType.A) || types.contains(RecordType.AAAA)) {
+			found = get("/v1/hosts/" + encode(name), deadline, name, recordTypes,
+					reader -> readHosts(reader, name, types, records));
+		}
+		if (types.contains(RecordType.SRV)) {
+			found |= get("/v1/services/" + encode(name), deadline, name, recordTypes,
+					reader -> readServices(reader, name, records));
+		}
+		if (!found) {
+			throw new NameNotFoundException(
+					String.format("DNS name not found: '%s'", name));
+		}
+
+		return records;
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		return lookupAsync(name, null, recordTypes);
+	}
+
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final Deadline deadline,
+			final RecordType... recordTypes) {
+		final CompletableFuture<List<? extends DnsRecord>> future =
+				new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				try {
+					future.complete(lookup(name, deadline, recordTypes));
+				} catch (final NamingException | RuntimeException e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+
+		return future;
+	}
+
+	/**
+	 * Returns every A, AAAA and SRV record of the cluster with a single call to
+	 * <code>/v1/enumerate</code>.
+	 *
+	 * @return the {@link DnsRecord DNS records}
+	 * @throws NamingException if the call fails
+	 */
+	public List<DnsRecord> enumerate() throws NamingException {
+		final List<DnsRecord> records = new ArrayList<>();
+		enumerate(records::add);
+
+		return records;
+	}
+
+	/**
+	 * Streams every A, AAAA and SRV record of the cluster to a consumer as the
+	 * response of <code>/v1/enumerate</code> is parsed, without holding the
+	 * whole response in memory.
+	 *
+	 * @param consumer the consumer of the {@link DnsRecord DNS records}
+	 * @throws NamingException if the call fails, possibly after some records
+	 *                         were consumed
+	 */
+	public void enumerate(final Consumer<? super DnsRecord> consumer)
+			throws NamingException {
+		Objects.requireNonNull(consumer, "consumer must not be null");
+
+		// the same names recur across the records of many tasks, e.g. as SRV
+		// targets, so that records share a single instance of each of them
+		final Map<String, String> names = new HashMap<>();
+		get("/v1/enumerate", null, "/v1/enumerate", new RecordType[0], reader -> {
+			readEnumeration(reader, names, consumer);
+			return true;
+		});
+	}
+
+	private boolean readHosts(final JsonReader reader, final String name,
+			final Set<RecordType> types, final List<DnsRecord> records)
+			throws IOException {
+		boolean found = false;
+		reader.beginArray();
+		while (reader.hasNext()) {
+			String ip = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if ("ip".equals(reader.nextName())) {
+					ip = nextString(reader);
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+
+			if (ip == null || ip.isEmpty()) {
+				continue;
+			}
+			found = true;
+			final RecordType type =
+					ip.indexOf(':') < 0 ? RecordType.A : RecordType.AAAA;
+			if (types.contains(type)) {
+				records.add(recordFactory.createDnsRecord(type, name, ip,
+						DnsRecord.UNKNOWN_TTL));
+			}
+		}
+		reader.endArray();
+
+		return found;
+	}
+
+	private boolean readServices(final JsonReader reader, final String name,
+			final List<DnsRecord> records) throws IOException {
+		boolean found = false;
+		reader.beginArray();
+		while (reader.hasNext()) {
+			String host = null, port = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "host":
+					host = nextString(reader);
+					break;
+				case "port":
+					port = nextString(reader);
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+
+			if (host == null || host.isEmpty() || port == null || port.isEmpty()) {
+				continue;
+			}
+			found = true;
+			records.add(recordFactory.createServiceRecord(name, SRV_PRIORITY,
+					SRV_WEIGHT, parsePort(port), host, DnsRecord.UNKNOWN_TTL));
+		}
+		reader.endArray();
+
+		return found;
+	}
+
+	/**
+	 * Reads <code>{"frameworks": [{"tasks": [{"records": [...]}]}]}</code>.
+	 */
+	private void readEnumeration(final JsonReader reader,
+			final Map<String, String> names,
+			final Consumer<? super DnsRecord> consumer) throws IOException {
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if (!"frameworks".equals(reader.nextName())) {
+				reader.skipValue();
+				continue;
+			}
+			if (reader.nextNull()) {
+				continue;
+			}
+			reader.beginArray();
+			while (reader.hasNext()) {
+				readMembers(reader, "tasks", () -> readMembers(reader, "records",
+						() -> readRecord(reader, names, consumer)));
+			}
+			reader.endArray();
+		}
+		reader.endObject();
+	}
+
+	/**
+	 * Reads an object, calling the element reader for every element of the
+	 * array member of the given name and skipping the other members.
+	 */
+	private static void readMembers(final JsonReader reader, final String name,
+			final ElementReader elementReader) throws IOException {
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if (!name.equals(reader.nextName())) {
+				reader.skipValue();
+				continue;
+			}
+			if (reader.nextNull()) {
+				continue;
+			}
+			reader.beginArray();
+			while (reader.hasNext()) {
+				elementReader.read();
+			}
+			reader.endArray();
+		}
+		reader.endObject();
+	}
+
+	private void readRecord(final JsonReader reader,
+			final Map<String, String> names,
+			final Consumer<? super DnsRecord> consumer) throws IOException {
+		String name = null, host = null, rtype = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "name":
+				name = nextString(reader);
+				break;
+			case "host":
+				host = nextString(reader);
+				break;
+			case "rtype":
+				rtype = nextString(reader);
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (name == null || host == null || rtype == null) {
+			return;
+		}
+		final String owner = share(names, name.endsWith(".") ?
+				name.substring(0, name.length() - 1) :
+				name);
+		if ("SRV".equals(rtype)) {
+			// e.g. "foo-1.marathon.mesos.:31000"
+			final int colon = host.lastIndexOf(':');
+			if (colon < 0) {
+				throw new JsonReader.MalformedJsonException(
+						"SRV record without a port: " + host);
+			}
+			consumer.accept(recordFactory.createServiceRecord(owner, SRV_PRIORITY,
+					SRV_WEIGHT, parsePort(host.substring(colon + 1)),
+					share(names, host.substring(0, colon)), DnsRecord.UNKNOWN_TTL));
+		} else if ("A".equals(rtype) || "AAAA".equals(rtype)) {
+			consumer.accept(recordFactory.createDnsRecord(RecordType.valueOf(rtype),
+					owner, host, DnsRecord.UNKNOWN_TTL));
+		}
+	}
+
+	private static String share(final Map<String, String> names,
+			final String name) {
+		final String shared = names.putIfAbsent(name, name);
+
+		return shared != null ? shared : name;
+	}
+
+	/**
+	 * Sends a GET request and reads its JSON response.
+	 */
+	private <T> T get(final String path, final Deadline deadline,
+			final String name, final RecordType[] recordTypes,
+			final ResponseReader<T> responseReader) throws NamingException {
+		if (deadline != null && deadline.isExpired()) {
+			throw timeLimitExceeded(name, recordTypes);
+		}
+
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) new URL(url + path).openConnection();
+			connection.setConnectTimeout(timeout(connectTimeoutMillis, deadline));
+			connection.setReadTimeout(timeout(readTimeoutMillis, deadline));
+			connection.setRequestProperty("Accept", "application/json");
+
+			final int status = connection.getResponseCode();
+			if (status != HttpURLConnection.HTTP_OK) {
+				drain(connection.getErrorStream());
+				throw status >= HttpURLConnection.HTTP_INTERNAL_ERROR ?
+						new ServiceUnavailableException(
+								String.format("%s%s failed with HTTP status %d", url, path,
+										status)) :
+						new NamingException(
+								String.format("%s%s failed with HTTP status %d", url, path,
+										status));
+			}
+			try (JsonReader reader = new JsonReader(new InputStreamReader(
+					connection.getInputStream(), StandardCharsets.UTF_8))) {
+				return responseReader.read(reader);
+			}
+		} catch (final JsonReader.MalformedJsonException e) {
+			// the rest of the response is unknown, do not reuse the connection
+			connection.disconnect();
+			final NamingException exception = new NamingException(
+					String.format("%s%s returned a malformed response", url, path));
+			exception.setRootCause(e);
+			throw exception;
+		} catch (final IOException e) {
+			if (connection != null) {
+				connection.disconnect();
+			}
+			final NamingException exception =
+					e instanceof SocketTimeoutException && deadline != null
+							&& deadline.isExpired() ?
+							timeLimitExceeded(name, recordTypes) :
+							new CommunicationException(
+									String.format("%s%s failed", url, path));
+			exception.setRootCause(e);
+			throw exception;
+		}
+	}
+
+	private static TimeLimitExceededException timeLimitExceeded(
+			final String name, final RecordType[] recordTypes) {
+		return new TimeLimitExceededException("deadline exceeded: "
+				+ Exceptions.lookupErrorMessage(name, recordTypes));
+	}
+
+	private static int timeout(final int timeoutMillis, final Deadline deadline) {
+		if (deadline == null) {
+			return timeoutMillis;
+		}
+		final long remaining = deadline.remaining(TimeUnit.NANOSECONDS);
+
+		// rounded up, so that a request timing out expires the deadline
+		return (int) Math.max(1, Math.min(timeoutMillis,
+				TimeUnit.NANOSECONDS.toMillis(remaining - 1) + 1));
+	}
+
+	/**
+	 * Reads an error response to its end, so that the connection can be
+	 * reused.
+	 */
+	private static void drain(final InputStream in) throws IOException {
+		if (in == null) {
+			return;
+		}
+		try (InputStream stream = in) {
+			final byte[] buffer = new byte[1024];
+			while (stream.read(buffer) >= 0) {
+				// discard
+			}
+		}
+	}
+
+	private static String nextString(final JsonReader reader)
+			throws IOException {
+		return reader.nextNull() ? null : reader.nextString();
+	}
+
+	private static int parsePort(final String port)
+			throws JsonReader.MalformedJsonException {
+		try {
+			return Integer.parseInt(port);
+		} catch (final NumberFormatException e) {
+			throw new JsonReader.MalformedJsonException("invalid port: " + port);
+		}
+	}
+
+	private static String encode(final String name) {
+		try {
+			return URLEncoder.encode(name, StandardCharsets.UTF_8.name());
+		} catch (final UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads a JSON response.
+	 */
+	@FunctionalInterface
+	private interface ResponseReader<T> {
+
+		T read(JsonReader reader) throws IOException;
+
+	}
+
+	/**
+	 * Reads an element of a JSON array.
+	 */
+	@FunctionalInterface
+	private interface ElementReader {
+
+		void read() throws IOException;
+
+	}
+
+	public static final class Builder {
+
+		private final String url;
+
+		private int connectTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+		private int readTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+		private DnsRecordFactory recordFactory = new DefaultDnsRecordFactory();
+
+		private Executor executor = DnsExecutors.defaultExecutor();
+
+		private Builder(final String url) {
+			Objects.requireNonNull(url, "url must not be null");
+			this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+		}
+
+		/**
+		 * Specify the connect and read timeouts (5 seconds by default).
+		 *
+		 * @param connectTimeout the connect timeout
+		 * @param readTimeout    the read timeout
+		 * @param unit           the {@link TimeUnit unit}
+		 * @return {@link Builder this}
+		 */
+		public Builder withTimeouts(final long connectTimeout,
+				final long readTimeout, final TimeUnit unit) {
+			Objects.requireNonNull(unit, "unit must not be null");
+			if (connectTimeout <= 0 || readTimeout <= 0) {
+				throw new IllegalArgumentException("timeouts must be positive");
+			}
+			this.connectTimeoutMillis =
+					(int) Math.min(Integer.MAX_VALUE, unit.toMillis(connectTimeout));
+			this.readTimeoutMillis =
+					(int) Math.min(Integer.MAX_VALUE, unit.toMillis(readTimeout));
+
+			return this;
+		}
+
+		/**
+		 * Specify a {@link DnsRecordFactory}.
+		 *
+		 * @param recordFactory the {@link DnsRecordFactory}
+		 * @return {@link Builder this}
+		 */
+		public Builder withRecordFactory(final DnsRecordFactory recordFactory) {
+			this.recordFactory = Objects.requireNonNull(recordFactory,
+					"recordFactory must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Specify the {@link Executor} asynchronous lookups run on (defaults to
+		 * the {@link DnsExecutors#defaultExecutor() shared executor}).
+		 *
+		 * @param executor the {@link Executor}
+		 * @return {@link Builder this}
+		 */
+		public Builder withExecutor(final Executor executor) {
+			this.executor =
+					Objects.requireNonNull(executor, "executor must not be null");
+
+			return this;
+		}
+
+		public MesosDnsHttpClient build() {
+			return new MesosDnsHttpClient(this);
+		}
+
+	}
+
+}
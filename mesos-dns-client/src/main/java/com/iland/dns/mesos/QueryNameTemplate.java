@@ -0,0 +1,214 @@
+package com.iland.dns.mesos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.iland.dns.DnsQuery;
+import com.iland.dns.RecordType;
+
+/**
+ * A query name pattern, e.g. <code>"_%s._%s.%s.%s"</code>, split once into
+ * its literal parts so that names are built by plain concatenation rather
+ * than by a {@link java.util.Formatter}.
+ * <p>
+ * The names built are kept along with the {@link DnsQuery query} last looked
+ * up by them, so that repeated lookups of the same arguments reuse the very
+ * same name and query, e.g. the key of a cache, without allocating anything.
+ * Names are found by hashing the arguments themselves. At most
+ * {@link #MAX_CACHED_NAMES} names are kept per template, in sets of two that
+ * forget their least recently used name when a third one comes in.
+ */
+final class QueryNameTemplate {
+
+	static final int MAX_CACHED_NAMES = 1024;
+
+	private static final String PLACEHOLDER = "%s";
+	private static final int MAX_ARITY = 5;
+	private static final int WAYS = 2;
+	private static final int SET_MASK = MAX_CACHED_NAMES / WAYS - 1;
+
+	private final String[] literals;
+	private final int literalsLength;
+	/**
+	 * The names, the most recently used one of a set first. Entries are
+	 * immutable, so racing updates may only lose a name or keep it twice.
+	 */
+	private final AtomicReferenceArray<Name> names =
+			new AtomicReferenceArray<>(MAX_CACHED_NAMES);
+
+	private QueryNameTemplate(final String[] literals) {
+		this.literals = literals;
+		int literalsLength = 0;
+		for (final String literal : literals) {
+			literalsLength += literal.length();
+		}
+		this.literalsLength = literalsLength;
+	}
+
+	/**
+	 * @param pattern a pattern of up to five <code>"%s"</code> placeholders
+	 * @return a {@link QueryNameTemplate}
+	 */
+	static QueryNameTemplate compile(final String pattern) {
+		final List<String> literals = new ArrayList<>();
+		int start = 0;
+		int placeholder;
+		while ((placeholder = pattern.indexOf(PLACEHOLDER, start)) >= 0) {
+			literals.add(pattern.substring(start, placeholder));
+			start = placeholder + PLACEHOLDER.length();
+		}
+		literals.add(pattern.substring(start));
+		if (literals.size() > MAX_ARITY + 1) {
+			throw new IllegalArgumentException(
+					"pattern must not have more than " + MAX_ARITY + " placeholders");
+		}
+
+		return new QueryNameTemplate(literals.toArray(new String[0]));
+	}
+
+	Name name(final String a) {
+		return name(1, a, null, null, null, null);
+	}
+
+	Name name(final String a, final String b) {
+		return name(2, a, b, null, null, null);
+	}
+
+	Name name(final String a, final String b, final String c) {
+		return name(3, a, b, c, null, null);
+	}
+
+	Name name(final String a, final String b, final String c,
+			final String d) {
+		return name(4, a, b, c, d, null);
+	}
+
+	Name name(final String a, final String b, final String c, final String d,
+			final String e) {
+		return name(5, a, b, c, d, e);
+	}
+
+	private Name name(final int arity, final String a, final String b,
+			final String c, final String d, final String e) {
+		if (arity != literals.length - 1) {
+			throw new IllegalArgumentException(String.format(
+					"expected %d arguments but got %d", literals.length - 1, arity));
+		}
+		final int hash = hash(arity, a, b, c, d, e);
+		final int first = ((hash ^ (hash >>> 16)) & SET_MASK) * WAYS;
+
+		final Name recent = names.get(first);
+		if (recent != null && recent.matches(hash, a, b, c, d, e)) {
+			return recent;
+		}
+		final Name older = names.get(first + 1);
+		if (older != null && older.matches(hash, a, b, c, d, e)) {
+			names.set(first, older);
+			names.set(first + 1, recent);
+			return older;
+		}
+
+		final Name name = new Name(build(arity, a, b, c, d, e), hash, a, b, c, d,
+				e);
+		names.set(first + 1, recent);
+		names.set(first, name);
+
+		return name;
+	}
+
+	private String build(final int arity, final String... arguments) {
+		int length = literalsLength;
+		for (int i = 0; i < arity; i++) {
+			length += arguments[i].length();
+		}
+		final StringBuilder name = new StringBuilder(length);
+		name.append(literals[0]);
+		for (int i = 0; i < arity; i++) {
+			name.append(arguments[i]).append(literals[i + 1]);
+		}
+
+		return name.toString();
+	}
+
+	private static int hash(final int arity, final String a, final String b,
+			final String c, final String d, final String e) {
+		int hash = Objects.requireNonNull(a, "arguments must not be null")
+				.hashCode();
+		if (arity > 1) {
+			hash = 31 * hash + Objects.requireNonNull(b,
+					"arguments must not be null").hashCode();
+		}
+		if (arity > 2) {
+			hash = 31 * hash + Objects.requireNonNull(c,
+					"arguments must not be null").hashCode();
+		}
+		if (arity > 3) {
+			hash = 31 * hash + Objects.requireNonNull(d,
+					"arguments must not be null").hashCode();
+		}
+		if (arity > 4) {
+			hash = 31 * hash + Objects.requireNonNull(e,
+					"arguments must not be null").hashCode();
+		}
+
+		return hash;
+	}
+
+	/**
+	 * A name built from its arguments, and the {@link DnsQuery query} last
+	 * looked up by it.
+	 */
+	static final class Name {
+
+		private final String value;
+		private final int hash;
+		private final String a, b, c, d, e;
+		private volatile DnsQuery query;
+
+		private Name(final String value, final int hash, final String a,
+				final String b, final String c, final String d, final String e) {
+			this.value = value;
+			this.hash = hash;
+			this.a = a;
+			this.b = b;
+			this.c = c;
+			this.d = d;
+			this.e = e;
+		}
+
+		String value() {
+			return value;
+		}
+
+		/**
+		 * @param recordTypes the record types
+		 * @return the {@link DnsQuery query} of the record types by this name,
+		 * the same one as last time unless the record types differ
+		 */
+		DnsQuery query(final RecordType[] recordTypes) {
+			DnsQuery query = this.query;
+			if (query == null || !query.hasRecordTypes(recordTypes)) {
+				query = DnsQuery.of(value, recordTypes);
+				this.query = query;
+			}
+
+			return query;
+		}
+
+		private boolean matches(final int hash, final String a, final String b,
+				final String c, final String d, final String e) {
+			return this.hash == hash && this.a.equals(a) && Objects.equals(this.b, b)
+					&& Objects.equals(this.c, c) && Objects.equals(this.d, d)
+					&& Objects.equals(this.e, e);
+		}
+
+		@Override
+		public String toString() {
+			return value;
+		}
+
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.iland.dns.mesos;
+
+import java.util.List;
+
+import com.iland.dns.SrvDnsRecord;
+
+/**
+ * Notified of changes to the Service records (SRV records) of a watched name.
+ *
+ * @see MesosDnsClient#watchServiceRecords
+ */
+@FunctionalInterface
+public interface ServiceRecordListener {
+
+	/**
+	 * Called with the records that appeared and disappeared since the previous
+	 * notification; the first notification adds every current record. Calls
+	 * for the same name are never concurrent.
+	 *
+	 * @param name    the watched name
+	 * @param added   the {@link SrvDnsRecord SRV records} that appeared
+	 * @param removed the {@link SrvDnsRecord SRV records} that disappeared
+	 */
+	void onChange(final String name, final List<SrvDnsRecord> added,
+		final List<SrvDnsRecord> removed);
+
+	/**
+	 * Called when polling the name failed; the records are considered
+	 * unchanged. A name that no longer exists is not a failure, its records
+	 * are notified as removed.
+	 *
+	 * @param name      the watched name
+	 * @param exception the failure
+	 */
+	default void onFailure(final String name,
+		final MesosDnsException exception) {
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.iland.dns.mesos;
+
+import java.io.Closeable;
+
+/**
+ * A {@link ServiceRecordListener} subscribed to a watched name; closing it
+ * unsubscribes the listener, and stops polling the name once it has no
+ * listener left.
+ */
+public interface ServiceRecordSubscription extends Closeable {
+
+	/**
+	 * @return the watched name
+	 */
+	String getName();
+
+	@Override
+	void close();
+
+}
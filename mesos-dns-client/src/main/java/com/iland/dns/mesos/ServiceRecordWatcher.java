@@ -0,0 +1,273 @@
+package com.iland.dns.mesos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import javax.naming.NameNotFoundException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.iland.dns.Exceptions;
+import com.iland.dns.SrvDnsRecord;
+
+/**
+ * Polls watched names on a shared scheduler, one poll per name however many
+ * listeners subscribed to it, and notifies the listeners of the records that
+ * were added and removed. A poll only allocates a diff when the records
+ * changed, and a name is not polled again while its previous poll is still in
+ * flight.
+ * <p>
+ * A name that does not exist has no records: Mesos-DNS answers NXDOMAIN once
+ * the last task of an app is gone, which is notified as the removal of its
+ * records rather than as a failure.
+ */
+final class ServiceRecordWatcher {
+
+	private static final Logger logger =
+			LoggerFactory.getLogger(ServiceRecordWatcher.class);
+
+	private final Function<String, CompletableFuture<List<SrvDnsRecord>>> lookup;
+	private final ScheduledExecutorService scheduler;
+	private final long pollIntervalNanos;
+	private final ConcurrentMap<String, Watch> watches = new ConcurrentHashMap<>();
+
+	/**
+	 * @param lookup       the asynchronous SRV lookup, completed exceptionally
+	 *                     with a {@link MesosDnsException} on failure
+	 * @param scheduler    the {@link ScheduledExecutorService scheduler} polls
+	 *                     are started on
+	 * @param pollInterval the interval between polls of a name
+	 * @param unit         the {@link TimeUnit unit}
+	 */
+	ServiceRecordWatcher(
+			final Function<String, CompletableFuture<List<SrvDnsRecord>>> lookup,
+			final ScheduledExecutorService scheduler, final long pollInterval,
+			final TimeUnit unit) {
+		if (pollInterval <= 0) {
+			throw new IllegalArgumentException("pollInterval must be positive");
+		}
+		this.lookup = Objects.requireNonNull(lookup, "lookup must not be null");
+		this.scheduler =
+				Objects.requireNonNull(scheduler, "scheduler must not be null");
+		this.pollIntervalNanos = unit.toNanos(pollInterval);
+	}
+
+	ServiceRecordSubscription watch(final String name,
+			final ServiceRecordListener listener) {
+		Objects.requireNonNull(name, "name must not be null");
+		Objects.requireNonNull(listener, "listener must not be null");
+
+		final Subscription subscription = new Subscription(name, listener);
+		final Watch watch = watches.compute(name, (key, existing) -> {
+			final Watch w = existing == null ? new Watch(key) : existing;
+			w.subscribe(subscription);
+
+			return w;
+		});
+		watch.welcome(subscription);
+
+		return subscription;
+	}
+
+	/**
+	 * @return the number of names being polled
+	 */
+	int size() {
+		return watches.size();
+	}
+
+	private void unwatch(final Subscription subscription) {
+		watches.computeIfPresent(subscription.name, (key, watch) -> {
+			watch.unsubscribe(subscription);
+			if (watch.subscriptions.isEmpty()) {
+				watch.task.cancel(false);
+				return null;
+			}
+
+			return watch;
+		});
+	}
+
+	private final class Watch {
+
+		private final String name;
+		private final List<Subscription> subscriptions =
+				new CopyOnWriteArrayList<>();
+		private final AtomicBoolean polling = new AtomicBoolean();
+		private final ScheduledFuture<?> task;
+		/**
+		 * The current records, <code>null</code> until the first successful poll.
+		 * Guarded by <code>this</code>, as are notifications.
+		 */
+		private Set<SrvDnsRecord> records;
+
+		private Watch(final String name) {
+			this.name = name;
+			this.task = scheduler.scheduleWithFixedDelay(this::poll, 0,
+					pollIntervalNanos, TimeUnit.NANOSECONDS);
+		}
+
+		private void subscribe(final Subscription subscription) {
+			subscriptions.add(subscription);
+		}
+
+		private void unsubscribe(final Subscription subscription) {
+			subscriptions.remove(subscription);
+		}
+
+		/**
+		 * Brings a new subscriber up to date with the records known so far.
+		 */
+		private synchronized void welcome(final Subscription subscription) {
+			if (records != null && !records.isEmpty()) {
+				subscription.notify(name, new ArrayList<>(records),
+						Collections.emptyList());
+			}
+			subscription.welcomed = true;
+		}
+
+		private void poll() {
+			if (!polling.compareAndSet(false, true)) {
+				return;
+			}
+
+			final CompletableFuture<List<SrvDnsRecord>> future;
+			try {
+				future = lookup.apply(name);
+			} catch (final RuntimeException e) {
+				polling.set(false);
+				logger.warn("failed to poll {}", name, e);
+				return;
+			}
+			future.whenComplete((current, t) -> {
+				try {
+					final Throwable cause = t == null ? null : Exceptions.unwrap(t);
+					if (cause == null) {
+						update(current);
+					} else if (isNotFound(cause)) {
+						update(Collections.emptyList());
+					} else {
+						fail(cause);
+					}
+				} finally {
+					polling.set(false);
+				}
+			});
+		}
+
+		private synchronized void update(final List<SrvDnsRecord> current) {
+			final Set<SrvDnsRecord> previous =
+					records == null ? Collections.emptySet() : records;
+			if (records != null && previous.size() == current.size()
+					&& previous.containsAll(current)) {
+				return;
+			}
+
+			final List<SrvDnsRecord> added = new ArrayList<>();
+			for (final SrvDnsRecord record : current) {
+				if (!previous.contains(record)) {
+					added.add(record);
+				}
+			}
+			final Set<SrvDnsRecord> next = new HashSet<>(current);
+			final List<SrvDnsRecord> removed = new ArrayList<>();
+			for (final SrvDnsRecord record : previous) {
+				if (!next.contains(record)) {
+					removed.add(record);
+				}
+			}
+			records = next;
+			if (added.isEmpty() && removed.isEmpty()) {
+				return;
+			}
+
+			final List<SrvDnsRecord> addedView = Collections.unmodifiableList(added);
+			final List<SrvDnsRecord> removedView =
+					Collections.unmodifiableList(removed);
+			for (final Subscription subscription : subscriptions) {
+				if (subscription.welcomed) {
+					subscription.notify(name, addedView, removedView);
+				}
+			}
+		}
+
+		private synchronized void fail(final Throwable t) {
+			final MesosDnsException exception = t instanceof MesosDnsException ?
+					(MesosDnsException) t :
+					new MesosDnsException(t);
+			logger.debug("failed to poll {}", name, exception);
+			for (final Subscription subscription : subscriptions) {
+				if (subscription.welcomed) {
+					subscription.fail(name, exception);
+				}
+			}
+		}
+
+	}
+
+	private static boolean isNotFound(final Throwable t) {
+		return t instanceof NameNotFoundException
+				|| t instanceof MesosDnsException
+				&& t.getCause() instanceof NameNotFoundException;
+	}
+
+	private final class Subscription implements ServiceRecordSubscription {
+
+		private final String name;
+		private final ServiceRecordListener listener;
+		/**
+		 * Whether the subscriber received the records known when it subscribed,
+		 * guarded by the {@link Watch}.
+		 */
+		private boolean welcomed;
+
+		private Subscription(final String name,
+				final ServiceRecordListener listener) {
+			this.name = name;
+			this.listener = listener;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public void close() {
+			unwatch(this);
+		}
+
+		private void notify(final String name, final List<SrvDnsRecord> added,
+				final List<SrvDnsRecord> removed) {
+			try {
+				listener.onChange(name, added, removed);
+			} catch (final RuntimeException e) {
+				logger.error("listener of {} failed", name, e);
+			}
+		}
+
+		private void fail(final String name, final MesosDnsException exception) {
+			try {
+				listener.onFailure(name, exception);
+			} catch (final RuntimeException e) {
+				logger.error("listener of {} failed", name, e);
+			}
+		}
+
+	}
+
+}
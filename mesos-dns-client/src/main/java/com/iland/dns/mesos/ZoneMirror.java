@@ -0,0 +1,379 @@
+package com.iland.dns.mesos;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+
+import com.iland.dns.Deadline;
+import com.iland.dns.DnsClient;
+import com.iland.dns.DnsExecutors;
+import com.iland.dns.DnsRecord;
+import com.iland.dns.RecordType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DnsClient} answering every lookup from an in-memory mirror of the
+ * whole zone, e.g. to back a {@link MesosDnsClient} without any network I/O
+ * per lookup.
+ * <p>
+ * The zone is periodically enumerated from a {@link ZoneSource} into an
+ * immutable index, which then atomically replaces the previous one: lookups
+ * never see a partially enumerated zone, and keep being answered from the
+ * last complete zone while enumerations fail. Names are indexed by hash for
+ * exact lookups and in order for {@link #lookupByPrefix prefix lookups}.
+ * <p>
+ * Names missing from the zone fail with a {@link NameNotFoundException},
+ * unless built {@link Builder#withFallback with a fallback} they are looked
+ * up with.
+ */
+public class ZoneMirror implements DnsClient, Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ZoneMirror.class);
+
+	private final ZoneSource source;
+	private final DnsClient fallback;
+	private final ScheduledFuture<?> refreshTask;
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private final AtomicLong enumerations = new AtomicLong();
+	private long mirroredEnumeration;
+	private volatile Zone zone;
+
+	private ZoneMirror(final Builder builder) {
+		this.source = builder.source;
+		this.fallback = builder.fallback;
+		this.refreshTask = builder.refreshIntervalNanos == 0 ?
+				null :
+				builder.scheduler.scheduleWithFixedDelay(
+						this::scheduleRefresh, 0, builder.refreshIntervalNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param source the {@link ZoneSource} the zone is enumerated from
+	 * @return a {@link Builder}
+	 */
+	public static Builder builder(final ZoneSource source) {
+		return new Builder(source);
+	}
+
+	/**
+	 * Enumerates the zone and replaces the mirrored zone with it, unless an
+	 * enumeration started later already replaced it.
+	 *
+	 * @throws NamingException if the zone can not be enumerated, the mirrored
+	 *                         zone is then left unchanged
+	 */
+	public void refresh() throws NamingException {
+		final long enumeration = enumerations.incrementAndGet();
+		final Map<String, List<DnsRecord>> records = new HashMap<>();
+		source.enumerate(record -> records.computeIfAbsent(
+				normalize(record.getName()), name -> new ArrayList<>(1)).add(record));
+
+		final Zone zone = new Zone(records);
+		synchronized (this) {
+			if (enumeration < mirroredEnumeration) {
+				logger.debug("discarded {} names of an outdated enumeration",
+						records.size());
+				return;
+			}
+			this.mirroredEnumeration = enumeration;
+			this.zone = zone;
+		}
+		logger.debug("mirrored {} names", records.size());
+	}
+
+	/**
+	 * Returns the number of names in the mirrored zone.
+	 *
+	 * @return the number of names, <code>0</code> before the zone was first
+	 * mirrored
+	 */
+	public int size() {
+		final Zone zone = this.zone;
+
+		return zone == null ? 0 : zone.names.size();
+	}
+
+	/**
+	 * Whether the zone was mirrored at least once.
+	 *
+	 * @return whether lookups are answered from the zone
+	 */
+	public boolean isReady() {
+		return zone != null;
+	}
+
+	/**
+	 * Lookup the DNS records of a name from the mirrored zone.
+	 *
+	 * @throws NameNotFoundException       if the name is not in the zone
+	 * @throws ServiceUnavailableException if the zone was never mirrored
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final RecordType... recordTypes) throws NamingException {
+		Objects.requireNonNull(name, "name must not be null");
+
+		final Zone zone = this.zone;
+		if (zone == null) {
+			if (fallback != null) {
+				return fallback.lookup(name, recordTypes);
+			}
+			throw new ServiceUnavailableException(
+					"the zone has not been mirrored yet");
+		}
+		final List<DnsRecord> records = zone.names.get(normalize(name));
+		if (records == null) {
+			if (fallback != null) {
+				return fallback.lookup(name, recordTypes);
+			}
+			throw new NameNotFoundException(
+					String.format("DNS name not found: '%s'", name));
+		}
+
+		return filter(records, recordTypes);
+	}
+
+	/**
+	 * Lookups are answered from memory, the deadline only applies to the
+	 * fallback.
+	 */
+	@Override
+	public List<? extends DnsRecord> lookup(final String name,
+			final Deadline deadline, final RecordType... recordTypes)
+			throws NamingException {
+		Objects.requireNonNull(name, "name must not be null");
+
+		final Zone zone = this.zone;
+		if (fallback != null && (zone == null
+				|| !zone.names.containsKey(normalize(name)))) {
+			return fallback.lookup(name, deadline, recordTypes);
+		}
+
+		return lookup(name, recordTypes);
+	}
+
+	/**
+	 * Completes immediately, unless the name is looked up with the fallback.
+	 */
+	@Override
+	public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+			final String name, final RecordType... recordTypes) {
+		Objects.requireNonNull(name, "name must not be null");
+
+		final Zone zone = this.zone;
+		if (fallback != null && (zone == null
+				|| !zone.names.containsKey(normalize(name)))) {
+			return fallback.lookupAsync(name, recordTypes);
+		}
+
+		final CompletableFuture<List<? extends DnsRecord>> future =
+				new CompletableFuture<>();
+		try {
+			future.complete(lookup(name, recordTypes));
+		} catch (final NamingException | RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+
+		return future;
+	}
+
+	/**
+	 * Lookup the DNS records of every name starting with a prefix, e.g. every
+	 * service of a task with <code>"_http._foo."</code>.
+	 *
+	 * @param prefix      the prefix
+	 * @param recordTypes the record types
+	 * @return the {@link DnsRecord DNS records} of every name starting with the
+	 * prefix, in the order of the names
+	 * @throws ServiceUnavailableException if the zone was never mirrored
+	 */
+	public Map<String, List<DnsRecord>> lookupByPrefix(final String prefix,
+			final RecordType... recordTypes) throws ServiceUnavailableException {
+		Objects.requireNonNull(prefix, "prefix must not be null");
+
+		final Zone zone = this.zone;
+		if (zone == null) {
+			throw new ServiceUnavailableException(
+					"the zone has not been mirrored yet");
+		}
+		final String from = prefix.toLowerCase(Locale.ROOT);
+		final Map<String, List<DnsRecord>> records = new LinkedHashMap<>();
+		zone.sortedNames.subMap(from, true, from + Character.MAX_VALUE, false)
+				.forEach((name, nameRecords) -> {
+					final List<DnsRecord> filtered = filter(nameRecords, recordTypes);
+					if (!filtered.isEmpty()) {
+						records.put(name, filtered);
+					}
+				});
+
+		return records;
+	}
+
+	/**
+	 * Stops refreshing the zone.
+	 */
+	@Override
+	public void close() {
+		if (refreshTask != null) {
+			refreshTask.cancel(false);
+		}
+	}
+
+	private void scheduleRefresh() {
+		if (!refreshing.compareAndSet(false, true)) {
+			logger.debug("skipped a refresh, the last one is still enumerating");
+			return;
+		}
+		try {
+			DnsExecutors.defaultExecutor().execute(this::tryRefresh);
+		} catch (final RejectedExecutionException e) {
+			refreshing.set(false);
+			logger.warn("failed to schedule a refresh of the zone", e);
+		}
+	}
+
+	private void tryRefresh() {
+		try {
+			refresh();
+		} catch (final NamingException | RuntimeException e) {
+			logger.warn("failed to mirror the zone, still serving the last one", e);
+		} finally {
+			refreshing.set(false);
+		}
+	}
+
+	private static List<DnsRecord> filter(final List<DnsRecord> records,
+			final RecordType[] recordTypes) {
+		if (recordTypes.length == 0) {
+			return records;
+		}
+		final List<RecordType> types = Arrays.asList(recordTypes);
+		final List<DnsRecord> filtered = new ArrayList<>(records.size());
+		for (final DnsRecord record : records) {
+			if (types.contains(record.getType())) {
+				filtered.add(record);
+			}
+		}
+
+		return filtered;
+	}
+
+	private static String normalize(final String name) {
+		final String lowerCase = name.toLowerCase(Locale.ROOT);
+
+		return lowerCase.endsWith(".") ?
+				lowerCase.substring(0, lowerCase.length() - 1) :
+				lowerCase;
+	}
+
+	/**
+	 * An immutable index of the records of a zone.
+	 */
+	private static final class Zone {
+
+		private final Map<String, List<DnsRecord>> names;
+		private final NavigableMap<String, List<DnsRecord>> sortedNames;
+
+		private Zone(final Map<String, List<DnsRecord>> records) {
+			final Map<String, List<DnsRecord>> names =
+					new HashMap<>(records.size() * 4 / 3 + 1);
+			records.forEach((name, nameRecords) -> names.put(name,
+					Collections.unmodifiableList(nameRecords)));
+			this.names = names;
+			this.sortedNames = new TreeMap<>(names);
+		}
+
+	}
+
+	public static final class Builder {
+
+		private final ZoneSource source;
+
+		private long refreshIntervalNanos;
+
+		private ScheduledExecutorService scheduler = DnsExecutors.defaultScheduler();
+
+		private DnsClient fallback;
+
+		private Builder(final ZoneSource source) {
+			this.source = Objects.requireNonNull(source, "source must not be null");
+		}
+
+		/**
+		 * Refresh the zone periodically, starting right away. Without a refresh
+		 * interval the zone is only mirrored by {@link ZoneMirror#refresh()}.
+		 *
+		 * @param interval the interval between two enumerations
+		 * @param unit     the {@link TimeUnit unit}
+		 * @return {@link Builder this}
+		 */
+		public Builder withRefreshInterval(final long interval,
+				final TimeUnit unit) {
+			Objects.requireNonNull(unit, "unit must not be null");
+			if (interval <= 0) {
+				throw new IllegalArgumentException("interval must be positive");
+			}
+			this.refreshIntervalNanos = unit.toNanos(interval);
+
+			return this;
+		}
+
+		/**
+		 * Specify the {@link ScheduledExecutorService scheduler} refreshes are
+		 * triggered on (defaults to the
+		 * {@link DnsExecutors#defaultScheduler() shared scheduler}); the
+		 * enumerations themselves run on the
+		 * {@link DnsExecutors#defaultExecutor() shared executor}.
+		 *
+		 * @param scheduler the {@link ScheduledExecutorService scheduler}
+		 * @return {@link Builder this}
+		 */
+		public Builder withScheduler(final ScheduledExecutorService scheduler) {
+			this.scheduler =
+					Objects.requireNonNull(scheduler, "scheduler must not be null");
+
+			return this;
+		}
+
+		/**
+		 * Lookup the names missing from the zone, or every name until the zone
+		 * was first mirrored, with another {@link DnsClient}.
+		 *
+		 * @param fallback the fallback {@link DnsClient}
+		 * @return {@link Builder this}
+		 */
+		public Builder withFallback(final DnsClient fallback) {
+			this.fallback =
+					Objects.requireNonNull(fallback, "fallback must not be null");
+
+			return this;
+		}
+
+		public ZoneMirror build() {
+			return new ZoneMirror(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.iland.dns.mesos;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+
+import com.iland.dns.DnsClient;
+import com.iland.dns.DnsLookupResult;
+import com.iland.dns.DnsRecord;
+
+/**
+ * The source of every record of a zone mirrored by a {@link ZoneMirror}, e.g.
+ * {@link MesosDnsHttpClient#enumerate(Consumer)}.
+ */
+@FunctionalInterface
+public interface ZoneSource {
+
+	/**
+	 * Streams every record of the zone to a consumer.
+	 *
+	 * @param consumer the consumer of the {@link DnsRecord DNS records}
+	 * @throws NamingException if the zone can not be enumerated completely
+	 */
+	void enumerate(Consumer<? super DnsRecord> consumer) throws NamingException;
+
+	/**
+	 * A source looking up every record of a fixed list of names, for servers
+	 * that can not enumerate their zone. Names that do not exist are left out
+	 * of the zone, while any other failure fails the enumeration.
+	 *
+	 * @param dnsClient the {@link DnsClient} the names are looked up with
+	 * @param names     the names
+	 * @return a {@link ZoneSource}
+	 */
+	static ZoneSource of(final DnsClient dnsClient,
+			final Collection<String> names) {
+		Objects.requireNonNull(dnsClient, "dnsClient must not be null");
+		Objects.requireNonNull(names, "names must not be null");
+
+		return consumer -> {
+			final Map<String, DnsLookupResult<NamingException>> results =
+					dnsClient.lookupAll(names);
+			for (final DnsLookupResult<NamingException> result : results.values()) {
+				if (result.isSuccess()) {
+					result.getRecords().forEach(consumer);
+				} else if (!(result.getFailure() instanceof NameNotFoundException)) {
+					throw result.getFailure();
+				}
+			}
+		};
+	}
+
+}
@@ -0,0 +1,619 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.CommunicationException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.TimeLimitExceededException;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+class CachingDnsClientTest {
+
+	private static final String NAME = "foo";
+
+	@Mock
+	private DnsClient dnsClient;
+	private CachingDnsClient client;
+
+	@BeforeEach
+	void beforeEach() {
+		MockitoAnnotations.openMocks(this);
+		this.client = new CachingDnsClient(dnsClient);
+	}
+
+	@Test
+	void lookupIsCached() throws NamingException {
+		when(dnsClient.lookup(NAME, RecordType.A)).thenAnswer(
+						i -> Arrays.asList(new DnsRecord(RecordType.A, "name", "value")))
+				.thenThrow(new RuntimeException());
+
+		assertThat(
+				client.lookup(NAME, RecordType.A).stream().findFirst().isPresent(),
+				is(true));
+
+		assertThat(
+				client.lookup(NAME, RecordType.A).stream().findFirst().isPresent(),
+				is(true));
+	}
+
+	@Test
+	void queriesShareTheEntriesOfTheirName() throws NamingException {
+		final String name = "_foo._tcp.marathon.mesos";
+		when(dnsClient.lookup(name, RecordType.SRV)).thenAnswer(
+				i -> Arrays.asList(
+						SrvDnsRecord.create(name, 0, 1, 31000, "foo-1.marathon.mesos.")));
+		final DnsQuery query = DnsQuery.of(name, RecordType.SRV);
+
+		final List<SrvDnsRecord> records = client.lookupServiceRecords(name);
+		assertThat(client.lookupServiceRecords(query), sameInstance(records));
+		assertThat(client.lookup(query), hasSize(1));
+		verify(dnsClient, times(1)).lookup(name, RecordType.SRV);
+		assertThat(client.stats().hitCount(), is(2L));
+	}
+
+	@Test
+	void statsCountHitsMissesAndLoads() throws NamingException {
+		when(dnsClient.lookup(NAME, RecordType.A)).thenAnswer(
+				i -> Arrays.asList(new DnsRecord(RecordType.A, "name", "value")));
+		when(dnsClient.lookup("unknown", RecordType.A)).thenThrow(
+				new NameNotFoundException("unknown"));
+
+		client.lookup(NAME, RecordType.A);
+		client.lookup(NAME, RecordType.A);
+		client.lookupServiceRecordSelector(NAME);
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup("unknown", RecordType.A));
+
+		final CacheStats stats = client.stats();
+		assertThat(stats.hitCount(), is(1L));
+		assertThat(stats.missCount(), is(3L));
+		// the empty SRV records
+		assertThat(stats.loadSuccessCount(), is(2L));
+		assertThat(stats.loadExceptionCount(), is(1L));
+	}
+
+	@Test
+	void serviceRecordsAreSortedOncePerRecordSet() throws NamingException {
+		final String name = "_foo._tcp.marathon.mesos";
+		when(dnsClient.lookup(name, RecordType.SRV)).thenAnswer(
+				i -> Arrays.asList(
+						SrvDnsRecord.create(name, 1, 1, 31001, "foo-2.marathon.mesos."),
+						SrvDnsRecord.create(name, 0, 1, 31000, "foo-1.marathon.mesos.")));
+
+		final List<SrvDnsRecord> records = client.lookupServiceRecords(name);
+		assertThat(records.get(0).getPort(), is(31000));
+		assertThat(client.lookupServiceRecords(name), sameInstance(records));
+		assertThrows(UnsupportedOperationException.class, records::clear);
+		verify(dnsClient, times(1)).lookup(name, RecordType.SRV);
+		assertThat(client.stats().hitCount(), is(1L));
+	}
+
+	@Test
+	void lookupEmptyListIsNotCached() throws NamingException {
+		when(dnsClient.lookup(NAME, RecordType.A)).thenAnswer(i -> Arrays.asList())
+				.thenAnswer(
+						i -> Arrays.asList(new DnsRecord(RecordType.A, "name", "value")));
+
+		assertThat(
+				client.lookup(NAME, RecordType.A).stream().findFirst().isPresent(),
+				is(false));
+
+		assertThat(
+				client.lookup(NAME, RecordType.A).stream().findFirst().isPresent(),
+				is(true));
+	}
+
+	@Test
+	void lookupForwardsNamingException() throws NamingException {
+		when(dnsClient.lookup(NAME, RecordType.A)).thenThrow(
+				new NamingException(NAME));
+
+		assertThrows(NamingException.class,
+				() -> client.lookup(NAME, RecordType.A));
+	}
+
+	@Test
+	void lookupAsyncIsCached() {
+		when(dnsClient.lookupAsync(NAME, RecordType.A)).thenAnswer(
+				i -> CompletableFuture.completedFuture(
+						Arrays.asList(new DnsRecord(RecordType.A, "name", "value"))));
+
+		assertThat(client.lookupAsync(NAME, RecordType.A).join().isEmpty(),
+				is(false));
+
+		assertThat(client.lookupAsync(NAME, RecordType.A).isDone(), is(true));
+		verify(dnsClient, times(1)).lookupAsync(NAME, RecordType.A);
+	}
+
+	@Test
+	void concurrentMissesShareOneLookup() throws Exception {
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger lookups = new AtomicInteger();
+		final CachingDnsClient client = new CachingDnsClient((name, types) -> {
+			lookups.incrementAndGet();
+			loading.countDown();
+			Uninterruptibles.awaitUninterruptibly(release);
+			return Arrays.asList(new DnsRecord(RecordType.A, name, "value"));
+		});
+
+		final List<Thread> callers = new ArrayList<>();
+		final List<CompletableFuture<List<? extends DnsRecord>>> results =
+				new ArrayList<>();
+		try {
+			for (int i = 0; i < 8; i++) {
+				final CompletableFuture<List<? extends DnsRecord>> result =
+						new CompletableFuture<>();
+				final Thread caller =
+						new Thread(() -> result.complete(lookup(client, NAME)));
+				caller.setDaemon(true);
+				caller.start();
+				callers.add(caller);
+				results.add(result);
+			}
+			loading.await();
+			// returns once it joined the in-flight lookup
+			results.add(client.lookupAsync(NAME, RecordType.A));
+			// every caller parks, either loading or waiting for the shared load,
+			// rather than blocking on a lock
+			assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+				while (callers.stream()
+						.anyMatch(caller -> caller.getState() != Thread.State.WAITING)) {
+					Thread.yield();
+				}
+			});
+			release.countDown();
+
+			for (final CompletableFuture<List<? extends DnsRecord>> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS).isEmpty(), is(false));
+			}
+			assertThat(lookups.get(), is(1));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void missesForDifferentNamesLoadInParallel() {
+		final CountDownLatch bothLoading = new CountDownLatch(2);
+		final CachingDnsClient client = new CachingDnsClient((name, types) -> {
+			bothLoading.countDown();
+			// only returns once the other name is being loaded as well
+			Uninterruptibles.awaitUninterruptibly(bothLoading);
+			return Arrays.asList(new DnsRecord(RecordType.A, name, "value"));
+		});
+
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			final CompletableFuture<List<? extends DnsRecord>> foo =
+					CompletableFuture.supplyAsync(() -> lookup(client, "foo"));
+			final CompletableFuture<List<? extends DnsRecord>> bar =
+					CompletableFuture.supplyAsync(() -> lookup(client, "bar"));
+			assertThat(foo.join().isEmpty(), is(false));
+			assertThat(bar.join().isEmpty(), is(false));
+		});
+	}
+
+	/**
+	 * Cache hits used to be serialized behind a global lock held while loading,
+	 * so a single slow miss stalled every reader. A hit must now be answered
+	 * while a miss is blocked upstream.
+	 */
+	@Test
+	void hitsAreNotBlockedBySlowMisses() throws Exception {
+		final CountDownLatch missing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CachingDnsClient client = new CachingDnsClient((name, types) -> {
+			if (name.startsWith("slow")) {
+				missing.countDown();
+				Uninterruptibles.awaitUninterruptibly(release);
+			}
+			return Arrays.asList(new DnsRecord(RecordType.A, name, "value"));
+		});
+		client.lookup(NAME, RecordType.A);
+
+		final Thread miss = new Thread(() -> lookup(client, "slow"));
+		miss.setDaemon(true);
+		miss.start();
+		try {
+			missing.await();
+
+			assertTimeoutPreemptively(Duration.ofSeconds(5),
+					() -> client.lookup(NAME, RecordType.A));
+			assertThat(release.getCount(), is(1L));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void lookupExpiresByRecordTtl() throws NamingException {
+		final AtomicLong nanos = new AtomicLong();
+		final DnsClient client = CachingDnsClient.builder(dnsClient)
+				.withRecordTtl(5, 60, TimeUnit.SECONDS).withTicker(ticker(nanos))
+				.build();
+		when(dnsClient.lookup("short", RecordType.A)).thenAnswer(
+				i -> Arrays.asList(new DnsRecord(RecordType.A, "short", "1", 30),
+						new DnsRecord(RecordType.A, "short", "2", 10)));
+		when(dnsClient.lookup("tiny", RecordType.A)).thenAnswer(
+				i -> Arrays.asList(new DnsRecord(RecordType.A, "tiny", "1", 1)));
+		when(dnsClient.lookup("long", RecordType.A)).thenAnswer(
+				i -> Arrays.asList(new DnsRecord(RecordType.A, "long", "1", 3600)));
+
+		client.lookup("short", RecordType.A);
+		client.lookup("tiny", RecordType.A);
+		client.lookup("long", RecordType.A);
+
+		// the floor applies to "tiny"
+		nanos.set(TimeUnit.SECONDS.toNanos(4));
+		client.lookup("tiny", RecordType.A);
+		verify(dnsClient, times(1)).lookup("tiny", RecordType.A);
+
+		// the smallest TTL applies to "short"
+		nanos.set(TimeUnit.SECONDS.toNanos(9));
+		client.lookup("short", RecordType.A);
+		verify(dnsClient, times(1)).lookup("short", RecordType.A);
+		nanos.set(TimeUnit.SECONDS.toNanos(10));
+		client.lookup("short", RecordType.A);
+		verify(dnsClient, times(2)).lookup("short", RecordType.A);
+
+		// the ceiling applies to "long"
+		nanos.set(TimeUnit.SECONDS.toNanos(59));
+		client.lookup("long", RecordType.A);
+		verify(dnsClient, times(1)).lookup("long", RecordType.A);
+		nanos.set(TimeUnit.SECONDS.toNanos(60));
+		client.lookup("long", RecordType.A);
+		verify(dnsClient, times(2)).lookup("long", RecordType.A);
+	}
+
+	@Test
+	void lookupServesStaleRecordsWhileRefreshing() throws NamingException {
+		final AtomicLong nanos = new AtomicLong();
+		final List<Runnable> refreshes = new ArrayList<>();
+		final DnsClient client = CachingDnsClient.builder(dnsClient)
+				.withExpireAfterWrite(10, TimeUnit.SECONDS)
+				.withRefreshAhead(0.5, 5, TimeUnit.SECONDS, refreshes::add)
+				.withTicker(ticker(nanos)).build();
+		when(dnsClient.lookup(NAME, RecordType.A)).thenAnswer(
+						i -> Arrays.asList(new DnsRecord(RecordType.A, NAME, "old")))
+				.thenAnswer(
+						i -> Arrays.asList(new DnsRecord(RecordType.A, NAME, "new")));
+
+		assertThat(value(client.lookup(NAME, RecordType.A)), is("old"));
+
+		// not due for a refresh yet
+		nanos.set(TimeUnit.SECONDS.toNanos(4));
+		assertThat(value(client.lookup(NAME, RecordType.A)), is("old"));
+		assertThat(refreshes.size(), is(0));
+
+		// expired, yet served while a single refresh is pending
+		nanos.set(TimeUnit.SECONDS.toNanos(12));
+		assertThat(value(client.lookup(NAME, RecordType.A)), is("old"));
+		assertThat(value(client.lookupAsync(NAME, RecordType.A).join()),
+				is("old"));
+		assertThat(refreshes.size(), is(1));
+
+		refreshes.get(0).run();
+		assertThat(value(client.lookup(NAME, RecordType.A)), is("new"));
+		verify(dnsClient, times(2)).lookup(NAME, RecordType.A);
+	}
+
+	@Test
+	void lookupDoesNotServeRecordsBeyondMaxStaleness() throws NamingException {
+		final AtomicLong nanos = new AtomicLong();
+		final List<Runnable> refreshes = new ArrayList<>();
+		final DnsClient client = CachingDnsClient.builder(dnsClient)
+				.withExpireAfterWrite(10, TimeUnit.SECONDS)
+				.withRefreshAhead(0.5, 5, TimeUnit.SECONDS, refreshes::add)
+				.withTicker(ticker(nanos)).build();
+		when(dnsClient.lookup(NAME, RecordType.A)).thenAnswer(
+						i -> Arrays.asList(new DnsRecord(RecordType.A, NAME, "old")))
+				.thenAnswer(
+						i -> Arrays.asList(new DnsRecord(RecordType.A, NAME, "new")));
+
+		client.lookup(NAME, RecordType.A);
+
+		nanos.set(TimeUnit.SECONDS.toNanos(15));
+		assertThat(value(client.lookup(NAME, RecordType.A)), is("new"));
+		assertThat(refreshes.size(), is(0));
+	}
+
+	@Test
+	void lookupEmptyListIsCachedForNegativeTtl() throws NamingException {
+		final AtomicLong nanos = new AtomicLong();
+		final CachingDnsClient client = CachingDnsClient.builder(dnsClient)
+				.withNegativeTtl(5, TimeUnit.SECONDS).withTicker(ticker(nanos))
+				.build();
+		when(dnsClient.lookup(NAME, RecordType.A)).thenAnswer(i -> Arrays.asList())
+				.thenAnswer(
+						i -> Arrays.asList(new DnsRecord(RecordType.A, NAME, "value")));
+
+		assertThat(client.lookup(NAME, RecordType.A).isEmpty(), is(true));
+		assertThat(client.lookup(NAME, RecordType.A).isEmpty(), is(true));
+		assertThat(client.lookupAsync(NAME, RecordType.A).join().isEmpty(),
+				is(true));
+
+		nanos.set(TimeUnit.SECONDS.toNanos(5));
+		assertThat(value(client.lookup(NAME, RecordType.A)), is("value"));
+		verify(dnsClient, times(2)).lookup(NAME, RecordType.A);
+		assertThat(client.getNegativeHitCount(), is(2L));
+		assertThat(client.getNegativeLoadCount(), is(1L));
+	}
+
+	@Test
+	void lookupNameNotFoundIsCachedForNegativeTtl() throws NamingException {
+		final AtomicLong nanos = new AtomicLong();
+		final CachingDnsClient client = CachingDnsClient.builder(dnsClient)
+				.withNegativeTtl(5, TimeUnit.SECONDS).withTicker(ticker(nanos))
+				.build();
+		when(dnsClient.lookup(NAME, RecordType.A)).thenThrow(
+				new NameNotFoundException(NAME));
+
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup(NAME, RecordType.A));
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup(NAME, RecordType.A));
+		final CompletionException exception = assertThrows(
+				CompletionException.class,
+				() -> client.lookupAsync(NAME, RecordType.A).join());
+		assertThat(exception.getCause(), instanceOf(NameNotFoundException.class));
+		verify(dnsClient, times(1)).lookup(NAME, RecordType.A);
+
+		nanos.set(TimeUnit.SECONDS.toNanos(5));
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup(NAME, RecordType.A));
+		verify(dnsClient, times(2)).lookup(NAME, RecordType.A);
+		assertThat(client.getNegativeHitCount(), is(2L));
+		assertThat(client.getNegativeLoadCount(), is(2L));
+	}
+
+	@Test
+	void lookupNameNotFoundIsNotCachedByDefault() throws NamingException {
+		when(dnsClient.lookup(NAME, RecordType.A)).thenThrow(
+				new NameNotFoundException(NAME));
+
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup(NAME, RecordType.A));
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup(NAME, RecordType.A));
+		verify(dnsClient, times(2)).lookup(NAME, RecordType.A);
+	}
+
+	@Test
+	void lookupPassesTheDeadlineToTheChild() throws NamingException {
+		final Deadline deadline = Deadline.after(1, TimeUnit.SECONDS);
+		when(dnsClient.lookup(NAME, deadline, RecordType.A)).thenAnswer(
+				i -> Arrays.asList(new DnsRecord(RecordType.A, "name", "value")));
+
+		assertThat(client.lookup(NAME, deadline, RecordType.A), hasSize(1));
+		verify(dnsClient).lookup(NAME, deadline, RecordType.A);
+	}
+
+	@Test
+	void lookupHitIgnoresAnExpiredDeadline() throws NamingException {
+		when(dnsClient.lookup(NAME, RecordType.A)).thenAnswer(
+				i -> Arrays.asList(new DnsRecord(RecordType.A, "name", "value")));
+		client.lookup(NAME, RecordType.A);
+
+		final Deadline expired = Deadline.after(0, TimeUnit.MILLISECONDS);
+		assertThat(client.lookup(NAME, expired, RecordType.A), hasSize(1));
+		assertThat(client.lookupAsync(NAME, expired, RecordType.A).join(),
+				hasSize(1));
+	}
+
+	@Test
+	void lookupMissFailsFastOnceTheDeadlineExpired() {
+		final Deadline expired = Deadline.after(0, TimeUnit.MILLISECONDS);
+
+		assertThrows(TimeLimitExceededException.class,
+				() -> client.lookup(NAME, expired, RecordType.A));
+		final CompletionException exception = assertThrows(
+				CompletionException.class,
+				() -> client.lookupAsync(NAME, expired, RecordType.A).join());
+		assertThat(exception.getCause(),
+				instanceOf(TimeLimitExceededException.class));
+		verifyNoInteractions(dnsClient);
+	}
+
+	@Test
+	void sharedLoadIsBoundedByTheDeadlineOfEveryCaller() {
+		final CompletableFuture<List<? extends DnsRecord>> load =
+				new CompletableFuture<>();
+		when(dnsClient.lookupAsync(NAME, RecordType.A)).thenReturn(load);
+		final CompletableFuture<List<? extends DnsRecord>> first =
+				client.lookupAsync(NAME, RecordType.A);
+
+		assertThrows(TimeLimitExceededException.class, () -> client.lookup(NAME,
+				Deadline.after(20, TimeUnit.MILLISECONDS), RecordType.A));
+
+		load.complete(Arrays.asList(new DnsRecord(RecordType.A, "name", "value")));
+		assertThat(first.join(), hasSize(1));
+	}
+
+	@Test
+	void snapshotServesStaleRecordsWhileTheChildFails(@TempDir final Path dir)
+			throws NamingException, IOException {
+		final Path file = dir.resolve("dns.snapshot");
+		final List<DnsRecord> records = Arrays.asList(
+				SrvDnsRecord.create("_foo._tcp.marathon.mesos", 0, 1, 31000,
+						"foo-1.marathon.mesos.", 60),
+				new DnsRecord(RecordType.SRV, "_foo._tcp.marathon.mesos",
+						"1 2 31001 foo-2.marathon.mesos."));
+		when(dnsClient.lookup("_foo._tcp.marathon.mesos", RecordType.SRV))
+				.thenAnswer(i -> records);
+		client.lookup("_foo._tcp.marathon.mesos", RecordType.SRV);
+		assertThat(client.saveSnapshot(file), is(1));
+
+		final DnsClient failing = (name, types) -> {
+			throw new CommunicationException("Mesos-DNS is unreachable");
+		};
+		final CachingDnsClient restarted = CachingDnsClient.builder(failing)
+				.withRefreshAhead(0.5, 0, TimeUnit.SECONDS, Runnable::run).build();
+		assertThat(restarted.loadSnapshot(file), is(1));
+
+		for (int i = 0; i < 2; i++) {
+			final List<SrvDnsRecord> cached =
+					restarted.lookupServiceRecords("_foo._tcp.marathon.mesos");
+			assertThat(cached, hasSize(2));
+			assertThat(cached.get(0).getTarget(), is("foo-1.marathon.mesos."));
+			assertThat(cached.get(0).getTtl(), is(60L));
+			assertThat(cached.get(1).getPort(), is(31001));
+		}
+	}
+
+	@Test
+	void snapshotEntriesAreRevalidatedOnTheirFirstHit(@TempDir final Path dir)
+			throws NamingException, IOException {
+		final Path file = dir.resolve("dns.snapshot");
+		when(dnsClient.lookup(NAME, RecordType.A)).thenAnswer(
+				i -> Arrays.asList(new DnsRecord(RecordType.A, NAME, "10.0.0.1")));
+		client.lookup(NAME, RecordType.A);
+		client.saveSnapshot(file);
+
+		final AtomicInteger lookups = new AtomicInteger();
+		final CachingDnsClient restarted = CachingDnsClient.builder(
+						(name, types) -> {
+							lookups.incrementAndGet();
+							return Arrays.asList(new DnsRecord(RecordType.A, name, "10.0.0.2"));
+						}).withRefreshAhead(0.5, 0, TimeUnit.SECONDS, Runnable::run)
+				.withSnapshot(file, 1, TimeUnit.HOURS).build();
+
+		assertThat(value(lookup(restarted, NAME)), is("10.0.0.1"));
+		assertThat(value(lookup(restarted, NAME)), is("10.0.0.2"));
+		assertThat(lookups.get(), is(1));
+
+		restarted.close();
+		final CachingDnsClient reloaded = new CachingDnsClient(dnsClient);
+		reloaded.loadSnapshot(file);
+		assertThat(value(lookup(reloaded, NAME)), is("10.0.0.2"));
+	}
+
+	@Test
+	void loadSnapshotRejectsOtherFiles(@TempDir final Path dir)
+			throws IOException {
+		final Path file = dir.resolve("dns.snapshot");
+		Files.write(file, "not a snapshot".getBytes(StandardCharsets.UTF_8));
+
+		assertThrows(IOException.class, () -> client.loadSnapshot(file));
+		assertThat(client.loadSnapshot(dir.resolve("missing")), is(0));
+	}
+
+	@Test
+	void snapshotRecordsAreCreatedWithTheRecordFactory(@TempDir final Path dir)
+			throws NamingException, IOException {
+		final Path file = dir.resolve("dns.snapshot");
+		when(dnsClient.lookup(NAME, RecordType.A)).thenAnswer(
+				i -> Arrays.asList(new DnsRecord(RecordType.A, NAME, "10.0.0.1")));
+		client.lookup(NAME, RecordType.A);
+		client.saveSnapshot(file);
+
+		final AtomicInteger created = new AtomicInteger();
+		final CachingDnsClient restarted = CachingDnsClient.builder(dnsClient)
+				.withRecordFactory((type, name, value) -> {
+					created.incrementAndGet();
+					return new DnsRecord(type, name, value);
+				}).build();
+		assertThat(restarted.loadSnapshot(file), is(1));
+
+		assertThat(created.get(), is(1));
+		assertThat(value(lookup(restarted, NAME)), is("10.0.0.1"));
+	}
+
+	@Test
+	void snapshotKeepsEntriesOfMoreThan65535Records(@TempDir final Path dir)
+			throws NamingException, IOException {
+		final Path file = dir.resolve("dns.snapshot");
+		final List<DnsRecord> records = new ArrayList<>();
+		for (int i = 0; i < 70000; i++) {
+			records.add(new DnsRecord(RecordType.A, NAME,
+					"10." + (i >> 16) + "." + (i >> 8 & 0xff) + "." + (i & 0xff)));
+		}
+		when(dnsClient.lookup(NAME, RecordType.A)).thenAnswer(i -> records);
+		client.lookup(NAME, RecordType.A);
+		client.saveSnapshot(file);
+
+		final CachingDnsClient restarted = new CachingDnsClient(dnsClient);
+		assertThat(restarted.loadSnapshot(file), is(1));
+		assertThat(restarted.lookup(NAME, RecordType.A), hasSize(70000));
+	}
+
+	@Test
+	void loadSnapshotReadsVersion1Snapshots(@TempDir final Path dir)
+			throws NamingException, IOException {
+		final Path file = dir.resolve("dns.snapshot");
+		try (DataOutputStream out =
+				new DataOutputStream(Files.newOutputStream(file))) {
+			out.writeInt(0x4d444e53);
+			out.writeByte(1);
+			out.writeInt(1);
+			out.writeUTF(NAME);
+			out.writeByte(1);
+			out.writeByte(1);
+			out.writeShort(1);
+			out.writeByte(1);
+			out.writeInt(60);
+			out.writeUTF("");
+			out.writeUTF("10.0.0.1");
+		}
+
+		assertThat(client.loadSnapshot(file), is(1));
+		assertThat(value(lookup(client, NAME)), is("10.0.0.1"));
+	}
+
+	private static Ticker ticker(final AtomicLong nanos) {
+		return new Ticker() {
+			@Override
+			public long read() {
+				return nanos.get();
+			}
+		};
+	}
+
+	private static String value(final List<? extends DnsRecord> records) {
+		return records.get(0).getValue();
+	}
+
+	private static List<? extends DnsRecord> lookup(final DnsClient client,
+			final String name) {
+		try {
+			return client.lookup(name, RecordType.A);
+		} catch (final NamingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
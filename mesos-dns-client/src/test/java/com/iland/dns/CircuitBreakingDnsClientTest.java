@@ -0,0 +1,229 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.CommunicationException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.TimeLimitExceededException;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakingDnsClientTest {
+
+	private static final String NAME = "foo.marathon.mesos";
+
+	private final AtomicBoolean healthy = new AtomicBoolean();
+	private final AtomicInteger lookups = new AtomicInteger();
+	private final DnsClient server = (name, recordTypes) -> {
+		lookups.incrementAndGet();
+		if (!healthy.get()) {
+			throw new CommunicationException("timeout");
+		}
+		if (name.startsWith("unknown")) {
+			throw new NameNotFoundException(name);
+		}
+		return Arrays.asList(new DnsRecord(RecordType.A, name, "10.0.0.1"));
+	};
+
+	@Test
+	void circuitOpensAfterConsecutiveFailures() {
+		final CircuitBreakingDnsClient client = client(server, 1000);
+
+		assertThrows(CommunicationException.class,
+				() -> client.lookup(NAME, RecordType.A));
+		assertThrows(CommunicationException.class,
+				() -> client.lookup(NAME, RecordType.A));
+		assertThat(client.getHealth().getState(), is(ServerHealth.State.OPEN));
+
+		assertThrows(ServiceUnavailableException.class,
+				() -> client.lookup(NAME, RecordType.A));
+		final Throwable cause = assertThrows(Exception.class,
+				() -> client.lookupAsync(NAME, RecordType.A).join()).getCause();
+		assertThat(cause, instanceOf(ServiceUnavailableException.class));
+		assertThat(lookups.get(), is(2));
+		assertThat(client.getHealth().getFailureCount(), is(2L));
+		assertThat(client.getHealth().getRejectionCount(), is(2L));
+	}
+
+	@Test
+	void nameNotFoundIsNotAFailure() throws NamingException {
+		healthy.set(true);
+		final CircuitBreakingDnsClient client = client(server, 1000);
+
+		for (int i = 0; i < 3; i++) {
+			assertThrows(NameNotFoundException.class,
+					() -> client.lookup("unknown.marathon.mesos", RecordType.A));
+		}
+		assertThat(client.getHealth().getState(), is(ServerHealth.State.CLOSED));
+		assertThat(client.lookup(NAME, RecordType.A), hasSize(1));
+		assertThat(client.getHealth().getSuccessCount(), is(4L));
+	}
+
+	@Test
+	void probeClosesCircuit() {
+		final CircuitBreakingDnsClient client = client(server, 10);
+		for (int i = 0; i < 2; i++) {
+			assertThrows(CommunicationException.class,
+					() -> client.lookup(NAME, RecordType.A));
+		}
+		healthy.set(true);
+
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			while (client.getHealth().getState() != ServerHealth.State.CLOSED) {
+				Thread.sleep(5);
+			}
+		});
+		assertThat(client.getHealth().getConsecutiveFailures(), is(0));
+	}
+
+	@Test
+	void failoverSkipsOpenCircuits() throws NamingException {
+		final AtomicInteger backupLookups = new AtomicInteger();
+		final CircuitBreakingDnsClient dead = client(server, 1000);
+		final CircuitBreakingDnsClient backup =
+				client((name, recordTypes) -> {
+					backupLookups.incrementAndGet();
+					return Arrays.asList(new DnsRecord(RecordType.A, name, "10.0.0.2"));
+				}, 1000);
+		final FailoverDnsClient client =
+				new FailoverDnsClient(Arrays.asList(dead, backup));
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(client.lookup(NAME, RecordType.A), hasSize(1));
+			assertThat(client.lookupAsync(NAME, RecordType.A).join(), hasSize(1));
+		}
+		assertThat(lookups.get(), is(2));
+		assertThat(backupLookups.get(), is(10));
+		assertThat(client.getServerHealth().get(0).getState(),
+				is(ServerHealth.State.OPEN));
+	}
+
+	@Test
+	void expiredDeadlineIsNotAFailure() {
+		final CircuitBreakingDnsClient client = client(server, 1000);
+		final Deadline expired = Deadline.after(0, TimeUnit.MILLISECONDS);
+
+		for (int i = 0; i < 3; i++) {
+			assertThrows(TimeLimitExceededException.class,
+					() -> client.lookup(NAME, expired, RecordType.A));
+			final Throwable cause = assertThrows(Exception.class,
+					() -> client.lookupAsync(NAME, expired, RecordType.A).join())
+					.getCause();
+			assertThat(cause, instanceOf(TimeLimitExceededException.class));
+		}
+		assertThat(lookups.get(), is(0));
+		assertThat(client.getHealth().getState(), is(ServerHealth.State.CLOSED));
+	}
+
+	@Test
+	void serverAnsweringAfterTheDeadlineIsNotAFailure() {
+		final CircuitBreakingDnsClient client = client((name, recordTypes) -> {
+			lookups.incrementAndGet();
+			Uninterruptibles.sleepUninterruptibly(50, TimeUnit.MILLISECONDS);
+			return Arrays.asList(new DnsRecord(RecordType.A, name, "10.0.0.1"));
+		}, 1000);
+
+		for (int i = 0; i < 3; i++) {
+			assertThrows(TimeLimitExceededException.class, () -> client.lookup(NAME,
+					Deadline.after(10, TimeUnit.MILLISECONDS), RecordType.A));
+			final Throwable cause = assertThrows(Exception.class,
+					() -> client.lookupAsync(NAME,
+							Deadline.after(10, TimeUnit.MILLISECONDS), RecordType.A)
+							.join()).getCause();
+			assertThat(cause, instanceOf(TimeLimitExceededException.class));
+		}
+		assertThat(lookups.get(), is(6));
+		assertThat(client.getHealth().getState(), is(ServerHealth.State.CLOSED));
+		assertThat(client.getHealth().getFailureCount(), is(0L));
+	}
+
+	@Test
+	void failoverGivesTheDeadlineToEveryServer() throws NamingException {
+		final List<Deadline> deadlines = new CopyOnWriteArrayList<>();
+		final DnsClient dead = new DnsClient() {
+
+			@Override
+			public List<? extends DnsRecord> lookup(final String name,
+					final RecordType... recordTypes) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public List<? extends DnsRecord> lookup(final String name,
+					final Deadline deadline, final RecordType... recordTypes)
+					throws NamingException {
+				deadlines.add(deadline);
+				throw new CommunicationException("timeout");
+			}
+
+		};
+		final DnsClient backup = new DnsClient() {
+
+			@Override
+			public List<? extends DnsRecord> lookup(final String name,
+					final RecordType... recordTypes) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public List<? extends DnsRecord> lookup(final String name,
+					final Deadline deadline, final RecordType... recordTypes) {
+				deadlines.add(deadline);
+				return Arrays.asList(new DnsRecord(RecordType.A, name, "10.0.0.2"));
+			}
+
+		};
+		final FailoverDnsClient client =
+				new FailoverDnsClient(Arrays.asList(client(dead, 1000), backup));
+		final Deadline deadline = Deadline.after(1, TimeUnit.SECONDS);
+
+		assertThat(client.lookup(NAME, deadline, RecordType.A), hasSize(1));
+		assertThat(deadlines, contains(deadline, deadline));
+		assertThrows(TimeLimitExceededException.class,
+				() -> client.lookup(NAME, Deadline.after(0, TimeUnit.MILLISECONDS),
+						RecordType.A));
+		assertThat(deadlines, hasSize(2));
+	}
+
+	@Test
+	void builderCreatesFailoverClient() {
+		final DnsClient client =
+				DefaultDnsClient.builder().withDefaultDomain("10.0.0.1", "10.0.0.2")
+						.withNioTransport().withCircuitBreaker().build();
+		assertThat(client, instanceOf(FailoverDnsClient.class));
+		assertThat(((FailoverDnsClient) client).getServerHealth(), hasSize(2));
+	}
+
+	@Test
+	void builderRequiresTheNioTransport() {
+		assertThrows(IllegalStateException.class,
+				() -> DefaultDnsClient.builder().withDefaultDomain("10.0.0.1")
+						.withCircuitBreaker().build());
+	}
+
+	private static CircuitBreakingDnsClient client(final DnsClient delegatee,
+			final long probeIntervalMillis) {
+		return new CircuitBreakingDnsClient(delegatee,
+				new ServerHealth("10.0.0.1:53", 2), "leader.mesos",
+				probeIntervalMillis, TimeUnit.MILLISECONDS,
+				DnsExecutors.defaultScheduler());
+	}
+
+}
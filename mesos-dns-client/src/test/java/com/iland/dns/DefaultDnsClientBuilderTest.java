@@ -28,6 +28,13 @@ class DefaultDnsClientBuilderTest {
 				"recordFactory must not be null");
 	}
 
+	@Test
+	void testNioTransportRequiresHost() {
+		assertThrows(IllegalStateException.class,
+				() -> DefaultDnsClient.builder().withNioTransport().build(),
+				"the NIO transport requires at least one host");
+	}
+
 	@Test
 	void testBuild() {
 		DefaultDnsClient.builder().authoritative().withDefaultDomain("")
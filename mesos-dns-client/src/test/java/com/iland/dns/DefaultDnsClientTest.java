@@ -0,0 +1,197 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.CommunicationException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.TimeLimitExceededException;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+
+import org.junit.jupiter.api.Test;
+
+class DefaultDnsClientTest {
+
+	@Test
+	void lookupReusesContext() throws NamingException {
+		final PooledDnsClient client = new PooledDnsClient(4);
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(client.lookup("leader.mesos", RecordType.A).size(), is(1));
+		}
+		assertThat(client.created.size(), is(1));
+	}
+
+	@Test
+	void lookupRecyclesBrokenContext() throws NamingException {
+		final PooledDnsClient client = new PooledDnsClient(4);
+		client.lookup("leader.mesos", RecordType.A);
+		final DirContext broken = client.created.get(0);
+		when(broken.getAttributes(anyString(), any(String[].class))).thenThrow(
+				new CommunicationException("connection refused"));
+
+		assertThrows(CommunicationException.class,
+				() -> client.lookup("leader.mesos", RecordType.A));
+		verify(broken, times(1)).close();
+
+		assertThat(client.lookup("leader.mesos", RecordType.A).size(), is(1));
+		assertThat(client.created.size(), is(2));
+	}
+
+	@Test
+	void lookupKeepsContextAfterNameNotFound() throws NamingException {
+		final PooledDnsClient client = new PooledDnsClient(4);
+		client.lookup("leader.mesos", RecordType.A);
+		final DirContext context = client.created.get(0);
+		when(context.getAttributes(anyString(), any(String[].class))).thenThrow(
+				new NameNotFoundException("unknown.mesos"));
+
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup("unknown.mesos", RecordType.A));
+		verify(context, times(0)).close();
+		assertThat(client.created.size(), is(1));
+	}
+
+	@Test
+	void lookupConcurrencyIsBounded() throws Exception {
+		final PooledDnsClient client = new PooledDnsClient(2);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 32; i++) {
+				futures.add(executor.submit(
+						() -> client.lookup("leader.mesos", RecordType.A)));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(client.maxActive.get(), lessThanOrEqualTo(2));
+		assertThat(client.created.size(), lessThanOrEqualTo(2));
+	}
+
+	@Test
+	void closeClosesPooledContexts() throws NamingException {
+		final PooledDnsClient client = new PooledDnsClient(4);
+		client.lookup("leader.mesos", RecordType.A);
+
+		client.close();
+		verify(client.created.get(0), times(1)).close();
+		assertThrows(NamingException.class,
+				() -> client.lookup("leader.mesos", RecordType.A));
+	}
+
+	@Test
+	void lookupSizesTimeoutsFromTheDeadline() throws NamingException {
+		final PooledDnsClient client = new PooledDnsClient(4);
+
+		assertThat(client.lookup("leader.mesos",
+				Deadline.after(10, TimeUnit.SECONDS), RecordType.A).size(), is(1));
+		final DirContext context = client.created.get(0);
+		verify(context).addToEnvironment(eq(NioDnsClient.INITIAL_TIMEOUT),
+				argThat(timeout -> {
+					final long millis = Long.parseLong(timeout.toString());
+					return millis > 5000 && millis <= 10000;
+				}));
+		verify(context).addToEnvironment(NioDnsClient.RETRIES, "1");
+		// the defaults are restored before the context is returned to the pool
+		verify(context).addToEnvironment(NioDnsClient.INITIAL_TIMEOUT, "1000");
+		verify(context).addToEnvironment(NioDnsClient.RETRIES, "4");
+	}
+
+	@Test
+	void lookupFailsFastOnceTheDeadlineExpired() {
+		final PooledDnsClient client = new PooledDnsClient(4);
+
+		assertThrows(TimeLimitExceededException.class,
+				() -> client.lookup("leader.mesos",
+						Deadline.after(0, TimeUnit.MILLISECONDS), RecordType.A));
+		assertThat(client.created.size(), is(0));
+	}
+
+	@Test
+	void lookupWaitsAtMostUntilTheDeadline() throws NamingException {
+		final PooledDnsClient client = new PooledDnsClient(4);
+		client.lookup("leader.mesos", RecordType.A);
+		// as JNDI trying several system nameservers in turn
+		when(client.created.get(0).getAttributes(anyString(), any(String[].class)))
+				.thenAnswer(i -> {
+					Thread.sleep(2000);
+					return new BasicAttributes("A", "10.0.0.1");
+				});
+
+		assertTimeoutPreemptively(Duration.ofMillis(1000),
+				() -> assertThrows(TimeLimitExceededException.class,
+						() -> client.lookup("leader.mesos",
+								Deadline.after(100, TimeUnit.MILLISECONDS), RecordType.A)));
+	}
+
+	@Test
+	void maxConcurrencyMustBePositive() {
+		assertThrows(IllegalArgumentException.class,
+				() -> DefaultDnsClient.builder().withMaxConcurrency(0));
+	}
+
+	/**
+	 * Lends mocked contexts that answer with a single A record and track how
+	 * many of them are in use at once.
+	 */
+	private static final class PooledDnsClient extends DefaultDnsClient {
+
+		private final List<DirContext> created = new CopyOnWriteArrayList<>();
+		private final AtomicInteger active = new AtomicInteger();
+		private final AtomicInteger maxActive = new AtomicInteger();
+
+		private PooledDnsClient(final int maxConcurrency) {
+			super(new HashMap<>(), new DefaultDnsRecordFactory(),
+					DnsExecutors.defaultExecutor(), maxConcurrency);
+		}
+
+		@Override
+		protected DirContext createContext() throws NamingException {
+			final DirContext context = mock(DirContext.class);
+			when(context.getAttributes(anyString(), any(String[].class))).thenAnswer(
+					i -> {
+						maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+						try {
+							Thread.sleep(1);
+							return new BasicAttributes("A", "10.0.0.1");
+						} finally {
+							active.decrementAndGet();
+						}
+					});
+			created.add(context);
+
+			return context;
+		}
+
+	}
+
+}
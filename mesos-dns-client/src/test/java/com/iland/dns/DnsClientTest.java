@@ -0,0 +1,134 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.jupiter.api.Test;
+
+
+class DnsClientTest {
+
+	@Test
+	void lookupServiceRecordsOrderedByPriorityAndWeight() throws NamingException {
+		final DnsClient client = (name, recordTypes) -> Arrays.asList(
+				new SrvDnsRecord(RecordType.SRV, "name", "value", 1, 99, 0, "target"),
+				new SrvDnsRecord(RecordType.SRV, "name", "value", 0, 0, 0, "target"),
+				new SrvDnsRecord(RecordType.SRV, "name", "value", 0, 1, 0, "target"));
+
+		final List<SrvDnsRecord> serviceRecords = client.lookupServiceRecords(null);
+		assertThat(serviceRecords, hasSize(3));
+		assertThat(serviceRecords.get(0), equalTo(
+				new SrvDnsRecord(RecordType.SRV, "name", "value", 0, 1, 0, "target")));
+		assertThat(serviceRecords.get(2), equalTo(
+				new SrvDnsRecord(RecordType.SRV, "name", "value", 1, 99, 0, "target")));
+	}
+
+	@Test
+	void lookupServiceRecordsAsyncOrderedByPriorityAndWeight() {
+		final DnsClient client = (name, recordTypes) -> Arrays.asList(
+				new SrvDnsRecord(RecordType.SRV, "name", "value", 1, 99, 0, "target"),
+				new SrvDnsRecord(RecordType.SRV, "name", "value", 0, 1, 0, "target"));
+
+		final List<SrvDnsRecord> serviceRecords =
+				client.lookupServiceRecordsAsync("name").join();
+		assertThat(serviceRecords, hasSize(2));
+		assertThat(serviceRecords.get(0), equalTo(
+				new SrvDnsRecord(RecordType.SRV, "name", "value", 0, 1, 0, "target")));
+	}
+
+	@Test
+	void lookupAllDedupesNamesAndReportsFailures() throws NamingException {
+		final AtomicInteger lookups = new AtomicInteger();
+		final DnsClient client = (name, recordTypes) -> {
+			lookups.incrementAndGet();
+			if (name.startsWith("unknown")) {
+				throw new NameNotFoundException(name);
+			}
+			return Arrays.asList(new DnsRecord(RecordType.A, name, "10.0.0.1"));
+		};
+
+		final Map<String, DnsLookupResult<NamingException>> results =
+				client.lookupAll(Arrays.asList("foo", "unknown", "bar", "foo"),
+						RecordType.A);
+		assertThat(new ArrayList<>(results.keySet()),
+				equalTo(Arrays.asList("foo", "unknown", "bar")));
+		assertThat(results.get("foo").getRecords(), hasSize(1));
+		assertThat(results.get("unknown").isSuccess(), is(false));
+		assertThat(results.get("unknown").getFailure(),
+				instanceOf(NameNotFoundException.class));
+		assertThat(lookups.get(), is(3));
+	}
+
+	@Test
+	void lookupAllBoundsParallelism() {
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		final ExecutorService executor = Executors.newCachedThreadPool();
+		final DnsClient client = new DnsClient() {
+			@Override
+			public List<? extends DnsRecord> lookup(final String name,
+					final RecordType... recordTypes) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+					final String name, final RecordType... recordTypes) {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				return CompletableFuture.supplyAsync(() -> {
+					Uninterruptibles.sleepUninterruptibly(2, TimeUnit.MILLISECONDS);
+					inFlight.decrementAndGet();
+					return Arrays.asList(new DnsRecord(RecordType.A, name, "10.0.0.1"));
+				}, executor);
+			}
+		};
+
+		try {
+			final List<String> names = IntStream.range(0, 50)
+					.mapToObj(i -> "task-" + i).collect(Collectors.toList());
+			final Map<String, DnsLookupResult<NamingException>> results =
+					client.lookupAllAsync(names, 4, RecordType.A).join();
+			assertThat(results.size(), is(50));
+			assertThat(maxInFlight.get(), lessThanOrEqualTo(4));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void lookupAllServesCacheHits() throws NamingException {
+		final AtomicInteger lookups = new AtomicInteger();
+		final DnsClient client = new CachingDnsClient((name, recordTypes) -> {
+			lookups.incrementAndGet();
+			return Arrays.asList(new DnsRecord(RecordType.A, name, "10.0.0.1"));
+		});
+		client.lookup("foo", RecordType.A);
+
+		final Map<String, DnsLookupResult<NamingException>> results =
+				client.lookupAll(Arrays.asList("foo", "bar"), RecordType.A);
+		assertThat(results.get("foo").isSuccess(), is(true));
+		assertThat(results.get("bar").isSuccess(), is(true));
+		assertThat(lookups.get(), is(2));
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NameNotFoundException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.rholder.retry.WaitStrategies;
+import com.iland.dns.mesos.MesosDnsClient;
+import com.iland.dns.mesos.MesosDnsException;
+
+class DnsLookupListenerTest {
+
+	private final Recorder recorder = new Recorder();
+	private FakeDnsServer server;
+	private MesosDnsClient client;
+
+	@BeforeEach
+	void beforeEach() throws IOException {
+		this.server = new FakeDnsServer();
+		final DnsClient dnsClient =
+				DefaultDnsClient.builder().withDefaultDomain(server.host())
+						.withEnvironment(NioDnsClient.INITIAL_TIMEOUT, "200")
+						.withEnvironment(NioDnsClient.RETRIES, "1")
+						.withNioTransport().withListener(recorder).build();
+		final DnsClient retrying = RetryingDnsClient.builder(dnsClient)
+				.withWaitStrategy(WaitStrategies.noWait()).withListener(recorder)
+				.build();
+		final DnsClient caching =
+				CachingDnsClient.builder(retrying).withListener(recorder).build();
+		this.client = new MesosDnsClient(caching, DnsExecutors.defaultScheduler(),
+				1, TimeUnit.SECONDS, recorder);
+	}
+
+	@AfterEach
+	void afterEach() {
+		server.close();
+	}
+
+	@Test
+	void lookupIsTraced() throws Exception {
+		server.addA("leader.mesos", 60, "10.0.0.1");
+
+		client.lookup("leader.mesos", RecordType.A);
+		client.lookupAsync("leader.mesos", RecordType.A).join();
+
+		assertThat(recorder.events, contains("lookupStarted leader.mesos",
+				"cacheMiss leader.mesos", "attemptStarted leader.mesos 1",
+				"serverChosen leader.mesos /" + server.host(),
+				"responseParsed leader.mesos 1", "lookupEnded leader.mesos null",
+				"lookupStarted leader.mesos", "cacheHit leader.mesos",
+				"lookupEnded leader.mesos null"));
+		for (int i = 1; i < recorder.nanoTimes.size(); i++) {
+			assertThat(recorder.nanoTimes.get(i) - recorder.nanoTimes.get(i - 1),
+					greaterThanOrEqualTo(0L));
+		}
+	}
+
+	@Test
+	void concurrentLookupsAreCorrelated() throws IOException {
+		server.addA("foo.marathon.mesos", 60, "10.0.0.1")
+				.addA("bar.marathon.mesos", 60, "10.0.0.2").delay(50);
+
+		CompletableFuture.allOf(
+				client.lookupAsync("foo.marathon.mesos", RecordType.A),
+				client.lookupAsync("bar.marathon.mesos", RecordType.A)).join();
+
+		assertThat(recorder.events, hasSize(12));
+		for (int i = 0; i < recorder.events.size(); i++) {
+			assertThat(recorder.events.get(i), recorder.contexts.get(i),
+					sameInstance(recorder.started.get(recorder.names.get(i))));
+		}
+	}
+
+	@Test
+	void failedLookupIsTraced() {
+		assertThrows(MesosDnsException.class,
+				() -> client.lookupServiceRecords("unknown.mesos"));
+
+		assertThat(recorder.events.get(recorder.events.size() - 1),
+				equalTo("lookupEnded unknown.mesos "
+						+ NameNotFoundException.class.getSimpleName()));
+	}
+
+	@Test
+	void throwingListenerDoesNotFailLookups() throws IOException {
+		final DnsLookupListener throwing = (DnsLookupListener) Proxy.newProxyInstance(
+				DnsLookupListener.class.getClassLoader(),
+				new Class<?>[] { DnsLookupListener.class }, (proxy, method, args) -> {
+					throw new IllegalStateException(method.getName());
+				});
+		final DnsClient dnsClient =
+				DefaultDnsClient.builder().withDefaultDomain(server.host())
+						.withNioTransport().withListener(throwing).build();
+		final DnsClient caching = CachingDnsClient.builder(
+				RetryingDnsClient.builder(dnsClient).withListener(throwing).build())
+				.withListener(throwing).build();
+		final MesosDnsClient client = new MesosDnsClient(caching,
+				DnsExecutors.defaultScheduler(), 1, TimeUnit.SECONDS, throwing);
+		server.addA("leader.mesos", 60, "10.0.0.1");
+
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			assertThat(client.lookupAsync("leader.mesos", RecordType.A).join(),
+					hasSize(1));
+			assertThat(client.lookup("leader.mesos", RecordType.A), hasSize(1));
+			final MesosDnsException exception = assertThrows(MesosDnsException.class,
+					() -> client.lookupServiceRecords("unknown.mesos"));
+			assertThat(exception.getCause(), instanceOf(NameNotFoundException.class));
+		});
+	}
+
+	private static final class Recorder implements DnsLookupListener {
+
+		private final List<String> events = new ArrayList<>();
+		private final List<Long> nanoTimes = new ArrayList<>();
+		private final List<Object> contexts = new ArrayList<>();
+		private final List<String> names = new ArrayList<>();
+		private final Map<String, Object> started = new HashMap<>();
+
+		@Override
+		public synchronized Object lookupStarted(final String name,
+				final RecordType[] recordTypes, final long nanoTime) {
+			final Object context = new Object();
+			started.put(name, context);
+			record(context, name, "lookupStarted " + name, nanoTime);
+
+			return context;
+		}
+
+		@Override
+		public synchronized void cacheHit(final Object context, final String name,
+				final RecordType[] recordTypes, final long nanoTime) {
+			record(context, name, "cacheHit " + name, nanoTime);
+		}
+
+		@Override
+		public synchronized void cacheMiss(final Object context, final String name,
+				final RecordType[] recordTypes, final long nanoTime) {
+			record(context, name, "cacheMiss " + name, nanoTime);
+		}
+
+		@Override
+		public synchronized void attemptStarted(final Object context,
+				final String name, final RecordType[] recordTypes, final int attempt,
+				final long nanoTime) {
+			record(context, name, "attemptStarted " + name + " " + attempt,
+					nanoTime);
+		}
+
+		@Override
+		public synchronized void serverChosen(final Object context,
+				final String name, final RecordType[] recordTypes,
+				final String server, final long nanoTime) {
+			record(context, name, "serverChosen " + name + " " + server, nanoTime);
+		}
+
+		@Override
+		public synchronized void responseParsed(final Object context,
+				final String name, final RecordType[] recordTypes, final int records,
+				final long nanoTime) {
+			record(context, name, "responseParsed " + name + " " + records,
+					nanoTime);
+		}
+
+		@Override
+		public synchronized void lookupEnded(final Object context,
+				final String name, final RecordType[] recordTypes,
+				final Throwable failure, final long nanoTime) {
+			record(context, name, "lookupEnded " + name + " " + (failure == null ?
+					null :
+					failure.getClass().getSimpleName()), nanoTime);
+		}
+
+		private void record(final Object context, final String name,
+				final String event, final long nanoTime) {
+			contexts.add(context);
+			names.add(name);
+			events.add(event);
+			nanoTimes.add(nanoTime);
+		}
+
+	}
+
+}
@@ -0,0 +1,193 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.junit.jupiter.api.Test;
+
+class DnsRecordTest {
+
+	private static final int SERVICES = 5000;
+	private static final int TASKS_PER_SERVICE = 3;
+	private static final int OBJECT_HEADER_BYTES = 12;
+	private static final int ARRAY_HEADER_BYTES = 16;
+	// the string itself, its array counted apart
+	private static final int STRING_BYTES = 24;
+
+	private final DnsRecordFactory recordFactory = new DefaultDnsRecordFactory();
+
+	@Test
+	void addressRecordsEqualTheirTextualForm() {
+		final DnsRecord a = recordFactory.createDnsRecord(RecordType.A,
+				"leader.mesos", "10.0.0.1", 60);
+		final DnsRecord aaaa = recordFactory.createAddressRecord("leader.mesos",
+				new byte[] { 0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+						0, 0, 1 }, 60);
+
+		assertThat(a, instanceOf(AddressDnsRecord.class));
+		assertThat(a, equalTo(new DnsRecord(RecordType.A, "leader.mesos",
+				"10.0.0.1")));
+		assertThat(a.getTtl(), equalTo(60L));
+		assertThat(aaaa.getType(), equalTo(RecordType.AAAA));
+		assertThat(aaaa.getValue(), equalTo("2001:db8:0:0:0:0:0:1"));
+		assertThat(aaaa.hashCode(), equalTo(new DnsRecord(RecordType.AAAA,
+				"leader.mesos", "2001:db8:0:0:0:0:0:1").hashCode()));
+	}
+
+	@Test
+	void addressRecordsHashAsTheirTextualForm() {
+		for (final String value : new String[] { "0.0.0.0", "10.0.0.1",
+				"192.168.100.255", "0:0:0:0:0:0:0:0", "2001:db8:0:0:0:ff00:42:8329",
+				"fe80:0:0:0:abcd:ef01:2345:6789" }) {
+			final RecordType type = value.contains(":") ? RecordType.AAAA : RecordType.A;
+			final DnsRecord compact =
+					recordFactory.createDnsRecord(type, "leader.mesos", value);
+			final DnsRecord textual = new DnsRecord(type, "leader.mesos", value);
+
+			assertThat(compact, instanceOf(AddressDnsRecord.class));
+			assertThat(compact.hashCode(), equalTo(textual.hashCode()));
+			assertThat(compact, equalTo(recordFactory.createDnsRecord(type,
+					"leader.mesos", value)));
+			assertThat(compact, not(equalTo(recordFactory.createDnsRecord(type,
+					"follower.mesos", value))));
+		}
+	}
+
+	@Test
+	void addressesNotFormattedCanonicallyAreKeptAsText() {
+		assertThat(AddressDnsRecord.parse(RecordType.AAAA, "2001:db8::1"),
+				nullValue());
+		assertThat(AddressDnsRecord.parse(RecordType.A, "10.0.0.01"), nullValue());
+		assertThat(AddressDnsRecord.parse(RecordType.A, "10.0.0.256"),
+				nullValue());
+		assertThat(AddressDnsRecord.parse(RecordType.A, "10.0.0.1.2"),
+				nullValue());
+		final DnsRecord compressed = recordFactory.createDnsRecord(
+				RecordType.AAAA, "leader.mesos", "2001:db8::1");
+		assertThat(compressed.getValue(), equalTo("2001:db8::1"));
+		assertThat(((AddressDnsRecord) compressed).getAddressBytes()[15],
+				equalTo((byte) 1));
+		assertThat(recordFactory.createDnsRecord(RecordType.A, "leader.mesos",
+				"leader.mesos"), not(instanceOf(AddressDnsRecord.class)));
+	}
+
+	@Test
+	void addressIsNamedAfterTheRecord() {
+		final AddressDnsRecord record = (AddressDnsRecord) recordFactory
+				.createDnsRecord(RecordType.A, "leader.mesos", "10.0.0.1", 60);
+
+		assertThat(record.getAddress().getHostName(), equalTo("leader.mesos"));
+		assertThat(record.getAddress().getHostAddress(), equalTo("10.0.0.1"));
+		assertThat(record.getAddress(), sameInstance(record.getAddress()));
+		assertThat(record.toSocketAddress(5050).getPort(), equalTo(5050));
+	}
+
+	@Test
+	void compactRecordsTakeLessHeap() throws IllegalAccessException {
+		long plain = 0, compact = 0;
+		for (int task = 0; task < SERVICES * TASKS_PER_SERVICE; task++) {
+			final String name =
+					"_service-" + task / TASKS_PER_SERVICE + "._tcp.marathon.mesos";
+			final String host = "service-" + task + ".marathon.mesos";
+			final String target = host + ".";
+			final int port = 31000 + task % TASKS_PER_SERVICE;
+
+			plain += retainedBytes(new DnsRecord(RecordType.A, host,
+					AddressDnsRecord.format(address(task)), 60));
+			plain += retainedBytes(new LegacySrvDnsRecord(name,
+					"0 1 " + port + " " + target, 0, 1, port, target));
+			compact += retainedBytes(
+					recordFactory.createAddressRecord(host, address(task), 60));
+			compact += retainedBytes(
+					recordFactory.createServiceRecord(name, 0, 1, port, target, 60));
+		}
+
+		assertThat(compact * 10 / plain, lessThan(7L));
+	}
+
+	/**
+	 * Returns the bytes a record retains on a 64 bit JVM with compressed
+	 * references and compact strings, from its declared fields: the record
+	 * itself and the strings and arrays it holds, except for its name, which
+	 * the records of an RRset share in either form.
+	 */
+	private static long retainedBytes(final DnsRecord record)
+			throws IllegalAccessException {
+		long bytes = OBJECT_HEADER_BYTES;
+		for (Class<?> type = record.getClass(); type != Object.class;
+				type = type.getSuperclass()) {
+			for (final Field field : type.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				bytes += fieldBytes(field.getType());
+				if (field.getName().equals("name")) {
+					continue;
+				}
+				field.setAccessible(true);
+				final Object value = field.get(record);
+				if (value instanceof String) {
+					bytes += STRING_BYTES + arrayBytes(((String) value).length());
+				} else if (value instanceof byte[]) {
+					bytes += arrayBytes(((byte[]) value).length);
+				}
+			}
+		}
+
+		return align(bytes);
+	}
+
+	private static int fieldBytes(final Class<?> type) {
+		if (type == long.class || type == double.class) {
+			return 8;
+		}
+		if (type == int.class || type == float.class || !type.isPrimitive()) {
+			return 4;
+		}
+
+		return type == char.class || type == short.class ? 2 : 1;
+	}
+
+	private static long arrayBytes(final int length) {
+		return align(ARRAY_HEADER_BYTES + length);
+	}
+
+	private static long align(final long bytes) {
+		return (bytes + 7) & ~7;
+	}
+
+	private static byte[] address(final int task) {
+		return new byte[] { 10, (byte) (task >> 16), (byte) (task >> 8),
+				(byte) task };
+	}
+
+	/**
+	 * An SRV record laid out as before records were compacted: the value text
+	 * as well as the parsed fields.
+	 */
+	private static final class LegacySrvDnsRecord extends DnsRecord {
+
+		private final int priority, weight, port;
+		private final String target;
+
+		private LegacySrvDnsRecord(final String name, final String value,
+				final int priority, final int weight, final int port,
+				final String target) {
+			super(RecordType.SRV, name, value, 60);
+			this.priority = priority;
+			this.weight = weight;
+			this.port = port;
+			this.target = target;
+		}
+
+	}
+
+}
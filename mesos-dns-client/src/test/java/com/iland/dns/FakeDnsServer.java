@@ -0,0 +1,296 @@
+package com.iland.dns;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-process DNS server answering UDP and TCP queries from a static zone.
+ */
+final class FakeDnsServer implements Closeable {
+
+	private static final int TYPE_ANY = 255;
+	private static final int MAX_BIND_ATTEMPTS = 10;
+
+	private final DatagramSocket udp;
+	private final ServerSocket tcp;
+	private final Map<String, List<Answer>> zone = new ConcurrentHashMap<>();
+	private final Set<String> truncated = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger queries = new AtomicInteger();
+	private volatile int responseCode;
+	private volatile long delayMillis;
+
+	FakeDnsServer() throws IOException {
+		// the ephemeral UDP port may already be taken for TCP: try another one
+		DatagramSocket udp;
+		ServerSocket tcp;
+		for (int attempt = 1; ; attempt++) {
+			udp = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+			try {
+				tcp = new ServerSocket(udp.getLocalPort(), 50,
+						InetAddress.getLoopbackAddress());
+				break;
+			} catch (final BindException e) {
+				udp.close();
+				if (attempt == MAX_BIND_ATTEMPTS) {
+					throw e;
+				}
+			}
+		}
+		this.udp = udp;
+		this.tcp = tcp;
+
+		final Thread udpThread = new Thread(this::serveUdp, "fake-dns-udp");
+		udpThread.setDaemon(true);
+		udpThread.start();
+		final Thread tcpThread = new Thread(this::serveTcp, "fake-dns-tcp");
+		tcpThread.setDaemon(true);
+		tcpThread.start();
+	}
+
+	String host() {
+		return "127.0.0.1:" + udp.getLocalPort();
+	}
+
+	InetSocketAddress address() {
+		return new InetSocketAddress(InetAddress.getLoopbackAddress(),
+				udp.getLocalPort());
+	}
+
+	int queries() {
+		return queries.get();
+	}
+
+	FakeDnsServer addA(final String name, final long ttl, final String address)
+			throws IOException {
+		return add(name, RecordType.A, ttl,
+				InetAddress.getByName(address).getAddress());
+	}
+
+	FakeDnsServer addAaaa(final String name, final long ttl,
+			final String address) throws IOException {
+		return add(name, RecordType.AAAA, ttl,
+				InetAddress.getByName(address).getAddress());
+	}
+
+	FakeDnsServer addSrv(final String name, final long ttl, final int priority,
+			final int weight, final int port, final String target) {
+		final ByteBuffer rdata = ByteBuffer.allocate(6 + target.length() + 2);
+		rdata.putShort((short) priority).putShort((short) weight)
+				.putShort((short) port);
+		putName(rdata, target);
+
+		return add(name, RecordType.SRV, ttl,
+				Arrays.copyOf(rdata.array(), rdata.position()));
+	}
+
+	FakeDnsServer addTxt(final String name, final long ttl, final String text) {
+		final byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+		final byte[] rdata = new byte[bytes.length + 1];
+		rdata[0] = (byte) bytes.length;
+		System.arraycopy(bytes, 0, rdata, 1, bytes.length);
+
+		return add(name, RecordType.TXT, ttl, rdata);
+	}
+
+	FakeDnsServer add(final String name, final RecordType type, final long ttl,
+			final byte[] rdata) {
+		zone.computeIfAbsent(normalize(name), k -> new CopyOnWriteArrayList<>())
+				.add(new Answer(DnsWireCodec.typeCode(type), ttl, rdata));
+
+		return this;
+	}
+
+	/**
+	 * Answer UDP queries for the name with the TC bit set and no answers.
+	 */
+	FakeDnsServer truncate(final String name) {
+		truncated.add(normalize(name));
+
+		return this;
+	}
+
+	/**
+	 * Answer every query with the given response code (0 restores normal
+	 * operation).
+	 */
+	FakeDnsServer respondWith(final int responseCode) {
+		this.responseCode = responseCode;
+
+		return this;
+	}
+
+	/**
+	 * Delay every answer.
+	 */
+	FakeDnsServer delay(final long delayMillis) {
+		this.delayMillis = delayMillis;
+
+		return this;
+	}
+
+	@Override
+	public void close() {
+		udp.close();
+		try {
+			tcp.close();
+		} catch (final IOException e) {
+			// nothing to do
+		}
+	}
+
+	private void serveUdp() {
+		final byte[] buffer = new byte[512];
+		while (!udp.isClosed()) {
+			try {
+				final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+				udp.receive(packet);
+				final byte[] response = answer(
+						ByteBuffer.wrap(packet.getData(), 0, packet.getLength()), true);
+				if (response != null) {
+					udp.send(new DatagramPacket(response, response.length,
+							packet.getSocketAddress()));
+				}
+			} catch (final SocketException e) {
+				return;
+			} catch (final IOException e) {
+				// keep serving
+			}
+		}
+	}
+
+	private void serveTcp() {
+		while (!tcp.isClosed()) {
+			try (Socket socket = tcp.accept()) {
+				final DataInputStream in = new DataInputStream(socket.getInputStream());
+				final byte[] query = new byte[in.readUnsignedShort()];
+				in.readFully(query);
+				final byte[] response = answer(ByteBuffer.wrap(query), false);
+				final DataOutputStream out =
+						new DataOutputStream(socket.getOutputStream());
+				out.writeShort(response.length);
+				out.write(response);
+				out.flush();
+			} catch (final SocketException e) {
+				return;
+			} catch (final IOException e) {
+				// keep serving
+			}
+		}
+	}
+
+	private byte[] answer(final ByteBuffer query, final boolean overUdp) {
+		queries.incrementAndGet();
+		if (delayMillis > 0) {
+			try {
+				Thread.sleep(delayMillis);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+
+		final int id = query.getShort(0) & 0xffff;
+		final StringBuilder name = new StringBuilder();
+		int position = 12;
+		int length;
+		while ((length = query.get(position) & 0xff) != 0) {
+			if (name.length() > 0) {
+				name.append('.');
+			}
+			for (int i = 1; i <= length; i++) {
+				name.append((char) query.get(position + i));
+			}
+			position += length + 1;
+		}
+		position++;
+		final int qtype = query.getShort(position) & 0xffff;
+		final int questionEnd = position + 4;
+
+		final String key = name.toString().toLowerCase();
+		final List<Answer> answers = new ArrayList<>();
+		for (final Answer answer : zone.getOrDefault(key, new ArrayList<>())) {
+			if (qtype == TYPE_ANY || answer.type == qtype) {
+				answers.add(answer);
+			}
+		}
+		final boolean truncate = overUdp && truncated.contains(key);
+		final int rcode = responseCode != 0 ?
+				responseCode :
+				zone.containsKey(key) ? 0 : DnsWireCodec.RCODE_NXDOMAIN;
+
+		final ByteBuffer response = ByteBuffer.allocate(65535);
+		response.putShort((short) id);
+		response.putShort(
+				(short) (0x8000 | 0x0400 | 0x0100 | 0x0080 | (truncate ? 0x0200 : 0)
+						| rcode));
+		response.putShort((short) 1);
+		response.putShort((short) (truncate ? 0 : answers.size()));
+		response.putShort((short) 0);
+		response.putShort((short) 0);
+		response.put(query.array(), query.arrayOffset() + 12, questionEnd - 12);
+		if (!truncate) {
+			for (final Answer answer : answers) {
+				// a pointer to the name in the question section
+				response.putShort((short) 0xc00c);
+				response.putShort((short) answer.type);
+				response.putShort((short) 1);
+				response.putInt((int) answer.ttl);
+				response.putShort((short) answer.rdata.length);
+				response.put(answer.rdata);
+			}
+		}
+
+		return Arrays.copyOf(response.array(), response.position());
+	}
+
+	private static void putName(final ByteBuffer buffer, final String name) {
+		for (final String label : normalize(name).split("\\.")) {
+			buffer.put((byte) label.length());
+			buffer.put(label.getBytes(StandardCharsets.US_ASCII));
+		}
+		buffer.put((byte) 0);
+	}
+
+	private static String normalize(final String name) {
+		final String lowerCase = name.toLowerCase();
+
+		return lowerCase.endsWith(".") ?
+				lowerCase.substring(0, lowerCase.length() - 1) :
+				lowerCase;
+	}
+
+	private static final class Answer {
+
+		private final int type;
+		private final long ttl;
+		private final byte[] rdata;
+
+		private Answer(final int type, final long ttl, final byte[] rdata) {
+			this.type = type;
+			this.ttl = ttl;
+			this.rdata = rdata;
+		}
+
+	}
+
+}
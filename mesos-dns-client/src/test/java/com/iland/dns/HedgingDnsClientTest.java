@@ -0,0 +1,205 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.TimeLimitExceededException;
+
+import org.junit.jupiter.api.Test;
+
+class HedgingDnsClientTest {
+
+	private static final String NAME = "leader.mesos";
+
+	@Test
+	void slowServerIsHedged() throws NamingException {
+		final Server slow = new Server(new CompletableFuture<>());
+		final Server fast = new Server(answer("10.0.0.2"));
+		final HedgingDnsClient client = client(1, slow, fast);
+
+		assertThat(value(client.lookup(NAME, RecordType.A)), is("10.0.0.2"));
+		assertThat(slow.lookups.get(), is(1));
+		assertThat(client.getHedgeCount(), is(1L));
+	}
+
+	@Test
+	void hedgesAreCapped() throws NamingException {
+		final CompletableFuture<List<? extends DnsRecord>> late =
+				new CompletableFuture<>();
+		DnsExecutors.defaultScheduler().schedule(
+				() -> late.complete(Arrays.asList(record("10.0.0.1"))), 100,
+				TimeUnit.MILLISECONDS);
+		final Server slow = new Server(late);
+		final Server fast = new Server(answer("10.0.0.2"));
+		final HedgingDnsClient client = client(0, slow, fast);
+
+		assertThat(value(client.lookup(NAME, RecordType.A)), is("10.0.0.1"));
+		assertThat(fast.lookups.get(), is(0));
+		assertThat(client.getHedgeCount(), is(0L));
+	}
+
+	@Test
+	void failingServerIsFailedOver() throws NamingException {
+		final Server failing = new Server(failure());
+		final Server healthy = new Server(answer("10.0.0.2"));
+		final HedgingDnsClient client = client(0, failing, healthy);
+
+		assertThat(value(client.lookup(NAME, RecordType.A)), is("10.0.0.2"));
+		assertThat(client.getHedgeCount(), is(0L));
+	}
+
+	@Test
+	void missingNameIsNotFailedOver() {
+		final CompletableFuture<List<? extends DnsRecord>> missing =
+				new CompletableFuture<>();
+		missing.completeExceptionally(new NameNotFoundException(NAME));
+		final Server first = new Server(missing);
+		final Server second = new Server(answer("10.0.0.2"));
+		final HedgingDnsClient client = client(1, first, second);
+
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup(NAME, RecordType.A));
+		assertThat(first.lookups.get(), is(1));
+		assertThat(second.lookups.get(), is(0));
+	}
+
+	@Test
+	void lookupFailsIfEveryServerFails() {
+		final HedgingDnsClient client =
+				client(1, new Server(failure()), new Server(failure()));
+
+		assertThrows(ServiceUnavailableException.class,
+				() -> client.lookup(NAME, RecordType.A));
+	}
+
+	@Test
+	void lookupsAreSpreadOverServers() throws NamingException {
+		final Server first = new Server(answer("10.0.0.1"));
+		final Server second = new Server(answer("10.0.0.2"));
+		final HedgingDnsClient client = client(0, first, second);
+
+		for (int i = 0; i < 10; i++) {
+			client.lookup(NAME, RecordType.A);
+		}
+		assertThat(first.lookups.get(), is(5));
+		assertThat(second.lookups.get(), is(5));
+	}
+
+	@Test
+	void deadlineIsGivenToTheServers() throws NamingException {
+		final Server slow = new Server(new CompletableFuture<>());
+		final Server fast = new Server(answer("10.0.0.2"));
+		final HedgingDnsClient client = client(1, slow, fast);
+		final Deadline deadline = Deadline.after(1, TimeUnit.SECONDS);
+
+		assertThat(value(client.lookup(NAME, deadline, RecordType.A)),
+				is("10.0.0.2"));
+		assertThat(slow.deadline, is(deadline));
+		assertThat(fast.deadline, is(deadline));
+	}
+
+	@Test
+	void lookupFailsOnceTheDeadlineExpires() {
+		final HedgingDnsClient client = client(0,
+				new Server(new CompletableFuture<>()), new Server(answer("10.0.0.2")));
+
+		assertThrows(TimeLimitExceededException.class,
+				() -> client.lookup(NAME, Deadline.after(20, TimeUnit.MILLISECONDS),
+						RecordType.A));
+	}
+
+	@Test
+	void builderRequiresTwoHosts() {
+		assertThrows(IllegalStateException.class,
+				() -> DefaultDnsClient.builder().withDefaultDomain("10.0.0.1")
+						.withNioTransport().withHedging().build());
+		assertThat(DefaultDnsClient.builder()
+						.withDefaultDomain("10.0.0.1", "10.0.0.2").withNioTransport()
+						.withHedging().build(),
+				instanceOf(HedgingDnsClient.class));
+	}
+
+	@Test
+	void builderRequiresTheNioTransport() {
+		assertThrows(IllegalStateException.class,
+				() -> DefaultDnsClient.builder()
+						.withDefaultDomain("10.0.0.1", "10.0.0.2").withHedging().build());
+	}
+
+	private static HedgingDnsClient client(final double maxHedgeRatio,
+			final Server... servers) {
+		return new HedgingDnsClient(Arrays.asList(servers), maxHedgeRatio, 10, 10,
+				TimeUnit.MILLISECONDS, DnsExecutors.defaultScheduler());
+	}
+
+	private static CompletableFuture<List<? extends DnsRecord>> answer(
+			final String value) {
+		return CompletableFuture.completedFuture(Arrays.asList(record(value)));
+	}
+
+	private static CompletableFuture<List<? extends DnsRecord>> failure() {
+		final CompletableFuture<List<? extends DnsRecord>> future =
+				new CompletableFuture<>();
+		future.completeExceptionally(new ServiceUnavailableException(NAME));
+
+		return future;
+	}
+
+	private static DnsRecord record(final String value) {
+		return new DnsRecord(RecordType.A, NAME, value);
+	}
+
+	private static String value(final List<? extends DnsRecord> records) {
+		return records.get(0).getValue();
+	}
+
+	/**
+	 * A server answering every lookup with the same future.
+	 */
+	private static final class Server implements DnsClient {
+
+		private final CompletableFuture<List<? extends DnsRecord>> answer;
+		private final AtomicInteger lookups = new AtomicInteger();
+		private volatile Deadline deadline;
+
+		private Server(final CompletableFuture<List<? extends DnsRecord>> answer) {
+			this.answer = answer;
+		}
+
+		@Override
+		public List<? extends DnsRecord> lookup(final String name,
+				final RecordType... recordTypes) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+				final String name, final RecordType... recordTypes) {
+			lookups.incrementAndGet();
+
+			return answer;
+		}
+
+		@Override
+		public CompletableFuture<List<? extends DnsRecord>> lookupAsync(
+				final String name, final Deadline deadline,
+				final RecordType... recordTypes) {
+			this.deadline = deadline;
+
+			return lookupAsync(name, recordTypes);
+		}
+
+	}
+
+}
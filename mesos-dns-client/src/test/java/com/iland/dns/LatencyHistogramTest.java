@@ -0,0 +1,63 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	@Test
+	void emptyHistogramReportsZero() {
+		assertThat(histogram.getCount(), is(0L));
+		assertThat(histogram.getValueAtPercentile(99), is(0L));
+		assertThat(histogram.getMean(), is(0.0));
+	}
+
+	@Test
+	void percentilesAreWithinThreePercent() {
+		for (long micros = 1; micros <= 10_000; micros++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+		}
+
+		assertThat(histogram.getCount(), is(10_000L));
+		assertThat(histogram.getMax(), is(10_000_000L));
+		assertWithin(histogram.getValueAtPercentile(50), 5_000_000);
+		assertWithin(histogram.getValueAtPercentile(99), 9_900_000);
+		assertThat(histogram.getValueAtPercentile(100), is(10_000_000L));
+		assertThat(histogram.getValueAtPercentile(99, TimeUnit.MILLISECONDS),
+				allOf(greaterThanOrEqualTo(9.9), lessThanOrEqualTo(10.0)));
+		assertThat(histogram.getMean(), is(5_000_500.0));
+	}
+
+	@Test
+	void extremeLatenciesAreRecorded() {
+		histogram.record(-1);
+		histogram.record(Long.MAX_VALUE);
+
+		assertThat(histogram.getValueAtPercentile(50), is(0L));
+		assertThat(histogram.getValueAtPercentile(100), is(Long.MAX_VALUE));
+	}
+
+	@Test
+	void percentileMustBeInRange() {
+		assertThrows(IllegalArgumentException.class,
+				() -> histogram.getValueAtPercentile(100.1));
+		assertThrows(IllegalArgumentException.class,
+				() -> histogram.getValueAtPercentile(Double.NaN));
+	}
+
+	private static void assertWithin(final long value, final long expected) {
+		assertThat(value, allOf(greaterThanOrEqualTo(expected),
+				lessThanOrEqualTo(expected + expected * 3 / 100)));
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.openmbean.TabularData;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+
+import org.junit.jupiter.api.Test;
+
+class MetricsDnsClientTest {
+
+	private final DnsClient server = (name, recordTypes) -> {
+		if (name.startsWith("unknown")) {
+			throw new NameNotFoundException(name);
+		}
+		return Arrays.asList(new DnsRecord(RecordType.A, name, "10.0.0.1"));
+	};
+	private final DefaultDnsMetrics metrics = new DefaultDnsMetrics();
+	private final MetricsDnsClient client = new MetricsDnsClient(server, metrics);
+
+	@Test
+	void lookupsAreRecordedByRecordType() throws NamingException {
+		client.lookup("leader.mesos", RecordType.A);
+		client.lookupAsync("leader.mesos", RecordType.A).join();
+		client.lookup("leader.mesos", RecordType.AAAA, RecordType.A);
+		client.lookup("leader.mesos");
+
+		assertThat(metrics.getLatency(RecordType.A).getCount(), is(2L));
+		assertThat(metrics.getLatency(RecordType.AAAA).getCount(), is(0L));
+		assertThat(metrics.getLatencies().keySet(), contains("A",
+				DefaultDnsMetrics.MULTI, DefaultDnsMetrics.ANY));
+		assertThat(metrics.getLatencies().get(DefaultDnsMetrics.MULTI).getCount(),
+				is(1L));
+		assertThat(metrics.getLatencies().get(DefaultDnsMetrics.ANY).getCount(),
+				is(1L));
+	}
+
+	@Test
+	void serviceRecordSelectorsAreForwarded() throws NamingException {
+		final CachingDnsClient caching = new CachingDnsClient(
+				(name, recordTypes) -> Arrays.asList(SrvDnsRecord.create(name, 0, 1,
+						31000, "foo.marathon.mesos.")));
+		final MetricsDnsClient client = new MetricsDnsClient(caching, metrics);
+
+		final ServiceRecordSelector selector =
+				client.lookupServiceRecordSelector("_foo._tcp.marathon.mesos");
+		assertThat(client.lookupServiceRecordSelector("_foo._tcp.marathon.mesos"),
+				sameInstance(selector));
+		assertThat(metrics.getLatency(RecordType.SRV).getCount(), is(2L));
+	}
+
+	@Test
+	void serviceRecordsAreForwarded() throws NamingException {
+		final CachingDnsClient caching = new CachingDnsClient(
+				(name, recordTypes) -> Arrays.asList(SrvDnsRecord.create(name, 0, 1,
+						31000, "foo.marathon.mesos.")));
+		final MetricsDnsClient client = new MetricsDnsClient(caching, metrics);
+
+		final List<SrvDnsRecord> records =
+				client.lookupServiceRecords("_foo._tcp.marathon.mesos");
+		assertThat(client.lookupServiceRecords("_foo._tcp.marathon.mesos"),
+				sameInstance(records));
+		assertThat(metrics.getLatency(RecordType.SRV).getCount(), is(2L));
+	}
+
+	@Test
+	void failuresAreCountedByCause() {
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup("unknown.mesos", RecordType.A));
+		assertThrows(CompletionException.class,
+				() -> client.lookupAsync("unknown.mesos", RecordType.A).join());
+
+		assertThat(metrics.getErrorCounts(),
+				is(Collections.singletonMap("NameNotFoundException", 2L)));
+		assertThat(metrics.getLatency(RecordType.A).getCount(), is(0L));
+	}
+
+	@Test
+	void metricsAreExposedOverJmx() throws Exception {
+		final RetryingDnsClient retrying = new RetryingDnsClient(client);
+		final CachingDnsClient caching = new CachingDnsClient(retrying);
+		caching.lookup("leader.mesos", RecordType.A);
+		caching.lookup("leader.mesos", RecordType.A);
+
+		final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		try (DnsMetricsJmx jmx = DnsMetricsJmx.builder(metrics).withCache(caching)
+				.withRetries(retrying).register("test")) {
+			assertThat(mBeanServer.getAttribute(jmx.getObjectName(),
+					"CacheHitCount"), is(1L));
+			assertThat(mBeanServer.getAttribute(jmx.getObjectName(),
+					"RetryAttemptCount"), is(1L));
+			final TabularData lookupCounts = (TabularData) mBeanServer.getAttribute(
+					jmx.getObjectName(), "LookupCounts");
+			assertThat(lookupCounts.size(), is(1));
+			assertThat(jmx.getLookupCounts(), hasEntry("A", 1L));
+
+			assertThrows(JMException.class,
+					() -> DnsMetricsJmx.builder(metrics).register("test"));
+		}
+		assertThat(mBeanServer.queryNames(null, null).stream()
+				.anyMatch(name -> name.toString().contains("DnsMetrics")), is(false));
+	}
+
+	@Test
+	void errorCountsAreReadOnly() {
+		final Map<String, Long> errorCounts = metrics.getErrorCounts();
+
+		assertThrows(UnsupportedOperationException.class,
+				() -> errorCounts.put("NamingException", 1L));
+	}
+
+}
@@ -0,0 +1,170 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.CommunicationException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.TimeLimitExceededException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NioDnsClientTest {
+
+	private FakeDnsServer server;
+	private NioDnsClient client;
+
+	@BeforeEach
+	void beforeEach() throws IOException {
+		this.server = new FakeDnsServer();
+		this.client = new NioDnsClient(Arrays.asList(server.address()),
+				new DefaultDnsRecordFactory(), 200, 1, false);
+	}
+
+	@AfterEach
+	void afterEach() {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	void lookupAddressRecords() throws NamingException, IOException {
+		server.addA("leader.mesos", 60, "10.0.0.1")
+				.addAaaa("leader.mesos", 60, "2001:db8::1");
+
+		final List<? extends DnsRecord> records =
+				client.lookup("leader.mesos", RecordType.A, RecordType.AAAA);
+		assertThat(records, containsInAnyOrder(
+				new DnsRecord(RecordType.A, "leader.mesos", "10.0.0.1"),
+				new DnsRecord(RecordType.AAAA, "leader.mesos",
+						"2001:db8:0:0:0:0:0:1")));
+	}
+
+	@Test
+	void lookupServiceRecords() throws NamingException {
+		server.addSrv("_foo._tcp.marathon.mesos", 60, 0, 1, 31000,
+				"foo-1.marathon.mesos").addSrv("_foo._tcp.marathon.mesos", 60, 0, 2,
+				31001, "foo-2.marathon.mesos");
+
+		final List<SrvDnsRecord> records =
+				client.lookupServiceRecords("_foo._tcp.marathon.mesos");
+		assertThat(records, hasSize(2));
+		assertThat(records.get(0).getPort(), equalTo(31001));
+		assertThat(records.get(0).getTarget(), equalTo("foo-2.marathon.mesos."));
+		assertThat(records.get(1).getValue(),
+				equalTo("0 1 31000 foo-1.marathon.mesos."));
+		assertThat(records.get(1).getTtl(), equalTo(60L));
+	}
+
+	@Test
+	void lookupAllRecordTypes() throws NamingException, IOException {
+		server.addA("foo.marathon.mesos", 60, "10.0.0.2")
+				.addTxt("foo.marathon.mesos", 60, "hello world");
+
+		final List<? extends DnsRecord> records =
+				client.lookup("foo.marathon.mesos");
+		assertThat(records, containsInAnyOrder(
+				new DnsRecord(RecordType.A, "foo.marathon.mesos", "10.0.0.2"),
+				new DnsRecord(RecordType.TXT, "foo.marathon.mesos",
+						"\"hello world\"")));
+	}
+
+	@Test
+	void lookupFallsBackToTcpWhenTruncated() throws NamingException {
+		server.addSrv("_foo._tcp.marathon.mesos", 60, 0, 1, 31000,
+				"foo-1.marathon.mesos").truncate("_foo._tcp.marathon.mesos");
+
+		final List<SrvDnsRecord> records =
+				client.lookupServiceRecords("_foo._tcp.marathon.mesos");
+		assertThat(records, hasSize(1));
+	}
+
+	@Test
+	void lookupTimesOutWhenTheTcpFallbackOutlastsTheExchange() {
+		server.addSrv("_foo._tcp.marathon.mesos", 60, 0, 1, 31000,
+				"foo-1.marathon.mesos").truncate("_foo._tcp.marathon.mesos")
+				.delay(120);
+
+		// the truncated answer takes 120 ms of 200, the full one 120 more
+		final NamingException exception = assertThrows(NamingException.class,
+				() -> client.lookupServiceRecords("_foo._tcp.marathon.mesos"));
+		assertThat(exception, instanceOf(CommunicationException.class));
+	}
+
+	@Test
+	void lookupIsReusable() throws NamingException, IOException {
+		server.addA("leader.mesos", 60, "10.0.0.1");
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(client.lookup("leader.mesos", RecordType.A), hasSize(1));
+		}
+		assertThat(server.queries(), equalTo(10));
+	}
+
+	@Test
+	void lookupRejectsAddressesOfTheWrongLength() {
+		server.add("leader.mesos", RecordType.A, 60, new byte[] { 10, 0, 0, 1, 2 });
+
+		final NamingException exception = assertThrows(NamingException.class,
+				() -> client.lookup("leader.mesos", RecordType.A));
+		assertThat(exception.getMessage(),
+				equalTo("malformed DNS response for 'leader.mesos'"));
+	}
+
+	@Test
+	void lookupUnknownNameThrowsNameNotFoundException() {
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup("bar.marathon.mesos", RecordType.A));
+	}
+
+	@Test
+	void lookupServerFailureThrowsServiceUnavailableException() {
+		server.respondWith(DnsWireCodec.RCODE_SERVFAIL);
+
+		assertThrows(ServiceUnavailableException.class,
+				() -> client.lookup("leader.mesos", RecordType.A));
+	}
+
+	@Test
+	void lookupTimesOut() throws IOException {
+		server.delay(1000);
+
+		final NamingException exception = assertThrows(NamingException.class,
+				() -> client.lookup("leader.mesos", RecordType.A));
+		assertThat(exception, instanceOf(CommunicationException.class));
+	}
+
+	@Test
+	void lookupFailsOnceTheDeadlineExpires() {
+		server.delay(1000);
+
+		assertThrows(TimeLimitExceededException.class,
+				() -> client.lookup("leader.mesos",
+						Deadline.after(50, TimeUnit.MILLISECONDS), RecordType.A));
+	}
+
+	@Test
+	void builderCreatesNioDnsClient() throws NamingException, IOException {
+		server.addA("leader.mesos", 60, "10.0.0.1");
+
+		final DnsClient dnsClient =
+				DefaultDnsClient.builder().withDefaultDomain(server.host())
+						.withNioTransport().build();
+		assertThat(dnsClient, instanceOf(NioDnsClient.class));
+		assertThat(dnsClient.lookup("leader.mesos", RecordType.A), hasSize(1));
+	}
+
+}
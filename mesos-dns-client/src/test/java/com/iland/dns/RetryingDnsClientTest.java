@@ -0,0 +1,219 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+import javax.naming.TimeLimitExceededException;
+
+import com.github.rholder.retry.RetryerBuilder;
+import com.github.rholder.retry.StopStrategies;
+import com.github.rholder.retry.WaitStrategies;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+class RetryingDnsClientTest {
+
+	@Mock
+	private DnsClient dnsClient;
+	private DnsClient client;
+
+	@BeforeEach
+	void beforeEach() {
+		MockitoAnnotations.openMocks(this);
+		this.client = new RetryingDnsClient(dnsClient,
+				RetryerBuilder.<List<? extends DnsRecord>>newBuilder()
+						.retryIfResult(List::isEmpty)
+						.withWaitStrategy(WaitStrategies.fibonacciWait())
+						.withStopStrategy(StopStrategies.stopAfterAttempt(3)).build());
+	}
+
+	@Test
+	void lookup() throws NamingException {
+		when(dnsClient.lookup("foo", RecordType.A)).thenAnswer(i -> Arrays.asList())
+				.thenAnswer(i -> Arrays.asList()).thenAnswer(
+						i -> Arrays.asList(new DnsRecord(RecordType.A, "name", "value")));
+
+		final List<? extends DnsRecord> records =
+				client.lookup("foo", RecordType.A);
+		assertThat(records, hasSize(1));
+	}
+
+	@Test
+	void attemptsAreCounted() throws NamingException {
+		when(dnsClient.lookup("foo", RecordType.A)).thenAnswer(i -> Arrays.asList())
+				.thenAnswer(
+						i -> Arrays.asList(new DnsRecord(RecordType.A, "name", "value")));
+		when(dnsClient.lookupAsync("bar", RecordType.A)).thenReturn(
+				CompletableFuture.completedFuture(
+						Arrays.asList(new DnsRecord(RecordType.A, "name", "value"))));
+		final RetryingDnsClient retrying =
+				RetryingDnsClient.builder(dnsClient).withWaitStrategy(
+						WaitStrategies.noWait()).build();
+
+		retrying.lookup("foo", RecordType.A);
+		retrying.lookupAsync("bar", RecordType.A).join();
+
+		assertThat(retrying.getAttemptCount(), is(3L));
+		assertThat(retrying.getRetryCount(), is(1L));
+	}
+
+	@Test
+	void lookupReturnsAnEmptyList() throws NamingException {
+		when(dnsClient.lookup("foo", RecordType.A)).thenAnswer(i -> Arrays.asList())
+				.thenAnswer(i -> Arrays.asList()).thenAnswer(i -> Arrays.asList());
+
+		final List<? extends DnsRecord> records =
+				client.lookup("foo", RecordType.A);
+		assertThat(records, hasSize(0));
+	}
+
+	@Test
+	void lookupForwardsNamingException() throws NamingException {
+		when(dnsClient.lookup("foo", RecordType.A)).thenAnswer(i -> Arrays.asList())
+				.thenThrow(new NamingException("foo"));
+
+		assertThrows(NamingException.class,
+				() -> client.lookup("foo", RecordType.A));
+	}
+
+	@Test
+	void lookupAsync() {
+		final DnsClient client = new RetryingDnsClient(dnsClient,
+				WaitStrategies.fixedWait(10, TimeUnit.MILLISECONDS),
+				StopStrategies.stopAfterAttempt(3), DnsExecutors.defaultScheduler());
+		when(dnsClient.lookupAsync("foo", RecordType.A)).thenAnswer(
+						i -> CompletableFuture.completedFuture(Arrays.asList()))
+				.thenAnswer(i -> CompletableFuture.completedFuture(
+						Arrays.asList(new DnsRecord(RecordType.A, "name", "value"))));
+
+		final List<? extends DnsRecord> records =
+				client.lookupAsync("foo", RecordType.A).join();
+		assertThat(records, hasSize(1));
+	}
+
+	@Test
+	void lookupAsyncForwardsNamingException() {
+		final DnsClient client = new RetryingDnsClient(dnsClient,
+				WaitStrategies.fixedWait(10, TimeUnit.MILLISECONDS),
+				StopStrategies.stopAfterAttempt(3), DnsExecutors.defaultScheduler());
+		final CompletableFuture<List<? extends DnsRecord>> failed =
+				new CompletableFuture<>();
+		failed.completeExceptionally(new NamingException("foo"));
+		when(dnsClient.lookupAsync("foo", RecordType.A)).thenReturn(failed);
+
+		final CompletionException exception = assertThrows(
+				CompletionException.class,
+				() -> client.lookupAsync("foo", RecordType.A).join());
+		assertThat(exception.getCause(), instanceOf(NamingException.class));
+	}
+
+	@Test
+	void lookupAsyncDoesNotRetryPastTheDeadline() {
+		final RetryingDnsClient client = RetryingDnsClient.builder(dnsClient)
+				.withWaitStrategy(WaitStrategies.fixedWait(50, TimeUnit.MILLISECONDS))
+				.withStopStrategy(StopStrategies.neverStop()).build();
+		final Deadline deadline = Deadline.after(120, TimeUnit.MILLISECONDS);
+		when(dnsClient.lookupAsync("foo", deadline, RecordType.A)).thenAnswer(
+				i -> CompletableFuture.completedFuture(Arrays.asList()));
+
+		final List<? extends DnsRecord> records =
+				client.lookupAsync("foo", deadline, RecordType.A).join();
+		assertThat(records, hasSize(0));
+		verify(dnsClient, atMost(3)).lookupAsync("foo", deadline, RecordType.A);
+	}
+
+	@Test
+	void lookupDoesNotRetryPastTheDeadline() throws NamingException {
+		final RetryingDnsClient client = RetryingDnsClient.builder(dnsClient)
+				.withWaitStrategy(WaitStrategies.fixedWait(50, TimeUnit.MILLISECONDS))
+				.withStopStrategy(StopStrategies.neverStop()).build();
+		final Deadline deadline = Deadline.after(120, TimeUnit.MILLISECONDS);
+		when(dnsClient.lookup("foo", deadline, RecordType.A)).thenAnswer(
+				i -> Arrays.asList());
+
+		assertThat(client.lookup("foo", deadline, RecordType.A), hasSize(0));
+		verify(dnsClient, atMost(3)).lookup("foo", deadline, RecordType.A);
+	}
+
+	@Test
+	void lookupAsyncFailsOnceTheDeadlineExpires() {
+		final RetryingDnsClient client = RetryingDnsClient.builder(dnsClient)
+				.build();
+		when(dnsClient.lookupAsync(eq("foo"), any(Deadline.class),
+				eq(RecordType.A))).thenReturn(new CompletableFuture<>());
+
+		final CompletionException exception = assertThrows(
+				CompletionException.class,
+				() -> client.lookupAsync("foo",
+						Deadline.after(20, TimeUnit.MILLISECONDS), RecordType.A).join());
+		assertThat(exception.getCause(),
+				instanceOf(TimeLimitExceededException.class));
+	}
+
+	@Test
+	void lookupFailsFastOnceTheDeadlineExpired() {
+		final RetryingDnsClient client = RetryingDnsClient.builder(dnsClient)
+				.build();
+
+		assertThrows(TimeLimitExceededException.class,
+				() -> client.lookup("foo", Deadline.after(0, TimeUnit.MILLISECONDS),
+						RecordType.A));
+		verifyNoInteractions(dnsClient);
+	}
+
+	@Test
+	void retryBudgetCapsRetries() {
+		final RetryingDnsClient client = RetryingDnsClient.builder(dnsClient)
+				.withWaitStrategy(WaitStrategies.fixedWait(1, TimeUnit.MILLISECONDS))
+				.withStopStrategy(StopStrategies.stopAfterAttempt(5)).withJitter(0.5)
+				.withRetryBudget(new RetryBudget(0, 1)).build();
+		when(dnsClient.lookupAsync("foo", RecordType.A)).thenAnswer(
+				i -> CompletableFuture.completedFuture(Arrays.asList()));
+
+		client.lookupAsync("foo", RecordType.A).join();
+		verify(dnsClient, times(2)).lookupAsync("foo", RecordType.A);
+
+		// the budget is spent
+		client.lookupAsync("foo", RecordType.A).join();
+		verify(dnsClient, times(3)).lookupAsync("foo", RecordType.A);
+	}
+
+	@Test
+	void retryBudgetCapsSynchronousRetries() throws NamingException {
+		final RetryingDnsClient client = RetryingDnsClient.builder(dnsClient)
+				.withWaitStrategy(WaitStrategies.fixedWait(1, TimeUnit.MILLISECONDS))
+				.withStopStrategy(StopStrategies.stopAfterAttempt(5))
+				.withRetryBudget(new RetryBudget(0, 1)).build();
+		when(dnsClient.lookup("foo", RecordType.A)).thenAnswer(
+				i -> Arrays.asList());
+
+		assertThat(client.lookup("foo", RecordType.A), hasSize(0));
+		verify(dnsClient, times(2)).lookup("foo", RecordType.A);
+
+		// the budget is spent, and the attempts ran on this thread
+		assertThat(client.lookup("foo", RecordType.A), hasSize(0));
+		verify(dnsClient, times(3)).lookup("foo", RecordType.A);
+		verify(dnsClient, never()).lookupAsync("foo", RecordType.A);
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.naming.NamingException;
+
+import org.junit.jupiter.api.Test;
+
+class ServiceRecordSelectorTest {
+
+	private static final int SELECTIONS = 100_000;
+
+	private static final SrvDnsRecord A = record(0, 10, "a");
+	private static final SrvDnsRecord B = record(0, 30, "b");
+	private static final SrvDnsRecord C = record(0, 60, "c");
+	private static final SrvDnsRecord ZERO = record(0, 0, "zero");
+	private static final SrvDnsRecord BACKUP = record(1, 1, "backup");
+
+	@Test
+	void selectIsProportionalToWeight() {
+		final ServiceRecordSelector selector =
+				ServiceRecordSelector.of(Arrays.asList(BACKUP, A, B, C));
+
+		final Map<SrvDnsRecord, Integer> counts = select(selector, 0);
+		assertThat(share(counts, A), closeTo(0.1, 0.01));
+		assertThat(share(counts, B), closeTo(0.3, 0.01));
+		assertThat(share(counts, C), closeTo(0.6, 0.01));
+		assertThat(counts.containsKey(BACKUP), is(false));
+	}
+
+	@Test
+	void selectFailsOverToTheNextPriority() {
+		final ServiceRecordSelector selector =
+				ServiceRecordSelector.of(Arrays.asList(A, BACKUP));
+
+		assertThat(selector.getPriorityGroups(), is(2));
+		assertThat(selector.select(1), sameInstance(BACKUP));
+	}
+
+	@Test
+	void selectRarelyPicksZeroWeight() {
+		final ServiceRecordSelector selector =
+				ServiceRecordSelector.of(Arrays.asList(ZERO, A, B, C));
+
+		// a chance of 1 in 101
+		assertThat(share(select(selector, 0), ZERO), lessThan(0.02));
+	}
+
+	@Test
+	void selectIsUniformIfAllWeightsAreZero() {
+		final SrvDnsRecord other = record(0, 0, "other");
+		final ServiceRecordSelector selector =
+				ServiceRecordSelector.of(Arrays.asList(ZERO, other));
+
+		assertThat(share(select(selector, 0), other), closeTo(0.5, 0.01));
+	}
+
+	@Test
+	void selectFromNoRecordsFails() {
+		final ServiceRecordSelector selector =
+				ServiceRecordSelector.of(Arrays.asList());
+
+		assertThat(selector.isEmpty(), is(true));
+		assertThrows(IllegalStateException.class, selector::select);
+	}
+
+	@Test
+	void cachingDnsClientSharesTheSelectorOfCachedRecords()
+			throws NamingException {
+		final DnsClient client =
+				new CachingDnsClient((name, recordTypes) -> Arrays.asList(A, B));
+
+		final ServiceRecordSelector selector =
+				client.lookupServiceRecordSelector("_foo._tcp.marathon.mesos");
+		assertThat(client.lookupServiceRecordSelector("_foo._tcp.marathon.mesos"),
+				sameInstance(selector));
+	}
+
+	private static Map<SrvDnsRecord, Integer> select(
+			final ServiceRecordSelector selector, final int priorityGroup) {
+		final Random random = new Random(42);
+		final Map<SrvDnsRecord, Integer> counts = new HashMap<>();
+		for (int i = 0; i < SELECTIONS; i++) {
+			counts.merge(selector.select(priorityGroup, random), 1, Integer::sum);
+		}
+
+		return counts;
+	}
+
+	private static double share(final Map<SrvDnsRecord, Integer> counts,
+			final SrvDnsRecord record) {
+		return counts.getOrDefault(record, 0) / (double) SELECTIONS;
+	}
+
+	private static SrvDnsRecord record(final int priority, final int weight,
+			final String target) {
+		return SrvDnsRecord.create("_foo._tcp.marathon.mesos", priority, weight,
+				31000, target + ".marathon.mesos.");
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.iland.dns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class SrvDnsRecordTest {
+
+	@Test
+	void createParsesValue() {
+		final SrvDnsRecord record =
+				SrvDnsRecord.create("_framework._tcp.marathon.mesos",
+						"0 1 41569 marathon.mesos.");
+		assertThat(record.getPriority(), equalTo(0));
+		assertThat(record.getWeight(), equalTo(1));
+		assertThat(record.getPort(), equalTo(41569));
+		assertThat(record.getTarget(), equalTo("marathon.mesos."));
+	}
+
+	@Test
+	void valueIsFormattedFromTheParsedFields() {
+		final SrvDnsRecord record = SrvDnsRecord.create(
+				"_framework._tcp.marathon.mesos", 0, 1, 41569, "marathon.mesos.");
+		assertThat(record.getValue(), equalTo("0 1 41569 marathon.mesos."));
+		assertThat(record, equalTo(new DnsRecord(RecordType.SRV,
+				"_framework._tcp.marathon.mesos", "0 1 41569 marathon.mesos.")));
+	}
+
+	@Test
+	void recordsHashAsTheirTextualForm() {
+		final SrvDnsRecord record = SrvDnsRecord.create(
+				"_framework._tcp.marathon.mesos", 10, 0, 65535, "marathon.mesos.");
+		assertThat(record.hashCode(), equalTo(new DnsRecord(RecordType.SRV,
+				"_framework._tcp.marathon.mesos", "10 0 65535 marathon.mesos.")
+				.hashCode()));
+		assertThat(record, equalTo(SrvDnsRecord.create(
+				"_framework._tcp.marathon.mesos", "10 0 65535 marathon.mesos.")));
+		assertThat(record, not(equalTo(SrvDnsRecord.create(
+				"_framework._tcp.marathon.mesos", 10, 0, 65534, "marathon.mesos."))));
+	}
+
+	@Test
+	void createRejectsFieldsBeyond16Bits() {
+		assertThrows(IllegalArgumentException.class,
+				() -> SrvDnsRecord.create("_framework._tcp.marathon.mesos",
+						"0 1 65536 marathon.mesos."));
+	}
+
+	@Test
+	void createParsesCharSequencesAndBytes() {
+		final SrvDnsRecord expected = SrvDnsRecord.create(
+				"_framework._tcp.marathon.mesos", 10, 20, 41569, "marathon.mesos.");
+		final byte[] bytes = "[10 20 41569 marathon.mesos.]"
+				.getBytes(StandardCharsets.US_ASCII);
+
+		assertThat(SrvDnsRecord.create("_framework._tcp.marathon.mesos",
+				new StringBuilder(" 10\t20  41569 marathon.mesos.\n"),
+				DnsRecord.UNKNOWN_TTL), equalTo(expected));
+		assertThat(SrvDnsRecord.create("_framework._tcp.marathon.mesos", bytes, 1,
+				bytes.length - 2, DnsRecord.UNKNOWN_TTL), equalTo(expected));
+	}
+
+	@Test
+	void createRejectsMalformedValues() {
+		for (final String value : new String[] { "", "0 1 41569", "0 1 41569 ",
+				"0 1 x41569 marathon.mesos.", "-1 1 41569 marathon.mesos.",
+				"0,1 41569 marathon.mesos.", "0 1 99999999999 marathon.mesos." }) {
+			assertThrows(IllegalArgumentException.class,
+					() -> SrvDnsRecord.create("_framework._tcp.marathon.mesos", value),
+					value);
+		}
+	}
+
+}
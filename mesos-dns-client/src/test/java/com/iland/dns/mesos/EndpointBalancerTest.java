@@ -0,0 +1,194 @@
+package com.iland.dns.mesos;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.NamingException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.google.common.base.Ticker;
+import com.iland.dns.DnsClient;
+import com.iland.dns.SrvDnsRecord;
+import com.iland.dns.mesos.EndpointBalancer.Endpoint;
+
+class EndpointBalancerTest {
+
+	private static final String NAME = "_http._foo._tcp.marathon.mesos";
+
+	private static final SrvDnsRecord FAST = record(0, "fast");
+	private static final SrvDnsRecord SLOW = record(0, "slow");
+	private static final SrvDnsRecord BACKUP = record(1, "backup");
+
+	private final AtomicLong nanos = new AtomicLong();
+	private EndpointBalancer balancer;
+
+	@Mock
+	private DnsClient dnsClient;
+
+	@BeforeEach
+	void beforeEach() {
+		MockitoAnnotations.openMocks(this);
+		this.balancer = new EndpointBalancer(10, 1, TimeUnit.SECONDS,
+				new Ticker() {
+					@Override
+					public long read() {
+						return nanos.get();
+					}
+				});
+	}
+
+	@Test
+	void selectPrefersTheFasterEndpoint() {
+		balancer.update(Arrays.asList(FAST, SLOW, BACKUP));
+		warmUp();
+
+		final Map<String, Integer> counts = select(1000);
+		assertThat(counts.getOrDefault(FAST.getTarget(), 0), greaterThan(900));
+		assertThat(counts.containsKey(BACKUP.getTarget()), is(false));
+	}
+
+	@Test
+	void selectAvoidsEndpointsWithOutstandingCalls() {
+		balancer.update(Arrays.asList(FAST, SLOW));
+		warmUp();
+
+		// calls pile up on the fast endpoint until it scores worse than the slow
+		// one, i.e. once it has about 100 times as many outstanding calls
+		final Random random = new Random(42);
+		for (int i = 0; i < 150; i++) {
+			balancer.select(random);
+		}
+		assertThat(endpoint(FAST).getOutstanding(), greaterThan(98));
+		assertThat(endpoint(SLOW).getOutstanding(), greaterThan(0));
+	}
+
+	@Test
+	void newEndpointsScoreWithTheTypicalLatency() {
+		balancer.update(Collections.singletonList(FAST));
+		warmUp();
+		final SrvDnsRecord added = record(0, "added");
+		balancer.onChange(NAME, Collections.singletonList(added),
+				Collections.emptyList());
+
+		// a new endpoint does not take every call until its first one completes
+		final Random random = new Random(42);
+		for (int i = 0; i < 20; i++) {
+			balancer.select(random);
+		}
+		assertThat(endpoint(FAST).getOutstanding(), greaterThan(5));
+		assertThat(endpoint(added).getOutstanding(), greaterThan(5));
+	}
+
+	@Test
+	void idleEndpointsDecayTowardsTheTypicalLatency() {
+		balancer.update(Arrays.asList(FAST, SLOW));
+		warmUp();
+
+		// once idle for long, both endpoints score alike and share the calls
+		nanos.addAndGet(TimeUnit.SECONDS.toNanos(100));
+		final Random random = new Random(42);
+		for (int i = 0; i < 20; i++) {
+			balancer.select(random);
+		}
+		assertThat(endpoint(FAST).getOutstanding(), greaterThan(5));
+		assertThat(endpoint(SLOW).getOutstanding(), greaterThan(5));
+	}
+
+	@Test
+	void failuresArePenalized() {
+		balancer.update(Collections.singletonList(FAST));
+		warmUp();
+
+		nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		balancer.complete(balancer.select(), 1, TimeUnit.MILLISECONDS, true);
+		assertThat(endpoint(FAST).getLatency(TimeUnit.MILLISECONDS),
+				greaterThan(100L));
+	}
+
+	@Test
+	void stateSurvivesRefresh() {
+		balancer.update(Arrays.asList(FAST, SLOW));
+		warmUp();
+		final Endpoint fast = endpoint(FAST);
+
+		balancer.onChange(NAME, Arrays.asList(BACKUP), Arrays.asList(SLOW));
+		assertThat(endpoint(FAST), sameInstance(fast));
+		assertThat(fast.getLatency(TimeUnit.MILLISECONDS), is(1L));
+		assertThat(balancer.getEndpoints(), hasSize(2));
+
+		balancer.update(Collections.singletonList(FAST));
+		assertThat(endpoint(FAST), sameInstance(fast));
+		assertThat(balancer.getEndpoints(), hasSize(1));
+	}
+
+	@Test
+	void selectWithoutEndpointsFails() {
+		assertThrows(IllegalStateException.class, balancer::select);
+	}
+
+	@Test
+	void balanceServiceRecordsWatchesTheName() throws NamingException,
+			MesosDnsException {
+		when(dnsClient.lookupServiceRecords(NAME)).thenReturn(
+				Arrays.asList(FAST, SLOW));
+		final MesosDnsClient client = new MesosDnsClient(dnsClient);
+
+		try (EndpointBalancer balancer = client.balanceServiceRecords(NAME)) {
+			assertThat(balancer.getEndpoints(), hasSize(2));
+		}
+	}
+
+	/**
+	 * Reports a call to each endpoint: 1 ms for the fast one, 100 ms for the
+	 * slow ones.
+	 */
+	private void warmUp() {
+		for (final Endpoint endpoint : balancer.getEndpoints()) {
+			balancer.report(endpoint,
+					endpoint.getRecord() == FAST ? 1 : 100, TimeUnit.MILLISECONDS,
+					false);
+		}
+	}
+
+	private Map<String, Integer> select(final int calls) {
+		final Random random = new Random(42);
+		final Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < calls; i++) {
+			final Endpoint endpoint = balancer.select(random);
+			counts.merge(endpoint.getTarget(), 1, Integer::sum);
+			balancer.complete(endpoint, endpoint.getRecord() == FAST ? 1 : 100,
+					TimeUnit.MILLISECONDS, false);
+		}
+
+		return counts;
+	}
+
+	private Endpoint endpoint(final SrvDnsRecord record) {
+		return balancer.getEndpoints().stream()
+				.filter(e -> e.getTarget().equals(record.getTarget())).findFirst()
+				.orElseThrow(IllegalStateException::new);
+	}
+
+	private static SrvDnsRecord record(final int priority, final String target) {
+		return SrvDnsRecord.create(NAME, priority, 1, 31000,
+				target + ".marathon.mesos.");
+	}
+
+}
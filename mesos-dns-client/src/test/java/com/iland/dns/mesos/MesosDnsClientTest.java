@@ -1,11 +1,23 @@
 package com.iland.dns.mesos;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.net.InetSocketAddress;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.naming.NamingException;
 
@@ -15,7 +27,11 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import com.google.common.net.InetAddresses;
+import com.iland.dns.AddressDnsRecord;
+import com.iland.dns.CachingDnsClient;
 import com.iland.dns.DnsClient;
+import com.iland.dns.DnsLookupResult;
 import com.iland.dns.DnsRecord;
 import com.iland.dns.Protocol;
 import com.iland.dns.RecordType;
@@ -58,6 +74,89 @@ class MesosDnsClientTest {
 		assertThat(serviceRecords, hasSize(1));
 	}
 
+	@Test
+	void lookupThroughACacheReusesItsEntries()
+			throws NamingException, MesosDnsException {
+		when(dnsClient.lookup("_http._foo._tcp.marathon.mesos",
+				RecordType.SRV)).thenAnswer(i -> Arrays.asList(
+				SrvDnsRecord.create("_http._foo._tcp.marathon.mesos",
+						"0 1 31000 foo.marathon.mesos.")));
+		final MesosDnsClient cached =
+				new MesosDnsClient(new CachingDnsClient(dnsClient));
+
+		final List<SrvDnsRecord> serviceRecords =
+				cached.lookupServiceRecordsForTaskService("mesos", "marathon", "foo",
+						"http", Protocol.TCP);
+		assertThat(serviceRecords, hasSize(1));
+		assertThat(cached.lookupServiceRecordsForTaskService("mesos", "marathon",
+				"foo", "http", Protocol.TCP), sameInstance(serviceRecords));
+		assertThat(cached.lookupServiceRecords("_http._foo._tcp.marathon.mesos"),
+				sameInstance(serviceRecords));
+		verify(dnsClient, times(1)).lookup("_http._foo._tcp.marathon.mesos",
+				RecordType.SRV);
+	}
+
+	@Test
+	void lookupAgentAddresses() throws NamingException, MesosDnsException {
+		when(dnsClient.lookup("slave.mesos", RecordType.A,
+				RecordType.AAAA)).thenAnswer(i -> Arrays.asList(
+				new AddressDnsRecord("slave.mesos", new byte[] { 10, 0, 0, 1 },
+						DnsRecord.UNKNOWN_TTL),
+				new DnsRecord(RecordType.AAAA, "slave.mesos", "2001:db8::1")));
+
+		final List<InetSocketAddress> addresses =
+				client.lookupAgentAddresses("mesos", 5051);
+		assertThat(addresses, contains(
+				new InetSocketAddress(InetAddresses.forString("10.0.0.1"), 5051),
+				new InetSocketAddress(InetAddresses.forString("2001:db8::1"), 5051)));
+		assertThat(addresses.get(1).getHostString(), equalTo("slave.mesos"));
+	}
+
+	@Test
+	void lookupClusterAddressesRejectsInvalidAddresses() throws NamingException {
+		when(dnsClient.lookup("master.mesos", RecordType.A,
+				RecordType.AAAA)).thenAnswer(i -> Arrays.asList(
+				new DnsRecord(RecordType.A, "master.mesos", "master.mesos")));
+
+		assertThrows(MesosDnsException.class,
+				() -> client.lookupClusterAddresses("mesos", 5050));
+	}
+
+	@Test
+	void lookupAsyncTranslatesNamingException() {
+		final CompletableFuture<List<? extends DnsRecord>> failed =
+				new CompletableFuture<>();
+		failed.completeExceptionally(new NamingException("leader.mesos"));
+		when(dnsClient.lookupAsync("leader.mesos", RecordType.A)).thenReturn(
+				failed);
+
+		final CompletionException exception = assertThrows(
+				CompletionException.class,
+				() -> client.lookupAsync("leader.mesos", RecordType.A).join());
+		assertThat(exception.getCause(), instanceOf(MesosDnsException.class));
+	}
+
+	@Test
+	void lookupAllTranslatesNamingException()
+			throws NamingException, MesosDnsException {
+		final Map<String, DnsLookupResult<NamingException>> results =
+				new LinkedHashMap<>();
+		results.put("foo.marathon.mesos", DnsLookupResult.success(
+				"foo.marathon.mesos", Arrays.asList(
+						new DnsRecord(RecordType.A, "foo.marathon.mesos", "10.0.0.1"))));
+		results.put("bar.marathon.mesos", DnsLookupResult.failure(
+				"bar.marathon.mesos", new NamingException("bar.marathon.mesos")));
+		final List<String> names =
+				Arrays.asList("foo.marathon.mesos", "bar.marathon.mesos");
+		when(dnsClient.lookupAll(names, RecordType.A)).thenReturn(results);
+
+		final Map<String, DnsLookupResult<MesosDnsException>> translated =
+				client.lookupAll(names, RecordType.A);
+		assertThat(translated.get("foo.marathon.mesos").getRecords(), hasSize(1));
+		assertThrows(MesosDnsException.class,
+				() -> translated.get("bar.marathon.mesos").getRecords());
+	}
+
 	@Test
 	@Disabled("run locally (required additional configuration)")
 	void printAll() throws MesosDnsException {
@@ -0,0 +1,179 @@
+package com.iland.dns.mesos;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.TimeLimitExceededException;
+
+import com.iland.dns.Deadline;
+import com.iland.dns.DnsRecord;
+import com.iland.dns.RecordType;
+import com.iland.dns.SrvDnsRecord;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MesosDnsHttpClientTest {
+
+	private static final String ENUMERATION = "{\"frameworks\": [\n"
+			+ "  {\"name\": \"marathon\", \"tasks\": [\n"
+			+ "    {\"name\": \"foo\", \"id\": \"foo.1\", \"records\": [\n"
+			+ "      {\"name\": \"foo.marathon.mesos.\", \"host\": \"10.0.0.1\", \"rtype\": \"A\"},\n"
+			+ "      {\"name\": \"_foo._tcp.marathon.mesos.\", \"host\": \"foo-1.marathon.mesos.:31000\", \"rtype\": \"SRV\"}\n"
+			+ "    ]},\n"
+			+ "    {\"name\": \"bar\", \"id\": \"bar.1\", \"records\": null}\n"
+			+ "  ]},\n"
+			+ "  {\"name\": \"chronos\", \"tasks\": []}\n"
+			+ "]}\n";
+
+	private final Map<String, String> responses = new ConcurrentHashMap<>();
+	private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+	private HttpServer server;
+	private MesosDnsHttpClient client;
+	private volatile int status = 200;
+	private volatile long delayMillis;
+
+	@BeforeEach
+	void beforeEach() throws IOException {
+		server = HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/v1/", exchange -> {
+			clientPorts.add(exchange.getRemoteAddress().getPort());
+			if (delayMillis > 0) {
+				try {
+					Thread.sleep(delayMillis);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			final String response =
+					responses.getOrDefault(exchange.getRequestURI().getPath(), "[]");
+			final byte[] body = response.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(status, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+
+		client = MesosDnsHttpClient.builder(
+						"http://127.0.0.1:" + server.getAddress().getPort() + "/")
+				.withTimeouts(1, 1, TimeUnit.SECONDS).build();
+	}
+
+	@AfterEach
+	void afterEach() {
+		server.stop(0);
+	}
+
+	@Test
+	void lookupServiceRecords() throws NamingException {
+		responses.put("/v1/services/_foo._tcp.marathon.mesos",
+				"[{\"service\": \"_foo._tcp.marathon.mesos\", \"host\": \"foo-1.marathon.mesos.\", \"ip\": \"10.0.0.1\", \"port\": \"31000\"},"
+						+ " {\"service\": \"_foo._tcp.marathon.mesos\", \"host\": \"foo-2.marathon.mesos.\", \"ip\": \"10.0.0.2\", \"port\": 31001}]");
+
+		final List<SrvDnsRecord> records =
+				client.lookupServiceRecords("_foo._tcp.marathon.mesos");
+		assertThat(records, hasSize(2));
+		assertThat(records.get(0).getTarget(), equalTo("foo-1.marathon.mesos."));
+		assertThat(records.get(0).getPort(), equalTo(31000));
+		assertThat(records.get(1).getPort(), equalTo(31001));
+		assertThat(records.get(1).getName(), equalTo("_foo._tcp.marathon.mesos"));
+	}
+
+	@Test
+	void lookupAddressRecords() throws NamingException {
+		responses.put("/v1/hosts/foo.marathon.mesos",
+				"[{\"host\": \"foo.marathon.mesos.\", \"ip\": \"10.0.0.1\"},"
+						+ " {\"host\": \"foo.marathon.mesos.\", \"ip\": \"2001:db8::1\"}]");
+
+		assertThat(client.lookup("foo.marathon.mesos", RecordType.A),
+				contains(new DnsRecord(RecordType.A, "foo.marathon.mesos",
+						"10.0.0.1")));
+		assertThat(client.lookup("foo.marathon.mesos"), hasSize(2));
+	}
+
+	@Test
+	void lookupUnknownNameThrowsNameNotFoundException() {
+		responses.put("/v1/hosts/bar.marathon.mesos",
+				"[{\"host\": \"\", \"ip\": \"\"}]");
+
+		assertThrows(NameNotFoundException.class,
+				() -> client.lookup("bar.marathon.mesos", RecordType.A));
+	}
+
+	@Test
+	void lookupUnsupportedRecordTypeThrowsOperationNotSupportedException() {
+		assertThrows(OperationNotSupportedException.class,
+				() -> client.lookup("foo.marathon.mesos", RecordType.TXT));
+	}
+
+	@Test
+	void lookupServerErrorThrowsServiceUnavailableException() {
+		status = 503;
+
+		assertThrows(ServiceUnavailableException.class,
+				() -> client.lookup("foo.marathon.mesos", RecordType.A));
+	}
+
+	@Test
+	void lookupFailsOnceTheDeadlineExpires() {
+		delayMillis = 500;
+
+		assertThrows(TimeLimitExceededException.class,
+				() -> client.lookup("foo.marathon.mesos",
+						Deadline.after(50, TimeUnit.MILLISECONDS), RecordType.A));
+	}
+
+	@Test
+	void enumerateStreamsEveryRecord() throws NamingException {
+		responses.put("/v1/enumerate", ENUMERATION);
+
+		final List<DnsRecord> records = client.enumerate();
+		assertThat(records, contains(
+				new DnsRecord(RecordType.A, "foo.marathon.mesos", "10.0.0.1"),
+				SrvDnsRecord.create("_foo._tcp.marathon.mesos", 0, 1, 31000,
+						"foo-1.marathon.mesos.")));
+	}
+
+	@Test
+	void enumerateRejectsMalformedResponses() {
+		responses.put("/v1/enumerate", "{\"frameworks\": [{\"tasks\": [");
+
+		assertThrows(NamingException.class, () -> client.enumerate());
+	}
+
+	@Test
+	void connectionIsKeptAlive() throws NamingException {
+		responses.put("/v1/hosts/foo.marathon.mesos",
+				"[{\"host\": \"foo.marathon.mesos.\", \"ip\": \"10.0.0.1\"}]");
+		responses.put("/v1/enumerate", ENUMERATION);
+
+		for (int i = 0; i < 5; i++) {
+			client.lookup("foo.marathon.mesos", RecordType.A);
+			client.enumerate();
+		}
+		assertThat(clientPorts, hasSize(1));
+	}
+
+}
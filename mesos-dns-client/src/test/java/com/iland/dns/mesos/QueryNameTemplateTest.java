@@ -0,0 +1,86 @@
+package com.iland.dns.mesos;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.iland.dns.DnsQuery;
+import com.iland.dns.RecordType;
+import org.junit.jupiter.api.Test;
+
+class QueryNameTemplateTest {
+
+	private final QueryNameTemplate template =
+			QueryNameTemplate.compile("_%s._%s._%s.%s.%s");
+
+	@Test
+	void nameMatchesFormat() {
+		assertThat(template.name("http", "foo", "tcp", "marathon", "mesos").value(),
+				equalTo(String.format("_%s._%s._%s.%s.%s", "http", "foo", "tcp",
+						"marathon", "mesos")));
+		assertThat(QueryNameTemplate.compile("%s.%s.slave.%s")
+						.name("foo", "marathon", "mesos").value(),
+				equalTo("foo.marathon.slave.mesos"));
+	}
+
+	@Test
+	void repeatedArgumentsReturnTheSameName() {
+		final String name =
+				template.name("http", "foo", "tcp", "marathon", "mesos").value();
+
+		assertThat(template.name(new String("http"), "foo", "tcp", "marathon",
+				"mesos").value(), sameInstance(name));
+		assertThat(template.name("http", "bar", "tcp", "marathon", "mesos")
+				.value(), not(equalTo(name)));
+	}
+
+	@Test
+	void repeatedRecordTypesReturnTheSameQuery() {
+		final QueryNameTemplate.Name name =
+				template.name("http", "foo", "tcp", "marathon", "mesos");
+		final DnsQuery query = name.query(new RecordType[] { RecordType.SRV });
+
+		assertThat(template.name("http", "foo", "tcp", "marathon", "mesos")
+				.query(new RecordType[] { RecordType.SRV }), sameInstance(query));
+		assertThat(query, equalTo(DnsQuery.of(name.value(), RecordType.SRV)));
+		assertThat(name.query(new RecordType[] { RecordType.A }),
+				equalTo(DnsQuery.of(name.value(), RecordType.A)));
+	}
+
+	@Test
+	void recentlyUsedNamesAreKept() {
+		final String name =
+				template.name("http", "foo", "tcp", "marathon", "mesos").value();
+		for (int i = 0; i < 4 * QueryNameTemplate.MAX_CACHED_NAMES; i++) {
+			template.name("http", "task-" + i, "tcp", "marathon", "mesos");
+
+			assertThat(template.name("http", "foo", "tcp", "marathon", "mesos")
+					.value(), sameInstance(name));
+		}
+	}
+
+	@Test
+	void leastRecentlyUsedNamesAreForgotten() {
+		final String name =
+				template.name("http", "foo", "tcp", "marathon", "mesos").value();
+		for (int i = 0; i < 16 * QueryNameTemplate.MAX_CACHED_NAMES; i++) {
+			template.name("http", "task-" + i, "tcp", "marathon", "mesos");
+		}
+
+		final String rebuilt =
+				template.name("http", "foo", "tcp", "marathon", "mesos").value();
+		assertThat(rebuilt, equalTo(name));
+		assertThat(rebuilt, not(sameInstance(name)));
+	}
+
+	@Test
+	void nameRejectsTheWrongNumberOfArguments() {
+		assertThrows(IllegalArgumentException.class,
+				() -> template.name("foo", "marathon", "mesos"));
+		assertThrows(NullPointerException.class,
+				() -> template.name("http", null, "tcp", "marathon", "mesos"));
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.iland.dns.mesos;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.naming.NameNotFoundException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iland.dns.SrvDnsRecord;
+
+class ServiceRecordWatcherTest {
+
+	private static final String NAME = "_http._foo._tcp.marathon.mesos";
+
+	private static final SrvDnsRecord FOO_1 =
+			SrvDnsRecord.create(NAME, 0, 1, 31000, "foo-1.marathon.mesos.");
+	private static final SrvDnsRecord FOO_2 =
+			SrvDnsRecord.create(NAME, 0, 1, 31001, "foo-2.marathon.mesos.");
+
+	private final AtomicReference<List<SrvDnsRecord>> records =
+			new AtomicReference<>(Arrays.asList(FOO_1));
+	private final AtomicInteger polls = new AtomicInteger();
+	private ScheduledExecutorService scheduler;
+	private ServiceRecordWatcher watcher;
+
+	@BeforeEach
+	void beforeEach() {
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		this.watcher = new ServiceRecordWatcher(name -> {
+			polls.incrementAndGet();
+			return CompletableFuture.completedFuture(records.get());
+		}, scheduler, 10, TimeUnit.MILLISECONDS);
+	}
+
+	@AfterEach
+	void afterEach() {
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	void watchNotifiesAddedAndRemovedRecords() throws InterruptedException {
+		final BlockingQueue<Change> changes = new LinkedBlockingQueue<>();
+		watcher.watch(NAME, (name, added, removed) -> changes.add(
+				new Change(added, removed)));
+
+		final Change initial = changes.poll(1, TimeUnit.SECONDS);
+		assertThat(initial.added, contains(FOO_1));
+		assertThat(initial.removed, is(empty()));
+
+		records.set(Arrays.asList(FOO_2));
+		final Change change = changes.poll(1, TimeUnit.SECONDS);
+		assertThat(change.added, contains(FOO_2));
+		assertThat(change.removed, contains(FOO_1));
+
+		// unchanged records are not notified
+		final int before = polls.get();
+		while (polls.get() < before + 3) {
+			Thread.sleep(5);
+		}
+		assertThat(changes.poll(), is(nullValue()));
+	}
+
+	@Test
+	void subscribersOfTheSameNameSharePolling() throws InterruptedException {
+		final BlockingQueue<Change> first = new LinkedBlockingQueue<>();
+		final BlockingQueue<Change> second = new LinkedBlockingQueue<>();
+		final ServiceRecordSubscription subscription = watcher.watch(NAME,
+				(name, added, removed) -> first.add(new Change(added, removed)));
+		assertThat(first.poll(1, TimeUnit.SECONDS), is(notNullValue()));
+
+		final ServiceRecordSubscription other = watcher.watch(NAME,
+				(name, added, removed) -> second.add(new Change(added, removed)));
+		// a late subscriber is brought up to date
+		assertThat(second.poll(1, TimeUnit.SECONDS).added, contains(FOO_1));
+		assertThat(watcher.size(), is(1));
+
+		subscription.close();
+		assertThat(watcher.size(), is(1));
+		other.close();
+		assertThat(watcher.size(), is(0));
+	}
+
+	@Test
+	void watchNotifiesTheRemovalOfNamesNoLongerFound()
+			throws InterruptedException {
+		final AtomicBoolean found = new AtomicBoolean(true);
+		final ServiceRecordWatcher vanishing = new ServiceRecordWatcher(name -> {
+			if (found.get()) {
+				return CompletableFuture.completedFuture(Arrays.asList(FOO_1));
+			}
+			final CompletableFuture<List<SrvDnsRecord>> future =
+					new CompletableFuture<>();
+			future.completeExceptionally(
+					new MesosDnsException(new NameNotFoundException(name)));
+			return future;
+		}, scheduler, 10, TimeUnit.MILLISECONDS);
+		final BlockingQueue<Change> changes = new LinkedBlockingQueue<>();
+		final BlockingQueue<MesosDnsException> failures =
+				new LinkedBlockingQueue<>();
+
+		final ServiceRecordSubscription subscription = vanishing.watch(NAME,
+				new ServiceRecordListener() {
+					@Override
+					public void onChange(final String name,
+							final List<SrvDnsRecord> added,
+							final List<SrvDnsRecord> removed) {
+						changes.add(new Change(added, removed));
+					}
+
+					@Override
+					public void onFailure(final String name,
+							final MesosDnsException exception) {
+						failures.add(exception);
+					}
+				});
+		try {
+			assertThat(changes.poll(1, TimeUnit.SECONDS).added, contains(FOO_1));
+
+			found.set(false);
+			final Change change = changes.poll(1, TimeUnit.SECONDS);
+			assertThat(change.added, is(empty()));
+			assertThat(change.removed, contains(FOO_1));
+			assertThat(failures.poll(), is(nullValue()));
+		} finally {
+			subscription.close();
+		}
+	}
+
+	@Test
+	void watchNotifiesFailures() throws InterruptedException {
+		final ServiceRecordWatcher failing = new ServiceRecordWatcher(name -> {
+			final CompletableFuture<List<SrvDnsRecord>> future =
+					new CompletableFuture<>();
+			future.completeExceptionally(new MesosDnsException(name));
+			return future;
+		}, scheduler, 10, TimeUnit.MILLISECONDS);
+		final BlockingQueue<MesosDnsException> failures =
+				new LinkedBlockingQueue<>();
+
+		final ServiceRecordSubscription subscription = failing.watch(NAME,
+				new ServiceRecordListener() {
+					@Override
+					public void onChange(final String name,
+							final List<SrvDnsRecord> added,
+							final List<SrvDnsRecord> removed) {
+						throw new AssertionError("unexpected change");
+					}
+
+					@Override
+					public void onFailure(final String name,
+							final MesosDnsException exception) {
+						failures.add(exception);
+					}
+				});
+		try {
+			assertThat(failures.poll(1, TimeUnit.SECONDS), is(notNullValue()));
+		} finally {
+			subscription.close();
+		}
+	}
+
+	private static final class Change {
+
+		private final List<SrvDnsRecord> added;
+		private final List<SrvDnsRecord> removed;
+
+		private Change(final List<SrvDnsRecord> added,
+				final List<SrvDnsRecord> removed) {
+			this.added = added;
+			this.removed = removed;
+		}
+
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.iland.dns.mesos;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.naming.CommunicationException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iland.dns.DnsClient;
+import com.iland.dns.DnsRecord;
+import com.iland.dns.Protocol;
+import com.iland.dns.RecordType;
+import com.iland.dns.SrvDnsRecord;
+
+class ZoneMirrorTest {
+
+	private static final DnsRecord AGENT =
+			new DnsRecord(RecordType.A, "foo.marathon.slave.mesos.", "10.0.0.1");
+	private static final SrvDnsRecord HTTP = SrvDnsRecord.create(
+			"_http._foo._tcp.marathon.mesos", 0, 1, 31000, "foo.marathon.mesos.");
+	private static final SrvDnsRecord ADMIN = SrvDnsRecord.create(
+			"_admin._foo._tcp.marathon.mesos", 0, 1, 31001, "foo.marathon.mesos.");
+
+	private final AtomicReference<List<DnsRecord>> zone = new AtomicReference<>(
+			Arrays.asList(AGENT, HTTP, ADMIN));
+	private ZoneMirror mirror;
+	private MesosDnsClient client;
+
+	@BeforeEach
+	void beforeEach() {
+		mirror = ZoneMirror.builder(consumer -> {
+			final List<DnsRecord> records = zone.get();
+			if (records == null) {
+				throw new CommunicationException("enumeration failed");
+			}
+			records.forEach(consumer);
+		}).build();
+		client = new MesosDnsClient(mirror);
+	}
+
+	@Test
+	void lookupBeforeTheFirstRefreshFails() {
+		final MesosDnsException exception = assertThrows(MesosDnsException.class,
+				() -> client.lookupAgentsFor("mesos", "marathon", "foo"));
+		assertThat(exception.getCause(),
+				instanceOf(ServiceUnavailableException.class));
+	}
+
+	@Test
+	void mesosDnsClientLookupsAreAnsweredFromTheZone()
+			throws NamingException, MesosDnsException {
+		mirror.refresh();
+
+		assertThat(mirror.size(), equalTo(3));
+		assertThat(client.lookupAgentsFor("mesos", "marathon", "foo"),
+				contains(AGENT));
+		assertThat(client.lookupServiceRecordsForTaskService("mesos", "marathon",
+				"foo", "http", Protocol.TCP), contains(HTTP));
+		assertThat(mirror.lookup("FOO.marathon.slave.mesos.", RecordType.AAAA),
+				hasSize(0));
+		final MesosDnsException exception = assertThrows(MesosDnsException.class,
+				() -> client.lookupAgentsFor("mesos", "marathon", "bar"));
+		assertThat(exception.getCause(), instanceOf(NameNotFoundException.class));
+	}
+
+	@Test
+	void lookupByPrefix() throws NamingException {
+		mirror.refresh();
+
+		final Map<String, List<DnsRecord>> records =
+				mirror.lookupByPrefix("_", RecordType.SRV);
+		assertThat(new ArrayList<>(records.keySet()), contains(
+				"_admin._foo._tcp.marathon.mesos", "_http._foo._tcp.marathon.mesos"));
+		final List<DnsRecord> http = Collections.singletonList(HTTP);
+		assertThat(new ArrayList<>(mirror.lookupByPrefix("_http.").values()),
+				equalTo(Collections.singletonList(http)));
+	}
+
+	@Test
+	void failedRefreshKeepsTheLastZone() throws NamingException {
+		mirror.refresh();
+		zone.set(null);
+
+		assertThrows(CommunicationException.class, () -> mirror.refresh());
+		assertThat(mirror.lookup("foo.marathon.slave.mesos"), contains(AGENT));
+	}
+
+	@Test
+	void refreshSwapsTheZone() throws NamingException {
+		mirror.refresh();
+		zone.set(Collections.singletonList(HTTP));
+		mirror.refresh();
+
+		assertThat(mirror.size(), equalTo(1));
+		assertThrows(NameNotFoundException.class,
+				() -> mirror.lookup("foo.marathon.slave.mesos"));
+	}
+
+	@Test
+	void outdatedEnumerationsDoNotReplaceTheZone() throws Exception {
+		final CountDownLatch enumerating = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger enumerations = new AtomicInteger();
+		final ZoneMirror mirror = ZoneMirror.builder(consumer -> {
+			if (enumerations.incrementAndGet() == 1) {
+				consumer.accept(AGENT);
+				enumerating.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			} else {
+				consumer.accept(HTTP);
+			}
+		}).build();
+		final CompletableFuture<Void> outdated =
+				CompletableFuture.runAsync(() -> {
+					try {
+						mirror.refresh();
+					} catch (final NamingException e) {
+						throw new CompletionException(e);
+					}
+				});
+		enumerating.await();
+		mirror.refresh();
+		release.countDown();
+		outdated.get(5, TimeUnit.SECONDS);
+
+		assertThat(mirror.lookup("_http._foo._tcp.marathon.mesos"), contains(HTTP));
+		assertThrows(NameNotFoundException.class,
+				() -> mirror.lookup("foo.marathon.slave.mesos"));
+	}
+
+	@Test
+	void missingNamesAreLookedUpWithTheFallback() throws NamingException {
+		final DnsClient fallback = mock(DnsClient.class);
+		final DnsRecord bar =
+				new DnsRecord(RecordType.A, "bar.marathon.slave.mesos", "10.0.0.2");
+		when(fallback.lookup("bar.marathon.slave.mesos")).thenAnswer(
+				i -> Collections.singletonList(bar));
+		final ZoneMirror mirror =
+				ZoneMirror.builder(consumer -> consumer.accept(AGENT))
+						.withFallback(fallback).build();
+		mirror.refresh();
+
+		assertThat(mirror.lookup("bar.marathon.slave.mesos"), contains(bar));
+		assertThat(mirror.lookupAsync("foo.marathon.slave.mesos").join(),
+				contains(AGENT));
+		verify(fallback).lookup("bar.marathon.slave.mesos");
+	}
+
+	@Test
+	void sourceOfNamesSkipsUnknownNames() throws NamingException {
+		mirror.refresh();
+		final ZoneMirror names = ZoneMirror.builder(ZoneSource.of(mirror,
+				Arrays.asList("foo.marathon.slave.mesos",
+						"bar.marathon.slave.mesos"))).build();
+		names.refresh();
+
+		assertThat(names.size(), equalTo(1));
+		assertThat(names.lookup("foo.marathon.slave.mesos"), contains(AGENT));
+	}
+
+}